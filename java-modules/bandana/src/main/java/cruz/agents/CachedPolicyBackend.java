@@ -0,0 +1,93 @@
+package cruz.agents;
+
+/**
+ * Decorates a PolicyBackend, memoising its deals by the hash of the observation they were predicted for.
+ *
+ * Only the part of the observation that the policies actually see is hashed (see TFAdapterNegotiation.encodeObservation),
+ * so the reward, done flag and info string do not prevent a hit. The deals of backends that are not deterministic are
+ * never cached: a policy that is still learning, or that samples its actions, must see every observation. A
+ * FailoverPolicyBackend is cached while the backend it uses is deterministic.
+ */
+public class CachedPolicyBackend implements PolicyBackend {
+
+    private final PolicyBackend backend;
+
+    private final ObservationActionCache cache;
+
+    /** Scratch array where observations are encoded before being hashed. */
+    private final int[] encodedObservation = new int[TFAdapterNegotiation.OBSERVATION_SIZE];
+
+    public CachedPolicyBackend(PolicyBackend backend) {
+        this(backend, new ObservationActionCache());
+    }
+
+    public CachedPolicyBackend(PolicyBackend backend, ObservationActionCache cache) {
+        this.backend = backend;
+        this.cache = cache;
+    }
+
+    @Override
+    public synchronized ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+        if (!this.backend.isDeterministic()) {
+            return this.backend.getDealData(observationData);
+        }
+
+        long observationHash = observationHash(observationData, this.encodedObservation);
+
+        ProtoMessage.DealData dealData = this.cache.get(observationHash);
+
+        if (dealData == null) {
+            dealData = this.backend.getDealData(observationData);
+
+            // Failures are not cached, so that the request is retried next time
+            if (dealData != null && this.backend.isLastDealDeterministic()) {
+                this.cache.put(observationHash, dealData);
+            }
+        }
+
+        return dealData;
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the encoded observation.
+     *
+     * @param observationData The observation to hash.
+     * @param encoded Scratch array with TFAdapterNegotiation.OBSERVATION_SIZE elements.
+     * @return The hash of the observation.
+     */
+    public static long observationHash(ProtoMessage.ObservationData observationData, int[] encoded) {
+        TFAdapterNegotiation.encodeObservation(observationData, encoded);
+
+        long hash = 0xcbf29ce484222325L;
+        for (int value : encoded) {
+            hash ^= value;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    public ObservationActionCache getCache() {
+        return this.cache;
+    }
+
+    @Override
+    public String getName() {
+        return "cached-" + this.backend.getName();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return this.backend.isAvailable();
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return this.backend.isDeterministic();
+    }
+
+    @Override
+    public void close() {
+        this.backend.close();
+    }
+}
@@ -0,0 +1,146 @@
+package cruz.agents;
+
+/**
+ * A deal action of the policy packed into a single long, so that it can be decided and passed around without
+ * allocating anything.
+ *
+ * The action has the layout of the MultiDiscrete action space of the negotiation env: [defendUnit execute, region,
+ * defendSC execute, ally power, attackRegion execute, region, supportAttackRegion execute, region, phases from now].
+ * Each of these 9 fields takes FIELD_BITS bits, the first one in the lowest bits.
+ */
+public final class DealAction {
+
+    /** Number of fields of an action. */
+    public static final int NUMBER_OF_FIELDS = 9;
+
+    public static final int DEFEND_UNIT_EXECUTE = 0;
+    public static final int DEFEND_UNIT_REGION = 1;
+    public static final int DEFEND_SC_EXECUTE = 2;
+    public static final int DEFEND_SC_ALLY_POWER = 3;
+    public static final int ATTACK_REGION_EXECUTE = 4;
+    public static final int ATTACK_REGION_REGION = 5;
+    public static final int SUPPORT_ATTACK_REGION_EXECUTE = 6;
+    public static final int SUPPORT_ATTACK_REGION_REGION = 7;
+    public static final int PHASES_FROM_NOW = 8;
+
+    /** Bits of each field. The largest value of the action space is 19 (phases from now). */
+    public static final int FIELD_BITS = 6;
+
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    /** Returned when there is no action, e.g. when the policy could not be reached. Valid actions never have the sign bit set. */
+    public static final long NONE = -1L;
+
+    private DealAction() {
+    }
+
+    public static int getField(long action, int field) {
+        return (int) ((action >>> (field * FIELD_BITS)) & FIELD_MASK);
+    }
+
+    public static long setField(long action, int field, int value) {
+        if (value < 0 || value > FIELD_MASK) {
+            throw new IllegalArgumentException("DealAction.setField() Error! Value " + value + " of field " + field + " does not fit in " + FIELD_BITS + " bits.");
+        }
+
+        int shift = field * FIELD_BITS;
+        return (action & ~(FIELD_MASK << shift)) | ((long) value << shift);
+    }
+
+    public static boolean isDefendUnit(long action) {
+        return getField(action, DEFEND_UNIT_EXECUTE) != 0;
+    }
+
+    public static int getDefendUnitRegion(long action) {
+        return getField(action, DEFEND_UNIT_REGION);
+    }
+
+    public static boolean isDefendSC(long action) {
+        return getField(action, DEFEND_SC_EXECUTE) != 0;
+    }
+
+    public static int getDefendSCAllyPower(long action) {
+        return getField(action, DEFEND_SC_ALLY_POWER);
+    }
+
+    public static boolean isAttackRegion(long action) {
+        return getField(action, ATTACK_REGION_EXECUTE) != 0;
+    }
+
+    public static int getAttackRegion(long action) {
+        return getField(action, ATTACK_REGION_REGION);
+    }
+
+    public static boolean isSupportAttackRegion(long action) {
+        return getField(action, SUPPORT_ATTACK_REGION_EXECUTE) != 0;
+    }
+
+    public static int getSupportAttackRegion(long action) {
+        return getField(action, SUPPORT_ATTACK_REGION_REGION);
+    }
+
+    public static int getPhasesFromNow(long action) {
+        return getField(action, PHASES_FROM_NOW);
+    }
+
+    /**
+     * @param action An action of the MultiDiscrete action space, as returned by TFPolicySession.
+     */
+    public static long fromArray(int[] action) {
+        long packed = 0;
+
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            packed = setField(packed, field, action[field]);
+        }
+
+        return packed;
+    }
+
+    public static long fromDealData(ProtoMessage.DealData dealData) {
+        long action = 0;
+
+        action = setField(action, DEFEND_UNIT_EXECUTE, dealData.getDefendUnit().getExecute() ? 1 : 0);
+        action = setField(action, DEFEND_UNIT_REGION, dealData.getDefendUnit().getRegion());
+        action = setField(action, DEFEND_SC_EXECUTE, dealData.getDefendSC().getExecute() ? 1 : 0);
+        action = setField(action, DEFEND_SC_ALLY_POWER, dealData.getDefendSC().getAllyPower());
+        action = setField(action, ATTACK_REGION_EXECUTE, dealData.getAttackRegion().getExecute() ? 1 : 0);
+        action = setField(action, ATTACK_REGION_REGION, dealData.getAttackRegion().getRegion());
+        action = setField(action, SUPPORT_ATTACK_REGION_EXECUTE, dealData.getSupportAttackRegion().getExecute() ? 1 : 0);
+        action = setField(action, SUPPORT_ATTACK_REGION_REGION, dealData.getSupportAttackRegion().getRegion());
+        action = setField(action, PHASES_FROM_NOW, dealData.getPhasesFromNow());
+
+        return action;
+    }
+
+    /**
+     * @return The DealData of the action, or null if the action is NONE.
+     */
+    public static ProtoMessage.DealData toDealData(long action) {
+        if (action == NONE) {
+            return null;
+        }
+
+        int[] fields = new int[NUMBER_OF_FIELDS];
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            fields[field] = getField(action, field);
+        }
+
+        return TFAdapterNegotiation.actionToDealData(fields);
+    }
+
+    public static String toString(long action) {
+        if (action == NONE) {
+            return "NONE";
+        }
+
+        StringBuilder stringBuilder = new StringBuilder("[");
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            if (field > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(getField(action, field));
+        }
+
+        return stringBuilder.append("]").toString();
+    }
+}
@@ -24,9 +24,10 @@ public class DeepDip extends DumbBot {
     OpenAIAdapterStrategy openAIAdapter;
     Logger logger = new Logger();
 
-    private DeepDip(String name, int finalYear, String logPath) {
-        super(name, finalYear, logPath);
+    private DeepDip(String name, int finalYear, String logPath, int gameServerPort) {
+        super(name, finalYear, logPath, gameServerPort);
         this.openAIAdapter = new OpenAIAdapterStrategy(this);
+        this.openAIAdapter.setGameServerPort(gameServerPort);
     }
 
     /**
@@ -38,6 +39,7 @@ public class DeepDip extends DumbBot {
         String name = "DeepDip";
         String logPath = "log/";
         int finalYear = 1905;
+        int gameServerPort = DEFAULT_GAME_SERVER_PORT;
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-name") && args.length > i + 1) {
@@ -58,11 +60,21 @@ public class DeepDip extends DumbBot {
                     return;
                 }
             }
+
+            //set the port of the game server
+            if (args[i].equals("-gamePort") && args.length > i + 1) {
+                try {
+                    gameServerPort = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("main() The port number argument is not a valid integer: " + args[i + 1]);
+                    return;
+                }
+            }
         }
         
         File logFolder = new File(logPath);
         logFolder.mkdirs();
-        DeepDip deepDip = new DeepDip(name, finalYear, logPath);
+        DeepDip deepDip = new DeepDip(name, finalYear, logPath, gameServerPort);
 
         try {
             deepDip.start(deepDip.comm);
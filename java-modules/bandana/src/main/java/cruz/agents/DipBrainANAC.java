@@ -1,6 +1,5 @@
 package cruz.agents;
 
-import cruz.anacUtils.MyNeuralNetwork;
 import ddejonge.bandana.anac.ANACNegotiator;
 import ddejonge.bandana.dbraneTactics.DBraneTactics;
 import ddejonge.bandana.dbraneTactics.Plan;
@@ -48,6 +47,12 @@ public class DipBrainANAC extends ANACNegotiator {
     public Random random = new Random();
     DBraneTactics dBraneTactics;
 
+    /**
+     * The embedded network that provides the deals. The ANAC rules forbid reading from disk or network.
+     * It is not cached: with a one-hot input, the prediction costs about as much as hashing the observation.
+     */
+    PolicyBackend policyBackend = new MLPPolicyBackend();
+
     /** Defines whether logs should be printed to console or not.*/
     private boolean printToConsole = true;
 
@@ -77,7 +82,23 @@ public class DipBrainANAC extends ANACNegotiator {
     public DipBrainANAC(String[] args) {
         super(args);
 
+        // With -seed, the same game is played with the same random decisions (see TournamentSpec.withReplayOf()).
+        if (this.getSeed() != null) {
+            random.setSeed(this.getSeed());
+        }
+
         dBraneTactics = this.getTacticalModule();
+
+        // The int8 weights are only used if they were generated (MakeWeights -int8) and asked for
+        for (String arg : args) {
+            if (arg.equals("-int8")) {
+                PolicyBackend quantisedPolicyBackend = new QuantisedMLPPolicyBackend();
+
+                if (quantisedPolicyBackend.isAvailable()) {
+                    this.policyBackend = quantisedPolicyBackend;
+                }
+            }
+        }
     }
 
 
@@ -115,7 +136,8 @@ public class DipBrainANAC extends ANACNegotiator {
 
         //This loop repeats 2 steps. The first step is to handle any incoming messages,
         // while the second step tries to find deals to propose to the other negotiators.
-        while (System.currentTimeMillis() < negotiationDeadline) {
+        // The loop ends early once every negotiator has told the others it is done.
+        while (System.currentTimeMillis() < negotiationDeadline && !this.isNegotiationOver()) {
 
 
             //STEP 1: Handle incoming messages.
@@ -267,10 +289,8 @@ public class DipBrainANAC extends ANACNegotiator {
 
                 // JC: It is here that the OpenAI module is called to generate a new deal
                 ProtoMessage.ObservationData observationData = this.generateObservationData();
-                double[][] input = MyNeuralNetwork.observationToInput(observationData);
-                double [][] output = MyNeuralNetwork.predict(input);
-                ProtoMessage.DealData dealData = MyNeuralNetwork.outputToDealData(output);
-                List<BasicDeal> dealsToPropose = this.generateDeals(dealData);
+                long dealAction = this.policyBackend.getDealAction(observationData);
+                List<BasicDeal> dealsToPropose = dealAction == DealAction.NONE ? null : this.generateDeals(dealAction);
 
                 // JC: If the Python module does not return anything or connection could not be made, use the default function to find deals
                 if (dealsToPropose == null) {
@@ -290,6 +310,9 @@ public class DipBrainANAC extends ANACNegotiator {
                 }
 
                 alreadyProposed = true;
+
+                // We will not propose anything else, so tell the others. We keep answering their proposals.
+                this.negotiationDone();
             }
 
             // Wait before next cycle (commented because negotiation only lasts 100ms on my custom configuration)
@@ -351,11 +374,11 @@ public class DipBrainANAC extends ANACNegotiator {
     }
 
     /**
-     * According to the data received from DipBrainANAC DRL module, decide what deals should be proposed.
-     * @param dealData
+     * According to the action chosen by DipBrainANAC DRL module, decide what deals should be proposed.
+     * @param dealAction The action, packed as a DealAction.
      * @return
      */
-    private List<BasicDeal> generateDeals(ProtoMessage.DealData dealData) {
+    private List<BasicDeal> generateDeals(long dealAction) {
         List<BasicDeal> deals = new ArrayList<>();
 
         // Get current controlled regions and then create an ordered list with them to be use in deal generation
@@ -366,14 +389,14 @@ public class DipBrainANAC extends ANACNegotiator {
         this.orderedNegotiatingPowers.remove(this.me);
 
         // Derive year and phase of deal from number of phases ahead
-        Map.Entry<Integer, Phase> phaseAndYear = cruz.agents.Utilities.calculatePhaseAndYear(this.game.getYear(), this.game.getPhase(), dealData.getPhasesFromNow());
+        Map.Entry<Integer, Phase> phaseAndYear = cruz.agents.Utilities.calculatePhaseAndYear(this.game.getYear(), this.game.getPhase(), DealAction.getPhasesFromNow(dealAction));
 
         int year = phaseAndYear.getKey();
         Phase phase = phaseAndYear.getValue();
 
         // Only if execute is true
-        if(dealData.getDefendUnit().getExecute()) {
-            int clippedRegionIndex = this.clipRegionIndex(dealData.getDefendUnit().getRegion());
+        if(DealAction.isDefendUnit(dealAction)) {
+            int clippedRegionIndex = this.clipRegionIndex(DealAction.getDefendUnitRegion(dealAction));
             BasicDeal generatedDeal = generateDefendUnitsMutual(clippedRegionIndex, year, phase);
 
             if (generatedDeal != null) {
@@ -383,14 +406,14 @@ public class DipBrainANAC extends ANACNegotiator {
         }
 
         // Only if execute is true
-        if(dealData.getDefendSC().getExecute()) {
-            int clippedPowerIndex = this.clipPowerIndex(dealData.getDefendSC().getAllyPower());
+        if(DealAction.isDefendSC(dealAction)) {
+            int clippedPowerIndex = this.clipPowerIndex(DealAction.getDefendSCAllyPower(dealAction));
             deals.add(generateDefendSupplyCentersMutual(clippedPowerIndex, year, phase));
         }
 
         // Only if execute is true
-        if(dealData.getAttackRegion().getExecute()) {
-            int clippedRegionIndex = this.clipRegionIndex(dealData.getAttackRegion().getRegion());
+        if(DealAction.isAttackRegion(dealAction)) {
+            int clippedRegionIndex = this.clipRegionIndex(DealAction.getAttackRegion(dealAction));
             BasicDeal generatedDeal = generateAttack(clippedRegionIndex, year, phase);
 
             if (generatedDeal != null) {
@@ -400,8 +423,8 @@ public class DipBrainANAC extends ANACNegotiator {
         }
 
         // Only if execute is true
-        if(dealData.getSupportAttackRegion().getExecute()) {
-            int clippedRegionIndex = this.clipRegionIndex(dealData.getSupportAttackRegion().getRegion());
+        if(DealAction.isSupportAttackRegion(dealAction)) {
+            int clippedRegionIndex = this.clipRegionIndex(DealAction.getSupportAttackRegion(dealAction));
             BasicDeal generatedDeal = generateSupportAttack(clippedRegionIndex, year, phase);
 
             if (generatedDeal != null) {
@@ -430,10 +453,10 @@ public class DipBrainANAC extends ANACNegotiator {
         // An unit is addressed by the Region it occupies.
         Region ourRegion = this.orderedControlledRegions.get(regionIndex);
 
-        List<Region> adjacentRegions = ourRegion.getAdjacentRegions();
+        List<Region> adjacentRegions = new ArrayList<>(ourRegion.getAdjacentRegions());
 
-        // Shuffle in order to randomize the process
-        Collections.shuffle(adjacentRegions);
+        // Shuffle in order to randomize the process (a copy, as the list belongs to the map)
+        Collections.shuffle(adjacentRegions, random);
 
         // Try to get a deal with a random surrounding region.
         for(Region adjacentRegion : adjacentRegions) {
@@ -509,10 +532,10 @@ public class DipBrainANAC extends ANACNegotiator {
         // An unit is addressed by the Region it occupies.
         Region ourRegion = this.orderedControlledRegions.get(regionIndex);
 
-        List<Region> adjacentRegions = ourRegion.getAdjacentRegions();
+        List<Region> adjacentRegions = new ArrayList<>(ourRegion.getAdjacentRegions());
 
-        // Shuffle in order to randomize the process
-        Collections.shuffle(adjacentRegions);
+        // Shuffle in order to randomize the process (a copy, as the list belongs to the map)
+        Collections.shuffle(adjacentRegions, random);
 
         // Try to get a deal to attack a random surrounding region.
         for(Region targetRegion : adjacentRegions) {
@@ -570,10 +593,10 @@ public class DipBrainANAC extends ANACNegotiator {
         // An unit is addressed by the Region it occupies.
         Region ourRegion = this.orderedControlledRegions.get(regionIndex);
 
-        List<Region> adjacentRegions = ourRegion.getAdjacentRegions();
+        List<Region> adjacentRegions = new ArrayList<>(ourRegion.getAdjacentRegions());
 
-        // Shuffle in order to randomize the process
-        Collections.shuffle(adjacentRegions);
+        // Shuffle in order to randomize the process (a copy, as the list belongs to the map)
+        Collections.shuffle(adjacentRegions, random);
 
         // Try to get a deal to attack a random surrounding region.
         for(Region targetRegion : adjacentRegions) {
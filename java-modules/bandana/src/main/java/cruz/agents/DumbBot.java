@@ -25,24 +25,46 @@ public class DumbBot extends Player {
     private HashMap<Region, Float[]> proximity;
     private HashMap<Region, Integer> destinationValue;
 
-    private static final int DEFAULT_GAME_SERVER_PORT = 16713;
+    static final int DEFAULT_GAME_SERVER_PORT = 16713;
     private int finalYear;
 
+    /** Chooses between orders of equal value. Seeded with -seed, so that a game can be played again with the same orders. */
+    private final Random random = new Random();
+
     IComm comm;
 
     DumbBot(String name, int finalYear, String logPath) {
+        this(name, finalYear, logPath, DEFAULT_GAME_SERVER_PORT);
+    }
+
+    DumbBot(String name, int finalYear, String logPath, int gameServerPort) {
         super(logPath);
         this.name = name;
         this.finalYear = finalYear;
 
         try {
             InetAddress gameServerIp = InetAddress.getLocalHost();
-            this.comm = new DaideComm(gameServerIp, DEFAULT_GAME_SERVER_PORT, this.name);
+            this.comm = new DaideComm(gameServerIp, gameServerPort, this.name);
         } catch (UnknownHostException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Creates a DumbBot that plays through the given connection, e.g. a LocalComm of a LocalGameServer.
+     * Start it with start(getComm()).
+     */
+    public DumbBot(String name, int finalYear, String logPath, IComm comm) {
+        super(logPath);
+        this.name = name;
+        this.finalYear = finalYear;
+        this.comm = comm;
+    }
+
+    public IComm getComm() {
+        return this.comm;
+    }
+
     /**
      * Main method to start the agent.
      *
@@ -52,6 +74,8 @@ public class DumbBot extends Player {
         String name = "DumbBot";
         String logPath = "log/";
         int finalYear = 1905;
+        int gameServerPort = DEFAULT_GAME_SERVER_PORT;
+        Long seed = null;
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-name") && args.length > i + 1) {
@@ -72,12 +96,35 @@ public class DumbBot extends Player {
                     return;
                 }
             }
+
+            //set the port of the game server
+            if (args[i].equals("-gamePort") && args.length > i + 1) {
+                try {
+                    gameServerPort = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("main() The port number argument is not a valid integer: " + args[i + 1]);
+                    return;
+                }
+            }
+
+            //set the seed of the random number generator
+            if (args[i].equals("-seed") && args.length > i + 1) {
+                try {
+                    seed = Long.parseLong(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("main() The seed argument is not a valid integer: " + args[i + 1]);
+                    return;
+                }
+            }
         }
 
         //Create the folder to store its log files.
         File logFolder = new File(logPath);
         logFolder.mkdirs();
-        DumbBot dumbBot = new DumbBot(name, finalYear, logPath);
+        DumbBot dumbBot = new DumbBot(name, finalYear, logPath, gameServerPort);
+        if (seed != null) {
+            dumbBot.setSeed(seed);
+        }
 
         try {
             dumbBot.start(dumbBot.comm);
@@ -86,6 +133,13 @@ public class DumbBot extends Player {
         }
     }
 
+    /**
+     * Sets the seed of the random number generator. A DumbBot with the same seed gives the same orders in the same game.
+     */
+    public void setSeed(long seed) {
+        this.random.setSeed(seed);
+    }
+
     @Override
     public void init() {
         System.out.println("Player " + this.name + " has started and is playing as: " + me.getName());
@@ -111,20 +165,14 @@ public class DumbBot extends Player {
     }
 
     List<Order> generateOrders() {
-        System.out.println("Dumb generating orders");
-        System.out.println(game.getPhase());
-        System.out.println(game.getPhase().ordinal());
         switch (game.getPhase().ordinal() + 1) {
             case 1:
             case 3:
-                System.out.println("generate movement orders");
                 return this.generateMovementOrders();
             case 2:
             case 4:
-                System.out.println("generate retreat orders");
                 return this.generateRetreatOrders();
             case 5:
-                System.out.println("generate build or remove orders");
                 int nBuilds = this.me.getOwnedSCs().size() - this.me.getControlledRegions().size();
                 if (nBuilds < 0) {
                     return this.generateRemoveOrders(-nBuilds);
@@ -144,7 +192,7 @@ public class DumbBot extends Player {
         List<Order> orders = new ArrayList<>(this.me.getControlledRegions().size());
         boolean selectionIsOK;
         boolean orderUnitToMove;
-        Random r = new Random(System.currentTimeMillis());
+        Random r = this.random;
         List<Region> units = new ArrayList<>();
         this.copy(units, this.me.getControlledRegions());
 
@@ -305,7 +353,7 @@ public class DumbBot extends Player {
                 maxDestValue = 0;
                 List<Region> destList = new ArrayList<>(unit.getAdjacentRegions().size());
                 this.copy(destList, unit.getAdjacentRegions());
-                Collections.shuffle(destList, new Random(System.currentTimeMillis()));
+                Collections.shuffle(destList, this.random);
                 Iterator var11 = destList.iterator();
 
                 while (true) {
@@ -373,7 +421,7 @@ public class DumbBot extends Player {
 
     List<Order> generateRetreatOrders() {
         List<Order> orders = new ArrayList<>(this.game.getDislodgedRegions().size());
-        Random rn = new Random(System.currentTimeMillis());
+        Random rn = this.random;
         HashMap<Region, Dislodgement> units = this.game.getDislodgedRegions();
         List<Region> dislodgedUnits = this.game.getDislodgedRegions(this.me);
 
@@ -442,7 +490,7 @@ public class DumbBot extends Player {
     }
 
     List<Order> generateBuildOrders(int nBuilds) {
-        Random r = new Random(System.currentTimeMillis());
+        Random r = this.random;
         if (nBuilds <= 0) {
             return new ArrayList<>();
         } else {
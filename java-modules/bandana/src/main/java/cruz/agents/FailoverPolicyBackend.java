@@ -0,0 +1,262 @@
+package cruz.agents;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses the fastest of several PolicyBackends and falls back to the next one when it keeps missing its latency SLA
+ * or fails to answer.
+ *
+ * The backends should be ranked with rankBackends() when the agent starts, so that the probes do not take the time of
+ * a negotiation. Otherwise they are ranked on the first request, using that observation. A few calls to each
+ * deterministic backend are timed. Backends that are not deterministic cannot be probed without side effects, so they
+ * are ranked after the others, in the order they were given.
+ */
+public class FailoverPolicyBackend implements PolicyBackend {
+
+    /** Number of calls used to time each backend. The first call is not counted, as it includes the warm-up. */
+    public static final int PROBE_CALLS = 5;
+
+    /** Number of consecutive requests over the SLA after which the next backend is used. */
+    public static final int DEFAULT_MAX_CONSECUTIVE_MISSES = 3;
+
+    /** An observation of the standard map to time the backends with before the first game, see rankBackends(). */
+    public static final ProtoMessage.ObservationData PROBE_OBSERVATION = createProbeObservation();
+
+    private final List<PolicyBackend> backends;
+
+    private final long latencySlaNanos;
+
+    private final int maxConsecutiveMisses;
+
+    /** Index of the backend currently in use. It is -1 until the backends are ranked. */
+    private int current = -1;
+
+    private int consecutiveMisses = 0;
+
+    /** Whether the last deal came from a deterministic backend. */
+    private boolean lastDealDeterministic = false;
+
+    /**
+     * @param backends The candidate backends. Unavailable ones are discarded.
+     * @param latencySlaMillis The maximum time a request should take, in milliseconds.
+     */
+    public FailoverPolicyBackend(List<PolicyBackend> backends, long latencySlaMillis) {
+        this(backends, latencySlaMillis, DEFAULT_MAX_CONSECUTIVE_MISSES);
+    }
+
+    public FailoverPolicyBackend(List<PolicyBackend> backends, long latencySlaMillis, int maxConsecutiveMisses) {
+        this.backends = new ArrayList<>();
+        for (PolicyBackend backend : backends) {
+            if (backend.isAvailable()) {
+                this.backends.add(backend);
+            }
+        }
+
+        this.latencySlaNanos = latencySlaMillis * 1000000L;
+        this.maxConsecutiveMisses = maxConsecutiveMisses;
+    }
+
+    @Override
+    public synchronized ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+        if (this.backends.isEmpty()) {
+            return null;
+        }
+
+        if (this.current == -1) {
+            this.rankBackends(observationData);
+
+            if (this.backends.isEmpty()) {
+                return null;
+            }
+        }
+
+        // Each backend gets at most one chance per request
+        for (int attempt = 0; attempt < this.backends.size(); attempt++) {
+            PolicyBackend backend = this.backends.get(this.current);
+
+            long start = System.nanoTime();
+            ProtoMessage.DealData dealData = requestDealData(backend, observationData);
+            long elapsed = System.nanoTime() - start;
+
+            if (dealData == null) {
+                System.err.println("FailoverPolicyBackend.getDealData() Backend '" + backend.getName() + "' did not answer.");
+                this.failOver();
+                continue;
+            }
+
+            this.lastDealDeterministic = backend.isDeterministic();
+
+            if (elapsed > this.latencySlaNanos) {
+                this.consecutiveMisses++;
+
+                if (this.consecutiveMisses >= this.maxConsecutiveMisses) {
+                    System.err.println("FailoverPolicyBackend.getDealData() Backend '" + backend.getName() + "' missed the SLA " + this.consecutiveMisses + " times in a row.");
+                    this.failOver();
+                }
+            }
+            else {
+                this.consecutiveMisses = 0;
+            }
+
+            return dealData;
+        }
+
+        return null;
+    }
+
+    /**
+     * Sorts the backends from the fastest to the slowest, timing them with the given observation, and starts using the
+     * fastest. Backends that fail to answer are discarded.
+     */
+    public synchronized void rankBackends(ProtoMessage.ObservationData observationData) {
+        List<PolicyBackend> probed = new ArrayList<>();
+        List<PolicyBackend> notProbed = new ArrayList<>();
+        final List<Long> latencies = new ArrayList<>();
+
+        for (PolicyBackend backend : this.backends) {
+            if (!backend.isDeterministic()) {
+                notProbed.add(backend);
+                continue;
+            }
+
+            long latency = probe(backend, observationData);
+
+            if (latency < 0) {
+                System.err.println("FailoverPolicyBackend.rankBackends() Backend '" + backend.getName() + "' failed to answer and will not be used.");
+                continue;
+            }
+
+            probed.add(backend);
+            latencies.add(latency);
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < probed.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong(latencies::get));
+
+        this.backends.clear();
+        for (int i : order) {
+            this.backends.add(probed.get(i));
+            System.out.println("FailoverPolicyBackend.rankBackends() '" + probed.get(i).getName() + "' takes " + (latencies.get(i) / 1000) + " microseconds per request.");
+        }
+        this.backends.addAll(notProbed);
+
+        this.current = 0;
+    }
+
+    /**
+     * Returns an observation of the size of the standard map, in which every province is a SC owned by the first power.
+     */
+    private static ProtoMessage.ObservationData createProbeObservation() {
+        ProtoMessage.ObservationData.Builder observationDataBuilder = ProtoMessage.ObservationData.newBuilder();
+
+        for (int id = 1; id <= TFAdapterNegotiation.NUMBER_OF_PROVINCES; id++) {
+            observationDataBuilder.addProvinces(ProtoMessage.ProvinceData.newBuilder().setId(id).setOwner(1).setSc(1));
+        }
+
+        return observationDataBuilder.setPlayer(1).build();
+    }
+
+    /**
+     * Returns the average time, in nanoseconds, of the warm calls to the backend, or -1 if it did not answer.
+     */
+    private static long probe(PolicyBackend backend, ProtoMessage.ObservationData observationData) {
+        long total = 0;
+
+        for (int i = 0; i < PROBE_CALLS; i++) {
+            long start = System.nanoTime();
+            ProtoMessage.DealData dealData = requestDealData(backend, observationData);
+            long elapsed = System.nanoTime() - start;
+
+            if (dealData == null) {
+                return -1;
+            }
+
+            if (i > 0) {
+                total += elapsed;
+            }
+        }
+
+        return total / (PROBE_CALLS - 1);
+    }
+
+    private static ProtoMessage.DealData requestDealData(PolicyBackend backend, ProtoMessage.ObservationData observationData) {
+        try {
+            return backend.getDealData(observationData);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void failOver() {
+        this.current = (this.current + 1) % this.backends.size();
+        this.consecutiveMisses = 0;
+
+        System.err.println("FailoverPolicyBackend.failOver() Now using backend '" + this.backends.get(this.current).getName() + "'.");
+    }
+
+    /**
+     * Returns the name of the backend currently in use.
+     */
+    public synchronized String getCurrentBackendName() {
+        if (this.backends.isEmpty()) {
+            return "none";
+        }
+
+        return this.backends.get(Math.max(this.current, 0)).getName();
+    }
+
+    @Override
+    public String getName() {
+        return "failover";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return !this.backends.isEmpty();
+    }
+
+    /**
+     * Returns true if the backend in use is deterministic. Before the backends are ranked, returns true if any of them
+     * is, since a deterministic backend is ranked first. A deterministic backend may still fail over to one that is
+     * not while answering a request, see isLastDealDeterministic().
+     */
+    @Override
+    public synchronized boolean isDeterministic() {
+        if (this.current >= 0 && !this.backends.isEmpty()) {
+            return this.backends.get(this.current).isDeterministic();
+        }
+
+        return this.isAnyDeterministic();
+    }
+
+    @Override
+    public synchronized boolean isLastDealDeterministic() {
+        return this.lastDealDeterministic;
+    }
+
+    /**
+     * Returns true if at least one of the backends is deterministic, so that some of the deals may be cached.
+     */
+    public synchronized boolean isAnyDeterministic() {
+        for (PolicyBackend backend : this.backends) {
+            if (backend.isDeterministic()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void close() {
+        for (PolicyBackend backend : this.backends) {
+            backend.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cruz.agents;
+
+import cruz.anacUtils.MyNeuralNetwork;
+import cruz.anacUtils.MyWeightsMatrixAll;
+
+import java.util.List;
+
+/**
+ * Runs the policy network with the pure Java MLP of MyNeuralNetwork. The weights are compiled into the jar, so this
+ * backend needs neither disk nor network access, as required by the ANAC rules.
+ */
+public class MLPPolicyBackend implements PolicyBackend {
+
+    private final List<double[][]> weightMatrices;
+
+    /** The input and the output of each layer are reused by every prediction, so that deciding allocates nothing. */
+    private final double[] input = new double[MyNeuralNetwork.INPUT_SIZE];
+    private final double[][] layerOutputs;
+
+    /**
+     * Creates a backend with the weights embedded in MyWeightsMatrixAll.
+     */
+    public MLPPolicyBackend() {
+        this(loadEmbeddedWeights());
+    }
+
+    public MLPPolicyBackend(List<double[][]> weightMatrices) {
+        this.weightMatrices = weightMatrices;
+
+        int numberOfLayers = weightMatrices == null ? 0 : weightMatrices.size();
+        this.layerOutputs = new double[numberOfLayers][];
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            this.layerOutputs[layer] = new double[weightMatrices.get(layer)[0].length];
+        }
+    }
+
+    private static List<double[][]> loadEmbeddedWeights() {
+        MyWeightsMatrixAll.setWeightMatrices();
+        return MyWeightsMatrixAll.weightMatrices;
+    }
+
+    @Override
+    public ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+        return DealAction.toDealData(this.getDealAction(observationData));
+    }
+
+    @Override
+    public synchronized long getDealAction(ProtoMessage.ObservationData observationData) {
+        if (!this.isAvailable()) {
+            return DealAction.NONE;
+        }
+
+        MyNeuralNetwork.observationToInput(observationData, this.input);
+        double[] output = MyNeuralNetwork.predict(this.input, this.weightMatrices, this.layerOutputs);
+
+        return MyNeuralNetwork.outputToDealAction(output);
+    }
+
+    @Override
+    public String getName() {
+        return "mlp";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return this.weightMatrices != null && !this.weightMatrices.isEmpty();
+    }
+}
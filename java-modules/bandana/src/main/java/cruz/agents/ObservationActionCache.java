@@ -0,0 +1,109 @@
+package cruz.agents;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded least-recently-used cache of deals, keyed by the 64-bit hash of the observation they were predicted for.
+ *
+ * The opening phases of every game produce (almost) the same observations, so a few thousand entries are enough to
+ * answer a large share of the requests of a long tournament. It keeps count of its hits and misses.
+ */
+public class ObservationActionCache {
+
+    /** Number of deals kept by default. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int capacity;
+
+    private final LinkedHashMap<Long, ProtoMessage.DealData> dealsByObservationHash;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public ObservationActionCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximum number of deals kept. When full, the least recently used deal is evicted.
+     */
+    public ObservationActionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("ObservationActionCache() Error! The capacity must be positive, but it is " + capacity);
+        }
+
+        this.capacity = capacity;
+
+        // Access order makes the iteration order go from the least to the most recently used entry
+        this.dealsByObservationHash = new LinkedHashMap<Long, ProtoMessage.DealData>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ProtoMessage.DealData> eldest) {
+                if (this.size() > ObservationActionCache.this.capacity) {
+                    ObservationActionCache.this.evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The cached deal for the observation with the given hash, or null if there is none.
+     */
+    public synchronized ProtoMessage.DealData get(long observationHash) {
+        ProtoMessage.DealData dealData = this.dealsByObservationHash.get(observationHash);
+
+        if (dealData == null) {
+            this.misses++;
+        }
+        else {
+            this.hits++;
+        }
+
+        return dealData;
+    }
+
+    public synchronized void put(long observationHash, ProtoMessage.DealData dealData) {
+        this.dealsByObservationHash.put(observationHash, dealData);
+    }
+
+    public synchronized void clear() {
+        this.dealsByObservationHash.clear();
+    }
+
+    public synchronized int size() {
+        return this.dealsByObservationHash.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * @return The fraction of requests answered by the cache, or 0 if there were none.
+     */
+    public synchronized double getHitRate() {
+        long requests = this.hits + this.misses;
+        return requests == 0 ? 0 : (double) this.hits / requests;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits: " + this.hits + ", misses: " + this.misses + ", evictions: " + this.evictions + ", size: " + this.dealsByObservationHash.size() + "/" + this.capacity;
+    }
+}
@@ -39,6 +39,9 @@ public abstract class OpenAIAdapter {
     /** An Observer instance that allows us to know the current game state. It is used to know when the games has ended. */
     public OpenAIObserver openAIObserver;
 
+    /** The port of the Parlance server the agent plays on, which the observer connects to as well. */
+    private int gameServerPort = OpenAIObserver.DEFAULT_GAME_SERVER_PORT;
+
     /** The DiplomacyGymServiceClient instance used to send requests to the OpenAI Gym environment. */
     protected DiplomacyGymServiceClient serviceClient;
 
@@ -65,11 +68,18 @@ public abstract class OpenAIAdapter {
         File logFile = new File(openAIObserverPath);
         logFile.mkdirs();
 
-        this.openAIObserver = new OpenAIObserver(openAIObserverPath, this);
+        this.openAIObserver = new OpenAIObserver(openAIObserverPath, this, this.gameServerPort);
         this.openAIObserver.connectToServer();
     }
 
 
+    /**
+     * Sets the port of the game server the agent was told to play on, so that the observer joins the same game.
+     */
+    void setGameServerPort(int gameServerPort) {
+        this.gameServerPort = gameServerPort;
+    }
+
     /**
      * Executes on the beginning of a game.
      */
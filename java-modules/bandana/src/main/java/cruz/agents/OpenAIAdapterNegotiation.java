@@ -8,6 +8,10 @@ import ddejonge.bandana.tournament.GameResult;
 import es.csic.iiia.fabregues.dip.board.*;
 import es.csic.iiia.fabregues.dip.orders.*;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -33,8 +37,122 @@ public class OpenAIAdapterNegotiation extends OpenAIAdapter {
     /** The agent instance attached to this adapter. */
     private OpenAINegotiator agent;
 
+    /** The backend that provides the deals. By default, deals are requested to the Open AI environment. */
+    private PolicyBackend policyBackend;
+
+    /** The cache of deals of the policy, or null if deals are not cached. */
+    private ObservationActionCache actionCache;
+
+    /** The file the observations sent to the policy are appended to, or null if they are not recorded. */
+    private String observationRecordPath;
+
+    /** The open observation record of the current game, or null if there is none. */
+    private OutputStream observationRecord;
+
+    /** Whether the Open AI environment is one of the backends, in which case it must be notified of the end of the game. */
+    private boolean usesOpenAIEnvironment = true;
+
     OpenAIAdapterNegotiation(OpenAINegotiator agent) {
         this.agent = agent;
+        this.policyBackend = new RemotePolicyBackend(this.serviceClient);
+    }
+
+    /**
+     * Chooses where the deals come from.
+     *
+     * @param policy One of "remote" (the Open AI environment), "mlp" (the embedded network), "mlp-int8" (the embedded
+     *               network with int8 weights), "tf" (a TensorFlow model) or "auto" (the fastest of the available
+     *               ones, falling back to the others). The int8 network is only used when asked for explicitly.
+     * @param tfModelDir The folder of the TensorFlow SavedModel. May be null if no model is used.
+     * @param latencySlaMillis The time after which a request is considered too slow, in milliseconds.
+     * @param actionCacheSize The number of deals to cache, 0 to disable the cache, or a negative value for
+     *                        ObservationActionCache.DEFAULT_CAPACITY. Only the deals of deterministic backends are
+     *                        cached, so there is no cache for the remote policy unless remoteIsDeterministic is set.
+     * @param remoteIsDeterministic Whether the Open AI environment is not training, and answers the same deal for the
+     *                              same observation.
+     */
+    void configurePolicy(String policy, String tfModelDir, long latencySlaMillis, int actionCacheSize, boolean remoteIsDeterministic) {
+        boolean auto = policy.equals("auto");
+        List<PolicyBackend> backends = new ArrayList<>();
+
+        if ((auto || policy.equals("tf")) && tfModelDir != null) {
+            try {
+                backends.add(new TFPolicyBackend(tfModelDir));
+            } catch (Exception | LinkageError e) {
+                System.err.println("OpenAIAdapterNegotiation.configurePolicy() Could not load the model in " + tfModelDir + ".");
+                e.printStackTrace();
+            }
+        }
+
+        if (policy.equals("mlp-int8")) {
+            backends.add(new QuantisedMLPPolicyBackend());
+        }
+
+        if (auto || policy.equals("mlp")) {
+            backends.add(new MLPPolicyBackend());
+        }
+
+        if (auto || policy.equals("remote")) {
+            backends.add(new RemotePolicyBackend(this.serviceClient, remoteIsDeterministic));
+        }
+
+        FailoverPolicyBackend failoverPolicyBackend = new FailoverPolicyBackend(backends, latencySlaMillis);
+
+        // Rank the backends now, rather than during the first negotiation, whose deadline the probes would take from.
+        if (failoverPolicyBackend.isAvailable()) {
+            failoverPolicyBackend.rankBackends(FailoverPolicyBackend.PROBE_OBSERVATION);
+        }
+
+        if (!failoverPolicyBackend.isAvailable()) {
+            System.err.println("OpenAIAdapterNegotiation.configurePolicy() No '" + policy + "' backend is available. Using the Open AI environment instead.");
+            this.policyBackend = new RemotePolicyBackend(this.serviceClient);
+            this.usesOpenAIEnvironment = true;
+            return;
+        }
+
+        this.usesOpenAIEnvironment = auto || policy.equals("remote");
+
+        if (actionCacheSize < 0) {
+            actionCacheSize = failoverPolicyBackend.isAnyDeterministic() ? ObservationActionCache.DEFAULT_CAPACITY : 0;
+        }
+
+        if (actionCacheSize == 0) {
+            this.policyBackend = failoverPolicyBackend;
+            return;
+        }
+
+        this.actionCache = new ObservationActionCache(actionCacheSize);
+        this.policyBackend = new CachedPolicyBackend(failoverPolicyBackend, this.actionCache);
+    }
+
+    /**
+     * Appends every observation sent to the policy to the given file, with ObservationData.writeDelimitedTo(). The
+     * recorded observations are used by QuantisationAccuracyCheck. The file is opened at the beginning of every game
+     * and closed at its end, so an agent that plays several games does not keep it open between them.
+     */
+    void recordObservations(String path) {
+        this.observationRecordPath = path;
+    }
+
+    @Override
+    void beginningOfGame() {
+        if (this.observationRecordPath != null && this.observationRecord == null) {
+            try {
+                this.observationRecord = new BufferedOutputStream(new FileOutputStream(this.observationRecordPath, true));
+            } catch (IOException e) {
+                System.err.println("OpenAIAdapterNegotiation.beginningOfGame() Could not open " + this.observationRecordPath + ".");
+                e.printStackTrace();
+            }
+        }
+
+        super.beginningOfGame();
+    }
+
+    /**
+     * @return The cache of deals of the policy, or null if deals are not cached.
+     */
+    ObservationActionCache getActionCache() {
+        return this.actionCache;
     }
 
     /**
@@ -74,36 +192,26 @@ public class OpenAIAdapterNegotiation extends OpenAIAdapter {
     }
 
     /**
-     * Retrieves a deal from the Open AI environment that is connected to the localhost on port 5000.
+     * Retrieves a deal from the configured PolicyBackend. By default, it is the Open AI environment that is connected
+     * to the localhost on port 5000.
      *
-     * @return The Deal data in ProtoMessage format created with data from the Open AI module.
+     * @return The Deal data in ProtoMessage format created with data from the policy.
      */
     public ProtoMessage.DealData getDealsDataFromDipBrain() {
-        ProtoMessage.BandanaRequest message = generateRequestMessage();
-
-        ProtoMessage.DiplomacyGymResponse diplomacyGymResponse = this.serviceClient.getAction(message);
-
-        // If something went wrong with getting the response from Python module
-        if (diplomacyGymResponse == null) {
-            return null;
-        }
-
-        return diplomacyGymResponse.getDeal();
-    }
-
-
-    private ProtoMessage.BandanaRequest generateRequestMessage() {
         // Make sure the power to int map is updated with the current Powers in the game
         this.generatePowerNameToIntMap();
 
-        ProtoMessage.BandanaRequest.Builder bandanaRequestBuilder = ProtoMessage.BandanaRequest.newBuilder();
-
         ProtoMessage.ObservationData observationData = this.generateObservationData();
 
-        bandanaRequestBuilder.setObservation(observationData);
-        bandanaRequestBuilder.setType(ProtoMessage.BandanaRequest.Type.GET_DEAL_REQUEST);
+        if (this.observationRecord != null) {
+            try {
+                observationData.writeDelimitedTo(this.observationRecord);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
 
-        return bandanaRequestBuilder.build();
+        return this.policyBackend.getDealData(observationData);
     }
 
 
@@ -221,6 +329,19 @@ public class OpenAIAdapterNegotiation extends OpenAIAdapter {
         return this.agent.game;
     }
 
+    /**
+     * Local policies do not keep track of episodes, so the end of the game is only notified to the Open AI
+     * environment.
+     */
+    @Override
+    public void sendEndOfGameNotification() {
+        if (!this.usesOpenAIEnvironment) {
+            return;
+        }
+
+        super.sendEndOfGameNotification();
+    }
+
     @Override
     void endOfGame(GameResult gameResult) {
         // Yes, weird work around, but for some reason it works
@@ -242,6 +363,19 @@ public class OpenAIAdapterNegotiation extends OpenAIAdapter {
         //     this.lostGame();
         // }
 
+        if (this.actionCache != null) {
+            System.out.println("OpenAIAdapterNegotiation.endOfGame() Action cache " + this.actionCache);
+        }
+
+        if (this.observationRecord != null) {
+            try {
+                this.observationRecord.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            this.observationRecord = null;
+        }
+
         super.endOfGame(gameResult);
     }
 
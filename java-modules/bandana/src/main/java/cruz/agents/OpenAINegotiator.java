@@ -29,6 +29,9 @@ public class OpenAINegotiator extends ANACNegotiator {
     /** The OpenAI Adapter that contains the necessary functions and fields to make the connection to the Open AI environment */
     OpenAIAdapterNegotiation openAIAdapter;
 
+    /** Default time in milliseconds a policy backend may take to propose a deal, before the next one is tried. */
+    public static final long DEFAULT_POLICY_SLA = 100;
+
     /** Defines whether logs should be printed to console or not.*/
     private boolean printToConsole = true;
 
@@ -52,10 +55,69 @@ public class OpenAINegotiator extends ANACNegotiator {
     public OpenAINegotiator(String[] args) {
         super(args);
 
+        // With -seed, the same game is played with the same random decisions (see TournamentSpec.withReplayOf()).
+        if (this.getSeed() != null) {
+            random.setSeed(this.getSeed());
+        }
+
         dBraneTactics = this.getTacticalModule();
 
         // Create OpenAI Adapter
         this.openAIAdapter = new OpenAIAdapterNegotiation(this);
+        this.openAIAdapter.setGameServerPort(this.getGameServerPort());
+
+        // Choose where the deals come from. By default they are requested to the Python gym process.
+        String policy = null;
+        String tfModelDir = null;
+        long policySla = DEFAULT_POLICY_SLA;
+        int actionCacheSize = -1;
+        boolean deterministicGym = false;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-policy") && args.length > i + 1) {
+                policy = args[i + 1];
+            }
+
+            if (args[i].equals("-tfModel") && args.length > i + 1) {
+                tfModelDir = args[i + 1];
+            }
+
+            if (args[i].equals("-policySla") && args.length > i + 1) {
+                try {
+                    policySla = Long.parseLong(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.out.println("OpenAINegotiator() The policy SLA argument is not a valid integer: " + args[i + 1]);
+                }
+            }
+
+            if (args[i].equals("-recordObservations") && args.length > i + 1) {
+                this.openAIAdapter.recordObservations(args[i + 1]);
+            }
+
+            if (args[i].equals("-deterministicGym")) {
+                deterministicGym = true;
+            }
+
+            if (args[i].equals("-actionCache") && args.length > i + 1) {
+                try {
+                    actionCacheSize = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.out.println("OpenAINegotiator() The action cache argument is not a valid integer: " + args[i + 1]);
+                }
+            }
+        }
+
+        if (policy == null) {
+            policy = tfModelDir != null ? "tf" : "remote";
+        }
+
+        if (policy.equals("remote") && actionCacheSize > 0 && !deterministicGym) {
+            System.out.println("OpenAINegotiator() The deals of the remote policy are only cached with -deterministicGym.");
+        }
+
+        if (!policy.equals("remote") || deterministicGym) {
+            this.openAIAdapter.configurePolicy(policy, tfModelDir, policySla, actionCacheSize, deterministicGym);
+        }
     }
 
     /**
@@ -67,6 +129,12 @@ public class OpenAINegotiator extends ANACNegotiator {
      * -fy 		[the year after which your agent will propose a draw]
      * -gamePort  [the port of the game server]
      * -negoPort  [the port of the negotiation server]
+     * -policy    [where deals come from: remote (default), mlp, mlp-int8, tf or auto]
+     * -tfModel   [the folder of an exported TensorFlow policy, to run it without the Python gym process]
+     * -policySla [the time in milliseconds after which the policy is considered too slow, in auto mode]
+     * -actionCache [the number of deals cached by observation, 0 to disable]
+     * -deterministicGym [declares that the gym only serves a trained model, so that its deals can be cached]
+     * -recordObservations [a file where the observations sent to the policy are appended]
      * <p>
      * e.g. java -jar ANACExampleNegotiator.jar -name alice -log C:\\documents\log -fy 1920 -gamePort 16713 -negoPort 16714
      * <p>
@@ -121,7 +189,8 @@ public class OpenAINegotiator extends ANACNegotiator {
         // This loop repeats 2 steps. The first step is to handle any incoming messages,
         // while the second step tries to find deals to propose to the other negotiators.
         // Generally negotiation lasts 3 seconds.
-        while (System.currentTimeMillis() < negotiationDeadline) {
+        // The loop ends early once every negotiator has told the others it is done.
+        while (System.currentTimeMillis() < negotiationDeadline && !this.isNegotiationOver()) {
 
             // I (the player) am responsible for sending/accepting new deals during this time period
 
@@ -332,6 +401,9 @@ public class OpenAINegotiator extends ANACNegotiator {
                 }
 
                 alreadyProposed = true;
+
+                // We will not propose anything else, so tell the others. We keep answering their proposals.
+                this.negotiationDone();
             }
 
             // Wait before next cycle (commented because negotiation only lasts 100ms on my custom configuration)
@@ -665,10 +737,10 @@ public class OpenAINegotiator extends ANACNegotiator {
         // An unit is addressed by the Region it occupies.
         Region ourRegion = this.orderedControlledRegions.get(regionIndex);
 
-        List<Region> adjacentRegions = ourRegion.getAdjacentRegions();
+        List<Region> adjacentRegions = new ArrayList<>(ourRegion.getAdjacentRegions());
 
-        // Shuffle in order to randomize the process
-        Collections.shuffle(adjacentRegions);
+        // Shuffle in order to randomize the process (a copy, as the list belongs to the map)
+        Collections.shuffle(adjacentRegions, random);
 
         // Try to get a deal with a random surrounding region.
         for(Region adjacentRegion : adjacentRegions) {
@@ -744,10 +816,10 @@ public class OpenAINegotiator extends ANACNegotiator {
         // An unit is addressed by the Region it occupies.
         Region ourRegion = this.orderedControlledRegions.get(regionIndex);
 
-        List<Region> adjacentRegions = ourRegion.getAdjacentRegions();
+        List<Region> adjacentRegions = new ArrayList<>(ourRegion.getAdjacentRegions());
 
-        // Shuffle in order to randomize the process
-        Collections.shuffle(adjacentRegions);
+        // Shuffle in order to randomize the process (a copy, as the list belongs to the map)
+        Collections.shuffle(adjacentRegions, random);
 
         // Try to get a deal to attack a random surrounding region.
         for(Region targetRegion : adjacentRegions) {
@@ -805,10 +877,10 @@ public class OpenAINegotiator extends ANACNegotiator {
         // An unit is addressed by the Region it occupies.
         Region ourRegion = this.orderedControlledRegions.get(regionIndex);
 
-        List<Region> adjacentRegions = ourRegion.getAdjacentRegions();
+        List<Region> adjacentRegions = new ArrayList<>(ourRegion.getAdjacentRegions());
 
-        // Shuffle in order to randomize the process
-        Collections.shuffle(adjacentRegions);
+        // Shuffle in order to randomize the process (a copy, as the list belongs to the map)
+        Collections.shuffle(adjacentRegions, random);
 
         // Try to get a deal to attack a random surrounding region.
         for(Region targetRegion : adjacentRegions) {
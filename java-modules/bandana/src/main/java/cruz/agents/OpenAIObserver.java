@@ -24,6 +24,8 @@ public class OpenAIObserver extends Observer {
     public static final int GAME_ENDED_WITH_SOLO = 3;
     public static final int GAME_ENDED_IN_DRAW = 4;
 
+    public static final int DEFAULT_GAME_SERVER_PORT = 16713;
+
 
     IComm comm;
     OpenAIAdapter openAIAdapter;
@@ -34,12 +36,19 @@ public class OpenAIObserver extends Observer {
     int gameStatus;
     int gameNumber = 0;
 
+    /** The port of the Parlance server this observer connects to. */
+    private final int gameServerPort;
 
 
     public OpenAIObserver(String logPath, OpenAIAdapter openAIAdapter) {
+        this(logPath, openAIAdapter, DEFAULT_GAME_SERVER_PORT);
+    }
+
+    public OpenAIObserver(String logPath, OpenAIAdapter openAIAdapter, int gameServerPort) {
         super(logPath);
 
         this.openAIAdapter = openAIAdapter;
+        this.gameServerPort = gameServerPort;
     }
 
 
@@ -61,7 +70,7 @@ public class OpenAIObserver extends Observer {
             }
 
             dipServerIp = InetAddress.getByName("localhost");
-            comm = new DaideComm(dipServerIp, 16713, this.name);
+            comm = new DaideComm(dipServerIp, this.gameServerPort, this.name);
             this.start(comm);
 
 
@@ -0,0 +1,65 @@
+package cruz.agents;
+
+/**
+ * A source of deals for the negotiation agents. Given an observation of the game, a backend returns the DealData that
+ * the policy wants to propose.
+ *
+ * Implementations may run the policy remotely (the Open AI environment over gRPC) or inside the JVM (the embedded MLP
+ * or a TensorFlow model). Having all of them behind the same interface allows the agents to swap and benchmark them
+ * on identical games.
+ */
+public interface PolicyBackend extends AutoCloseable {
+
+    /**
+     * Returns the deal the policy wants to propose for the given observation.
+     *
+     * @param observationData The observation of the current game state.
+     * @return The DealData, or null if the backend could not produce one (e.g. the connection failed).
+     */
+    ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData);
+
+    /**
+     * Returns the deal the policy wants to propose for the given observation, packed as a DealAction.
+     *
+     * Backends that run inside the JVM override it to decide without allocating any object.
+     *
+     * @param observationData The observation of the current game state.
+     * @return The DealAction, or DealAction.NONE if the backend could not produce one.
+     */
+    default long getDealAction(ProtoMessage.ObservationData observationData) {
+        ProtoMessage.DealData dealData = this.getDealData(observationData);
+        return dealData == null ? DealAction.NONE : DealAction.fromDealData(dealData);
+    }
+
+    /**
+     * Returns a short name that identifies this backend in the logs.
+     */
+    String getName();
+
+    /**
+     * Returns true if the backend is able to answer requests, e.g. its model or weights were loaded.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Returns true if the same observation always leads to the same deal and a request has no side effects.
+     * A backend that is still being trained, such as the Open AI environment, is not deterministic.
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+
+    /**
+     * Returns true if the last deal returned by getDealData() came from a deterministic backend, and may be cached.
+     * Backends that pass the requests on to others, such as FailoverPolicyBackend, override it.
+     */
+    default boolean isLastDealDeterministic() {
+        return this.isDeterministic();
+    }
+
+    @Override
+    default void close() {
+    }
+}
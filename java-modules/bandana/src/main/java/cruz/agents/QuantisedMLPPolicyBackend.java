@@ -0,0 +1,75 @@
+package cruz.agents;
+
+import cruz.anacUtils.MyNeuralNetwork;
+import cruz.anacUtils.MyQuantisedWeightsAll;
+import cruz.anacUtils.QuantisedMatrix;
+import cruz.anacUtils.QuantisedNeuralNetwork;
+
+import java.util.List;
+
+/**
+ * Runs the policy network with int8 weights (see QuantisedNeuralNetwork). The weights are compiled into the jar, like
+ * the ones of MLPPolicyBackend, but take an eighth of the size of doubles.
+ *
+ * Quantisation may change some deal choices, so check it with QuantisationAccuracyCheck before using it.
+ */
+public class QuantisedMLPPolicyBackend implements PolicyBackend {
+
+    private final List<QuantisedMatrix> weightMatrices;
+
+    /** The buffers of every layer are reused by every prediction, so that deciding allocates nothing. */
+    private final double[] input = new double[MyNeuralNetwork.INPUT_SIZE];
+    private final byte[][] quantisedInputs;
+    private final double[][] layerOutputs;
+
+    /**
+     * Creates a backend with the weights embedded in MyQuantisedWeightsAll.
+     */
+    public QuantisedMLPPolicyBackend() {
+        this(loadEmbeddedWeights());
+    }
+
+    public QuantisedMLPPolicyBackend(List<QuantisedMatrix> weightMatrices) {
+        this.weightMatrices = weightMatrices;
+
+        int numberOfLayers = weightMatrices == null ? 0 : weightMatrices.size();
+        this.quantisedInputs = new byte[numberOfLayers][];
+        this.layerOutputs = new double[numberOfLayers][];
+        for (int layer = 0; layer < numberOfLayers; layer++) {
+            this.quantisedInputs[layer] = new byte[weightMatrices.get(layer).getRows()];
+            this.layerOutputs[layer] = new double[weightMatrices.get(layer).getColumns()];
+        }
+    }
+
+    private static List<QuantisedMatrix> loadEmbeddedWeights() {
+        MyQuantisedWeightsAll.setWeightMatrices();
+        return MyQuantisedWeightsAll.weightMatrices;
+    }
+
+    @Override
+    public ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+        return DealAction.toDealData(this.getDealAction(observationData));
+    }
+
+    @Override
+    public synchronized long getDealAction(ProtoMessage.ObservationData observationData) {
+        if (!this.isAvailable()) {
+            return DealAction.NONE;
+        }
+
+        MyNeuralNetwork.observationToInput(observationData, this.input);
+        double[] output = QuantisedNeuralNetwork.predict(this.input, this.weightMatrices, this.quantisedInputs, this.layerOutputs);
+
+        return MyNeuralNetwork.outputToDealAction(output);
+    }
+
+    @Override
+    public String getName() {
+        return "mlp-int8";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return this.weightMatrices != null && !this.weightMatrices.isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package cruz.agents;
+
+/**
+ * Requests deals from the Open AI environment, through the DiplomacyGymServiceClient.
+ *
+ * While training, the environment learns from every observation it receives, so this backend is not deterministic
+ * unless told otherwise (e.g. when the environment only serves a trained model with deterministic actions).
+ */
+public class RemotePolicyBackend implements PolicyBackend {
+
+    /** The client used to reach the Open AI environment. It is owned by the adapter, which shuts it down at the end of the game. */
+    private final DiplomacyGymServiceClient serviceClient;
+
+    /** Whether the environment always answers the same deal for the same observation. */
+    private final boolean deterministic;
+
+    public RemotePolicyBackend(DiplomacyGymServiceClient serviceClient) {
+        this(serviceClient, false);
+    }
+
+    public RemotePolicyBackend(DiplomacyGymServiceClient serviceClient, boolean deterministic) {
+        this.serviceClient = serviceClient;
+        this.deterministic = deterministic;
+    }
+
+    @Override
+    public ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+        ProtoMessage.BandanaRequest.Builder bandanaRequestBuilder = ProtoMessage.BandanaRequest.newBuilder();
+
+        bandanaRequestBuilder.setObservation(observationData);
+        bandanaRequestBuilder.setType(ProtoMessage.BandanaRequest.Type.GET_DEAL_REQUEST);
+
+        ProtoMessage.DiplomacyGymResponse diplomacyGymResponse = this.serviceClient.getAction(bandanaRequestBuilder.build());
+
+        // If something went wrong with getting the response from Python module
+        if (diplomacyGymResponse == null) {
+            return null;
+        }
+
+        return diplomacyGymResponse.getDeal();
+    }
+
+    @Override
+    public String getName() {
+        return "remote";
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+}
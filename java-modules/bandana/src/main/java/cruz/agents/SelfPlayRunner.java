@@ -0,0 +1,238 @@
+package cruz.agents;
+
+import ddejonge.bandana.gameServer.LocalGameServer;
+import ddejonge.bandana.tournament.TournamentRunner;
+import ddejonge.bandana.tournament.TournamentSpec;
+import ddejonge.bandana.tournament.TrajectoryLog;
+import ddejonge.bandana.tournament.TrajectoryRecorder;
+import es.csic.iiia.fabregues.utilities.Interface;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates training data by self-play: every game is played by seven DumbBots on a LocalGameServer, and every phase
+ * is recorded by a TrajectoryRecorder straight into a TrajectoryLog. No process is started and neither Parlance, the
+ * NegoServer nor the gym are needed.
+ *
+ * Many games are played at the same time. The players, the recorders and the game servers of all of them handle
+ * their messages on one ForkJoinPool (see LocalGameServer.setExecutor()), so the number of threads does not grow
+ * with the number of games. The players write no log files.
+ *
+ * Every game gets its own seeds, derived from the seed of the run (see TournamentSpec.deriveSeed()).
+ *
+ * A game that has not ended after the longest time its phases may take (see TournamentRunner.getGameTimeoutMillis())
+ * is abandoned, so that one stuck game does not hold up the run. The phases it already recorded stay in the log.
+ *
+ * The games are adjudicated by the LocalAdjudicator, which does not support convoys, so the data contains none.
+ *
+ * Usage: SelfPlayRunner [output folder] [number of games] [final year] [seed] [threads]
+ */
+public class SelfPlayRunner {
+
+    // Deadlines in seconds. The DumbBots answer at once, so they are only reached if a bot fails.
+    static final int MOVE_TIME_LIMIT = 5;
+    static final int RETREAT_TIME_LIMIT = 5;
+    static final int BUILD_TIME_LIMIT = 5;
+
+    static final int NUMBER_OF_PLAYERS = 7;
+
+    /** The number of games that are played at the same time, per thread. The players of a game mostly wait for each other. */
+    static final int GAMES_PER_THREAD = 4;
+
+    /** How often the games in progress are checked for games that are stuck, in milliseconds. */
+    static final long STUCK_GAME_CHECK_MILLIS = 10_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File folder = new File(args.length > 0 ? args[0] : "selfplay");
+        int numberOfGames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int finalYear = args.length > 2 ? Integer.parseInt(args[2]) : 1910;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        run(folder, numberOfGames, finalYear, seed, threads);
+    }
+
+    /**
+     * Plays the given number of games and appends their phases to the TrajectoryLog in the given folder.
+     *
+     * @return The number of games that ended.
+     */
+    public static int run(File folder, int numberOfGames, int finalYear, long seed, int threads) throws IOException, InterruptedException {
+        long gameTimeoutMillis = TournamentRunner.getGameTimeoutMillis(finalYear, MOVE_TIME_LIMIT, RETREAT_TIME_LIMIT, BUILD_TIME_LIMIT);
+        return run(folder, numberOfGames, finalYear, seed, threads, gameTimeoutMillis);
+    }
+
+    /**
+     * Plays the given number of games, abandoning those that do not end within the given time.
+     *
+     * @return The number of games that ended.
+     */
+    static int run(File folder, int numberOfGames, int finalYear, long seed, int threads, long gameTimeoutMillis) throws IOException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+
+        TrajectoryLog trajectoryLog = new TrajectoryLog(folder);
+        int recordsBefore = trajectoryLog.getNumberOfRecords();
+
+        // Asynchronous mode: the messages are handled in the order they were sent, as events rather than subtasks.
+        ForkJoinPool pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+
+        int maxGamesInProgress = threads * GAMES_PER_THREAD;
+        Semaphore gamesInProgress = new Semaphore(maxGamesInProgress);
+        AtomicInteger gamesEnded = new AtomicInteger();
+        Map<Integer, GameInProgress> games = new ConcurrentHashMap<>();
+        int gamesAbandoned = 0;
+
+        // The dip library logs every message. The players of thousands of games must not create a file each.
+        Interface silentLog = new SilentLog();
+
+        try {
+            for (int gameNumber = 1; gameNumber <= numberOfGames; gameNumber++) {
+                while (!gamesInProgress.tryAcquire(STUCK_GAME_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    gamesAbandoned += abandonStuckGames(games, gameTimeoutMillis, gamesInProgress);
+                }
+                if (!startGame(gameNumber, finalYear, seed, pool, trajectoryLog, silentLog, gamesInProgress, gamesEnded, games)) {
+                    gamesInProgress.release();
+                }
+            }
+
+            // Wait for the last games. A game ends by its final year, since missing orders are not waited for, unless
+            // it is stuck.
+            while (!gamesInProgress.tryAcquire(maxGamesInProgress, STUCK_GAME_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                gamesAbandoned += abandonStuckGames(games, gameTimeoutMillis, gamesInProgress);
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+            trajectoryLog.close();
+        }
+
+        long millis = Math.max(1, System.currentTimeMillis() - startTime);
+        int records = trajectoryLog.getNumberOfRecords() - recordsBefore;
+        System.out.println("SelfPlayRunner.run() " + gamesEnded.get() + " games, " + records + " phases in " + millis + " ms ("
+                + (records * 3_600_000L / millis) + " phases per hour) written to " + folder);
+        if (gamesAbandoned > 0) {
+            System.out.println("SelfPlayRunner.run() " + gamesAbandoned + " games were abandoned. Their phases are incomplete.");
+        }
+
+        return gamesEnded.get();
+    }
+
+    /**
+     * Connects the recorder and the players of a game to a new game server. Returns at once: the game is played on
+     * the pool, and releases its permit of gamesInProgress when it ends, unless it was abandoned before.
+     *
+     * @return False if the game could not be started.
+     */
+    static boolean startGame(int gameNumber, int finalYear, long seed, ForkJoinPool pool, TrajectoryLog trajectoryLog,
+                             Interface silentLog, Semaphore gamesInProgress, AtomicInteger gamesEnded,
+                             Map<Integer, GameInProgress> games) {
+        LocalGameServer gameServer = new LocalGameServer(MOVE_TIME_LIMIT, RETREAT_TIME_LIMIT, BUILD_TIME_LIMIT);
+        gameServer.setFinalYear(finalYear);
+        gameServer.setNumberOfObservers(1);
+        gameServer.setExecutor(pool);
+        gameServer.setRandom(new Random(TournamentSpec.deriveSeed(seed, gameNumber, -1)));
+
+        GameInProgress gameInProgress = new GameInProgress(gameServer);
+
+        // The game counts as ended once the recorder has written its last phase.
+        TrajectoryRecorder recorder = new TrajectoryRecorder("", trajectoryLog) {
+            @Override
+            public void handleSMR(String[] message) {
+                super.handleSMR(message);
+                gameServer.stop();
+                if (games.remove(gameNumber, gameInProgress)) {
+                    gamesEnded.incrementAndGet();
+                    gamesInProgress.release();
+                }
+            }
+        };
+        recorder.setNextGameNumber(gameNumber);
+
+        List<DumbBot> players = new ArrayList<>();
+        for (int seat = 0; seat < NUMBER_OF_PLAYERS; seat++) {
+            String name = "DumbBot " + seat;
+            DumbBot player = new DumbBot(name, finalYear, "", gameServer.createComm(name));
+            player.setSeed(TournamentSpec.deriveSeed(seed, gameNumber, seat));
+            players.add(player);
+        }
+
+        games.put(gameNumber, gameInProgress);
+
+        try {
+            recorder.start(gameServer.createComm("TrajectoryRecorder"), silentLog);
+            for (DumbBot player : players) {
+                player.start(player.getComm(), silentLog);
+            }
+        } catch (Exception e) {
+            System.out.println("SelfPlayRunner.startGame() Could not start game " + gameNumber);
+            e.printStackTrace();
+            gameServer.stop();
+            games.remove(gameNumber);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops the games that started more than the given time ago and releases their permits of gamesInProgress.
+     *
+     * @return The number of games abandoned.
+     */
+    static int abandonStuckGames(Map<Integer, GameInProgress> games, long gameTimeoutMillis, Semaphore gamesInProgress) {
+        int abandoned = 0;
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<Integer, GameInProgress> entry : games.entrySet()) {
+            GameInProgress game = entry.getValue();
+            if (now - game.startMillis > gameTimeoutMillis && games.remove(entry.getKey(), game)) {
+                System.out.println("SelfPlayRunner.abandonStuckGames() Game " + entry.getKey() + " did not end within " + gameTimeoutMillis + " ms and is abandoned.");
+                game.gameServer.stop();
+                gamesInProgress.release();
+                abandoned++;
+            }
+        }
+
+        return abandoned;
+    }
+
+    /**
+     * A game that was started and has not ended yet.
+     */
+    static class GameInProgress {
+
+        final LocalGameServer gameServer;
+        final long startMillis = System.currentTimeMillis();
+
+        GameInProgress(LocalGameServer gameServer) {
+            this.gameServer = gameServer;
+        }
+    }
+
+    /**
+     * A log that prints nothing, and that can be shared by all players since closing it does nothing either.
+     */
+    static class SilentLog extends Interface {
+
+        SilentLog() {
+            // "STDOUT" makes the Log print to System.out instead of opening a file, but it is disabled at once.
+            super("STDOUT");
+            this.disable();
+        }
+
+        @Override
+        public void close() {
+            // Closing the Log would close System.out.
+        }
+    }
+}
@@ -1,64 +1,98 @@
 package cruz.agents;
 
 import org.tensorflow.*;
-import org.tensorflow.op.core.TensorForestTreeDeserialize;
 
-
-import java.io.File;
-import java.io.IOException;
-import java.net.URISyntaxException;
-import java.nio.FloatBuffer;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
 
 public class TFAdapterNegotiation {
 
+    /** Number of provinces in the standard map. Each province is described by its owner and whether it is a SC. */
+    public static final int NUMBER_OF_PROVINCES = 75;
+
+    /** Size of the observation vector, as defined by the observation space of the negotiation env. */
+    public static final int OBSERVATION_SIZE = NUMBER_OF_PROVINCES * 2 + 1;
+
     public static void main(String[] args) {
         // good idea to print the version number, 1.2.0 as of this writing
         System.out.println(TensorFlow.version());
         String modelDir = "/home/jazz/Projects/FEUP/dip-q/agents/dip-q-brain/dip_q_brain/checkpoint";
-        SavedModelBundle b = SavedModelBundle.load(modelDir, "serve");
 
-        try(Graph g = b.graph()) {
+        if (args.length > 0) {
+            modelDir = args[0];
+        }
 
-            try (Session sess = b.session()) {
+        try (TFPolicySession policySession = new TFPolicySession(modelDir)) {
+            ProtoMessage.ObservationData.Builder observationDataBuilder = ProtoMessage.ObservationData.newBuilder();
 
-                int[][] inputData = new int[1][151];
+            for (int id = 1; id <= NUMBER_OF_PROVINCES; id++) {
+                observationDataBuilder.addProvinces(ProtoMessage.ProvinceData.newBuilder().setId(id).setOwner(1).setSc(1));
+            }
+            observationDataBuilder.setPlayer(1);
 
-                for (int i = 0; i < inputData.length; i++) {
-                    for (int j = 0; j < inputData[i].length; j++) {
-                        inputData[i][j] = 1;
-                    }
-                }
+            int[] action = policySession.predict(observationDataBuilder.build());
 
-                Tensor input = Tensor.create(inputData, Integer.class);
+            System.out.println("Action to take: " + Arrays.toString(action));
+        }
+    }
 
-                int[][] output = predict(sess, input);
-                int[] action = output[0];
+    /**
+     * Writes the observation in the same layout used by the Python negotiation env: the owner and SC flag of each
+     * province, ordered by province ID, followed by the ID of the player.
+     *
+     * @param observationData The observation to encode.
+     * @param encoded The array where the encoded observation is written. Must have OBSERVATION_SIZE elements.
+     */
+    public static void encodeObservation(ProtoMessage.ObservationData observationData, int[] encoded) {
+        Arrays.fill(encoded, 0);
+
+        for (ProtoMessage.ProvinceData provinceData : observationData.getProvincesList()) {
+            encoded[(provinceData.getId() - 1) * 2] = provinceData.getOwner();
+            encoded[(provinceData.getId() - 1) * 2 + 1] = provinceData.getSc();
+        }
 
-                System.out.println("Action to take: " + Arrays.toString(action));
+        encoded[OBSERVATION_SIZE - 1] = observationData.getPlayer();
+    }
 
-            }
+    public static float[][] generateInputData(ProtoMessage.ObservationData observationData) {
+        int[] encoded = new int[OBSERVATION_SIZE];
+        encodeObservation(observationData, encoded);
+
+        float[][] inputData = new float[1][OBSERVATION_SIZE];
+        for (int i = 0; i < OBSERVATION_SIZE; i++) {
+            inputData[0][i] = encoded[i];
         }
 
-        b.close();
+        return inputData;
     }
 
-    public static int[][] predict(Session sess, Tensor inputTensor) {
-        Tensor result = sess.runner()
-                .feed("input/Ob", inputTensor)
-                .fetch("output/Cast_1:0").run().get(0);
-        int[][] outputBuffer = new int[1][9];
-        result.copyTo(outputBuffer);
-        return outputBuffer;
-    }
+    /**
+     * Translates an action of the MultiDiscrete action space into DealData. It mirrors 'action_to_deal_data' of the
+     * Python negotiation env.
+     *
+     * @param action The action returned by the policy.
+     * @return The corresponding DealData.
+     */
+    public static ProtoMessage.DealData actionToDealData(int[] action) {
+        ProtoMessage.DealData.Builder dealDataBuilder = ProtoMessage.DealData.newBuilder();
 
-    public static float[][] generateInputData(ProtoMessage.ObservationData observationData) {
-        // int inputSize = observationData.getProvincesCount() ...;
-        return null;
+        dealDataBuilder.setDefendUnit(ProtoMessage.DealData.DefendUnitData.newBuilder()
+                .setExecute(action[0] != 0)
+                .setRegion(action[1]));
+
+        dealDataBuilder.setDefendSC(ProtoMessage.DealData.DefendSCData.newBuilder()
+                .setExecute(action[2] != 0)
+                .setAllyPower(action[3]));
+
+        dealDataBuilder.setAttackRegion(ProtoMessage.DealData.AttackRegionData.newBuilder()
+                .setExecute(action[4] != 0)
+                .setRegion(action[5]));
+
+        dealDataBuilder.setSupportAttackRegion(ProtoMessage.DealData.SupportAttackRegionData.newBuilder()
+                .setExecute(action[6] != 0)
+                .setRegion(action[7]));
+
+        dealDataBuilder.setPhasesFromNow(action[8]);
+
+        return dealDataBuilder.build();
     }
 }
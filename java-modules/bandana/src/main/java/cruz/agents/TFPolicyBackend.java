@@ -0,0 +1,37 @@
+package cruz.agents;
+
+/**
+ * Runs an exported TensorFlow policy inside the JVM, through a TFPolicySession.
+ */
+public class TFPolicyBackend implements PolicyBackend {
+
+    private final TFPolicySession policySession;
+
+    public TFPolicyBackend(TFPolicySession policySession) {
+        this.policySession = policySession;
+    }
+
+    /**
+     * Loads the SavedModel in the given folder.
+     *
+     * @param modelDir The folder of the TensorFlow SavedModel.
+     */
+    public TFPolicyBackend(String modelDir) {
+        this(new TFPolicySession(modelDir));
+    }
+
+    @Override
+    public ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+        return this.policySession.predictDealData(observationData);
+    }
+
+    @Override
+    public String getName() {
+        return "tf";
+    }
+
+    @Override
+    public void close() {
+        this.policySession.close();
+    }
+}
@@ -0,0 +1,164 @@
+package cruz.agents;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Keeps a TensorFlow SavedModel of the DipQ policy loaded inside the JVM, so that deals can be predicted without the
+ * Python gym process.
+ *
+ * The model is loaded once and its Session is kept warm for the whole lifetime of the agent. The input tensor is
+ * always created from the same buffer, which is refilled for every prediction, and the output is copied into a
+ * preallocated array. A prediction therefore only allocates the two native tensors TensorFlow requires.
+ *
+ * The input buffer type follows the placeholder of the exported graph: MultiDiscrete observations are exported as an
+ * int32 placeholder, while Box observations are exported as a float32 one.
+ */
+public class TFPolicySession implements AutoCloseable {
+
+    /** The tag used by stable-baselines when exporting the policy with 'simple_save'. */
+    public static final String SERVE_TAG = "serve";
+
+    /** Name of the observation placeholder in the exported graph. */
+    public static final String INPUT_OPERATION = "input/Ob";
+
+    /** Name of the tensor holding the deterministic action in the exported graph. */
+    public static final String OUTPUT_TENSOR = "output/Cast_1:0";
+
+    /** Size of the action vector. It has the same layout as the MultiDiscrete action space of the negotiation env. */
+    public static final int ACTION_SIZE = 9;
+
+    private final SavedModelBundle bundle;
+    private final Session session;
+
+    /** Whether the observation placeholder expects floats (true) or integers (false). */
+    private final boolean floatInput;
+
+    private final long[] inputShape = new long[]{1, TFAdapterNegotiation.OBSERVATION_SIZE};
+
+    /** Scratch array where the observation is encoded before being written to the input buffer. */
+    private final int[] encodedObservation = new int[TFAdapterNegotiation.OBSERVATION_SIZE];
+
+    private final IntBuffer intInputBuffer;
+    private final FloatBuffer floatInputBuffer;
+
+    private final int[][] intOutput = new int[1][ACTION_SIZE];
+    private final long[][] longOutput = new long[1][ACTION_SIZE];
+
+    /** The action returned to the caller. It is overwritten by every prediction. */
+    private final int[] action = new int[ACTION_SIZE];
+
+    /**
+     * Loads the SavedModel in the given folder and warms up its session with an empty observation.
+     *
+     * @param modelDir The folder containing the 'saved_model.pb' file and the 'variables' folder.
+     */
+    public TFPolicySession(String modelDir) {
+        this.bundle = SavedModelBundle.load(modelDir, SERVE_TAG);
+        this.session = this.bundle.session();
+
+        Graph graph = this.bundle.graph();
+
+        if (graph.operation(INPUT_OPERATION) == null) {
+            this.bundle.close();
+            throw new IllegalArgumentException("TFPolicySession() The model in " + modelDir + " has no operation named " + INPUT_OPERATION);
+        }
+
+        this.floatInput = graph.operation(INPUT_OPERATION).output(0).dataType() == DataType.FLOAT;
+
+        if (this.floatInput) {
+            this.floatInputBuffer = FloatBuffer.allocate(TFAdapterNegotiation.OBSERVATION_SIZE);
+            this.intInputBuffer = null;
+        }
+        else {
+            this.intInputBuffer = IntBuffer.allocate(TFAdapterNegotiation.OBSERVATION_SIZE);
+            this.floatInputBuffer = null;
+        }
+
+        // The first run of a session is considerably slower than the following ones, so we do it now instead of
+        // during the first negotiation round.
+        this.run();
+    }
+
+    /**
+     * Predicts the action of the policy for the given observation.
+     *
+     * @param observationData The observation, as generated by the OpenAIAdapter.
+     * @return The action, with the layout of the MultiDiscrete action space. The array is reused by the next call.
+     */
+    public synchronized int[] predict(ProtoMessage.ObservationData observationData) {
+        TFAdapterNegotiation.encodeObservation(observationData, this.encodedObservation);
+        return this.run();
+    }
+
+    /**
+     * Predicts the deal the policy wants to propose for the given observation.
+     *
+     * @param observationData The observation, as generated by the OpenAIAdapter.
+     * @return The DealData corresponding to the action of the policy.
+     */
+    public synchronized ProtoMessage.DealData predictDealData(ProtoMessage.ObservationData observationData) {
+        return TFAdapterNegotiation.actionToDealData(this.predict(observationData));
+    }
+
+    private int[] run() {
+        Tensor<?> input = this.createInputTensor();
+
+        try {
+            List<Tensor<?>> results = this.session.runner()
+                    .feed(INPUT_OPERATION, input)
+                    .fetch(OUTPUT_TENSOR)
+                    .run();
+
+            try (Tensor<?> result = results.get(0)) {
+                if (result.dataType() == DataType.INT64) {
+                    result.copyTo(this.longOutput);
+
+                    for (int i = 0; i < ACTION_SIZE; i++) {
+                        this.action[i] = (int) this.longOutput[0][i];
+                    }
+                }
+                else {
+                    result.copyTo(this.intOutput);
+                    System.arraycopy(this.intOutput[0], 0, this.action, 0, ACTION_SIZE);
+                }
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        return this.action;
+    }
+
+    private Tensor<?> createInputTensor() {
+        if (this.floatInput) {
+            this.floatInputBuffer.clear();
+            for (int value : this.encodedObservation) {
+                this.floatInputBuffer.put(value);
+            }
+            this.floatInputBuffer.flip();
+
+            return Tensor.create(this.inputShape, this.floatInputBuffer);
+        }
+
+        this.intInputBuffer.clear();
+        this.intInputBuffer.put(this.encodedObservation);
+        this.intInputBuffer.flip();
+
+        return Tensor.create(this.inputShape, this.intInputBuffer);
+    }
+
+    @Override
+    public synchronized void close() {
+        // Closing the bundle also closes its session and graph.
+        this.bundle.close();
+    }
+}
@@ -18,9 +18,107 @@ import java.util.List;
 public class MakeWeights {
     static ArrayList<ArrayList<ArrayList<Double>>> listOfWeightMatrices = new ArrayList<>();
 
+    static String jsonPath = "/home/jazz/Projects/FEUP/dip-q/agents/dip-q-brain/dip_q_brain/path.json";
+
+    /** Maximum length of each Base64 string of the int8 weights. Class file string constants are limited to 65535 bytes. */
+    static final int BASE64_CHUNK_LENGTH = 60000;
+
+    /**
+     * Usage: MakeWeights [-int8] [path of the json with the weights]
+     *
+     * With '-int8', the weights are written as int8 with per-output scales (see QuantisedMatrix) instead of doubles.
+     */
     public static void main (String args[]){
+        boolean quantised = false;
+
+        for (String arg : args) {
+            if (arg.equals("-int8")) {
+                quantised = true;
+            }
+            else {
+                jsonPath = arg;
+            }
+        }
+
         setWeightsMatrices();
-        createIt();
+
+        if (quantised) {
+            createQuantised();
+        }
+        else {
+            createIt();
+        }
+    }
+
+    public static void createQuantised() {
+        String packagePath = "src/main/java/cruz/anacUtils";
+        List<double[][]> weightMatrices = getWeightMatrices();
+
+        try {
+            for (int i = 0; i < weightMatrices.size(); i++) {
+                QuantisedMatrix quantisedMatrix = QuantisedMatrix.quantise(weightMatrices.get(i));
+
+                String className = "MyQuantisedWeightsMatrix" + i;
+                FileWriter aWriter = new FileWriter(packagePath + "/" + className + ".java", false);
+                aWriter.write("package cruz.anacUtils;\n");
+                aWriter.write("public class " + className + "{\n");
+                aWriter.write("\tstatic final int rows = " + quantisedMatrix.getRows() + ";\n");
+                aWriter.write("\tstatic final int columns = " + quantisedMatrix.getColumns() + ";\n");
+
+                aWriter.write("\tstatic final float[] scales = {");
+                float[] scales = quantisedMatrix.getScales();
+                for (int j = 0; j < scales.length; j++) {
+                    aWriter.write(scales[j] + "f");
+
+                    if (j != scales.length - 1) {
+                        aWriter.write(", ");
+                    }
+                }
+                aWriter.write("};\n");
+
+                aWriter.write("\tstatic final String[] weights = {\n");
+                String[] chunks = quantisedMatrix.toBase64Chunks(BASE64_CHUNK_LENGTH);
+                for (int j = 0; j < chunks.length; j++) {
+                    aWriter.write("\"" + chunks[j] + "\"");
+
+                    if (j != chunks.length - 1) {
+                        aWriter.write(",\n");
+                    }
+                }
+                aWriter.write("};\n");
+
+                aWriter.write("}\n");
+                aWriter.flush();
+                aWriter.close();
+            }
+        }
+        catch(Exception e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The weight matrices read by setWeightsMatrices(), in the format used by MyNeuralNetwork.
+     */
+    public static List<double[][]> getWeightMatrices() {
+        List<double[][]> weightMatrices = new ArrayList<>();
+
+        for (ArrayList<ArrayList<Double>> listMatrix : listOfWeightMatrices) {
+            double[][] matrix = new double[listMatrix.size()][];
+
+            for (int i = 0; i < listMatrix.size(); i++) {
+                ArrayList<Double> listRow = listMatrix.get(i);
+                matrix[i] = new double[listRow.size()];
+
+                for (int j = 0; j < listRow.size(); j++) {
+                    matrix[i][j] = listRow.get(j);
+                }
+            }
+
+            weightMatrices.add(matrix);
+        }
+
+        return weightMatrices;
     }
 
     public static void createIt() {
@@ -129,7 +227,6 @@ public class MakeWeights {
 
     public static void setWeightsMatrices() {
         Gson gson = new Gson();
-        String jsonPath = "/home/jazz/Projects/FEUP/dip-q/agents/dip-q-brain/dip_q_brain/path.json";
         Type type = new TypeToken<ArrayList<ArrayList<Object>>>() {}.getType();
         try {
             JsonReader reader = new JsonReader(new FileReader(jsonPath));
@@ -1,7 +1,9 @@
 package cruz.anacUtils;
 
+import cruz.agents.DealAction;
 import cruz.agents.ProtoMessage;
 
+import java.util.Arrays;
 import java.util.List;
 
 @SuppressWarnings("Duplicates")
@@ -9,6 +11,14 @@ import java.util.List;
 
 public class MyNeuralNetwork {
 
+    private static final int NUMBER_OF_PLAYERS = 7;
+
+    /** Size of the one-hot input: owner (NUMBER_OF_PLAYERS + 1 values) and SC flag of 75 provinces, plus the player. */
+    public static final int INPUT_SIZE = 75 * (NUMBER_OF_PLAYERS + 1) + 75 * 2 + NUMBER_OF_PLAYERS;
+
+    /** Size of each segment of the output, one per field of DealAction. */
+    public static final int[] OUTPUT_SEGMENTS = {2, 18, 2, 6, 2, 18, 2, 18, 20};
+
     /**
      * Code related to operations comes from here: https://gist.github.com/Jeraldy/7d4262db0536d27906b1e397662512bc
      */
@@ -64,65 +74,100 @@ public class MyNeuralNetwork {
         return input;
     }
 
-    public static ProtoMessage.DealData outputToDealData(double[][] output) {
-        // Output should follow the same logic as input
+    /**
+     * Writes the one-hot input of the observation into the given array, like observationToInput(), but without
+     * allocating anything.
+     *
+     * @param input An array with INPUT_SIZE elements.
+     */
+    public static void observationToInput(ProtoMessage.ObservationData observationData, double[] input) {
+        Arrays.fill(input, 0);
 
-        int MAXIMUM_NUMBER_OF_SC = 18;
-        int NUMBER_OF_PHASES_AHEAD = 20;
-        int NUMBER_OF_OPPONENTS = 6;
+        for (int i = 0; i < observationData.getProvincesCount(); i++) {
+            ProtoMessage.ProvinceData provinceData = observationData.getProvinces(i);
+            int provinceOffset = (provinceData.getId() - 1) * (NUMBER_OF_PLAYERS + 1 + 2);
 
-        // I'll assume that the node with higher value shall be the one to be executed.
+            input[provinceOffset + provinceData.getOwner()] = 1;
+            input[provinceOffset + (NUMBER_OF_PLAYERS + 1) + provinceData.getSc()] = 1;
+        }
+
+        input[INPUT_SIZE - 1 - NUMBER_OF_PLAYERS + observationData.getPlayer()] = 1;
+    }
 
-        int currentIndex = 0;
+    /**
+     * Runs the network on a single input, writing the output of each layer into the given arrays.
+     *
+     * Zero inputs are skipped, which makes the first layer much cheaper because its input is one-hot.
+     *
+     * @param input The input, with as many elements as the rows of the first matrix.
+     * @param weightMatrices The weight matrices of the network.
+     * @param layerOutputs One array per weight matrix, with as many elements as its columns.
+     * @return The output of the last layer (the last array of layerOutputs).
+     */
+    public static double[] predict(double[] input, List<double[][]> weightMatrices, double[][] layerOutputs) {
+        double[] currentVector = input;
 
-        boolean defendUnitExecute = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, 2) == 1;
-        currentIndex += 2;
-        int defendUnitRegion = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, MAXIMUM_NUMBER_OF_SC);
-        currentIndex += MAXIMUM_NUMBER_OF_SC;
+        for (int layer = 0; layer < weightMatrices.size(); layer++) {
+            double[][] weightMatrix = weightMatrices.get(layer);
+            double[] resultVector = layerOutputs[layer];
 
-        boolean defendSCExecute = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, 2) == 1;
-        currentIndex +=2;
-        int defendSCPower = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, NUMBER_OF_OPPONENTS);
-        currentIndex +=NUMBER_OF_OPPONENTS;
+            Arrays.fill(resultVector, 0);
 
-        boolean attackRegionExecute = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex,2) == 1;
-        currentIndex +=2;
-        int attackRegionRegion = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, MAXIMUM_NUMBER_OF_SC);
-        currentIndex += MAXIMUM_NUMBER_OF_SC;
+            for (int k = 0; k < weightMatrix.length; k++) {
+                double value = currentVector[k];
 
-        boolean supportAttackRegionExecute = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, 2) == 1;
-        currentIndex += 2;
-        int supportAttackRegionRegion = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, MAXIMUM_NUMBER_OF_SC);
-        currentIndex += MAXIMUM_NUMBER_OF_SC;
+                if (value == 0) {
+                    continue;
+                }
 
-        int numOfPhasesAhead = getRelativeIndexOfHigherValueBetweenBounds(output[0], currentIndex, NUMBER_OF_PHASES_AHEAD);
-        currentIndex += NUMBER_OF_PHASES_AHEAD;
+                double[] weightRow = weightMatrix[k];
+                for (int j = 0; j < resultVector.length; j++) {
+                    resultVector[j] += value * weightRow[j];
+                }
+            }
 
-        ProtoMessage.DealData.Builder dealDataBuilder = ProtoMessage.DealData.newBuilder();
+            for (int j = 0; j < resultVector.length; j++) {
+                resultVector[j] = Math.tanh(resultVector[j]);
+            }
 
-        ProtoMessage.DealData.DefendUnitData.Builder defendUnitDataBuilder = ProtoMessage.DealData.DefendUnitData.newBuilder();
-        defendUnitDataBuilder.setExecute(defendUnitExecute);
-        defendUnitDataBuilder.setRegion(defendUnitRegion);
+            currentVector = resultVector;
+        }
 
-        ProtoMessage.DealData.DefendSCData.Builder defendSCDataBuilder = ProtoMessage.DealData.DefendSCData.newBuilder();
-        defendSCDataBuilder.setExecute(defendSCExecute);
-        defendSCDataBuilder.setAllyPower(defendSCPower);
+        return currentVector;
+    }
 
-        ProtoMessage.DealData.AttackRegionData.Builder attackRegionDataBuilder = ProtoMessage.DealData.AttackRegionData.newBuilder();
-        attackRegionDataBuilder.setExecute(attackRegionExecute);
-        attackRegionDataBuilder.setRegion(attackRegionRegion);
+    /**
+     * Chooses the value of each field of the deal as the index of the highest output of its segment (the first one,
+     * in case of a tie), in a single pass over the output.
+     *
+     * @param output The output of the network, with the segments of OUTPUT_SEGMENTS.
+     * @return The chosen action, packed as a DealAction.
+     */
+    public static long outputToDealAction(double[] output) {
+        long action = 0;
+
+        int index = 0;
+        for (int field = 0; field < OUTPUT_SEGMENTS.length; field++) {
+            int segmentEnd = index + OUTPUT_SEGMENTS[field];
+            int bestIndex = index;
+            double bestValue = output[index];
+
+            for (index++; index < segmentEnd; index++) {
+                if (output[index] > bestValue) {
+                    bestValue = output[index];
+                    bestIndex = index;
+                }
+            }
 
-        ProtoMessage.DealData.SupportAttackRegionData.Builder supportAttackRegionDataBuilder = ProtoMessage.DealData.SupportAttackRegionData.newBuilder();
-        supportAttackRegionDataBuilder.setExecute(supportAttackRegionExecute);
-        supportAttackRegionDataBuilder.setRegion(supportAttackRegionRegion);
+            action = DealAction.setField(action, field, bestIndex - (segmentEnd - OUTPUT_SEGMENTS[field]));
+        }
 
-        dealDataBuilder.setDefendUnit(defendUnitDataBuilder.build());
-        dealDataBuilder.setDefendSC(defendSCDataBuilder.build());
-        dealDataBuilder.setAttackRegion(attackRegionDataBuilder.build());
-        dealDataBuilder.setSupportAttackRegion(supportAttackRegionDataBuilder.build());
-        dealDataBuilder.setPhasesFromNow(numOfPhasesAhead);
+        return action;
+    }
 
-        return dealDataBuilder.build();
+    public static ProtoMessage.DealData outputToDealData(double[][] output) {
+        // The node with the higher value of each segment is the one to be executed.
+        return DealAction.toDealData(outputToDealAction(output[0]));
     }
 
     public static int getRelativeIndexOfHigherValueBetweenBounds(double[] arr, int minIndex, int delta) {
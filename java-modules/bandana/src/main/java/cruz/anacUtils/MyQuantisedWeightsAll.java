@@ -0,0 +1,24 @@
+package cruz.anacUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MyQuantisedWeightsAll {
+    /**
+     * The int8 version of MyWeightsMatrixAll. The classes are created by running MakeWeights with the '-int8' option,
+     * and hold the weights as Base64 strings, which are much smaller in the jar than double array initialisers.
+     */
+
+    public static List<QuantisedMatrix> weightMatrices;
+
+    public static void setWeightMatrices() {
+        weightMatrices = new ArrayList<>();
+
+        // weightMatrices.add(QuantisedMatrix.fromBase64Chunks(MyQuantisedWeightsMatrix0.rows, MyQuantisedWeightsMatrix0.columns,
+        //         MyQuantisedWeightsMatrix0.scales, MyQuantisedWeightsMatrix0.weights));
+        // weightMatrices.add(QuantisedMatrix.fromBase64Chunks(MyQuantisedWeightsMatrix1.rows, MyQuantisedWeightsMatrix1.columns,
+        //         MyQuantisedWeightsMatrix1.scales, MyQuantisedWeightsMatrix1.weights));
+        // weightMatrices.add(QuantisedMatrix.fromBase64Chunks(MyQuantisedWeightsMatrix2.rows, MyQuantisedWeightsMatrix2.columns,
+        //         MyQuantisedWeightsMatrix2.scales, MyQuantisedWeightsMatrix2.weights));
+    }
+}
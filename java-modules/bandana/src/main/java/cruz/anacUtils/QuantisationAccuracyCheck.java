@@ -0,0 +1,158 @@
+package cruz.anacUtils;
+
+import cruz.agents.ProtoMessage;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the deals chosen by the int8 network with the ones chosen by the float network, over a set of recorded
+ * observations (see the '-recordObservations' option of OpenAINegotiator).
+ *
+ * Usage: QuantisationAccuracyCheck [observations file] [path of the json with the weights]
+ *
+ * If no json is given, the weights embedded in MyWeightsMatrixAll are used.
+ */
+public class QuantisationAccuracyCheck {
+
+    /** Names of the parts of a deal, in the order they are compared. */
+    public static final String[] FIELD_NAMES = {"defendUnit.execute", "defendUnit.region", "defendSC.execute",
+            "defendSC.allyPower", "attackRegion.execute", "attackRegion.region", "supportAttackRegion.execute",
+            "supportAttackRegion.region", "phasesFromNow"};
+
+    /** Number of observations where each part of the deal is the same in both networks. */
+    private final int[] fieldMatches = new int[FIELD_NAMES.length];
+
+    private int dealMatches = 0;
+    private int numberOfObservations = 0;
+
+    private long floatNanos = 0;
+    private long quantisedNanos = 0;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: QuantisationAccuracyCheck [observations file] [path of the json with the weights]");
+            return;
+        }
+
+        List<double[][]> weightMatrices;
+
+        if (args.length > 1) {
+            MakeWeights.jsonPath = args[1];
+            MakeWeights.setWeightsMatrices();
+            weightMatrices = MakeWeights.getWeightMatrices();
+        }
+        else {
+            MyWeightsMatrixAll.setWeightMatrices();
+            weightMatrices = MyWeightsMatrixAll.weightMatrices;
+        }
+
+        if (weightMatrices.isEmpty()) {
+            System.out.println("QuantisationAccuracyCheck.main() There are no weights to compare.");
+            return;
+        }
+
+        try {
+            List<ProtoMessage.ObservationData> observations = readObservations(args[0]);
+
+            QuantisationAccuracyCheck check = new QuantisationAccuracyCheck();
+            check.compare(observations, weightMatrices, QuantisedNeuralNetwork.quantise(weightMatrices));
+
+            System.out.println(check.getReport());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the observations written with ObservationData.writeDelimitedTo().
+     */
+    public static List<ProtoMessage.ObservationData> readObservations(String path) throws IOException {
+        List<ProtoMessage.ObservationData> observations = new ArrayList<>();
+
+        try (InputStream inputStream = new FileInputStream(path)) {
+            ProtoMessage.ObservationData observationData;
+
+            while ((observationData = ProtoMessage.ObservationData.parseDelimitedFrom(inputStream)) != null) {
+                observations.add(observationData);
+            }
+        }
+
+        return observations;
+    }
+
+    /**
+     * Predicts the deal for every observation with both networks, and counts the parts of the deals that match.
+     */
+    public void compare(List<ProtoMessage.ObservationData> observations, List<double[][]> weightMatrices, List<QuantisedMatrix> quantisedMatrices) {
+        for (ProtoMessage.ObservationData observationData : observations) {
+            double[][] input = MyNeuralNetwork.observationToInput(observationData);
+
+            long start = System.nanoTime();
+            ProtoMessage.DealData floatDeal = MyNeuralNetwork.outputToDealData(MyNeuralNetwork.predict(input, weightMatrices));
+            long middle = System.nanoTime();
+            ProtoMessage.DealData quantisedDeal = MyNeuralNetwork.outputToDealData(QuantisedNeuralNetwork.predict(input, quantisedMatrices));
+            long end = System.nanoTime();
+
+            this.floatNanos += middle - start;
+            this.quantisedNanos += end - middle;
+
+            int[] floatFields = dealToFields(floatDeal);
+            int[] quantisedFields = dealToFields(quantisedDeal);
+            boolean sameDeal = true;
+
+            for (int i = 0; i < FIELD_NAMES.length; i++) {
+                if (floatFields[i] == quantisedFields[i]) {
+                    this.fieldMatches[i]++;
+                }
+                else {
+                    sameDeal = false;
+                }
+            }
+
+            if (sameDeal) {
+                this.dealMatches++;
+            }
+
+            this.numberOfObservations++;
+        }
+    }
+
+    private static int[] dealToFields(ProtoMessage.DealData dealData) {
+        return new int[]{
+                dealData.getDefendUnit().getExecute() ? 1 : 0, dealData.getDefendUnit().getRegion(),
+                dealData.getDefendSC().getExecute() ? 1 : 0, dealData.getDefendSC().getAllyPower(),
+                dealData.getAttackRegion().getExecute() ? 1 : 0, dealData.getAttackRegion().getRegion(),
+                dealData.getSupportAttackRegion().getExecute() ? 1 : 0, dealData.getSupportAttackRegion().getRegion(),
+                dealData.getPhasesFromNow()};
+    }
+
+    /**
+     * @return The fraction of observations for which both networks chose exactly the same deal.
+     */
+    public double getDealAgreement() {
+        return this.numberOfObservations == 0 ? 0 : (double) this.dealMatches / this.numberOfObservations;
+    }
+
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+
+        report.append("Observations: ").append(this.numberOfObservations).append("\n");
+        report.append("Same deal: ").append(String.format("%.2f%%", this.getDealAgreement() * 100)).append("\n");
+
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            double agreement = this.numberOfObservations == 0 ? 0 : (double) this.fieldMatches[i] / this.numberOfObservations;
+            report.append("  ").append(FIELD_NAMES[i]).append(": ").append(String.format("%.2f%%", agreement * 100)).append("\n");
+        }
+
+        if (this.numberOfObservations > 0) {
+            report.append("Average float prediction: ").append(this.floatNanos / this.numberOfObservations / 1000).append(" us\n");
+            report.append("Average int8 prediction: ").append(this.quantisedNanos / this.numberOfObservations / 1000).append(" us\n");
+        }
+
+        return report.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package cruz.anacUtils;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A weight matrix of the policy network stored as int8, with one scale per output.
+ *
+ * The network multiplies a row vector by each weight matrix (x * W), so every output is the dot product of the input
+ * with one column of W. Columns are stored transposed, as contiguous rows of bytes, and each one is quantised with its
+ * own scale (the largest absolute weight of the column maps to 127). Dot products are accumulated in int32 and
+ * dequantised once per output.
+ */
+public class QuantisedMatrix {
+
+    /** Number of inputs of the layer, i.e. rows of the original matrix. */
+    private final int rows;
+
+    /** Number of outputs of the layer, i.e. columns of the original matrix. */
+    private final int columns;
+
+    /** The quantised weights. The weights of output j are in weights[j * rows] to weights[j * rows + rows - 1]. */
+    private final byte[] weights;
+
+    /** The scale of each output: weight = weights[j * rows + i] * scales[j]. */
+    private final float[] scales;
+
+    public QuantisedMatrix(int rows, int columns, byte[] weights, float[] scales) {
+        if (weights.length != rows * columns || scales.length != columns) {
+            throw new IllegalArgumentException("QuantisedMatrix() Error! Expected " + rows * columns + " weights and " + columns + " scales, but got " + weights.length + " and " + scales.length);
+        }
+
+        this.rows = rows;
+        this.columns = columns;
+        this.weights = weights;
+        this.scales = scales;
+    }
+
+    /**
+     * Quantises a weight matrix of MyWeightsMatrixAll.
+     *
+     * @param matrix The matrix, with one row per input and one column per output.
+     * @return The quantised matrix.
+     */
+    public static QuantisedMatrix quantise(double[][] matrix) {
+        int rows = matrix.length;
+        int columns = matrix[0].length;
+
+        byte[] weights = new byte[rows * columns];
+        float[] scales = new float[columns];
+
+        for (int j = 0; j < columns; j++) {
+            double maxAbs = 0;
+            for (int i = 0; i < rows; i++) {
+                maxAbs = Math.max(maxAbs, Math.abs(matrix[i][j]));
+            }
+
+            // A column of zeros keeps a scale of 0, so that its outputs are always 0
+            scales[j] = (float) (maxAbs / 127);
+
+            for (int i = 0; i < rows; i++) {
+                weights[j * rows + i] = maxAbs == 0 ? 0 : (byte) Math.round(matrix[i][j] / scales[j]);
+            }
+        }
+
+        return new QuantisedMatrix(rows, columns, weights, scales);
+    }
+
+    /**
+     * Quantises a vector with a single scale, so that its largest absolute value maps to 127.
+     *
+     * @param vector The vector to quantise.
+     * @param quantised The array where the quantised values are written. Must have the same length as the vector.
+     * @return The scale of the quantised vector.
+     */
+    public static float quantiseVector(double[] vector, byte[] quantised) {
+        double maxAbs = 0;
+        for (double value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+
+        if (maxAbs == 0) {
+            Arrays.fill(quantised, (byte) 0);
+            return 0;
+        }
+
+        float scale = (float) (maxAbs / 127);
+
+        for (int i = 0; i < vector.length; i++) {
+            quantised[i] = (byte) Math.round(vector[i] / scale);
+        }
+
+        return scale;
+    }
+
+    /**
+     * Multiplies a quantised row vector by this matrix.
+     *
+     * @param input The quantised input, with 'rows' elements.
+     * @param inputScale The scale of the input.
+     * @param output The array where the dequantised result is written, with 'columns' elements.
+     */
+    public void multiply(byte[] input, float inputScale, double[] output) {
+        for (int j = 0; j < this.columns; j++) {
+            int offset = j * this.rows;
+            int accumulator = 0;
+
+            for (int i = 0; i < this.rows; i++) {
+                accumulator += input[i] * this.weights[offset + i];
+            }
+
+            output[j] = accumulator * (double) inputScale * this.scales[j];
+        }
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getColumns() {
+        return this.columns;
+    }
+
+    public float[] getScales() {
+        return this.scales;
+    }
+
+    /**
+     * Encodes the weights in Base64 strings, so that they can be written to a generated class by MakeWeights.
+     * A string constant of a class file may not exceed 65535 bytes, so the weights are split in chunks.
+     *
+     * @param chunkLength The maximum length of each string. Must be a multiple of 4.
+     * @return The Base64 chunks.
+     */
+    public String[] toBase64Chunks(int chunkLength) {
+        String encoded = Base64.getEncoder().encodeToString(this.weights);
+        int numberOfChunks = (encoded.length() + chunkLength - 1) / chunkLength;
+
+        String[] chunks = new String[numberOfChunks];
+        for (int i = 0; i < numberOfChunks; i++) {
+            chunks[i] = encoded.substring(i * chunkLength, Math.min(encoded.length(), (i + 1) * chunkLength));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Creates a matrix from the constants of a class generated by MakeWeights.
+     */
+    public static QuantisedMatrix fromBase64Chunks(int rows, int columns, float[] scales, String[] chunks) {
+        StringBuilder encoded = new StringBuilder();
+        for (String chunk : chunks) {
+            encoded.append(chunk);
+        }
+
+        return new QuantisedMatrix(rows, columns, Base64.getDecoder().decode(encoded.toString()), scales);
+    }
+}
@@ -0,0 +1,75 @@
+package cruz.anacUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The int8 counterpart of MyNeuralNetwork. Each layer quantises its input, multiplies it by a QuantisedMatrix with
+ * int32 accumulation, dequantises the result and applies tanh, like the float path.
+ *
+ * The input of the first layer is one-hot, so it is quantised without any loss.
+ */
+public class QuantisedNeuralNetwork {
+
+    public static double[][] predict(double[][] input, List<QuantisedMatrix> weightMatrices) {
+        double[] currentVector = input[0];
+
+        for (QuantisedMatrix weightMatrix : weightMatrices) {
+            if (currentVector.length != weightMatrix.getRows()) {
+                throw new RuntimeException("QuantisedNeuralNetwork.predict() Error! Illegal matrix dimensions: input has " + currentVector.length + " elements but the matrix has " + weightMatrix.getRows() + " rows.");
+            }
+
+            byte[] quantisedVector = new byte[currentVector.length];
+            float scale = QuantisedMatrix.quantiseVector(currentVector, quantisedVector);
+
+            double[] resultVector = new double[weightMatrix.getColumns()];
+            weightMatrix.multiply(quantisedVector, scale, resultVector);
+
+            for (int i = 0; i < resultVector.length; i++) {
+                resultVector[i] = Math.tanh(resultVector[i]);
+            }
+
+            currentVector = resultVector;
+        }
+
+        return new double[][]{currentVector};
+    }
+
+    /**
+     * Runs the network on a single input like predict(), but writing into the given arrays instead of allocating.
+     *
+     * @param quantisedInputs One array per weight matrix, with as many elements as its rows.
+     * @param layerOutputs One array per weight matrix, with as many elements as its columns.
+     * @return The output of the last layer (the last array of layerOutputs).
+     */
+    public static double[] predict(double[] input, List<QuantisedMatrix> weightMatrices, byte[][] quantisedInputs, double[][] layerOutputs) {
+        double[] currentVector = input;
+
+        for (int layer = 0; layer < weightMatrices.size(); layer++) {
+            float scale = QuantisedMatrix.quantiseVector(currentVector, quantisedInputs[layer]);
+            weightMatrices.get(layer).multiply(quantisedInputs[layer], scale, layerOutputs[layer]);
+
+            double[] resultVector = layerOutputs[layer];
+            for (int i = 0; i < resultVector.length; i++) {
+                resultVector[i] = Math.tanh(resultVector[i]);
+            }
+
+            currentVector = resultVector;
+        }
+
+        return currentVector;
+    }
+
+    /**
+     * Quantises every matrix of a float network.
+     */
+    public static List<QuantisedMatrix> quantise(List<double[][]> weightMatrices) {
+        List<QuantisedMatrix> quantisedMatrices = new ArrayList<>();
+
+        for (double[][] weightMatrix : weightMatrices) {
+            quantisedMatrices.add(QuantisedMatrix.quantise(weightMatrix));
+        }
+
+        return quantisedMatrices;
+    }
+}
@@ -31,6 +31,9 @@ public abstract class ANACNegotiator {
     private ANACPlayer anacPlayer;
     public Game game;
     public Power me;
+    private final NegotiationRound negotiationRound = new NegotiationRound();
+    private Message nextMessage;
+    private Long seed;
 
     public ANACNegotiator(String[] args) {
         String name = this.getClass().getSimpleName();
@@ -74,6 +77,15 @@ public abstract class ANACNegotiator {
                     return;
                 }
             }
+
+            if (args[i].equals("-seed") && args.length > i + 1) {
+                try {
+                    this.seed = Long.parseLong(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.out.println("main() The seed argument is not a valid integer: " + args[i + 1]);
+                    return;
+                }
+            }
         }
 
         if (!logPath.endsWith(File.separator)) {
@@ -81,6 +93,9 @@ public abstract class ANACNegotiator {
         }
 
         this.anacPlayer = new ANACPlayer(this, name, logPath, finalYear, gameServerPort, negoPort);
+        if (this.seed != null) {
+            this.anacPlayer.setSeed(this.seed);
+        }
     }
 
     public abstract void negotiate(long var1);
@@ -94,11 +109,75 @@ public abstract class ANACNegotiator {
     public abstract void receivedOrder(Order var1);
 
     public final boolean hasMessage() {
-        return this.anacPlayer.negoClient.hasMessage();
+        if (this.nextMessage == null) {
+            this.nextMessage = this.pollMessage();
+        }
+
+        return this.nextMessage != null;
     }
 
     public final Message removeMessageFromQueue() {
-        return this.anacPlayer.negoClient.removeMessageFromQueue();
+        if (!this.hasMessage()) {
+            return this.anacPlayer.negoClient.removeMessageFromQueue();
+        } else {
+            Message message = this.nextMessage;
+            this.nextMessage = null;
+            return message;
+        }
+    }
+
+    /**
+     * Returns the next message of the queue, or null if there is none. The NEGOTIATION_DONE messages are handled here,
+     * so the negotiator never sees them.
+     */
+    private Message pollMessage() {
+        while(this.anacPlayer.negoClient.hasMessage()) {
+            Message message = this.anacPlayer.negoClient.removeMessageFromQueue();
+            if (!message.getPerformative().equals("INFORM") || !this.negotiationRound.receive(message.getSender(), message.getContent())) {
+                return message;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Tells the other negotiating powers that this negotiator will not make any more proposals in this phase.
+     * It should still answer the proposals it receives, until isNegotiationOver() returns true or the deadline passes.
+     */
+    public final void negotiationDone() {
+        String phase = this.getPhaseName();
+        if (this.negotiationRound.setDone(this.anacPlayer.getMe().getName(), phase)) {
+            List<Power> otherPowers = this.getNegotiatingPowers();
+            otherPowers.remove(this.anacPlayer.getMe());
+            if (!otherPowers.isEmpty()) {
+                this.anacPlayer.negoClient.sendInformalMessage(otherPowers, NegotiationRound.createDoneMessage(phase));
+            }
+        }
+    }
+
+    /**
+     * Returns true if this negotiator and all other negotiating powers have called negotiationDone() in this phase, no
+     * message is left to answer and no proposal is waiting for its confirmation. The negotiation can then end before its
+     * deadline, as nothing will change anymore. Agents that never call negotiationDone() keep every negotiation going
+     * until its deadline.
+     */
+    public final boolean isNegotiationOver() {
+        List<String> powerNames = new ArrayList<String>();
+        for (Power power : this.getNegotiatingPowers()) {
+            powerNames.add(power.getName());
+        }
+
+        powerNames.add(this.anacPlayer.getMe().getName());
+        return this.negotiationRound.isOver(powerNames, this.getPhaseName(), this.hasMessage(), this.getUnconfirmedProposals());
+    }
+
+    final void startNegotiationRound() {
+        this.negotiationRound.startPhase(this.getPhaseName());
+    }
+
+    private String getPhaseName() {
+        return this.anacPlayer.getGame().getPhase() + " " + this.anacPlayer.getGame().getYear();
     }
 
     public final ArrayList<DiplomacyProposal> getUnconfirmedProposals() {
@@ -179,6 +258,21 @@ public abstract class ANACNegotiator {
         return this.anacPlayer.logger;
     }
 
+    /**
+     * Returns the port of the game server, as given by -gamePort.
+     */
+    public final int getGameServerPort() {
+        return this.anacPlayer.gameServerPort;
+    }
+
+    /**
+     * Returns the seed given by -seed, or null if none was given. A negotiator that seeds its random number generators
+     * with it makes the same decisions when its game is played again (see TournamentSpec.withReplayOf()).
+     */
+    public final Long getSeed() {
+        return this.seed;
+    }
+
     public final List<BasicDeal> getConfirmedDeals() {
         return new ArrayList(this.anacPlayer.confirmedDeals);
     }
@@ -60,6 +60,13 @@ class ANACPlayer extends Player {
         this.negoClient = new DiplomacyNegoClient(this, negoServerPort);
     }
 
+    /**
+     * Sets the seed of the random number generator that chooses the retreats.
+     */
+    void setSeed(long seed) {
+        this.random.setSeed(seed);
+    }
+
     public void run() {
         File logFolder = new File(this.logPath);
         logFolder.mkdirs();
@@ -107,7 +114,9 @@ class ANACPlayer extends Player {
         } else {
             Iterator var6;
             try {
+                //The negotiator may return before this deadline, once every negotiator is done (see ANACNegotiator.isNegotiationOver()).
                 long negotiationDeadline = System.currentTimeMillis() + NEGOTIATION_LENGTH;
+                this.anacNegotiator.startNegotiationRound();
                 this.anacNegotiator.negotiate(negotiationDeadline);
                 this.confirmedDeals.clear();
                 var6 = this.negoClient.getConfirmedDeals().iterator();
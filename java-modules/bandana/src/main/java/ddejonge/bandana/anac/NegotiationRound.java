@@ -0,0 +1,86 @@
+package ddejonge.bandana.anac;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of which powers have finished negotiating in each phase.
+ *
+ * A power that is done sends an informal message "NEGOTIATION_DONE [phase]" to the other negotiating powers. It still
+ * answers the proposals it receives, but it does not make new ones. Once every negotiating power is done, no
+ * message is left to answer and no proposal waits for its confirmation, there is nothing left to negotiate, so the
+ * negotiation can end before its deadline.
+ *
+ * The messages are kept per phase, so a late message of an earlier phase is not counted.
+ */
+class NegotiationRound {
+
+    static final String DONE = "NEGOTIATION_DONE";
+
+    private final Map<String, Set<String>> phaseToDonePowers = new HashMap<String, Set<String>>();
+
+    static String createDoneMessage(String phase) {
+        return DONE + " " + phase;
+    }
+
+    /**
+     * Stores the given message if it is a NEGOTIATION_DONE message.
+     *
+     * @return true if the message is a NEGOTIATION_DONE message, in which case it should not be given to the negotiator.
+     */
+    synchronized boolean receive(String sender, Serializable content) {
+
+        if (!(content instanceof String) || !((String) content).startsWith(DONE + " ")) {
+            return false;
+        }
+
+        String phase = ((String) content).substring(DONE.length() + 1);
+        setDone(sender, phase);
+        return true;
+    }
+
+    /**
+     * Marks the given power as done in the given phase.
+     *
+     * @return false if the power was already done in that phase.
+     */
+    synchronized boolean setDone(String power, String phase) {
+
+        Set<String> donePowers = phaseToDonePowers.get(phase);
+        if (donePowers == null) {
+            donePowers = new HashSet<String>();
+            phaseToDonePowers.put(phase, donePowers);
+        }
+        return donePowers.add(power);
+    }
+
+    /**
+     * Returns true if all the given powers are done in the given phase.
+     */
+    synchronized boolean isEveryoneDone(Collection<String> powers, String phase) {
+        Set<String> donePowers = phaseToDonePowers.get(phase);
+        return donePowers != null && donePowers.containsAll(powers);
+    }
+
+    /**
+     * Returns true if the negotiation of the given phase is over: all the given powers are done, there is no message
+     * left to answer and none of the proposals has yet to be confirmed or rejected. A proposal that every power has
+     * accepted is only confirmed by a later message of the Negotiation Server, which must not be missed.
+     */
+    synchronized boolean isOver(Collection<String> powers, String phase, boolean hasMessage, Collection<?> unconfirmedProposals) {
+        return !hasMessage && unconfirmedProposals.isEmpty() && isEveryoneDone(powers, phase);
+    }
+
+    /**
+     * Forgets the messages of all phases except the given one. Messages of the next phase cannot have arrived yet,
+     * because the game does not go on before this power has submitted its orders.
+     */
+    synchronized void startPhase(String phase) {
+        phaseToDonePowers.keySet().retainAll(Collections.singleton(phase));
+    }
+}
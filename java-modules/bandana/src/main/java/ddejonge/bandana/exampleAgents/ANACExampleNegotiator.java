@@ -71,6 +71,11 @@ public class ANACExampleNegotiator extends ANACNegotiator {
     public ANACExampleNegotiator(String[] args) {
         super(args);
 
+        // With -seed, the same game is played with the same random decisions (see TournamentSpec.withReplayOf()).
+        if (this.getSeed() != null) {
+            random.setSeed(this.getSeed());
+        }
+
         dBraneTactics = this.getTacticalModule();
     }
 
@@ -105,7 +110,8 @@ public class ANACExampleNegotiator extends ANACNegotiator {
 
         //This loop repeats 2 steps. The first step is to handle any incoming messages,
         // while the second step tries to find deals to propose to the other negotiators.
-        while (System.currentTimeMillis() < negotiationDeadline) {
+        // The loop ends early once every negotiator has told the others it is done.
+        while (System.currentTimeMillis() < negotiationDeadline && !this.isNegotiationOver()) {
 
 
             //STEP 1: Handle incoming messages.
@@ -262,6 +268,8 @@ public class ANACExampleNegotiator extends ANACNegotiator {
                     this.getLogger().logln("ANACExampleNegotiator.negotiate() Proposing: " + newDealToPropose, this.printToConsole);
                     this.proposeDeal(newDealToPropose);
 
+                    //We will not propose anything else, so tell the others. We keep answering their proposals.
+                    this.negotiationDone();
                 }
             }
 
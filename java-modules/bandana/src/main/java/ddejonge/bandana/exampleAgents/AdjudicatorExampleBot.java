@@ -45,6 +45,18 @@ public class AdjudicatorExampleBot extends Player{
 		
 		AdjudicatorExampleBot randomBot = new AdjudicatorExampleBot(DEFAULT_GAME_SERVER_PORT);
 		
+		//set the seed of the random number generator, so that the game can be played again with the same orders.
+		for(int i=0; i<args.length; i++){
+			if(args[i].equals("-seed") && args.length > i+1){
+				try{
+					randomBot.random.setSeed(Long.parseLong(args[i+1]));
+				}catch (NumberFormatException e) {
+					System.out.println("main() The seed argument is not a valid integer: " + args[i+1]);
+					return;
+				}
+			}
+		}
+		
 		//Connect to the game server.
 		try{
 			randomBot.start(randomBot.comm);
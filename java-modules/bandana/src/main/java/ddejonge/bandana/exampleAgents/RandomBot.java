@@ -5,6 +5,8 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
@@ -45,6 +47,7 @@ public class RandomBot extends Player{
 		String name = "Random Negotiatior";
 		String logPath = "log";
 		int finalYear = 1905;
+		Long seed = null;
 		
 		for(int i=0; i<args.length; i++){
 			
@@ -65,10 +68,23 @@ public class RandomBot extends Player{
 			if (args[i].equals("-log") && args.length > i + 1) {
 				logPath = args[i + 1];
 			}
+			
+			//set the seed of the random number generator, so that the game can be played again with the same orders.
+			if(args[i].equals("-seed") && args.length > i+1){
+				try{
+					seed = Long.parseLong(args[i+1]);
+				}catch (NumberFormatException e) {
+					System.out.println("main() The seed argument is not a valid integer: " + args[i+1]);
+					return;
+				}
+			}
 		}
 		
 		
 		RandomBot randomBot = new RandomBot(name, finalYear, DEFAULT_GAME_SERVER_PORT, logPath);
+		if(seed != null){
+			randomBot.setSeed(seed);
+		}
 		
 		try{
 					
@@ -93,12 +109,7 @@ public class RandomBot extends Player{
 	
 	//CONSTRUCTOR.
 	RandomBot(String name, int finalYear, int gameServerPort, String logPath){
-		super(logPath);
-		this.name = "RandomBot";
-		this.finalYear = finalYear;
-
-		File logFolder = new File(this.logPath);
-		logFolder.mkdirs();
+		this(finalYear, logPath, null);
 		
 		//Initialize the client
 		try {
@@ -110,6 +121,31 @@ public class RandomBot extends Player{
 		}
 	}
 	
+	/**
+	 * Creates a RandomBot that plays through the given connection, e.g. a LocalComm of a LocalGameServer.
+	 * Start it with start(getComm()).
+	 */
+	public RandomBot(int finalYear, String logPath, IComm comm){
+		super(logPath);
+		this.name = "RandomBot";
+		this.finalYear = finalYear;
+		this.comm = comm;
+
+		File logFolder = new File(this.logPath);
+		logFolder.mkdirs();
+	}
+	
+	public IComm getComm(){
+		return this.comm;
+	}
+	
+	/**
+	 * Sets the seed of the random number generator. A RandomBot with the same seed gives the same orders in the same game.
+	 */
+	public void setSeed(long seed){
+		this.random.setSeed(seed);
+	}
+	
 	/**
 	 * This method is called once, at the start of the game, before the 'game' field is set.
 	 * 
@@ -316,8 +352,16 @@ public class RandomBot extends Player{
 		// of possible destinations where that unit can legally retreat to.
 		HashMap<Region, Dislodgement> unit2dislodgement = game.getDislodgedRegions();
 		
-		//Get a list of all my units that are dislodged (i.e. units that must retreat)
+		//Get a list of all my units that are dislodged (i.e. units that must retreat).
+		// The game lists them in the order of a HashMap of Regions, which changes from run to run, so they are sorted
+		// to pick the same retreats with the same seed.
 		List<Region> dislodgedUnits = game.getDislodgedRegions(me);
+		Collections.sort(dislodgedUnits, new Comparator<Region>() {
+			@Override
+			public int compare(Region region1, Region region2) {
+				return region1.getName().compareTo(region2.getName());
+			}
+		});
 		
 		for (Region unit : dislodgedUnits) {
 			
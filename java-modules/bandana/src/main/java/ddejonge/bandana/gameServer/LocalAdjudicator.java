@@ -0,0 +1,555 @@
+package ddejonge.bandana.gameServer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ddejonge.bandana.internalAdjudicator.InternalAdjudicator;
+import es.csic.iiia.fabregues.dip.board.Dislodgement;
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.board.Phase;
+import es.csic.iiia.fabregues.dip.board.Power;
+import es.csic.iiia.fabregues.dip.board.Province;
+import es.csic.iiia.fabregues.dip.board.Region;
+import es.csic.iiia.fabregues.dip.orders.BLDOrder;
+import es.csic.iiia.fabregues.dip.orders.DSBOrder;
+import es.csic.iiia.fabregues.dip.orders.HLDOrder;
+import es.csic.iiia.fabregues.dip.orders.MTOOrder;
+import es.csic.iiia.fabregues.dip.orders.Order;
+import es.csic.iiia.fabregues.dip.orders.REMOrder;
+import es.csic.iiia.fabregues.dip.orders.RTOOrder;
+import es.csic.iiia.fabregues.dip.orders.SUPMTOOrder;
+import es.csic.iiia.fabregues.dip.orders.SUPOrder;
+import es.csic.iiia.fabregues.dip.orders.WVEOrder;
+
+/**
+ * Checks and executes the orders of one phase on the Game of a LocalGameServer.
+ *
+ * Movement phases are resolved by the InternalAdjudicator. This class adds what the InternalAdjudicator does not do:
+ * checking the orders, moving the units, dislodging units, and the retreat and build phases.
+ *
+ * Convoys are not supported: the orders of the dip library have no convoy orders (StringA2Order cannot parse CTO and
+ * CVY), so none of the agents built on it can give them. The LocalGameServer refuses every submission that contains
+ * one (see containsConvoy()), so the games played on it, and the data recorded from them, are games without convoys.
+ */
+public class LocalAdjudicator {
+
+	/**The number of supply centers needed for a solo victory.*/
+	public static final int SOLO_SUPPLY_CENTERS = 18;
+
+	//Result tokens of the ORD messages.
+	static final String SUCCESS = "SUC";
+	static final String BOUNCE = "BNC";
+	static final String CUT = "CUT";
+	static final String NO_SUCH_ORDER = "NSO";
+	static final String DISLODGED = "RET";
+
+	//Error tokens of the THX messages.
+	public static final String ORDER_OK = "MBV";
+	static final String NO_SUCH_UNIT = "NSU";
+	static final String NOT_YOUR_UNIT = "NYU";
+	static final String WRONG_SEASON = "NRS";
+	static final String NOT_ADJACENT = "FAR";
+	static final String NO_RETREAT = "NVR";
+	static final String INVALID_BUILD = "HSC";
+
+
+	final Game game;
+	final InternalAdjudicator internalAdjudicator = new InternalAdjudicator();
+
+	public LocalAdjudicator(Game game){
+		this.game = game;
+	}
+
+	/**
+	 * Returns the DAIDE token that a THX message should contain for the given order: MBV if the order can be executed
+	 * in the current phase, or the reason why it can not.
+	 *
+	 * Builds and removals are only checked one at a time. Their total number is checked when they are executed.
+	 */
+	public String check(Order order){
+
+		Phase phase = game.getPhase();
+
+		if(order instanceof WVEOrder){
+			return phase == Phase.WIN ? ORDER_OK : WRONG_SEASON;
+		}
+
+		Region region = order.getLocation();
+		Power power = order.getPower();
+
+		if(order instanceof BLDOrder){
+
+			if(phase != Phase.WIN){
+				return WRONG_SEASON;
+			}
+
+			return game.getBuildHomeList(power).contains(region) ? ORDER_OK : INVALID_BUILD;
+		}
+
+		if(order instanceof RTOOrder || order instanceof DSBOrder){
+
+			if(phase != Phase.SUM && phase != Phase.AUT){
+				return WRONG_SEASON;
+			}
+
+			Dislodgement dislodgement = game.getDislodgedRegions().get(region);
+			if(dislodgement == null){
+				return NO_SUCH_UNIT;
+			}
+			if( ! dislodgement.getPower().equals(power)){
+				return NOT_YOUR_UNIT;
+			}
+			if(order instanceof RTOOrder && ! dislodgement.getRetreateTo().contains(((RTOOrder)order).getDestination())){
+				return NO_RETREAT;
+			}
+
+			return ORDER_OK;
+		}
+
+		//All the other orders are given to units on the board.
+		Power controller = game.getController(region);
+		if(controller == null){
+			return NO_SUCH_UNIT;
+		}
+		if( ! controller.equals(power)){
+			return NOT_YOUR_UNIT;
+		}
+
+		if(order instanceof REMOrder){
+			return phase == Phase.WIN ? ORDER_OK : WRONG_SEASON;
+		}
+
+		if(phase != Phase.SPR && phase != Phase.FAL){
+			return WRONG_SEASON;
+		}
+
+		if(order instanceof MTOOrder){
+			return region.getAdjacentRegions().contains(((MTOOrder)order).getDestination()) ? ORDER_OK : NOT_ADJACENT;
+		}
+
+		if(order instanceof SUPMTOOrder){
+			return canReach(region, ((SUPMTOOrder)order).getDestination()) ? ORDER_OK : NOT_ADJACENT;
+		}
+
+		if(order instanceof SUPOrder){
+			return canReach(region, ((SUPOrder)order).getSupportedRegion().getProvince()) ? ORDER_OK : NOT_ADJACENT;
+		}
+
+		return ORDER_OK;
+	}
+
+	/**
+	 * Returns true if the given SUB message contains a convoy order (CTO or CVY), which can not be adjudicated.
+	 */
+	public static boolean containsConvoy(String[] message){
+		for(String token : message){
+			if(token.equals("CTO") || token.equals("CVY")){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if the unit in the given region could move to the given province.
+	 */
+	static boolean canReach(Region region, Province province){
+		for(Region adjacentRegion : region.getAdjacentRegions()){
+			if(adjacentRegion.getProvince().equals(province)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resolves a movement phase. Units without order hold.
+	 * Moves the units and stores the dislodged units and their possible retreats in the game.
+	 *
+	 * @param orders The orders that passed check(), indexed by the region of their unit.
+	 * @return The order of every unit, with its result set.
+	 */
+	public List<Order> resolveMovement(Map<Region, Order> orders){
+
+		//1. Give every unit exactly one order.
+		List<Order> unitOrders = new ArrayList<Order>();
+		Map<Region, Order> region2order = new HashMap<Region, Order>();
+		for(Power power : game.getPowers()){
+			for(Region region : power.getControlledRegions()){
+				Order order = orders.get(region);
+				if(order == null || ! order.getPower().equals(power)){
+					order = new HLDOrder(power, region);
+				}
+				unitOrders.add(order);
+				region2order.put(region, order);
+			}
+		}
+
+		//2. The InternalAdjudicator only counts supports for the very order objects it resolves, so supports are
+		// linked to the orders of the supported units. Supports for orders that were not given are void.
+		List<Order> resolvedOrders = new ArrayList<Order>(unitOrders.size());
+		Map<Order, Order> resolved2given = new IdentityHashMap<Order, Order>();
+		for(Order order : unitOrders){
+			Order resolvedOrder = linkSupport(order, region2order);
+			resolvedOrders.add(resolvedOrder);
+			resolved2given.put(resolvedOrder, order);
+		}
+
+		internalAdjudicator.clear();
+		internalAdjudicator.resolve(game, resolvedOrders);
+
+		//3. Determine the successful moves, the new positions and the dislodged units.
+		Map<Province, MTOOrder> successfulMoves = new HashMap<Province, MTOOrder>();
+		Set<Province> bouncedDestinations = new HashSet<Province>();
+		for(Order order : resolvedOrders){
+			if(order instanceof MTOOrder){
+				MTOOrder move = (MTOOrder) order;
+				if(internalAdjudicator.getResult(move)){
+					successfulMoves.put(move.getDestination().getProvince(), move);
+				}else{
+					bouncedDestinations.add(move.getDestination().getProvince());
+				}
+			}
+		}
+
+		Map<Power, List<Region>> newPositions = new HashMap<Power, List<Region>>();
+		Set<Province> occupiedProvinces = new HashSet<Province>();
+		List<Order> dislodgedOrders = new ArrayList<Order>();
+
+		for(Order order : resolvedOrders){
+
+			Order givenOrder = resolved2given.get(order);
+			boolean success = internalAdjudicator.getResult(order);
+
+			if(order != givenOrder && order instanceof HLDOrder){
+				givenOrder.setResult(NO_SUCH_ORDER);
+			}else if(order instanceof MTOOrder){
+				givenOrder.setResult(success ? SUCCESS : BOUNCE);
+			}else if(order instanceof SUPOrder || order instanceof SUPMTOOrder){
+				givenOrder.setResult(success ? SUCCESS : CUT);
+			}else{
+				givenOrder.setResult(SUCCESS);
+			}
+
+			Region newPosition;
+			if(order instanceof MTOOrder && success){
+				newPosition = ((MTOOrder)order).getDestination();
+			}else if(successfulMoves.containsKey(order.getLocation().getProvince())){
+				givenOrder.setResult(givenOrder.getResult() + " " + DISLODGED);
+				dislodgedOrders.add(order);
+				continue;
+			}else{
+				newPosition = order.getLocation();
+			}
+
+			List<Region> positions = newPositions.get(order.getPower());
+			if(positions == null){
+				positions = new ArrayList<Region>();
+				newPositions.put(order.getPower(), positions);
+			}
+			positions.add(newPosition);
+			occupiedProvinces.add(newPosition.getProvince());
+		}
+
+		for(Power power : game.getPowers()){
+			power.resetControl();
+			List<Region> positions = newPositions.get(power);
+			if(positions != null){
+				for(Region region : positions){
+					power.addControlledRegion(region);
+				}
+			}
+		}
+
+		//4. A dislodged unit may retreat to an empty province, except the one its attacker came from and the ones
+		// left empty by a standoff.
+		game.resetDislodgedRegions();
+		for(Order order : dislodgedOrders){
+
+			Region region = order.getLocation();
+			Province attackerOrigin = successfulMoves.get(region.getProvince()).getLocation().getProvince();
+
+			Dislodgement dislodgement = new Dislodgement(order.getPower(), region);
+			for(Region retreat : region.getAdjacentRegions()){
+				Province province = retreat.getProvince();
+				if( ! occupiedProvinces.contains(province) && ! province.equals(attackerOrigin) && ! bouncedDestinations.contains(province)){
+					dislodgement.addRetreateToRegion(retreat);
+				}
+			}
+			game.addDislodgedRegion(region, dislodgement);
+		}
+
+		return unitOrders;
+	}
+
+	/**
+	 * Returns the order to pass to the InternalAdjudicator for the given order: a support linked to the order of the
+	 * supported unit, a hold if the support is void, or the order itself.
+	 */
+	static Order linkSupport(Order order, Map<Region, Order> region2order){
+
+		if(order instanceof SUPMTOOrder){
+			SUPMTOOrder support = (SUPMTOOrder) order;
+			Order supportedOrder = region2order.get(support.getSupportedRegion());
+			if(supportedOrder instanceof MTOOrder && ((MTOOrder)supportedOrder).getDestination().getProvince().equals(support.getDestination())){
+				return new SUPMTOOrder(order.getPower(), order.getLocation(), (MTOOrder)supportedOrder);
+			}
+			return new HLDOrder(order.getPower(), order.getLocation());
+		}
+
+		if(order instanceof SUPOrder){
+			Order supportedOrder = region2order.get(((SUPOrder)order).getSupportedRegion());
+			if(supportedOrder != null && ! (supportedOrder instanceof MTOOrder)){
+				return new SUPOrder(order.getPower(), order.getLocation(), supportedOrder);
+			}
+			return new HLDOrder(order.getPower(), order.getLocation());
+		}
+
+		return order;
+	}
+
+	/**
+	 * Resolves a retreat phase. Dislodged units without a valid order are disbanded, and so are units that retreat to
+	 * the same province.
+	 *
+	 * @param orders The orders that passed check(), indexed by the region of their unit.
+	 * @return The order of every dislodged unit, with its result set.
+	 */
+	public List<Order> resolveRetreats(Map<Region, Order> orders){
+
+		List<Order> unitOrders = new ArrayList<Order>();
+		Map<Province, Integer> retreatsPerProvince = new HashMap<Province, Integer>();
+
+		//Regions hash by identity, so the dislodged units are sorted to add the retreats in the same order in every run.
+		List<Region> dislodgedRegions = new ArrayList<Region>(game.getDislodgedRegions().keySet());
+		Collections.sort(dislodgedRegions, new Comparator<Region>() {
+			@Override
+			public int compare(Region region1, Region region2) {
+				return region1.getName().compareTo(region2.getName());
+			}
+		});
+
+		for(Region region : dislodgedRegions){
+			Order order = orders.get(region);
+			if( ! (order instanceof RTOOrder)){
+				order = new DSBOrder(region, game.getDislodgedRegions().get(region).getPower());
+			}else{
+				Province province = ((RTOOrder)order).getDestination().getProvince();
+				Integer numRetreats = retreatsPerProvince.get(province);
+				retreatsPerProvince.put(province, numRetreats == null ? 1 : numRetreats + 1);
+			}
+			unitOrders.add(order);
+		}
+
+		for(Order order : unitOrders){
+			if(order instanceof RTOOrder){
+				Region destination = ((RTOOrder)order).getDestination();
+				if(retreatsPerProvince.get(destination.getProvince()) == 1){
+					order.getPower().addControlledRegion(destination);
+					order.setResult(SUCCESS);
+				}else{
+					order.setResult(BOUNCE);
+				}
+			}else{
+				order.setResult(SUCCESS);
+			}
+		}
+
+		game.resetDislodgedRegions();
+
+		return unitOrders;
+	}
+
+	/**
+	 * Returns the number of units the given power may build, or minus the number of units it has to remove.
+	 */
+	public static int getNumberOfAdjustments(Power power){
+		return power.getOwnedSCs().size() - power.getControlledRegions().size();
+	}
+
+	/**
+	 * Resolves a build phase. Builds that are not given are waived, and removals that are not given are done as in
+	 * civil disorder, see getCivilDisorderRemovals().
+	 *
+	 * @param orders The orders of each power that passed check(), in the order they were given.
+	 * @return The builds, waives and removals of every power, with their results set.
+	 */
+	public List<Order> resolveAdjustments(Map<Power, List<Order>> orders){
+
+		List<Order> adjustments = new ArrayList<Order>();
+
+		for(Power power : game.getPowers()){
+
+			int numberOfAdjustments = getNumberOfAdjustments(power);
+			List<Order> givenOrders = orders.containsKey(power) ? orders.get(power) : new ArrayList<Order>();
+			List<Order> powerAdjustments = new ArrayList<Order>();
+
+			if(numberOfAdjustments > 0){
+
+				Set<Province> buildProvinces = new HashSet<Province>();
+				for(Order order : givenOrders){
+					if(order instanceof BLDOrder && powerAdjustments.size() < numberOfAdjustments && buildProvinces.add(order.getLocation().getProvince())){
+						powerAdjustments.add(order);
+					}
+				}
+				for(Order build : powerAdjustments){
+					power.addControlledRegion(build.getLocation());
+				}
+				while(powerAdjustments.size() < numberOfAdjustments){
+					powerAdjustments.add(new WVEOrder(power));
+				}
+
+			}else if(numberOfAdjustments < 0){
+
+				Set<Region> removedRegions = new HashSet<Region>();
+				for(Order order : givenOrders){
+					if(order instanceof REMOrder && powerAdjustments.size() < -numberOfAdjustments && removedRegions.add(order.getLocation())){
+						powerAdjustments.add(order);
+					}
+				}
+				for(Region region : getCivilDisorderRemovals(power)){
+					if(powerAdjustments.size() >= -numberOfAdjustments){
+						break;
+					}
+					if(removedRegions.add(region)){
+						powerAdjustments.add(new REMOrder(power, region));
+					}
+				}
+				power.getControlledRegions().removeAll(removedRegions);
+			}
+
+			for(Order order : powerAdjustments){
+				order.setResult(SUCCESS);
+			}
+			adjustments.addAll(powerAdjustments);
+		}
+
+		return adjustments;
+	}
+
+	/**
+	 * Returns the units of the given power in the order in which they are removed in civil disorder: the unit
+	 * farthest from the home supply centers of the power first, fleets before armies at the same distance, and then
+	 * in the alphabetical order of their provinces. The distance is the number of moves to the nearest home supply
+	 * center, counted as if every unit could move both over land and by sea.
+	 */
+	static List<Region> getCivilDisorderRemovals(Power power){
+
+		final Map<Province, Integer> distances = getDistancesFrom(power.getHomes());
+
+		List<Region> units = new ArrayList<Region>(power.getControlledRegions());
+		Collections.sort(units, new Comparator<Region>() {
+			@Override
+			public int compare(Region region1, Region region2) {
+				Integer distance1 = distances.get(region1.getProvince());
+				Integer distance2 = distances.get(region2.getProvince());
+				int comparison = Integer.compare(distance2 == null ? Integer.MAX_VALUE : distance2, distance1 == null ? Integer.MAX_VALUE : distance1);
+				if(comparison == 0){
+					comparison = Boolean.compare(isArmy(region1), isArmy(region2));
+				}
+				if(comparison == 0){
+					comparison = region1.getProvince().getName().compareTo(region2.getProvince().getName());
+				}
+				return comparison;
+			}
+		});
+		return units;
+	}
+
+	/**
+	 * Returns the number of moves from the given provinces to every province that can be reached from them, by any
+	 * kind of unit.
+	 */
+	static Map<Province, Integer> getDistancesFrom(List<Province> provinces){
+
+		Map<Province, Integer> distances = new HashMap<Province, Integer>();
+		Deque<Province> queue = new ArrayDeque<Province>();
+		for(Province province : provinces){
+			if( ! distances.containsKey(province)){
+				distances.put(province, 0);
+				queue.add(province);
+			}
+		}
+
+		while( ! queue.isEmpty()){
+			Province province = queue.poll();
+			int distance = distances.get(province);
+			for(Region region : province.getRegions()){
+				for(Region adjacentRegion : region.getAdjacentRegions()){
+					if( ! distances.containsKey(adjacentRegion.getProvince())){
+						distances.put(adjacentRegion.getProvince(), distance + 1);
+						queue.add(adjacentRegion.getProvince());
+					}
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	/**
+	 * Returns true if the unit in the given region is an army, i.e. the region is not a sea or a coast.
+	 */
+	static boolean isArmy(Region region){
+		return region.getName().endsWith("AMY");
+	}
+
+	/**
+	 * Gives every supply center that is occupied by a unit to the power of that unit. Is called after the FAL or AUT phase.
+	 */
+	public void updateOwnership(){
+
+		//In the order of the map, so that the supply centers of every power are listed in the same order in every run.
+		Map<Province, Power> province2owner = new LinkedHashMap<Province, Power>();
+		for(Province province : game.getProvinces()){
+			if(province.isSC()){
+				Power controller = game.getController(province);
+				province2owner.put(province, controller != null ? controller : game.getOwner(province));
+			}
+		}
+
+		for(Power power : game.getPowers()){
+			power.resetOwn();
+		}
+
+		for(Map.Entry<Province, Power> entry : province2owner.entrySet()){
+			if(entry.getValue() != null){
+				entry.getValue().addOwn(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Returns true if any power can build or has to remove units.
+	 */
+	public boolean needsAdjustments(){
+		for(Power power : game.getPowers()){
+			if(getNumberOfAdjustments(power) != 0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the power that owns enough supply centers for a solo victory, or null if there is none.
+	 */
+	public Power getSoloWinner(){
+		for(Power power : game.getPowers()){
+			if(power.getOwnedSCs().size() >= SOLO_SUPPLY_CENTERS){
+				return power;
+			}
+		}
+		return null;
+	}
+}
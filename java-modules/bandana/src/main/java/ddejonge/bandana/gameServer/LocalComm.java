@@ -0,0 +1,157 @@
+package ddejonge.bandana.gameServer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import es.csic.iiia.fabregues.dip.comm.Comm;
+import es.csic.iiia.fabregues.dip.comm.CommException;
+import es.csic.iiia.fabregues.dip.comm.IComm;
+import es.csic.iiia.fabregues.dip.comm.StartingCommException;
+import es.csic.iiia.fabregues.utilities.Interface;
+
+/**
+ * Connects a Player or Observer to a LocalGameServer in the same JVM. It can be used wherever a DaideComm is used.
+ *
+ * Messages are passed as the same String arrays a DaideComm would pass, but without sockets and without encoding
+ * them. Every client handles its messages on its own thread, one at a time and in the order they were sent, just
+ * like with a DaideComm. If the server has an executor, the messages are handled on it instead (see
+ * LocalGameServer.setExecutor()), still one at a time and in order.
+ */
+public class LocalComm implements IComm {
+
+	final LocalGameServer server;
+	final String name;
+
+	private Comm comm;
+	private Executor receiver;
+	private volatile boolean stopped = false;
+
+	LocalComm(LocalGameServer server, String name){
+		this.server = server;
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public void init(Comm comm, Interface log) throws StartingCommException {
+
+		this.comm = comm;
+
+		if(server.executor != null){
+			this.receiver = new SerialExecutor(server.executor);
+			return;
+		}
+
+		this.receiver = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "LocalComm " + name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public void sendMessage(String[] message) throws CommException {
+
+		if(stopped){
+			throw new CommException("LocalComm.sendMessage() " + name + " is not connected anymore.");
+		}
+
+		server.handleMessage(this, message);
+	}
+
+	/**
+	 * Is called by the server. The message is handled later, on the thread of this client.
+	 */
+	@Override
+	public void receivingMessage(final String[] message) {
+
+		if(stopped || receiver == null){
+			return;
+		}
+
+		try{
+			receiver.execute(new Runnable() {
+				@Override
+				public void run() {
+					try{
+						comm.handleReceivedMessage(message);
+					}catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}catch (RejectedExecutionException e) {
+			//The client was stopped in the meantime.
+		}
+	}
+
+	@Override
+	public void stop() {
+
+		if(stopped){
+			return;
+		}
+		stopped = true;
+
+		server.disconnect(this);
+
+		if(receiver instanceof ExecutorService){
+			((ExecutorService) receiver).shutdown();
+		}
+	}
+
+	public boolean isStopped(){
+		return stopped;
+	}
+
+	/**
+	 * Runs the tasks of one client on a shared executor, one at a time and in the order they were submitted.
+	 */
+	static class SerialExecutor implements Executor, Runnable {
+
+		private final Executor executor;
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+		/**Is true while a drain of the queue is submitted to the executor or running.*/
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+		SerialExecutor(Executor executor){
+			this.executor = executor;
+		}
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+			if(scheduled.compareAndSet(false, true)){
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+
+			Runnable task;
+			while((task = tasks.poll()) != null){
+				task.run();
+			}
+			scheduled.set(false);
+
+			//A task that was added after the last poll, but before the flag was cleared, would not be run otherwise.
+			if( ! tasks.isEmpty() && scheduled.compareAndSet(false, true)){
+				executor.execute(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,719 @@
+package ddejonge.bandana.gameServer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.board.Phase;
+import es.csic.iiia.fabregues.dip.board.Power;
+import es.csic.iiia.fabregues.dip.board.Province;
+import es.csic.iiia.fabregues.dip.board.Region;
+import es.csic.iiia.fabregues.dip.comm.GameBuilder;
+import es.csic.iiia.fabregues.dip.comm.IComm;
+import es.csic.iiia.fabregues.dip.comm.Order2StringA;
+import es.csic.iiia.fabregues.dip.comm.Parser;
+import es.csic.iiia.fabregues.dip.comm.StringA2Order;
+import es.csic.iiia.fabregues.dip.orders.Order;
+import es.csic.iiia.fabregues.dip.orders.RTOOrder;
+
+/**
+ * A game server that runs inside the JVM of its players, as a replacement for the Parlance server.
+ *
+ * Players and observers connect to it through a LocalComm, which they use just like a DaideComm. The server speaks
+ * the subset of DAIDE that the dip library uses (NME, OBS, MDF, YES, SUB, DRW, HLO, MAP, SCO, NOW, THX, ORD, CCD, SLO,
+ * SMR, OFF), but passes the messages as String arrays instead of sending them over TCP.
+ * The orders are adjudicated by the LocalAdjudicator.
+ *
+ * A server plays one game, on the standard map. The game starts as soon as every power has a player and the
+ * expected number of observers has connected. A phase is processed as soon as all its orders are in, or when its
+ * deadline expires. The game ends with a solo victory, when all surviving players propose a draw (DRW), or in a
+ * draw after the final year, if one was set.
+ */
+public class LocalGameServer {
+
+	public static final String MAP_NAME = "'STANDARD'";
+
+	/**The time limits of the phases, in seconds, as passed to Parlance. 0 means no deadline.*/
+	final int moveTimeLimit;
+	final int retreatTimeLimit;
+	final int buildTimeLimit;
+
+	/**If greater than 0, the game ends in a draw after this year.*/
+	int finalYear = 0;
+
+	/**The number of observers that must be connected before the game starts.*/
+	int numberOfObservers = 0;
+
+	Random random = new Random();
+
+	/**Runs the messages of the clients, or null to give every client a thread of its own.*/
+	Executor executor = null;
+
+	final Game game;
+	final LocalAdjudicator adjudicator;
+
+	//The clients, in the order they connected.
+	final List<LocalComm> clients = new ArrayList<LocalComm>();
+	final Map<LocalComm, Power> players = new LinkedHashMap<LocalComm, Power>();
+	final Set<LocalComm> observers = new HashSet<LocalComm>();
+	/**The clients that have accepted the map, and hence receive the messages about the game.*/
+	final Set<LocalComm> readyClients = new HashSet<LocalComm>();
+
+	/**The name and version of the player of each power, as sent in its NME message.*/
+	final Map<Power, String[]> playerNames = new HashMap<Power, String[]>();
+	final Set<Power> disconnectedPowers = new HashSet<Power>();
+	final Map<Power, Integer> eliminationYears = new HashMap<Power, Integer>();
+	final Set<Power> drawProposals = new HashSet<Power>();
+
+	//The orders of the current phase.
+	final Map<Region, Order> orders = new HashMap<Region, Order>();
+	final Map<Power, List<Order>> adjustmentOrders = new HashMap<Power, List<Order>>();
+
+	boolean started = false;
+	boolean over = false;
+	String[] summary = null;
+
+	/**Is increased every phase, so that the deadline of a previous phase is ignored.*/
+	int phaseNumber = 0;
+	private ScheduledExecutorService deadlineTimer;
+
+
+	/**
+	 * @param moveTimeLimit The deadline of the movement phases, in seconds. 0 means no deadline.
+	 * @param retreatTimeLimit The deadline of the retreat phases, in seconds. 0 means no deadline.
+	 * @param buildTimeLimit The deadline of the build phases, in seconds. 0 means no deadline.
+	 */
+	public LocalGameServer(int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit){
+		this.moveTimeLimit = moveTimeLimit;
+		this.retreatTimeLimit = retreatTimeLimit;
+		this.buildTimeLimit = buildTimeLimit;
+
+		this.game = GameBuilder.createGame();
+		this.adjudicator = new LocalAdjudicator(this.game);
+	}
+
+	/**
+	 * Returns a new connection to this server, to be passed to Player.start() or Observer.start().
+	 */
+	public IComm createComm(String name){
+		return new LocalComm(this, name);
+	}
+
+	public void setFinalYear(int finalYear){
+		this.finalYear = finalYear;
+	}
+
+	public void setNumberOfObservers(int numberOfObservers){
+		this.numberOfObservers = numberOfObservers;
+	}
+
+	/**
+	 * Makes the clients that connect from now on handle their messages on the given executor instead of on a thread of
+	 * their own, e.g. so that many games share a ForkJoinPool. Every client still handles its messages one at a time
+	 * and in order. The clients must not block while handling a message.
+	 */
+	public void setExecutor(Executor executor){
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the random generator used to assign the powers to the players.
+	 */
+	public void setRandom(Random random){
+		this.random = random;
+	}
+
+	public synchronized boolean isGameOver(){
+		return this.over;
+	}
+
+	/**
+	 * Returns the SMR message sent at the end of the game, or null if the game is not over.
+	 */
+	public synchronized String[] getSummary(){
+		return this.summary;
+	}
+
+	/**
+	 * Is called by a LocalComm for every message its client sends.
+	 */
+	synchronized void handleMessage(LocalComm client, String[] message){
+
+		if(message.length == 0){
+			return;
+		}
+
+		String type = message[0];
+
+		if(type.equals("NME")){
+			handleNME(client, message);
+		}else if(type.equals("OBS")){
+			handleOBS(client, message);
+		}else if(type.equals("MDF")){
+			send(client, GameBuilder.DEFAULT_MDF);
+		}else if(type.equals("YES")){
+			if(message.length > 2 && message[2].equals("MAP")){
+				handleMapAccepted(client);
+			}
+		}else if(type.equals("SCO")){
+			if(started){
+				send(client, Parser.getSCO(game));
+			}
+		}else if(type.equals("NOW")){
+			if(started){
+				send(client, Parser.getNOW(game));
+			}
+		}else if(type.equals("SUB")){
+			handleSUB(client, message);
+		}else if(type.equals("DRW")){
+			handleDRW(client, true);
+		}else if(type.equals("NOT") && message.length > 2 && message[2].equals("DRW")){
+			handleDRW(client, false);
+		}else if(type.equals("ORD") || type.equals("GOF") || type.equals("NOT") || type.equals("TME") || type.equals("HST")){
+			//Results of previous phases are not kept, and the phases are processed as soon as all orders are in.
+		}else{
+			send(client, wrap("REJ", message));
+		}
+	}
+
+	void handleNME(LocalComm client, String[] message){
+
+		List<Power> freePowers = new ArrayList<Power>();
+		for(Power power : game.getPowers()){
+			if( ! players.containsValue(power)){
+				freePowers.add(power);
+			}
+		}
+
+		if(started || freePowers.isEmpty() || players.containsKey(client) || message.length < 6){
+			send(client, wrap("REJ", message));
+			return;
+		}
+
+		Power power = freePowers.get(random.nextInt(freePowers.size()));
+		players.put(client, power);
+		playerNames.put(power, new String[]{message[2], message[5]});
+		clients.add(client);
+
+		send(client, wrap("YES", message));
+		send(client, new String[]{"MAP", "(", MAP_NAME, ")"});
+	}
+
+	void handleOBS(LocalComm client, String[] message){
+
+		observers.add(client);
+		clients.add(client);
+
+		send(client, wrap("YES", message));
+		send(client, new String[]{"MAP", "(", MAP_NAME, ")"});
+	}
+
+	void handleMapAccepted(LocalComm client){
+
+		readyClients.add(client);
+
+		if(started){
+			//An observer that arrives late gets the current state of the game.
+			send(client, createHLO(players.get(client)));
+			send(client, Parser.getSCO(game));
+			send(client, Parser.getNOW(game));
+			return;
+		}
+
+		int numberOfReadyPlayers = 0;
+		int numberOfReadyObservers = 0;
+		for(LocalComm readyClient : readyClients){
+			if(players.containsKey(readyClient)){
+				numberOfReadyPlayers++;
+			}else{
+				numberOfReadyObservers++;
+			}
+		}
+
+		if(numberOfReadyPlayers == game.getPowers().size() && numberOfReadyObservers >= numberOfObservers){
+			startGame();
+		}
+	}
+
+	void startGame(){
+
+		started = true;
+
+		for(LocalComm client : clients){
+			if(readyClients.contains(client)){
+				send(client, createHLO(players.get(client)));
+			}
+		}
+
+		broadcast(Parser.getSCO(game));
+		startPhase();
+	}
+
+	String[] createHLO(Power power){
+
+		String powerName = power == null ? "UNO" : power.getName();
+		int passcode = power == null ? 0 : 1 + random.nextInt(8190);
+
+		return new String[]{"HLO", "(", powerName, ")", "(", "" + passcode, ")", "(",
+				"(", "LVL", "0", ")",
+				"(", "MTL", "" + moveTimeLimit, ")",
+				"(", "RTL", "" + retreatTimeLimit, ")",
+				"(", "BTL", "" + buildTimeLimit, ")",
+				")"};
+	}
+
+	void handleSUB(LocalComm client, String[] message){
+
+		Power power = players.get(client);
+
+		if( ! started || over || power == null){
+			send(client, wrap("REJ", message));
+			return;
+		}
+
+		if(LocalAdjudicator.containsConvoy(message)){
+			System.out.println("LocalGameServer.handleSUB() Convoys are not supported. The orders of " + power.getName() + " are refused: " + String.join(" ", message));
+			send(client, wrap("HUH", message));
+			return;
+		}
+
+		List<Order> submittedOrders;
+		try{
+			submittedOrders = StringA2Order.processOrders(message, game);
+		}catch (RuntimeException e) {
+			System.out.println("LocalGameServer.handleSUB() Error! Could not parse the orders of " + power.getName() + ": " + String.join(" ", message));
+			e.printStackTrace();
+			send(client, wrap("HUH", message));
+			return;
+		}
+		submittedOrders = fixRetreatsFromCoasts(submittedOrders, message);
+
+		for(Order order : submittedOrders){
+
+			String[] orderMessage;
+			try{
+				orderMessage = Order2StringA.getOrderMsg(order);
+			}catch (RuntimeException e) {
+				//The player sent an order that can not be echoed. The other orders of the message still count.
+				System.out.println("LocalGameServer.handleSUB() Error! " + power.getName() + " sent an invalid order " + order.getClass().getSimpleName() + " " + order.getLocation() + " in " + String.join(" ", message));
+				e.printStackTrace();
+				send(client, wrap("HUH", message));
+				continue;
+			}
+
+			String result = order.getPower().equals(power) ? adjudicator.check(order) : LocalAdjudicator.NOT_YOUR_UNIT;
+
+			String[] thx = new String[orderMessage.length + 6];
+			thx[0] = "THX";
+			thx[1] = "(";
+			System.arraycopy(orderMessage, 0, thx, 2, orderMessage.length);
+			thx[orderMessage.length + 2] = ")";
+			thx[orderMessage.length + 3] = "(";
+			thx[orderMessage.length + 4] = result;
+			thx[orderMessage.length + 5] = ")";
+			send(client, thx);
+
+			if( ! result.equals(LocalAdjudicator.ORDER_OK)){
+				continue;
+			}
+
+			if(game.getPhase() == Phase.WIN){
+				List<Order> powerOrders = adjustmentOrders.get(power);
+				if(powerOrders == null){
+					powerOrders = new ArrayList<Order>();
+					adjustmentOrders.put(power, powerOrders);
+				}
+				powerOrders.add(order);
+			}else{
+				orders.put(order.getLocation(), order);
+			}
+		}
+
+		//A build phase is complete for a power once it has sent its orders, because it may build less than it can.
+		if(game.getPhase() == Phase.WIN && ! adjustmentOrders.containsKey(power)){
+			adjustmentOrders.put(power, new ArrayList<Order>());
+		}
+
+		if(getPowersWithMissingOrders().isEmpty()){
+			processPhases();
+		}
+	}
+
+	void handleDRW(LocalComm client, boolean propose){
+
+		Power power = players.get(client);
+		if( ! started || over || power == null){
+			return;
+		}
+
+		if(propose){
+			drawProposals.add(power);
+		}else{
+			drawProposals.remove(power);
+		}
+
+		//Proposals are kept until they are withdrawn, because the phase may already have changed by the time the
+		// last survivor proposes the draw.
+		for(Power survivor : game.getPowers()){
+			if( ! survivor.getOwnedSCs().isEmpty() && ! drawProposals.contains(survivor) && ! disconnectedPowers.contains(survivor)){
+				return;
+			}
+		}
+
+		endGame(new String[]{"DRW"});
+	}
+
+	/**
+	 * Is called by a LocalComm when its client stops. The power of a player that leaves goes into civil disorder.
+	 */
+	synchronized void disconnect(LocalComm client){
+
+		clients.remove(client);
+		readyClients.remove(client);
+		observers.remove(client);
+
+		Power power = players.get(client);
+		if(power == null || ! started || over){
+			players.remove(client);
+			return;
+		}
+
+		disconnectedPowers.add(power);
+		broadcast(new String[]{"CCD", "(", power.getName(), ")"});
+
+		if(disconnectedPowers.size() == players.size()){
+			endGame(new String[]{"DRW"});
+		}else if(getPowersWithMissingOrders().isEmpty()){
+			processPhases();
+		}
+	}
+
+	/**
+	 * Returns the powers of the players that are still connected and did not yet give all their orders.
+	 */
+	List<Power> getPowersWithMissingOrders(){
+
+		Set<Power> missing = new LinkedHashSet<Power>();
+		Phase phase = game.getPhase();
+
+		if(phase == Phase.SPR || phase == Phase.FAL){
+			for(Power power : game.getPowers()){
+				for(Region region : power.getControlledRegions()){
+					if( ! orders.containsKey(region)){
+						missing.add(power);
+					}
+				}
+			}
+		}else if(phase == Phase.SUM || phase == Phase.AUT){
+			for(Region region : game.getDislodgedRegions().keySet()){
+				if( ! orders.containsKey(region)){
+					missing.add(game.getDislodgedRegions().get(region).getPower());
+				}
+			}
+		}else{
+			for(Power power : game.getPowers()){
+				if(LocalAdjudicator.getNumberOfAdjustments(power) != 0 && ! adjustmentOrders.containsKey(power)){
+					missing.add(power);
+				}
+			}
+		}
+
+		missing.removeAll(disconnectedPowers);
+
+		//Like the dip library, players consider themselves dead as soon as they have no supply centers left.
+		for(Power power : game.getPowers()){
+			if(power.getOwnedSCs().isEmpty()){
+				missing.remove(power);
+			}
+		}
+
+		return new ArrayList<Power>(missing);
+	}
+
+	/**
+	 * Processes the current phase, and the phases after it for as long as nobody has to give any orders in them.
+	 */
+	void processPhases(){
+		do{
+			processPhase();
+		}while( ! over && getPowersWithMissingOrders().isEmpty());
+	}
+
+	void processPhase(){
+
+		Phase phase = game.getPhase();
+		int year = game.getYear();
+
+		List<Order> results;
+		if(phase == Phase.SPR || phase == Phase.FAL){
+			results = adjudicator.resolveMovement(orders);
+		}else if(phase == Phase.SUM || phase == Phase.AUT){
+			results = adjudicator.resolveRetreats(orders);
+		}else{
+			results = adjudicator.resolveAdjustments(adjustmentOrders);
+		}
+
+		orders.clear();
+		adjustmentOrders.clear();
+
+		for(Order order : results){
+			String[] orderResult = Order2StringA.getOrderResult(order);
+			String[] ord = new String[orderResult.length + 5];
+			ord[0] = "ORD";
+			ord[1] = "(";
+			ord[2] = phase.name();
+			ord[3] = "" + year;
+			ord[4] = ")";
+			System.arraycopy(orderResult, 0, ord, 5, orderResult.length);
+			broadcast(ord);
+		}
+
+		boolean dislodged = ! game.getDislodgedRegions().isEmpty();
+
+		if(phase == Phase.SPR){
+			game.setPhase(dislodged ? Phase.SUM : Phase.FAL);
+		}else if(phase == Phase.SUM){
+			game.setPhase(Phase.FAL);
+		}else if(phase == Phase.FAL && dislodged){
+			game.setPhase(Phase.AUT);
+		}else if(phase == Phase.FAL || phase == Phase.AUT){
+
+			adjudicator.updateOwnership();
+			for(Power power : game.getPowers()){
+				if(power.getOwnedSCs().isEmpty() && ! eliminationYears.containsKey(power)){
+					eliminationYears.put(power, year);
+				}
+			}
+			broadcast(Parser.getSCO(game));
+
+			Power soloWinner = adjudicator.getSoloWinner();
+			if(soloWinner != null){
+				endGame(new String[]{"SLO", "(", soloWinner.getName(), ")"});
+				return;
+			}
+
+			if(adjudicator.needsAdjustments()){
+				game.setPhase(Phase.WIN);
+			}else if( ! startNextYear(year)){
+				return;
+			}
+
+		}else if( ! startNextYear(year)){
+			return;
+		}
+
+		startPhase();
+	}
+
+	/**
+	 * Moves the game to the spring of the next year, or ends it if the final year is over.
+	 *
+	 * @return false if the game ended.
+	 */
+	boolean startNextYear(int year){
+
+		if(finalYear > 0 && year >= finalYear){
+			endGame(new String[]{"DRW"});
+			return false;
+		}
+
+		game.setPhase(Phase.SPR);
+		game.setYear(year + 1);
+		return true;
+	}
+
+	void startPhase(){
+
+		phaseNumber++;
+		broadcast(Parser.getNOW(game));
+
+		int timeLimit;
+		if(game.getPhase() == Phase.SPR || game.getPhase() == Phase.FAL){
+			timeLimit = moveTimeLimit;
+		}else if(game.getPhase() == Phase.WIN){
+			timeLimit = buildTimeLimit;
+		}else{
+			timeLimit = retreatTimeLimit;
+		}
+
+		if(timeLimit > 0){
+			final int deadlinePhaseNumber = phaseNumber;
+			getDeadlineTimer().schedule(new Runnable() {
+				@Override
+				public void run() {
+					handleDeadline(deadlinePhaseNumber);
+				}
+			}, timeLimit, TimeUnit.SECONDS);
+		}
+	}
+
+	synchronized void handleDeadline(int deadlinePhaseNumber){
+
+		if(over || deadlinePhaseNumber != phaseNumber){
+			return;
+		}
+
+		for(Power power : getPowersWithMissingOrders()){
+			broadcast(new String[]{"CCD", "(", power.getName(), ")"});
+		}
+
+		processPhases();
+	}
+
+	void endGame(String[] endMessage){
+
+		over = true;
+		broadcast(endMessage);
+
+		List<String> smr = new ArrayList<String>();
+		Collections.addAll(smr, "SMR", "(", game.getPhase().name(), "" + game.getYear(), ")");
+		for(Power power : game.getPowers()){
+			String[] nameAndVersion = playerNames.get(power);
+			Collections.addAll(smr, "(", power.getName(), "(", nameAndVersion[0], ")", "(", nameAndVersion[1], ")", "" + power.getOwnedSCs().size());
+			if(power.getOwnedSCs().isEmpty()){
+				smr.add("" + eliminationYears.get(power));
+			}
+			smr.add(")");
+		}
+
+		this.summary = smr.toArray(new String[smr.size()]);
+		broadcast(this.summary);
+
+		if(deadlineTimer != null){
+			deadlineTimer.shutdownNow();
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the game is over.
+	 *
+	 * @param timeoutMillis The maximum time to wait, in milliseconds.
+	 * @return The SMR message of the game, or null if the game did not end in time.
+	 * @throws InterruptedException
+	 */
+	public synchronized String[] awaitGameEnd(long timeoutMillis) throws InterruptedException{
+
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		long remaining = timeoutMillis;
+		while( ! over && remaining > 0){
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+
+		return this.summary;
+	}
+
+	/**
+	 * Ends the connection with all clients. A game that is not over is abandoned.
+	 */
+	public synchronized void stop(){
+
+		if(deadlineTimer != null){
+			deadlineTimer.shutdownNow();
+		}
+
+		for(LocalComm client : new ArrayList<LocalComm>(clients)){
+			send(client, new String[]{"OFF"});
+		}
+		clients.clear();
+		readyClients.clear();
+	}
+
+	ScheduledExecutorService getDeadlineTimer(){
+		if(deadlineTimer == null){
+			deadlineTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "LocalGameServer deadlines");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return deadlineTimer;
+	}
+
+	void broadcast(String[] message){
+		for(LocalComm client : clients){
+			if(readyClients.contains(client)){
+				send(client, message);
+			}
+		}
+	}
+
+	void send(LocalComm client, String[] message){
+		client.receivingMessage(message);
+	}
+
+	/**
+	 * StringA2Order finds the destination of a retreat by appending the coast of the unit to it, so the retreat of a
+	 * fleet on a coast, e.g. ( ( AUS FLT ( SPA NCS ) ) RTO POR ), gets no destination. Gives such retreats the region of
+	 * their destination province that is adjacent to the unit, as StringA2Order does for moves.
+	 *
+	 * @param orders The orders parsed from the given SUB message.
+	 * @return The orders, with the retreats from coasts replaced.
+	 */
+	List<Order> fixRetreatsFromCoasts(List<Order> orders, String[] message){
+
+		List<Order> fixedOrders = new ArrayList<Order>(orders.size());
+		for(Order order : orders){
+			if(order instanceof RTOOrder && ((RTOOrder)order).getDestination() == null){
+				Province destination = getRetreatDestination(message, order.getLocation());
+				if(destination != null){
+					order = new RTOOrder(order.getLocation(), order.getPower(), game.getAdjacentRegionIn(destination, order.getLocation()));
+				}
+			}
+			fixedOrders.add(order);
+		}
+		return fixedOrders;
+	}
+
+	/**
+	 * Returns the province that the unit in the given region retreats to in the given SUB message, or null if the
+	 * message has no such retreat. The destination is a province, or a province with a coast: ( [province] [coast] ).
+	 */
+	Province getRetreatDestination(String[] message, Region unit){
+
+		for(int i=0; i<message.length; i++){
+			if(message[i].equals("RTO") && i + 1 < message.length){
+
+				//The unit precedes the RTO token: ( power type province ) or ( power type ( province coast ) ).
+				String provinceName = message[i-2].equals(")") ? message[i-4] : message[i-2];
+				if( ! provinceName.equals(unit.getProvince().getName())){
+					continue;
+				}
+
+				String destination = message[i+1].equals("(") ? message[i+2] : message[i+1];
+				return game.getProvince(destination);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the message [type] ( [message] ), as used for YES, REJ and HUH.
+	 */
+	static String[] wrap(String type, String[] message){
+		String[] wrapped = new String[message.length + 3];
+		wrapped[0] = type;
+		wrapped[1] = "(";
+		System.arraycopy(message, 0, wrapped, 2, message.length);
+		wrapped[wrapped.length - 1] = ")";
+		return wrapped;
+	}
+}
@@ -0,0 +1,181 @@
+//
+// Source code recreated from a .class file by IntelliJ IDEA
+// (powered by Fernflower decompiler)
+//
+
+package ddejonge.bandana.negoProtocol;
+
+import ddejonge.bandana.tools.Utilities;
+import ddejonge.bandana.tournament.TournamentObserver;
+import ddejonge.bandana.tournament.TrajectoryRecorder;
+import ddejonge.negoServer.Message;
+import ddejonge.negoServer.unstructuredNegotiationProtocol.Notary;
+import ddejonge.negoServer.unstructuredNegotiationProtocol.Proposal;
+import es.csic.iiia.fabregues.dip.board.Game;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DiplomacyProtocolManager extends Notary {
+    public static final int DEFAULT_GAME_SERVER_PORT = 16713;
+    List<String> allowedNames;
+    int currentGameID;
+    ProtocolManagerObserver protocolManagerObserver;
+    TournamentObserver tournamentObserver;
+    boolean checkValidity;
+    List<DiplomacyProposal> confirmedProposals;
+
+    public DiplomacyProtocolManager(TournamentObserver tournamentObserver, String logPath) {
+        this(tournamentObserver, logPath, DEFAULT_GAME_SERVER_PORT);
+    }
+
+    /**
+     * The protocol manager observes the game on the given game server, to check the validity of the proposals
+     * against the current state of the game. Every manager only uses its own observer and its own confirmed proposals,
+     * so managers of games on different servers can run at the same time.
+     */
+    public DiplomacyProtocolManager(TournamentObserver tournamentObserver, String logPath, int gameServerPort) {
+        super(86400000, 7);
+        this.allowedNames = new ArrayList<String>();
+        this.currentGameID = -1;
+        this.checkValidity = true;
+        this.confirmedProposals = new ArrayList<DiplomacyProposal>();
+        this.initAllowedNames();
+        this.protocolManagerObserver = new ProtocolManagerObserver(this, logPath, gameServerPort);
+        this.tournamentObserver = tournamentObserver;
+    }
+
+    private void initAllowedNames() {
+        this.allowedNames.add("AUS");
+        this.allowedNames.add("ENG");
+        this.allowedNames.add("FRA");
+        this.allowedNames.add("GER");
+        this.allowedNames.add("ITA");
+        this.allowedNames.add("RUS");
+        this.allowedNames.add("TUR");
+    }
+
+    synchronized void verifyValidityAtNewRound() {
+        if (this.checkValidity) {
+            Game game = this.getGame();
+            List<DiplomacyProposal> invalidProposals = new ArrayList<DiplomacyProposal>();
+            for (DiplomacyProposal proposal : this.confirmedProposals) {
+                BasicDeal deal = (BasicDeal)proposal.getProposedDeal();
+                String report = Utilities.testValidity(game, deal);
+                if (report != null) {
+                    invalidProposals.add(proposal);
+                    this.logger.logln("invalid proposal with ID" + proposal.getId() + " because: " + report);
+                }
+            }
+
+            this.confirmedProposals.removeAll(invalidProposals);
+        }
+    }
+
+    protected synchronized boolean verifyValidity(Proposal proposal) {
+        Game game = this.getGame();
+        BasicDeal newDeal = parseDeal(proposal, game);
+        if (!this.checkValidity) {
+            this.recordDeal(proposal);
+            return true;
+        } else {
+            DiplomacyProposal diplomacyProposal = (DiplomacyProposal)proposal;
+            List<BasicDeal> deals = new ArrayList<BasicDeal>();
+            for (DiplomacyProposal confirmedProposal : this.confirmedProposals) {
+                deals.add((BasicDeal)confirmedProposal.getProposedDeal());
+            }
+
+            deals.add(newDeal);
+            String report = Utilities.testConsistency(game, deals);
+            if (report != null) {
+                this.logger.logln(String.valueOf(this.currentGameID) + " " + game.getYear() + game.getPhase() + " Proposal " + newDeal + " is inconsistent with currently confirmed deals: " + this.confirmedProposals + " because: " + report);
+                return false;
+            } else {
+                this.confirmedProposals.add(diplomacyProposal);
+                this.recordDeal(proposal);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the game observed by this manager.
+     */
+    Game getGame() {
+        return this.protocolManagerObserver.getGame();
+    }
+
+    /**
+     * Parses the deal of a proposal against the given game. The Stringifier parses against a game that is shared by
+     * the whole JVM, so the managers of different games only parse under one lock, and restore the shared game afterwards.
+     * A proposal keeps the deal once it is parsed, so later calls of getProposedDeal() do not use the Stringifier.
+     */
+    static BasicDeal parseDeal(Proposal proposal, Game game) {
+        synchronized(Stringifier.class) {
+            Game sharedGame = Stringifier.game;
+            Stringifier.game = game;
+
+            try {
+                return (BasicDeal)((DiplomacyProposal)proposal).getProposedDeal();
+            } finally {
+                Stringifier.game = sharedGame;
+            }
+        }
+    }
+
+    /**
+     * Passes a confirmed deal on to the recorder of the phases of the game, if the tournament records them.
+     */
+    private void recordDeal(Proposal proposal) {
+        TrajectoryRecorder trajectoryRecorder = this.tournamentObserver == null ? null : this.tournamentObserver.getTrajectoryRecorder();
+        if (trajectoryRecorder != null) {
+            trajectoryRecorder.dealConfirmed((BasicDeal)((DiplomacyProposal)proposal).getProposedDeal());
+        }
+    }
+
+    public boolean processAgentEntering(Message message, List<Message> messagesToSend) {
+        String sender = message.getSender();
+        if (this.registeredNames.size() >= this.numAgents) {
+            return false;
+        } else if (!this.allowedNames.contains(sender)) {
+            return false;
+        } else {
+            this.registeredNames.add(sender);
+            messagesToSend.clear();
+            if (this.registeredNames.size() == 1) {
+                this.deadline = System.currentTimeMillis() + (long)this.negotiationLength;
+            }
+
+            messagesToSend.add(new Message("GAME" + this.currentGameID, sender, "START", this.domainInfo));
+            return true;
+        }
+    }
+
+    public synchronized void notifyNewGame(int gameID) {
+        this.currentGameID = gameID;
+        this.confirmedProposals.clear();
+        this.protocolManagerObserver.connectToServer();
+    }
+
+    public void enableConsistencyChecking(boolean checkValidity) {
+        this.checkValidity = checkValidity;
+    }
+
+    public synchronized boolean processMessage(Message message, List<Message> messagesToSend) {
+        if (message.getPerformative().equals("ANOUNCE_AGENT_NAME")) {
+            String powerName = message.getSender();
+            String agentName = (String)message.getContent();
+            System.out.println("DiplomacyProtocolManager.processMessage() powerName " + powerName + " agentName " + agentName);
+            this.tournamentObserver.setAgentName(powerName, agentName);
+            return true;
+        } else {
+            return super.processMessage(message, messagesToSend);
+        }
+    }
+
+    public void stop() {
+        if (this.protocolManagerObserver != null) {
+            this.protocolManagerObserver.exit();
+        }
+
+    }
+}
@@ -0,0 +1,64 @@
+//
+// Source code recreated from a .class file by IntelliJ IDEA
+// (powered by Fernflower decompiler)
+//
+
+package ddejonge.bandana.negoProtocol;
+
+import es.csic.iiia.fabregues.dip.Observer;
+import es.csic.iiia.fabregues.dip.comm.CommException;
+import es.csic.iiia.fabregues.dip.comm.IComm;
+import es.csic.iiia.fabregues.dip.comm.daide.DaideComm;
+import es.csic.iiia.fabregues.dip.orders.Order;
+import java.net.InetAddress;
+
+class ProtocolManagerObserver extends Observer {
+    DiplomacyProtocolManager manager;
+    IComm comm;
+
+    /** The port of the game server whose game is negotiated about. */
+    final int gameServerPort;
+
+    ProtocolManagerObserver(DiplomacyProtocolManager manager, String logPath, int gameServerPort) {
+        super(logPath);
+        this.manager = manager;
+        this.gameServerPort = gameServerPort;
+    }
+
+    void connectToServer() {
+        try {
+            if (this.comm != null) {
+                this.comm.stop();
+            }
+
+            InetAddress dipServerIp = InetAddress.getByName("localhost");
+            this.comm = new DaideComm(dipServerIp, this.gameServerPort, "ProtocolManagerObserver");
+            this.start(this.comm);
+        } catch (Exception e) {
+            e.printStackTrace();
+            // The connection was not made, so there is nothing to stop when the game ends.
+            this.comm = null;
+        }
+
+    }
+
+    public void afterOldPhase() {
+    }
+
+    public void beforeNewPhase() throws CommException {
+        this.manager.verifyValidityAtNewRound();
+    }
+
+    public void init() {
+    }
+
+    public void receivedOrder(Order arg0) {
+    }
+
+    public void exit() {
+        if (this.comm != null) {
+            this.comm.stop();
+        }
+        super.exit();
+    }
+}
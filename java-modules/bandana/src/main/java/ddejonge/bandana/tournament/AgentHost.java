@@ -0,0 +1,157 @@
+package ddejonge.bandana.tournament;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.jar.JarFile;
+
+/**
+ * A long-lived JVM that plays one seat of a tournament, game after game, so that the JVM startup, class loading and
+ * JIT warm-up of the agent are only paid once instead of once per game.
+ *
+ * The host reads commands from its standard input, one per line, with fields separated by tabs:
+ *
+ *   JOIN [game number] [game server port] [negotiation server port] [agent arguments...]
+ *   QUIT
+ *
+ * On JOIN, the main method of the agent is called with the given arguments, followed by -gamePort and -negoPort.
+ * Every game creates a new instance of the agent, which resets its state. The static fields in which the negotiation
+ * library keeps the state of a game are cleared before every game (see GAME_STATICS), but those of the agent itself
+ * are not, so only agents that keep no state in static fields may be hosted.
+ * Agents that call System.exit() at the end of a game still work, but the AgentHostPool has to restart them.
+ *
+ * Usage: AgentHost [agent jar or main class]
+ */
+public class AgentHost {
+
+	public static final String JOIN = "JOIN";
+	public static final String QUIT = "QUIT";
+	public static final String SEPARATOR = "\t";
+
+	/**The static fields (class and field name) in which the negotiation library keeps the game of the last agent that was started.*/
+	static final String[][] GAME_STATICS = {
+			{"ddejonge.bandana.negoProtocol.Stringifier", "game"},
+			{"ddejonge.bandana.negoProtocol.DiplomacyNegoClient", "_player"}
+	};
+
+	public static void main(String[] args) throws Exception {
+
+		if(args.length < 1){
+			System.out.println("Usage: AgentHost [agent jar or main class]");
+			return;
+		}
+
+		String mainClassName = getMainClassName(args[0]);
+		final Method agentMain = Class.forName(mainClassName).getMethod("main", String[].class);
+
+		System.out.println("AgentHost.main() Ready to host " + mainClassName);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		while((line = reader.readLine()) != null){
+
+			String[] fields = line.split(SEPARATOR);
+
+			if(fields[0].equals(QUIT)){
+				break;
+			}
+
+			if(fields[0].equals(JOIN) && fields.length >= 4){
+				join(agentMain, fields);
+			}else{
+				System.out.println("AgentHost.main() Unknown command: " + line);
+			}
+		}
+
+		//The agents of unfinished games may still have threads running.
+		System.exit(0);
+	}
+
+	/**
+	 * Returns the Main-Class of the manifest if a jar is given, or the argument itself otherwise.
+	 */
+	static String getMainClassName(String agent) throws IOException {
+
+		if( ! agent.endsWith(".jar")){
+			return agent;
+		}
+
+		try(JarFile jarFile = new JarFile(agent)){
+			return jarFile.getManifest().getMainAttributes().getValue("Main-Class");
+		}
+	}
+
+	/**
+	 * Starts a new instance of the agent for the given game. The main method is run in its own thread, because some
+	 * agents only return from it when their game is over.
+	 */
+	static Thread join(final Method agentMain, String[] fields){
+
+		String gameNumber = fields[1];
+
+		int numberOfAgentArgs = fields.length - 4;
+		final String[] agentArgs = new String[numberOfAgentArgs + 4];
+		System.arraycopy(fields, 4, agentArgs, 0, numberOfAgentArgs);
+		agentArgs[agentArgs.length - 4] = "-gamePort";
+		agentArgs[agentArgs.length - 3] = fields[2];
+		agentArgs[agentArgs.length - 2] = "-negoPort";
+		agentArgs[agentArgs.length - 1] = fields[3];
+
+		System.out.println("AgentHost.join() Joining game " + gameNumber + " on ports " + fields[2] + "/" + fields[3]);
+
+		//Otherwise the new agent would parse its deals against the board of the previous game.
+		resetGameStatics(agentMain.getDeclaringClass().getClassLoader());
+
+		Thread agentThread = new Thread("game " + gameNumber){
+			@Override
+			public void run() {
+				try {
+					agentMain.invoke(null, (Object) agentArgs);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		agentThread.start();
+		return agentThread;
+	}
+
+	/**
+	 * Clears the static fields of GAME_STATICS, as seen by the given class loader. Fields of classes the agent does not
+	 * have are skipped.
+	 */
+	static void resetGameStatics(ClassLoader classLoader){
+
+		for(String[] gameStatic : GAME_STATICS){
+			try {
+				Field field = Class.forName(gameStatic[0], false, classLoader).getDeclaredField(gameStatic[1]);
+				field.setAccessible(true);
+				field.set(null, null);
+			} catch (ClassNotFoundException e) {
+				//The agent does not negotiate.
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				System.out.println("AgentHost.resetGameStatics() Could not clear " + gameStatic[0] + "." + gameStatic[1]);
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Creates the JOIN command for the given game.
+	 */
+	public static String createJoinCommand(int gameNumber, int gameServerPort, int negoServerPort, String[] agentArgs){
+
+		StringBuilder command = new StringBuilder(JOIN);
+		command.append(SEPARATOR).append(gameNumber);
+		command.append(SEPARATOR).append(gameServerPort);
+		command.append(SEPARATOR).append(negoServerPort);
+
+		for(String agentArg : agentArgs){
+			command.append(SEPARATOR).append(agentArg);
+		}
+
+		return command.toString();
+	}
+}
@@ -0,0 +1,131 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import ddejonge.bandana.tools.ProcessRunner;
+
+/**
+ * Keeps one warm AgentHost per seat and sends it the games its agent has to join.
+ *
+ * A host is (re)started when its seat has none, when the previous one died (e.g. because its agent called
+ * System.exit()) or when the seat is given to an agent from another jar.
+ */
+public class AgentHostPool {
+
+	final String name;
+
+	final Process[] hostProcesses;
+	final Writer[] hostInputs;
+	final String[] hostJars;
+
+
+	/**
+	 * @param name A name used to identify the hosts of this pool in the console.
+	 * @param numberOfSeats The number of players in each game.
+	 */
+	public AgentHostPool(String name, int numberOfSeats){
+		this.name = name;
+		this.hostProcesses = new Process[numberOfSeats];
+		this.hostInputs = new Writer[numberOfSeats];
+		this.hostJars = new String[numberOfSeats];
+	}
+
+	/**
+	 * Returns true if the agent started by the given command can be hosted, i.e. if the command is of the form
+	 * 'java -jar [agent jar] [agent arguments...]'. Commands with extra JVM options (e.g. for remote debugging) are not.
+	 */
+	public static boolean canHost(String[] command){
+		return command.length >= 3 && command[0].equals("java") && command[1].equals("-jar");
+	}
+
+	/**
+	 * Makes the agent of the given seat join a game.
+	 *
+	 * @param seat The seat of the agent.
+	 * @param playerName The name of the player, used to identify its host in the console.
+	 * @param command The command that would start the agent in its own JVM. See canHost().
+	 * @param gameNumber The number of the game to join.
+	 * @param gameServerPort The port of the game server of that game.
+	 * @param negoServerPort The port of the negotiation server of that game.
+	 * @return True if the game was sent to a host, false if the host could not be started.
+	 */
+	public synchronized boolean join(int seat, String playerName, String[] command, int gameNumber, int gameServerPort, int negoServerPort){
+
+		if( ! canHost(command)){
+			throw new RuntimeException("AgentHostPool.join() Error! Cannot host the command " + String.join(" ", command));
+		}
+
+		String jar = command[2];
+		String[] agentArgs = new String[command.length - 3];
+		System.arraycopy(command, 3, agentArgs, 0, agentArgs.length);
+
+		if(hostProcesses[seat] == null || ! hostProcesses[seat].isAlive() || ! jar.equals(hostJars[seat])){
+			startHost(seat, playerName, jar);
+		}
+
+		if(hostProcesses[seat] == null){
+			return false;
+		}
+
+		try {
+			hostInputs[seat].write(AgentHost.createJoinCommand(gameNumber, gameServerPort, negoServerPort, agentArgs));
+			hostInputs[seat].write(System.lineSeparator());
+			hostInputs[seat].flush();
+			return true;
+		} catch (IOException e) {
+			System.out.println("AgentHostPool.join() Could not send game " + gameNumber + " to the host of seat " + seat);
+			e.printStackTrace();
+			stopHost(seat);
+			return false;
+		}
+	}
+
+	void startHost(int seat, String playerName, String jar){
+
+		stopHost(seat);
+
+		//The host classes are in the shaded jars of this project, but not in the jars of other agents.
+		String classPath = jar + File.pathSeparator + System.getProperty("java.class.path");
+		String[] hostCommand = {"java", "-cp", classPath, AgentHost.class.getName(), jar};
+
+		Process hostProcess = ProcessRunner.exec(hostCommand, playerName + " (" + name + " host " + seat + ")");
+
+		if(hostProcess == null){
+			return;
+		}
+
+		hostProcesses[seat] = hostProcess;
+		hostInputs[seat] = new OutputStreamWriter(hostProcess.getOutputStream(), StandardCharsets.UTF_8);
+		hostJars[seat] = jar;
+	}
+
+	void stopHost(int seat){
+
+		if(hostInputs[seat] != null){
+			try {
+				hostInputs[seat].write(AgentHost.QUIT + System.lineSeparator());
+				hostInputs[seat].close();
+			} catch (IOException e) {
+				//The host is already gone.
+			}
+		}
+
+		if(hostProcesses[seat] != null){
+			hostProcesses[seat].destroy();
+		}
+
+		hostProcesses[seat] = null;
+		hostInputs[seat] = null;
+		hostJars[seat] = null;
+	}
+
+	public synchronized void stop(){
+		for(int seat=0; seat<hostProcesses.length; seat++){
+			stopHost(seat);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces a file at once: the new content is written to a temporary file next to it, synced to the disk, and then
+ * moved over the file. A reader never sees half a file, and a crash while writing leaves the previous file intact.
+ */
+class AtomicFile {
+
+	/**
+	 * Writes the content of a file to the given stream. The stream is flushed, synced and closed by AtomicFile.write(),
+	 * so it must not be closed here.
+	 */
+	interface Content {
+		void writeTo(OutputStream stream) throws IOException;
+	}
+
+	private AtomicFile(){
+	}
+
+	/**
+	 * Replaces the given file with the given text, in UTF-8.
+	 */
+	static void write(File file, String text) throws IOException{
+
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		write(file, new Content() {
+			@Override
+			public void writeTo(OutputStream stream) throws IOException {
+				stream.write(bytes);
+			}
+		});
+	}
+
+	/**
+	 * Replaces the given file with the given content.
+	 */
+	static void write(File file, Content content) throws IOException{
+
+		File temporaryFile = new File(file.getPath() + ".tmp");
+
+		FileOutputStream stream = new FileOutputStream(temporaryFile);
+		try {
+			content.writeTo(stream);
+			stream.flush();
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+
+		Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
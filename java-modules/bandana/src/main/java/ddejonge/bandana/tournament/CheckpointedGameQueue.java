@@ -0,0 +1,151 @@
+package ddejonge.bandana.tournament;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Hands out the games 1 to numberOfGames, lowest number first.
+ *
+ * The queue does not store the results itself: they are kept by the TournamentCheckpoint of the tournament. A queue
+ * for a tournament that is resumed from its checkpoint skips the games that were played already (see
+ * TournamentExecutor.createGameQueue()).
+ *
+ * A game that was handed out but will not be finished (e.g. because the worker playing it was lost) can be put back
+ * with requeue(). A game that ended without a result is put back as well, up to MAX_ATTEMPTS times. Therefore,
+ * nextGameNumber() waits while no game is waiting but some are still being played.
+ */
+public class CheckpointedGameQueue implements GameQueue {
+
+	/**The number of times a game is played before it is given up if it never ends properly.*/
+	static final int MAX_ATTEMPTS = 3;
+
+	final int numberOfGames;
+
+	/**The games that have not been handed out yet.*/
+	private final TreeSet<Integer> waitingGames = new TreeSet<Integer>();
+
+	/**The games that are being played.*/
+	private final Set<Integer> activeGames = new HashSet<Integer>();
+
+	/**The games that were played, including the ones that were given up.*/
+	private final Set<Integer> finishedGames = new HashSet<Integer>();
+
+	/**The number of times each game ended without a result.*/
+	private final Map<Integer, Integer> failedAttempts = new HashMap<Integer, Integer>();
+
+	/**Is set by stop(). No games are handed out anymore.*/
+	private boolean stopped = false;
+
+
+	/**
+	 * @param numberOfGames The number of games of the tournament.
+	 */
+	public CheckpointedGameQueue(int numberOfGames){
+
+		this.numberOfGames = numberOfGames;
+
+		for(int gameNumber = 1; gameNumber <= numberOfGames; gameNumber++){
+			waitingGames.add(gameNumber);
+		}
+	}
+
+	/**
+	 * Removes the given game from the queue, e.g. because it was played before the tournament was resumed.
+	 */
+	public synchronized void skip(int gameNumber){
+		if(waitingGames.remove(gameNumber)){
+			finishedGames.add(gameNumber);
+			notifyAll();
+		}
+	}
+
+	@Override
+	public synchronized int nextGameNumber(int slotNumber){
+
+		while(waitingGames.isEmpty() && ! activeGames.isEmpty()){
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return 0;
+			}
+		}
+
+		if(waitingGames.isEmpty()){
+			return 0;
+		}
+
+		int gameNumber = waitingGames.pollFirst();
+		activeGames.add(gameNumber);
+		return gameNumber;
+	}
+
+	@Override
+	public synchronized void gameFinished(int slotNumber, int gameNumber, GameResult gameResult){
+
+		if( ! activeGames.remove(gameNumber)){
+			System.out.println("CheckpointedGameQueue.gameFinished() Ignoring the result of game " + gameNumber + ", which was not being played.");
+			return;
+		}
+
+		if(gameResult == null){
+			int attempts = failedAttempts.containsKey(gameNumber) ? failedAttempts.get(gameNumber) + 1 : 1;
+			failedAttempts.put(gameNumber, attempts);
+
+			if(attempts < MAX_ATTEMPTS && ! stopped){
+				System.out.println("CheckpointedGameQueue.gameFinished() Game " + gameNumber + " did not end properly. It is put back in the queue.");
+				waitingGames.add(gameNumber);
+				notifyAll();
+				return;
+			}
+
+			System.out.println("CheckpointedGameQueue.gameFinished() Game " + gameNumber + " did not end properly " + attempts + " times. It is given up.");
+		}
+
+		finishedGames.add(gameNumber);
+		notifyAll();
+	}
+
+	/**
+	 * Hands out no more games, e.g. because the ranking of the tournament is settled. The games that are being played
+	 * can still be finished.
+	 */
+	public synchronized void stop(){
+		stopped = true;
+		waitingGames.clear();
+		notifyAll();
+	}
+	
+	/**
+	 * Puts a game that was handed out back in the queue, so that it is given to the next slot that asks for a game.
+	 */
+	public synchronized void requeue(int gameNumber){
+
+		if(activeGames.remove(gameNumber)){
+			if( ! stopped){
+				waitingGames.add(gameNumber);
+			}
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until every game of the tournament was played.
+	 */
+	public synchronized void awaitFinished() throws InterruptedException{
+		while( ! isFinished()){
+			wait();
+		}
+	}
+
+	public synchronized boolean isFinished(){
+		return waitingGames.isEmpty() && activeGames.isEmpty();
+	}
+
+	public synchronized int getNumberOfFinishedGames(){
+		return finishedGames.size();
+	}
+}
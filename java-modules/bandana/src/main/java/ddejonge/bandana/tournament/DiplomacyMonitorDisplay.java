@@ -0,0 +1,61 @@
+package ddejonge.bandana.tournament;
+
+import java.util.ArrayList;
+
+import ddejonge.bandana.tools.DiplomacyMonitor;
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.board.Power;
+
+/**
+ * Shows the games of a TournamentObserver in a DiplomacyMonitor window.
+ * This is the only class of the tournament that uses Swing.
+ */
+public class DiplomacyMonitorDisplay implements TournamentDisplay {
+
+	private final DiplomacyMonitor diplomacyMonitor;
+
+
+	public DiplomacyMonitorDisplay(String title, int numParticipants, ArrayList<ScoreCalculator> scoreCalculators){
+		this.diplomacyMonitor = new DiplomacyMonitor(title, numParticipants, scoreCalculators);
+	}
+
+	@Override
+	public void setStatus(String status) {
+		diplomacyMonitor.setStatus(status);
+	}
+
+	@Override
+	public void notifyNewGame() {
+		diplomacyMonitor.notifyNewGame();
+	}
+
+	@Override
+	public void showGame(Game game, int gameNumber, int numGames, String status) {
+
+		diplomacyMonitor.setCurrentGameNumber(gameNumber);
+		diplomacyMonitor.setNumGames(numGames);
+		diplomacyMonitor.setPhase(game.getPhase(), game.getYear());
+
+		for(Power power : game.getPowers()){
+			diplomacyMonitor.setNumSCs(power.getName(), power.getOwnedSCs().size());
+		}
+
+		diplomacyMonitor.setStatus(status);
+		diplomacyMonitor.update();
+	}
+
+	@Override
+	public void setTournamentResult(TournamentResult tournamentResult) {
+		diplomacyMonitor.setTournamentResult(tournamentResult);
+	}
+
+	@Override
+	public void setAgentName(String powerName, String agentName) {
+		diplomacyMonitor.setAgentName(powerName, agentName);
+	}
+
+	@Override
+	public void dispose() {
+		diplomacyMonitor.dispose();
+	}
+}
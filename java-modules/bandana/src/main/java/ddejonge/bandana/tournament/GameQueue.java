@@ -0,0 +1,25 @@
+package ddejonge.bandana.tournament;
+
+/**
+ * Hands out the games of a tournament to the GameSlots of a TournamentExecutor, and receives their results.
+ *
+ * @see CheckpointedGameQueue
+ * @see TournamentWorker.RemoteGameQueue
+ */
+public interface GameQueue {
+
+	/**
+	 * Returns the number of the next game the given slot should play, or 0 if no game is left. May block until a game
+	 * becomes available, e.g. because another slot failed to play it.
+	 *
+	 * @param slotNumber The slot asking for a game. Each slot asks for its next game only after its previous one finished.
+	 */
+	int nextGameNumber(int slotNumber);
+
+	/**
+	 * Is called when the given slot has played its game.
+	 *
+	 * @param gameResult The result of the game, or null if the game did not end properly.
+	 */
+	void gameFinished(int slotNumber, int gameNumber, GameResult gameResult);
+}
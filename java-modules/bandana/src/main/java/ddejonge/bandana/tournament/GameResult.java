@@ -56,34 +56,38 @@ public class GameResult implements Serializable{
 		this.names = new String[this.numberOfPlayers];
 		this.numSCs = new int[this.numberOfPlayers];
 		this.yearOfElimination = new int[this.numberOfPlayers];
+		
+		SmrParser.parse(smrMessage, numberOfPlayers, powers, names, numSCs, yearOfElimination);
+		
+		determineResults();
+	}
+	
+	/**
+	 * Creates the result of a game from the fields of its SMR message (see SmrParser).
+	 * 
+	 * @param yearOfElimination The year each player was eliminated, or 0 if it was not.
+	 */
+	GameResult(String[] powers, String[] names, int[] numSCs, int[] yearOfElimination){
+		
+		this.numberOfPlayers = powers.length;
+		this.powers = powers;
+		this.names = names;
+		this.numSCs = numSCs;
+		this.yearOfElimination = yearOfElimination;
+		
+		determineResults();
+	}
+	
+	private void determineResults(){
+		
 		this.playerResults = new PlayerResult[this.numberOfPlayers];
 		this.playerNumber2preciseRank = new double[this.numberOfPlayers];
 		
-		int cursor = 5; //set the cursor to the opening parenthesis of the first power.
 		for(int pow=0; pow<this.numberOfPlayers; pow++){
-						
-			powers[pow] = smrMessage[cursor + 1];
-			names[pow] = smrMessage[cursor + 3];
-			numSCs[pow] = Integer.parseInt(smrMessage[cursor + 8]);
-			if(numSCs[pow] == 0){
-				yearOfElimination[pow] = Integer.parseInt(smrMessage[cursor + 9]);
-				cursor += 11; //set the cursor to the opening parenthesis of the next power.
-			}else{
-				yearOfElimination[pow] = 0;
-				cursor += 10; //set the cursor to the opening parenthesis of the next power.
-			}
-			
 			if(numSCs[pow] >= 18){
 				endedInSolo = true;
 				numSurvivors = 1;
 			}
-			
-			/*
-			String nameWithoutQuotes = names[pow].replace("'", "");
-			if(markedPlayers.contains(powers[pow]) || markedPlayers.contains(nameWithoutQuotes)){
-				isMarked[pow] = true;
-			}*/
-
 		}
 		
 		//to determine the player results we need to use another for loop, because we have to know if there is a solo victory beforehand.
@@ -112,45 +116,22 @@ public class GameResult implements Serializable{
 	}
 	
 	/**
-	 * Orders the players, from winners to losers.
+	 * Orders the players, from winners to losers. Players that end equally keep the order of the SMR message.
 	 * 
 	 */
 	private void rankPlayers(){
 		
 		rank2playerNumber = new int[this.numberOfPlayers]; //note: the player who ends first will have index 0 in this array.
 		
-		boolean[] hasRank = new boolean[this.numberOfPlayers];
-		int numRankedPlayers = 0;
-		int i = -1;
-		int bestPlayer = -1;
-		
-		//we complete a number of cycles. In every cycle we loop over each player that hasn't been ranked yet,
-		//the best one of those will receive the new rank.
-		while(numRankedPlayers < this.numberOfPlayers){
-			
-			i = (i+1) % this.numberOfPlayers; //go to next player.
-			
-			//after completing a full cycle we can add the best player of the previous cycle.
-			if(i==0 && bestPlayer != -1){
-				
-				rank2playerNumber[numRankedPlayers] = bestPlayer;
-				numRankedPlayers++;
-				hasRank[bestPlayer] = true;
-				
-				bestPlayer = -1;
-			}
-			
-			//if player i already has a rank, continue.
-			if(hasRank[i]){
-				continue;
-			}
+		//insertion sort: it is stable, and there are only a few players.
+		for(int i=0; i<this.numberOfPlayers; i++){
 			
-			if(bestPlayer == -1){	//if i is the first player in this cycle, it is set as best player.
-				bestPlayer = i; 
-			}else if(compare(i, bestPlayer) > 0){ //otherwise, compare i with the player that was the best so far this cycle.
-				bestPlayer = i;
+			int j = i;
+			while(j > 0 && compare(i, rank2playerNumber[j-1]) > 0){
+				rank2playerNumber[j] = rank2playerNumber[j-1];
+				j--;
 			}
-			
+			rank2playerNumber[j] = i;
 		}
 		
 		
@@ -297,6 +278,22 @@ public class GameResult implements Serializable{
 		return yearOfElimination[playerIndex];
 	}
 	
+	/**
+	 * Returns whether the player with the given name won, drew, lost or got eliminated.
+	 * @param name
+	 * @return
+	 */
+	public PlayerResult getPlayerResult(String name){
+		
+		int playerIndex = getIndexOf(name);
+		
+		if(playerIndex == -1){
+			throw new RuntimeException("GameResult.getPlayerResult() Error! This game did not involve any player with name " + name);
+		}
+		
+		return playerResults[playerIndex];
+	}
+	
 	/**
 	 * Returns the power played by the player with the given name.
 	 * @param playerName
@@ -0,0 +1,246 @@
+package ddejonge.bandana.tournament;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * An append-only file with the results of the games of a tournament, so that they do not have to be kept in memory.
+ *
+ * Every game is one record: the game number, the length of the serialised GameResult (0 if the game did not end
+ * properly) and the serialised GameResult. A record is handed to the operating system as soon as it is written, so it
+ * survives the program being killed, but it is only forced to the disk by sync(), which TournamentCheckpoint calls
+ * before every checkpoint, and by close(). A record that was only partly written is cut off when the archive is
+ * opened again.
+ */
+public class GameResultArchive {
+
+	final File file;
+
+	private FileOutputStream stream;
+	private DataOutputStream output;
+
+	/**The length of the file, up to the end of the last complete record.*/
+	private long length;
+
+	/**The length of the file that was last forced to the disk.*/
+	private long syncedLength;
+
+
+	/**
+	 * Opens the given archive, or creates it if it does not exist. New records are appended to it.
+	 */
+	public GameResultArchive(File file) throws IOException{
+		this(file, -1);
+	}
+
+	/**
+	 * Opens the given archive and cuts it off at the given length, so that the records written after that point are
+	 * dropped (see TournamentResult.getArchiveLength()).
+	 *
+	 * @param length The length to cut the archive off at, or -1 to keep every complete record.
+	 */
+	public GameResultArchive(File file, long length) throws IOException{
+
+		this.file = file;
+
+		if(file.getParentFile() != null){
+			file.getParentFile().mkdirs();
+		}
+
+		long validLength = 0;
+		if(file.exists()){
+			Reader reader = new Reader(file);
+			try {
+				while(reader.next()){
+					//only the length of the complete records is needed.
+				}
+				validLength = reader.getPosition();
+			} finally {
+				reader.close();
+			}
+		}
+
+		if(length >= 0){
+			if(length > validLength){
+				throw new IOException("GameResultArchive() Error! " + file + " holds " + validLength + " bytes of results, but " + length + " were expected.");
+			}
+			validLength = length;
+		}
+
+		if(file.exists() && validLength < file.length()){
+			System.out.println("GameResultArchive() Cutting off " + file + " at " + validLength + " bytes.");
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				randomAccessFile.setLength(validLength);
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+
+		this.length = validLength;
+		this.syncedLength = validLength;
+		this.stream = new FileOutputStream(file, true);
+		this.output = new DataOutputStream(stream);
+	}
+
+	/**
+	 * Appends the result of a game to the archive.
+	 *
+	 * @param gameResult The result of the game, or null if the game did not end properly.
+	 */
+	public synchronized void append(int gameNumber, GameResult gameResult) throws IOException{
+
+		if(output == null){
+			throw new IOException("GameResultArchive.append() Error! " + file + " is closed.");
+		}
+
+		byte[] bytes = gameResult == null ? new byte[0] : serialize(gameResult);
+		output.writeInt(gameNumber);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+		output.flush();
+
+		length += 8 + bytes.length;
+	}
+
+	/**
+	 * Forces the records that were written to the disk.
+	 */
+	public synchronized void sync() throws IOException{
+		if(output != null){
+			output.flush();
+			stream.getFD().sync();
+			syncedLength = length;
+		}
+	}
+
+	/**
+	 * Returns the length of the archive that is known to be on the disk.
+	 */
+	public synchronized long getSyncedLength(){
+		return syncedLength;
+	}
+
+	/**
+	 * Returns the length of the archive, up to the end of the last record.
+	 */
+	public synchronized long getLength(){
+		return length;
+	}
+
+	public File getFile(){
+		return file;
+	}
+
+	public synchronized void close(){
+
+		if(output != null){
+			try {
+				sync();
+				output.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			output = null;
+		}
+	}
+
+	static byte[] serialize(GameResult gameResult) throws IOException{
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutput = new ObjectOutputStream(bytes);
+		objectOutput.writeObject(gameResult);
+		objectOutput.close();
+		return bytes.toByteArray();
+	}
+
+	static GameResult deserialize(byte[] bytes) throws IOException{
+
+		ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return (GameResult) objectInput.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			objectInput.close();
+		}
+	}
+
+	/**
+	 * Reads the records of an archive one by one, so that the results never have to be in memory all at once.
+	 * A record that was only partly written is treated as the end of the archive.
+	 */
+	public static class Reader {
+
+		private final DataInputStream input;
+
+		private int gameNumber;
+		private byte[] bytes;
+		private long position = 0;
+
+		public Reader(File file) throws IOException{
+			this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		/**
+		 * Moves to the next record. Returns false if there is none.
+		 */
+		public boolean next() throws IOException{
+
+			try {
+				int nextGameNumber = input.readInt();
+				int length = input.readInt();
+				byte[] nextBytes = new byte[length];
+				input.readFully(nextBytes);
+
+				gameNumber = nextGameNumber;
+				bytes = nextBytes;
+				position += 8 + length;
+				return true;
+
+			} catch (EOFException e) {
+				return false;
+			}
+		}
+
+		public int getGameNumber(){
+			return gameNumber;
+		}
+
+		/**
+		 * Returns the result of the current record, or null if the game did not end properly.
+		 */
+		public GameResult getGameResult() throws IOException{
+			return bytes.length == 0 ? null : deserialize(bytes);
+		}
+
+		/**
+		 * Returns the serialised GameResult of the current record, which is empty if the game did not end properly.
+		 */
+		byte[] getBytes(){
+			return bytes;
+		}
+
+		/**
+		 * Returns the position in the file after the current record.
+		 */
+		long getPosition(){
+			return position;
+		}
+
+		public void close() throws IOException{
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,469 @@
+package ddejonge.bandana.tournament;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import ddejonge.bandana.tournament.GameResult.PlayerResult;
+
+/**
+ * An append-only binary log with the outcome of every game of a tournament. It replaces the text file gameResults.log,
+ * which can still be produced from it with:
+ *
+ *   java ddejonge.bandana.tournament.GameResultLog gameResults.bin [gameResults.log]
+ *
+ * Every player of every game is one record of RECORD_SIZE bytes, and the players of a game are written in the order
+ * in which they ended:
+ *
+ *   int   game number
+ *   int   player id (the line of the player's name in the .players file next to the log)
+ *   3 x byte power (e.g. AUS)
+ *   byte  PlayerResult (its ordinal)
+ *   short number of supply centers at the end of the game
+ *   short year of elimination, or 0
+ *   short rank times 2 (a shared 5th place, i.e. rank 5.5, is stored as 11)
+ *   byte  position, from 0 for the winner to the number of players minus 1
+ *   byte  number of players of the game
+ *
+ * The records are collected in a buffer and written to the file once per game. The file is forced to the disk at most
+ * every SYNC_INTERVAL_MILLIS, and when the log is closed. The players of a game that was only partly written, because
+ * the program was killed, are cut off when the log is opened again.
+ */
+public class GameResultLog {
+
+	public static final String FILE_NAME = "gameResults.bin";
+	public static final String PLAYERS_FILE_EXTENSION = ".players";
+
+	static final int MAGIC = 0x42475231; //"BGR1"
+	static final int HEADER_SIZE = 4;
+	static final int RECORD_SIZE = 20;
+
+	/**The longest time the records written to the file may stay out of the disk.*/
+	static final long SYNC_INTERVAL_MILLIS = 5000;
+
+	private final File file;
+	private final File playersFile;
+
+	private FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(64 * RECORD_SIZE);
+
+	/**The players that have an id in this log.*/
+	private final PlayerIds playerIds = new PlayerIds();
+	private Writer playersOutput;
+
+	/**The length of the file, up to the end of the last complete game.*/
+	private long length;
+
+	/**The length of the file that was last forced to the disk.*/
+	private long syncedLength;
+
+	private long lastSyncTime = System.currentTimeMillis();
+
+
+	/**
+	 * Opens the given log, or creates it if it does not exist. New games are appended to it.
+	 */
+	public GameResultLog(File file) throws IOException{
+		this(file, -1);
+	}
+
+	/**
+	 * Opens the given log and cuts it off at the given length, so that the games written after that point are dropped
+	 * (see TournamentResult.getResultLogLength()).
+	 *
+	 * @param length The length to cut the log off at, or -1 to keep every complete game.
+	 */
+	public GameResultLog(File file, long length) throws IOException{
+
+		this.file = file;
+		this.playersFile = getPlayersFile(file);
+
+		if(file.getParentFile() != null){
+			file.getParentFile().mkdirs();
+		}
+
+		for(String name : readPlayers(playersFile)){
+			playerIds.intern(name);
+		}
+
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		long validLength = getValidLength(channel);
+		if(length >= 0){
+			if(length > validLength){
+				channel.close();
+				throw new IOException("GameResultLog() Error! " + file + " holds " + validLength + " bytes of results, but " + length + " were expected.");
+			}
+			validLength = Math.max(length, HEADER_SIZE);
+		}
+
+		if(validLength < channel.size()){
+			System.out.println("GameResultLog() Cutting off " + file + " at " + validLength + " bytes.");
+			channel.truncate(validLength);
+		}
+
+		if(channel.size() == 0){
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.flip();
+			channel.write(header, 0);
+			validLength = HEADER_SIZE;
+		}
+
+		this.length = validLength;
+		this.syncedLength = validLength;
+		this.channel.position(validLength);
+
+		this.playersOutput = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(playersFile, true), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the length of the file up to the end of its last complete game.
+	 */
+	static long getValidLength(FileChannel channel) throws IOException{
+
+		long size = channel.size();
+		if(size < HEADER_SIZE){
+			return 0;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		if(header.getInt(0) != MAGIC){
+			throw new IOException("GameResultLog.getValidLength() Error! The file is not a game result log.");
+		}
+
+		long numberOfRecords = (size - HEADER_SIZE) / RECORD_SIZE;
+		if(numberOfRecords == 0){
+			return HEADER_SIZE;
+		}
+
+		//If the last record is not the last player of its game, the game was only partly written.
+		ByteBuffer lastRecord = ByteBuffer.allocate(RECORD_SIZE);
+		channel.read(lastRecord, HEADER_SIZE + (numberOfRecords - 1) * RECORD_SIZE);
+		int position = lastRecord.get(18);
+		int numberOfPlayers = lastRecord.get(19);
+		if(position != numberOfPlayers - 1){
+			numberOfRecords -= position + 1;
+		}
+
+		return HEADER_SIZE + numberOfRecords * RECORD_SIZE;
+	}
+
+	/**
+	 * Appends the outcome of a game to the log.
+	 */
+	public synchronized void append(int gameNumber, GameResult gameResult) throws IOException{
+
+		if(channel == null){
+			throw new IOException("GameResultLog.append() Error! " + file + " is closed.");
+		}
+
+		ArrayList<String> names = gameResult.getNames();
+		int numberOfPlayers = names.size();
+
+		buffer.clear();
+		for(int position = 0; position < numberOfPlayers; position++){
+
+			String name = names.get(gameResult.rank2playerNumber[position]);
+
+			int playerId = playerIds.getId(name);
+			if(playerId == -1){
+				playerId = playerIds.intern(name);
+				playersOutput.write(name + System.lineSeparator());
+				playersOutput.flush();
+			}
+
+			byte[] power = gameResult.getPowerPlayed(name).getBytes(StandardCharsets.US_ASCII);
+
+			buffer.putInt(gameNumber);
+			buffer.putInt(playerId);
+			buffer.put(power, 0, 3);
+			buffer.put((byte) gameResult.getPlayerResult(name).ordinal());
+			buffer.putShort((short) gameResult.getNumSupplyCenters(name));
+			buffer.putShort((short) gameResult.getYearOfElimination(name));
+			buffer.putShort((short) Math.round(2 * gameResult.getRank(name)));
+			buffer.put((byte) position);
+			buffer.put((byte) numberOfPlayers);
+		}
+
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		length += numberOfPlayers * RECORD_SIZE;
+
+		if(System.currentTimeMillis() - lastSyncTime >= SYNC_INTERVAL_MILLIS){
+			sync();
+		}
+	}
+
+	/**
+	 * Forces the games that were written to the disk.
+	 */
+	public synchronized void sync() throws IOException{
+		if(channel != null){
+			channel.force(false);
+			syncedLength = length;
+			lastSyncTime = System.currentTimeMillis();
+		}
+	}
+	
+	/**
+	 * Returns the length of the log that is known to be on the disk.
+	 */
+	public synchronized long getSyncedLength(){
+		return syncedLength;
+	}
+
+	/**
+	 * Returns the length of the log, up to the end of the last game.
+	 */
+	public synchronized long getLength(){
+		return length;
+	}
+
+	public File getFile(){
+		return file;
+	}
+
+	public synchronized void close(){
+
+		if(channel != null){
+			try {
+				sync();
+				channel.close();
+				playersOutput.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			channel = null;
+		}
+	}
+
+	static File getPlayersFile(File file){
+		return new File(file.getPath() + PLAYERS_FILE_EXTENSION);
+	}
+
+	static ArrayList<String> readPlayers(File playersFile) throws IOException{
+
+		ArrayList<String> names = new ArrayList<String>();
+		if( ! playersFile.exists()){
+			return names;
+		}
+
+		BufferedReader input = new BufferedReader(new InputStreamReader(new FileInputStream(playersFile), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while((line = input.readLine()) != null){
+				names.add(line);
+			}
+		} finally {
+			input.close();
+		}
+		return names;
+	}
+
+	/**
+	 * Writes the given log in the format of the old gameResults.log.
+	 *
+	 * Usage: GameResultLog <log file> [output file]. Writes to the standard output if no output file is given.
+	 */
+	public static void main(String[] args) throws IOException{
+
+		if(args.length == 0){
+			System.out.println("GameResultLog.main() Usage: GameResultLog <log file> [output file]");
+			return;
+		}
+
+		Reader reader = new Reader(new File(args[0]));
+		Writer output = args.length > 1
+				? new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))
+				: new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		try {
+			reader.writeText(output);
+		} finally {
+			output.close();
+		}
+	}
+
+
+	/**
+	 * Memory-maps a log, so that aggregates over all its records can be computed without reading them into objects.
+	 * Only the complete games at the time the reader is created are visible.
+	 */
+	public static class Reader {
+
+		private final MappedByteBuffer records;
+		private final int numberOfRecords;
+		private final ArrayList<String> names;
+
+		public Reader(File file) throws IOException{
+
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				long validLength = getValidLength(channel);
+				if(validLength > Integer.MAX_VALUE){
+					throw new IOException("GameResultLog.Reader() Error! " + file + " is too large to be mapped.");
+				}
+
+				this.numberOfRecords = validLength == 0 ? 0 : (int) ((validLength - HEADER_SIZE) / RECORD_SIZE);
+				this.records = channel.map(FileChannel.MapMode.READ_ONLY, 0, validLength);
+			} finally {
+				//the mapping stays valid after the channel is closed.
+				channel.close();
+			}
+
+			this.names = readPlayers(getPlayersFile(file));
+		}
+
+		public int getNumberOfRecords(){
+			return numberOfRecords;
+		}
+
+		/**
+		 * Returns the number of players that have an id in the log.
+		 */
+		public int getNumberOfPlayers(){
+			return names.size();
+		}
+
+		public String getPlayerName(int playerId){
+			return names.get(playerId);
+		}
+
+		private int offset(int record){
+			return HEADER_SIZE + record * RECORD_SIZE;
+		}
+
+		public int getGameNumber(int record){
+			return records.getInt(offset(record));
+		}
+
+		public int getPlayerId(int record){
+			return records.getInt(offset(record) + 4);
+		}
+
+		public String getPower(int record){
+			byte[] power = new byte[3];
+			for(int i = 0; i < 3; i++){
+				power[i] = records.get(offset(record) + 8 + i);
+			}
+			return new String(power, StandardCharsets.US_ASCII);
+		}
+
+		public PlayerResult getPlayerResult(int record){
+			return PlayerResult.values()[records.get(offset(record) + 11)];
+		}
+
+		public int getNumSupplyCenters(int record){
+			return records.getShort(offset(record) + 12);
+		}
+
+		public int getYearOfElimination(int record){
+			return records.getShort(offset(record) + 14);
+		}
+
+		public double getRank(int record){
+			return records.getShort(offset(record) + 16) / 2.0;
+		}
+
+		/**
+		 * Returns the place of the player in the order in which the players of its game ended, from 0 for the winner.
+		 */
+		public int getPosition(int record){
+			return records.get(offset(record) + 18);
+		}
+
+		/**
+		 * Returns the number of players of the game of the given record.
+		 */
+		public int getNumberOfPlayersOfGame(int record){
+			return records.get(offset(record) + 19);
+		}
+
+		/**
+		 * Returns the number of games played by each player, indexed by player id.
+		 */
+		public int[] getNumberOfGamesPlayed(){
+			int[] numberOfGames = new int[names.size()];
+			for(int record = 0; record < numberOfRecords; record++){
+				numberOfGames[getPlayerId(record)]++;
+			}
+			return numberOfGames;
+		}
+
+		/**
+		 * Returns the number of games each player ended with the given result, indexed by player id.
+		 */
+		public int[] countResults(PlayerResult playerResult){
+			int[] counts = new int[names.size()];
+			for(int record = 0; record < numberOfRecords; record++){
+				if(records.get(offset(record) + 11) == playerResult.ordinal()){
+					counts[getPlayerId(record)]++;
+				}
+			}
+			return counts;
+		}
+
+		/**
+		 * Returns the average number of supply centers of each player at the end of its games, indexed by player id.
+		 */
+		public double[] getAverageSupplyCenters(){
+			double[] totals = new double[names.size()];
+			for(int record = 0; record < numberOfRecords; record++){
+				totals[getPlayerId(record)] += getNumSupplyCenters(record);
+			}
+			return divide(totals, getNumberOfGamesPlayed());
+		}
+
+		/**
+		 * Returns the average rank of each player, indexed by player id.
+		 */
+		public double[] getAverageRanks(){
+			double[] totals = new double[names.size()];
+			for(int record = 0; record < numberOfRecords; record++){
+				totals[getPlayerId(record)] += getRank(record);
+			}
+			return divide(totals, getNumberOfGamesPlayed());
+		}
+
+		private static double[] divide(double[] totals, int[] numberOfGames){
+			for(int i = 0; i < totals.length; i++){
+				totals[i] = numberOfGames[i] == 0 ? 0 : totals[i] / numberOfGames[i];
+			}
+			return totals;
+		}
+
+		/**
+		 * Writes the games in the format of the old gameResults.log, i.e. GameResult.toString() after a line with the
+		 * game number.
+		 */
+		public void writeText(Appendable output) throws IOException{
+
+			for(int record = 0; record < numberOfRecords; record++){
+
+				int position = getPosition(record);
+				if(position == 0){
+					output.append("game " + getGameNumber(record) + ": " + System.lineSeparator());
+				}
+
+				int numSupplyCenters = getNumSupplyCenters(record);
+				output.append("" + (position + 1) + ". " + getPlayerName(getPlayerId(record)) + " " + getPower(record) + " "
+						+ (numSupplyCenters > 0 ? numSupplyCenters : getYearOfElimination(record)) + "\n");
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import ddejonge.bandana.tools.ProcessRunner;
+
+/**
+ * One of the slots of a TournamentExecutor. A slot plays its games one after the other, on its own Parlance server
+ * and with its own TournamentObserver, so that it does not interfere with the other slots. The negotiations of
+ * each game get their own session of the NegoServerRunner of the executor.
+ */
+public class GameSlot implements Runnable{
+
+	/**Time to wait for the players to exit by themselves after a game, before they are killed.*/
+	static final long PLAYER_EXIT_TIMEOUT_MILLIS = 5000;
+
+	final TournamentExecutor executor;
+	final int slotNumber;
+
+	final ParlanceRunner parlanceRunner;
+
+	TournamentObserver tournamentObserver;
+
+	/**The processes of the players of the current game that are not hosted by the agentHostPool.*/
+	List<Process> players = new CopyOnWriteArrayList<Process>();
+
+	/**The warm JVMs of the seats of this slot.*/
+	final AgentHostPool agentHostPool;
+
+
+	/**
+	 * The port must have been reserved by the PortAllocator. It is released when the slot stops.
+	 */
+	GameSlot(TournamentExecutor executor, int slotNumber, int gameServerPort){
+		this.executor = executor;
+		this.slotNumber = slotNumber;
+		this.parlanceRunner = new ParlanceRunner(gameServerPort);
+		this.agentHostPool = new AgentHostPool("slot " + slotNumber, executor.numberOfParticipants);
+	}
+
+	/**
+	 * Starts the game server and the observer of this slot.
+	 */
+	void start() throws IOException{
+
+		//The config folder of the server is deleted when it stops, so its output is written to the tournament folder.
+		File logFolder = new File(executor.tournamentLogFolderPath);
+		logFolder.mkdirs();
+		this.parlanceRunner.setLogFile(new File(logFolder, "parlance slot " + slotNumber + ".log"));
+		//A slot may have to play every game that is left, and a game without a result is played again.
+		int maxGames = executor.numberOfGamesToPlay * CheckpointedGameQueue.MAX_ATTEMPTS;
+		this.parlanceRunner.start(executor.map, maxGames, executor.moveTimeLimit, executor.retreatTimeLimit, executor.buildTimeLimit);
+
+		this.tournamentObserver = new TournamentObserver(executor.tournamentLogFolderPath, executor.scoreCalculators, executor.tournamentResult,
+				executor.numberOfGames, executor.numberOfParticipants, this.parlanceRunner.getPort(), true);
+	}
+
+	@Override
+	public void run() {
+
+		int gameNumber;
+		while( ! Thread.currentThread().isInterrupted() && (gameNumber = executor.gameQueue.nextGameNumber(slotNumber)) > 0){
+
+			GameResult gameResult = null;
+			try {
+				gameResult = playGame(gameNumber);
+			} catch (Exception e) {
+				System.out.println("GameSlot.run() slot " + slotNumber + " failed to play game " + gameNumber);
+				e.printStackTrace();
+			}
+
+			executor.gameFinished(slotNumber, gameNumber, gameResult);
+		}
+	}
+
+	/**
+	 * Plays the given game and returns its result, or null if the game did not end properly.
+	 */
+	GameResult playGame(int gameNumber){
+
+		System.out.println("GAME " + gameNumber + " (slot " + slotNumber + ")");
+
+		int negoServerPort = NegoServerRunner.DEFAULT_SERVER_PORT;
+		if(executor.negotiation){
+			String negotiationLogFolderPath = executor.tournamentLogFolderPath + File.separator + "negotiation" + File.separator + "Game " + gameNumber + File.separator;
+			negoServerPort = executor.negoServerRunner.startGame(gameNumber, this.parlanceRunner.getPort(), this.tournamentObserver, negotiationLogFolderPath);
+		}
+
+		for(int i=0; i<executor.numberOfParticipants; i++){
+
+			String name = executor.spec.getPlayerName(i);
+			String[] command = executor.spec.createPlayerCommand(i, executor.tournamentLogFolderPath, gameNumber);
+
+			if(executor.spec.isWarmAgents() && AgentHostPool.canHost(command)
+					&& agentHostPool.join(i, name, command, gameNumber, this.parlanceRunner.getPort(), negoServerPort)){
+				continue;
+			}
+
+			//Tell the player which servers belong to this slot.
+			String[] slotCommand = new String[command.length + 4];
+			System.arraycopy(command, 0, slotCommand, 0, command.length);
+			slotCommand[command.length] = "-gamePort";
+			slotCommand[command.length + 1] = "" + this.parlanceRunner.getPort();
+			slotCommand[command.length + 2] = "-negoPort";
+			slotCommand[command.length + 3] = "" + negoServerPort;
+
+			Process playerProcess = ProcessRunner.exec(slotCommand, name + " (slot " + slotNumber + ")");
+
+			if(playerProcess != null){
+				players.add(playerProcess);
+			}
+		}
+
+		this.tournamentObserver.setNextGameNumber(gameNumber);
+		this.tournamentObserver.connectToServer();
+
+		GameResult gameResult = TournamentRunner.awaitGame(this.tournamentObserver, gameNumber,
+				TournamentRunner.getGameTimeoutMillis(executor.finalYear, executor.moveTimeLimit, executor.retreatTimeLimit, executor.buildTimeLimit));
+
+		stopPlayers();
+
+		if(executor.negotiation){
+			executor.negoServerRunner.endGame(gameNumber);
+		}
+
+		return gameResult;
+	}
+
+	/**
+	 * Waits for the players of the last game to exit, and kills the ones that do not, so that they do not keep the
+	 * ports of this slot.
+	 */
+	void stopPlayers(){
+
+		for(Process playerProcess : players){
+			try {
+				if( ! playerProcess.waitFor(PLAYER_EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)){
+					playerProcess.destroy();
+				}
+			} catch (InterruptedException e) {
+				playerProcess.destroy();
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		players.clear();
+	}
+
+	void stop(){
+
+		for(Process playerProcess : players){
+			playerProcess.destroy();
+		}
+
+		this.agentHostPool.stop();
+
+		if(this.tournamentObserver != null && this.tournamentObserver.comm != null){
+			this.tournamentObserver.exit();
+		}
+
+		this.parlanceRunner.stopServer();
+
+		PortAllocator.release(this.parlanceRunner.getPort());
+	}
+}
@@ -0,0 +1,139 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import ddejonge.bandana.exampleAgents.RandomBot;
+import ddejonge.bandana.gameServer.LocalGameServer;
+import ddejonge.bandana.tools.Logger;
+
+/**
+ * Plays a tournament between RandomBots without Parlance: every game is played on a LocalGameServer, in this JVM,
+ * with the players and the TournamentObserver connected through LocalComms. No process is started and no socket is
+ * opened, so this can be used for headless training and testing.
+ *
+ * Agents that are started as separate processes, and negotiating agents, still need the TournamentRunner.
+ *
+ * If a seed is given, the game server and every RandomBot get their own seed for every game (see
+ * TournamentSpec.deriveSeed()), so every game is played the same way again with the same seed. A single game is played
+ * again with --replay. With --trajectories, every phase of every game is recorded in the trajectories folder of the
+ * tournament (see TrajectoryLog).
+ *
+ * Usage: LocalTournamentRunner [--trajectories] [number of games] [final year] [seed]
+ *        LocalTournamentRunner [--trajectories] --replay [game number] [final year] [seed]
+ */
+public class LocalTournamentRunner {
+
+	//Deadlines in seconds. The RandomBots answer at once, so they are only reached if a bot fails.
+	final static int MOVE_TIME_LIMIT = 5;
+	final static int RETREAT_TIME_LIMIT = 5;
+	final static int BUILD_TIME_LIMIT = 5;
+
+	final static int NUMBER_OF_PARTICIPANTS = 7;
+
+	public static void main(String[] args) throws IOException {
+
+		boolean recordTrajectories = args.length > 0 && args[0].equals("--trajectories");
+		if(recordTrajectories){
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+
+		if(args.length > 3 && args[0].equals("--replay")){
+			int gameNumber = Integer.parseInt(args[1]);
+			run(gameNumber, gameNumber, Integer.parseInt(args[2]), Long.parseLong(args[3]), recordTrajectories);
+			return;
+		}
+
+		int numberOfGames = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int finalYear = args.length > 1 ? Integer.parseInt(args[1]) : 1905;
+		Long seed = args.length > 2 ? Long.parseLong(args[2]) : null;
+
+		run(1, numberOfGames, finalYear, seed, recordTrajectories);
+	}
+
+	public static TournamentResult run(int numberOfGames, int finalYear) throws IOException{
+		return run(1, numberOfGames, finalYear, null);
+	}
+
+	public static TournamentResult run(int firstGame, int lastGame, int finalYear, Long seed) throws IOException{
+		return run(firstGame, lastGame, finalYear, seed, false);
+	}
+
+	/**
+	 * Plays the games from firstGame to lastGame.
+	 *
+	 * @param seed The seed of the tournament, or null to play with unseeded random number generators.
+	 * @param recordTrajectories If true, the phases of the games are recorded in a TrajectoryLog.
+	 */
+	public static TournamentResult run(int firstGame, int lastGame, int finalYear, Long seed, boolean recordTrajectories) throws IOException{
+
+		long startTime = System.currentTimeMillis();
+
+		String tournamentLogFolderPath = TournamentRunner.LOG_FOLDER + File.separator + Logger.getDateString();
+		new File(tournamentLogFolderPath).mkdirs();
+
+		ArrayList<ScoreCalculator> scoreCalculators = TournamentRunner.createScoreCalculators("standard");
+		TournamentResult tournamentResult = new TournamentResult(NUMBER_OF_PARTICIPANTS, scoreCalculators);
+		if(recordTrajectories){
+			tournamentResult.setTrajectoryLog(new TrajectoryLog(new File(tournamentLogFolderPath, TrajectoryLog.FOLDER_NAME)));
+		}
+		TournamentObserver tournamentObserver = new TournamentObserver(tournamentLogFolderPath, scoreCalculators, tournamentResult,
+				lastGame, NUMBER_OF_PARTICIPANTS, TournamentObserver.DEFAULT_GAME_SERVER_PORT, true);
+
+		long gameTimeoutMillis = TournamentRunner.getGameTimeoutMillis(finalYear, MOVE_TIME_LIMIT, RETREAT_TIME_LIMIT, BUILD_TIME_LIMIT);
+
+		for(int gameNumber = firstGame; gameNumber <= lastGame; gameNumber++){
+
+			System.out.println();
+			System.out.println("GAME " + gameNumber);
+
+			LocalGameServer gameServer = new LocalGameServer(MOVE_TIME_LIMIT, RETREAT_TIME_LIMIT, BUILD_TIME_LIMIT);
+			gameServer.setFinalYear(finalYear);
+			gameServer.setNumberOfObservers(1);
+			if(seed != null){
+				gameServer.setRandom(new Random(TournamentSpec.deriveSeed(seed, gameNumber, -1)));
+			}
+
+			List<RandomBot> players = new ArrayList<RandomBot>();
+			for(int seat = 0; seat < NUMBER_OF_PARTICIPANTS; seat++){
+				String name = "RandomBot " + seat;
+				String logPath = tournamentLogFolderPath + File.separator + name + File.separator + "Game " + gameNumber + File.separator;
+				RandomBot player = new RandomBot(finalYear, logPath, gameServer.createComm(name));
+				if(seed != null){
+					player.setSeed(TournamentSpec.deriveSeed(seed, gameNumber, seat));
+				}
+				players.add(player);
+			}
+
+			try {
+				for(RandomBot player : players){
+					player.start(player.getComm());
+				}
+			} catch (Exception e) {
+				System.out.println("LocalTournamentRunner.run() Could not start the players of game " + gameNumber);
+				e.printStackTrace();
+				gameServer.stop();
+				continue;
+			}
+
+			tournamentObserver.setNextGameNumber(gameNumber);
+			tournamentObserver.connectToServer(gameServer.createComm("TournamentObserver"));
+
+			TournamentRunner.awaitGame(tournamentObserver, gameNumber, gameTimeoutMillis);
+
+			gameServer.stop();
+		}
+
+		tournamentResult.close();
+
+		System.out.println("TOURNAMENT FINISHED");
+		System.out.println("Tournament took: " + (System.currentTimeMillis() - startTime) + " milliseconds.");
+		System.out.println(tournamentResult.getSummary());
+
+		return tournamentResult;
+	}
+}
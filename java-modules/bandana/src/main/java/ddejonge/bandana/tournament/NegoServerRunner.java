@@ -1,6 +1,10 @@
 package ddejonge.bandana.tournament;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import ddejonge.bandana.negoProtocol.DiplomacyProtocolManager;
 import ddejonge.negoServer.Logger;
@@ -23,6 +27,135 @@ public class NegoServerRunner {
 	
 	private static DiplomacyProtocolManager diplomacyProtocolManager;
 	
+	
+	/**The lowest port the negotiation sessions of this instance may use.*/
+	private final int firstPort;
+	
+	/**The negotiation sessions of the games that are being played, by game ID.*/
+	private final Map<Integer, Session> sessions = new HashMap<Integer, Session>();
+	
+	/**
+	 * Creates a runner that hosts the negotiations of several games at the same time.
+	 * 
+	 * Every game gets a session of its own: a Negotiation Server on its own port with its own DiplomacyProtocolManager,
+	 * so the proposals, consistency checks and locks of one game never involve the others. 
+	 * A separate server per game is needed because the players register with the names of their powers, 
+	 * which are the same in every game.
+	 * 
+	 * @param firstPort The lowest port the sessions may use. Each session gets the first free port from this one on.
+	 */
+	public NegoServerRunner(int firstPort){
+		this.firstPort = firstPort;
+	}
+	
+	/**
+	 * Starts the negotiation session of a game. Must be called before the players of the game are started.
+	 * 
+	 * @param gameID The number of the game.
+	 * @param gameServerPort The port of the game server the game is played on. The protocol manager observes the game there, to check the proposals.
+	 * @param tournamentObserver The observer of the game, which is told the names of the agents.
+	 * @param logFolderPath The folder to store the logs of this session.
+	 * @return The port the players of this game must connect to.
+	 */
+	public int startGame(int gameID, int gameServerPort, TournamentObserver tournamentObserver, String logFolderPath){
+		
+		new File(logFolderPath).mkdirs();
+		
+		Session session = new Session(PortAllocator.allocate(this.firstPort));
+		
+		session.protocolManager = new DiplomacyProtocolManager(tournamentObserver, logFolderPath, gameServerPort);
+		session.protocolManager.allowInformalMessages(ALLOW_INFORMAL_MESSAGES);
+		session.protocolManager.enableConsistencyChecking(ENABLE_CONSISTENCY_CHECKING);
+		session.protocolManager.notifyNewGame(gameID);
+		
+		session.negoServer = new NegotiationServer(session.protocolManager);
+		session.negoServer.setPortNumber(session.port);
+		session.negoServer.enableLogging(logFolderPath, "NegotiationServer.log");
+		if(session.negoServer.startServerInNewThread() == NegotiationServer.FAILED){
+			System.out.println("NegoServerRunner.startGame() Negotiation Server of game " + gameID + " failed to start on port " + session.port);
+		}
+		
+		Session previousSession;
+		synchronized (this.sessions) {
+			previousSession = this.sessions.put(gameID, session);
+		}
+		if(previousSession != null){
+			previousSession.stop();
+		}
+		
+		System.out.println("NegoServerRunner.startGame() Negotiation Server of game " + gameID + " started on port " + session.port);
+		
+		return session.port;
+	}
+	
+	/**
+	 * Stops the negotiation session of a game that is over, and makes its port available again.
+	 */
+	public void endGame(int gameID){
+		
+		Session session;
+		synchronized (this.sessions) {
+			session = this.sessions.remove(gameID);
+		}
+		
+		if(session != null){
+			session.stop();
+		}
+	}
+	
+	/**
+	 * Returns the port of the session of the given game, or -1 if that game has no session.
+	 */
+	public int getPort(int gameID){
+		synchronized (this.sessions) {
+			Session session = this.sessions.get(gameID);
+			return session == null ? -1 : session.port;
+		}
+	}
+	
+	/**
+	 * Stops the sessions of all games.
+	 */
+	public void stopServer(){
+		
+		List<Session> openSessions;
+		synchronized (this.sessions) {
+			openSessions = new ArrayList<Session>(this.sessions.values());
+			this.sessions.clear();
+		}
+		
+		for(Session session : openSessions){
+			session.stop();
+		}
+	}
+	
+	/**
+	 * The Negotiation Server and protocol manager of one game.
+	 */
+	static class Session{
+		
+		final int port;
+		DiplomacyProtocolManager protocolManager;
+		NegotiationServer negoServer;
+		
+		Session(int port){
+			this.port = port;
+		}
+		
+		void stop(){
+			
+			if(this.protocolManager != null){
+				this.protocolManager.stop();
+			}
+			
+			if(this.negoServer != null){
+				this.negoServer.stopServer();
+			}
+			
+			PortAllocator.release(this.port);
+		}
+	}
+	
 	public static void run(TournamentObserver tournamentObserver, int numberOfGames){
 		run(tournamentObserver, DEFAULT_SERVER_PORT, DEFAULT_LOG_FOLDER_PATH, numberOfGames);
 	}
@@ -2,10 +2,10 @@ package ddejonge.bandana.tournament;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 
 import ddejonge.bandana.tools.FileIO;
-import ddejonge.bandana.tools.ProcessRunner;
 
 
 public class ParlanceRunner {
@@ -15,21 +15,149 @@ public class ParlanceRunner {
 			"/../../python-modules/parlance-server/init-server.sh";
 	
 	
-	//Set this path to your home folder.
-	//If set incorrectly Parlance will still work but you won't be able to change the deadlines.
-	//private static String HOME_FOLDER = "C:\\Users\\30044279";
+	//The config file that earlier versions wrote for all servers. Parlance lets it override the file of each instance.
+	private static final File SHARED_CONFIG_FILE = new File(System.getProperty("user.home") + File.separator + ".config", "parlance.cfg");
 	
-	//you can also try the following, but it does not seem to be working properly.
-	private static String HOME_FOLDER =  System.getProperty("user.home");
+	/**The port Parlance listens to by default.*/
+	public static final int DEFAULT_PORT = 16713;
 	
-	//Location of the config file (DO NOT CHANGE THESE TWO LINES!):
-	private static final String CONFIG_FOLDER = HOME_FOLDER + File.separator + ".config";
+	/**Parlance reads its config file from its working directory, which the init script sets to this folder if it is given.*/
+	private static final String CONFIG_FOLDER_VARIABLE = "PARLANCE_CONFIG_DIR";
 	private static final String CONFIG_FILE_NAME = "parlance.cfg";
+	private static final String LOG_FILE_NAME = "parlance.log";
 	
-	private static Process parlanceProcess;
+	/**The server started by the static methods.*/
+	private static ParlanceRunner defaultRunner;
+	
+	
+	/**The port of this instance of the server.*/
+	private final int port;
+	
+	/**True if the port was reserved by the PortAllocator and must be released when the server stops.*/
+	private final boolean allocatedPort;
+	
+	/**The temporary folder with the config file of this instance. It is deleted when the server stops.*/
+	private File configFolder;
+	
+	/**The file the output of this instance is written to. If null, it is written to the config folder, and deleted with it.*/
+	private File logFile;
+	
+	/**The process of this instance of the server.*/
+	private Process process;
+	
+	/**
+	 * Creates a game server that listens to the first free port from DEFAULT_PORT on. The server is only started by start().
+	 */
+	public ParlanceRunner(){
+		this(PortAllocator.allocate(DEFAULT_PORT), true);
+	}
+	
+	/**
+	 * Creates a game server that listens to the given port. The server is only started by start().
+	 * Several instances can run at the same time, as long as their ports are different.
+	 * 
+	 * @param port The port of the server.
+	 */
+	public ParlanceRunner(int port){
+		this(port, false);
+	}
+	
+	private ParlanceRunner(int port, boolean allocatedPort){
+		this.port = port;
+		this.allocatedPort = allocatedPort;
+	}
+	
+	/**
+	 * Starts this game server and let it play a given number of games.
+	 * Each instance has its own config folder, so instances can use different deadlines. 
+	 * The output of the server is written to the log file, if one was set, or else to parlance.log in that folder.
+	 * 
+	 * @param map The map to play on ('standard' or 'small').
+	 * @param numGames The maximum number of games to play.
+	 * @param moveTimeLimit Deadline in seconds for move phases.
+	 * @param retreatTimeLimit Deadline in seconds for retreat phases.
+	 * @param buildTimeLimit Deadline in seconds for build phases.
+	 */
+	public synchronized void start(String map, int numGames, int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit){
+		
+		try {
+			this.configFolder = createConfigFolder(moveTimeLimit, retreatTimeLimit, buildTimeLimit);
+		} catch (IOException e) {
+			System.out.println("ParlanceRunner.start() Could not create the config folder of the server on port " + this.port);
+			e.printStackTrace();
+			return;
+		}
+		
+		if(SHARED_CONFIG_FILE.exists()){
+			System.out.println("ParlanceRunner.start() Warning! " + SHARED_CONFIG_FILE + " overrides the deadlines of every server. Please delete it.");
+		}
+		
+		//Parlance accepts any option of its config file on the command line.
+		ProcessBuilder processBuilder = new ProcessBuilder(PARLANCE_PATH, "-g" + numGames, "--port=" + this.port, map);
+		processBuilder.environment().put(CONFIG_FOLDER_VARIABLE, this.configFolder.getAbsolutePath());
+		processBuilder.redirectErrorStream(true);
+		processBuilder.redirectOutput(this.logFile != null ? this.logFile : new File(this.configFolder, LOG_FILE_NAME));
+		
+		try {
+			this.process = processBuilder.start();
+			System.out.println("ParlanceRunner.start() Parlance started on port " + this.port + ", config folder: " + this.configFolder);
+		} catch (IOException e) {
+			System.out.println("ParlanceRunner.start() Parlance failed to start on port " + this.port);
+			e.printStackTrace();
+		}
+	}
 	
 	/**
-	 * Starts the game server and let it play a given number of games.
+	 * Stops this game server, deletes its config folder and makes its port available again.
+	 * The log of the server is only kept if it was written to a log file of its own (see setLogFile()).
+	 */
+	public synchronized void stopServer(){
+		
+		if(this.process != null){
+			this.process.destroy();
+			this.process = null;
+		}
+		
+		if(this.configFolder != null){
+			deleteFolder(this.configFolder);
+			this.configFolder = null;
+		}
+		
+		if(this.allocatedPort){
+			PortAllocator.release(this.port);
+		}
+	}
+	
+	public int getPort(){
+		return this.port;
+	}
+	
+	/**
+	 * Returns the folder with the config file of this server, or null if it is not running.
+	 */
+	public File getConfigFolder(){
+		return this.configFolder;
+	}
+	
+	/**
+	 * Sets the file the output of the server is written to when it is started next, so that it is kept after the server stops.
+	 */
+	public void setLogFile(File logFile){
+		this.logFile = logFile;
+	}
+	
+	/**
+	 * Creates a temporary folder with a config file that sets the given deadlines.
+	 */
+	File createConfigFolder(int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit) throws IOException{
+		
+		File folder = Files.createTempDirectory("parlance-" + this.port + "-").toFile();
+		createConfigFile(folder, moveTimeLimit, retreatTimeLimit, buildTimeLimit);
+		return folder;
+	}
+	
+	/**
+	 * Starts the game server on the default port and let it play a given number of games.
 	 * Note that the players and observers have to reconnect to the server each game.
 	 * 
 	 * @param numGames The number of games to play.
@@ -38,65 +166,66 @@ public class ParlanceRunner {
 	 * @param buildTimeLimit Deadline in seconds for build phases.
 	 * @throws IOException
 	 */
-	public static void runParlanceServer(String map, int numGames, int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit) throws IOException{
+	public static synchronized void runParlanceServer(String map, int numGames, int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit) throws IOException{
+		
+		if(defaultRunner != null){
+			defaultRunner.stopServer();
+		}
+		
+		defaultRunner = new ParlanceRunner(DEFAULT_PORT);
+		defaultRunner.start(map, numGames, moveTimeLimit, retreatTimeLimit, buildTimeLimit);
 		
-		//Create the configuration file in order to set the deadlines.
-		createConfigFile(moveTimeLimit, retreatTimeLimit, buildTimeLimit);
-
-		//Check if the parlance path exists.
-//		File parlanceFile = new File(PARLANCE_PATH);
-//		if( ! parlanceFile.exists()){
-//			System.out.println("Error! the given path to parlance does not exist: " + PARLANCE_PATH);
-//			System.out.println("Please adapt the class "+ ParlanceRunner.class.getName() + " with the correct path.");
-//			return;
-//		}
-		
-		//Run parlance-server
-		String[] cmd = {PARLANCE_PATH, "-g" + numGames, map};
-		parlanceProcess = ProcessRunner.exec(cmd, "parlance init-server.sh");
-
 		System.out.println("Working Directory = " +
 				System.getProperty("user.dir"));
 		
-    	//Note: an exception is thrown if parlance is started CORRECTLY.
-    	try {
-    		if(parlanceProcess == null){
-    			System.out.println("Parlance failed to start.");
-    		}else{
-    			System.out.println("ParlanceServer.runParlanceServer() parlance exit value: " + parlanceProcess.exitValue());
-    		}
+		//Note: an exception is thrown if parlance is started CORRECTLY.
+		try {
+			if(defaultRunner.process == null){
+				System.out.println("Parlance failed to start.");
+			}else{
+				System.out.println("ParlanceServer.runParlanceServer() parlance exit value: " + defaultRunner.process.exitValue());
+			}
 		} catch (IllegalThreadStateException e) {
 			System.out.println("ParlanceServer.runParlanceServer() PARLANCE SERVER STARTED");
 		}
-    	
-	    	
 	}
 	
 	
-	public static void stop(){
-		
-		File configFile = new File(CONFIG_FOLDER, CONFIG_FILE_NAME);
-		configFile.delete();
-
-		parlanceProcess.destroy();
+	public static synchronized void stop(){
 		
+		if(defaultRunner != null){
+			defaultRunner.stopServer();
+			defaultRunner = null;
+		}
 	}
 	
 	
-	private static void createConfigFile(int MTL, int RTL, int BTL){
-		
-		//Generates the  ~/.config/parlance.cfg   file
-		// which is necessary in order to change the deadlines.
-		// Note that this file cannot be created in any other folder or with any other name, 
-		// because this is where parlance expects to find it.
+	/**
+	 * Deletes a folder and everything in it.
+	 */
+	static void deleteFolder(File folder){
 		
+		File[] files = folder.listFiles();
+		if(files != null){
+			for(File file : files){
+				if(file.isDirectory()){
+					deleteFolder(file);
+				}else{
+					file.delete();
+				}
+			}
+		}
 		
-		//Create the folder.
-		File configFolder = new File(CONFIG_FOLDER);
-		configFolder.mkdirs();
+		if( ! folder.delete()){
+			System.out.println("ParlanceRunner.deleteFolder() Could not delete " + folder);
+		}
+	}
+	
+	
+	private static void createConfigFile(File configFolder, int MTL, int RTL, int BTL){
 		
-		//Create the file.
-		File configFile = new File(CONFIG_FOLDER, CONFIG_FILE_NAME);
+		//Generates the parlance.cfg file which is necessary in order to change the deadlines.
+		File configFile = new File(configFolder, CONFIG_FILE_NAME);
 		if(configFile.exists()){
 			configFile.delete();
 		}
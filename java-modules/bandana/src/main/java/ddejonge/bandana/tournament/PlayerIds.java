@@ -0,0 +1,47 @@
+package ddejonge.bandana.tournament;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Gives every player of a tournament a number, from 0 on, in the order in which the players are first seen. The
+ * scores of the players can then be kept in arrays indexed by these numbers instead of in maps keyed by their names.
+ */
+public class PlayerIds implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final HashMap<String, Integer> nameToId = new HashMap<String, Integer>();
+	private final ArrayList<String> names = new ArrayList<String>();
+
+	/**
+	 * Returns the number of the given player, and gives it the next free number if it has none yet.
+	 */
+	public synchronized int intern(String name){
+
+		Integer id = nameToId.get(name);
+		if(id == null){
+			id = names.size();
+			nameToId.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the number of the given player, or -1 if it has none.
+	 */
+	public synchronized int getId(String name){
+		Integer id = nameToId.get(name);
+		return id == null ? -1 : id;
+	}
+
+	public synchronized String getName(int id){
+		return names.get(id);
+	}
+
+	public synchronized int size(){
+		return names.size();
+	}
+}
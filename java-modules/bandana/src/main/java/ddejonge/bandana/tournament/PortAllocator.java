@@ -0,0 +1,69 @@
+package ddejonge.bandana.tournament;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hands out the ports of the servers that run at the same time in this JVM.
+ *
+ * A port is only given out if no other server of this JVM has reserved it and if it can be bound on this machine,
+ * so servers of other programs (or of a tournament that did not stop properly) are skipped as well.
+ * A port stays reserved until it is released, because a server may need some time before it binds its port.
+ */
+public class PortAllocator {
+
+	/**The highest port that can be used.*/
+	static final int MAX_PORT = 65535;
+
+	private static final Set<Integer> reservedPorts = new HashSet<Integer>();
+
+	/**
+	 * Reserves the first free port that is equal to or higher than the given port.
+	 *
+	 * @param firstPort The lowest port that may be returned.
+	 * @return The reserved port.
+	 */
+	public static synchronized int allocate(int firstPort){
+
+		for(int port = firstPort; port <= MAX_PORT; port++){
+
+			if( ! reservedPorts.contains(port) && isFree(port)){
+				reservedPorts.add(port);
+				return port;
+			}
+		}
+
+		throw new RuntimeException("PortAllocator.allocate() Error! No free port found above " + firstPort);
+	}
+
+	/**
+	 * Makes the given port available again, after the server that used it has stopped.
+	 */
+	public static synchronized void release(int port){
+		reservedPorts.remove(port);
+	}
+
+	/**
+	 * Returns true if a server could listen to the given port right now.
+	 */
+	static boolean isFree(int port){
+
+		ServerSocket serverSocket = null;
+		try {
+			serverSocket = new ServerSocket(port);
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if(serverSocket != null){
+				try {
+					serverSocket.close();
+				} catch (IOException e) {
+					//nothing to do.
+				}
+			}
+		}
+	}
+}
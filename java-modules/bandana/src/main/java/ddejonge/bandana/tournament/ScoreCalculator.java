@@ -1,13 +1,40 @@
 package ddejonge.bandana.tournament;
 
-import java.util.HashMap;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
 
-public abstract class ScoreCalculator {
+/**
+ * Subclasses must be serialisable, because the totals are saved in the checkpoints of a tournament (see TournamentCheckpoint).
+ * 
+ * Besides the total of each player, the calculator keeps the running mean and variance of its scores (with Welford's
+ * method, which does not lose precision over many games) and a random sample of at most SAMPLE_SIZE of its scores,
+ * from which confidence intervals are bootstrapped. Once a player has more scores than the sample holds, the interval
+ * of the sample is narrowed to the number of scores (see getConfidenceInterval()).
+ */
+public abstract class ScoreCalculator implements Serializable {
 
+	private static final long serialVersionUID = 1L;
+
+	/**The largest number of scores of a player that are kept for bootstrapping.*/
+	public static final int SAMPLE_SIZE = 1000;
+	
 	boolean higherIsBetter;
 	
-	private HashMap<String, Integer> names2numGamesPlayed = new HashMap<String, Integer>();
-	private HashMap<String, Double> names2totalScore = new HashMap<String, Double>();
+	/**The numbers of the players, which index the arrays below. Shared with the TournamentResult.*/
+	private PlayerIds playerIds = new PlayerIds();
+	
+	private int[] numGamesPlayed = new int[0];
+	private double[] totalScores = new double[0];
+	private double[] means = new double[0];
+	/**The sums of the squared differences from the mean (Welford).*/
+	private double[] squaredDeviations = new double[0];
+	private double[] minScores = new double[0];
+	private double[] maxScores = new double[0];
+	
+	/**A uniform sample of the scores of each player (reservoir sampling), or null if it has none.*/
+	private double[][] samples = new double[0][];
+	private final Random sampleRandom = new Random(0);
 	
 	/**
 	 * 
@@ -19,11 +46,24 @@ public abstract class ScoreCalculator {
 		this.higherIsBetter = higherIsBetter;
 	}
 	
+	/**
+	 * Makes this calculator number the players with the given PlayerIds, so that the TournamentResult and all its
+	 * calculators use the same numbers. Must be called before the first result is added.
+	 */
+	void setPlayerIds(PlayerIds playerIds){
+		
+		if(this.numGamesPlayed.length > 0){
+			throw new RuntimeException("ScoreCalculator.setPlayerIds() Error! " + getScoreSystemName() + " already has results.");
+		}
+		
+		this.playerIds = playerIds;
+	}
+	
 	/**
 	 * This method is called after every finished game. 
 	 * It will get the score for each player by calling calculateGameScore() and adds this score to that player's total.
-	 * 
-	 * 
+	 * Only the totals of the players of the game are updated, so the time this takes does not depend on the number of
+	 * games played before.
 	 * 
 	 * @param newResult
 	 */
@@ -31,65 +71,191 @@ public abstract class ScoreCalculator {
 		
 		for(String playerName : newResult.getNames()){
 			
-			increaseNumberOfGamesPlayed(playerName);
+			int playerId = getOrCreateId(playerName);
+			
+			numGamesPlayed[playerId]++;
 			
 			double score = calculateGameScore(newResult, playerName);
 			
-			addScoreToTotal(playerName, score);
+			addScoreToTotal(playerId, score);
 			
 		}
 	}
 	
-	protected void increaseNumberOfGamesPlayed(String playerName){
+	/**
+	 * Adds the totals of the given calculator, of the same class, to the totals of this one, as if this calculator had
+	 * been given the results of both. The players are matched by name, so the calculators may number them differently.
+	 * This lets several threads each score a part of the games (see TournamentRescorer).
+	 */
+	void merge(ScoreCalculator other){
+		
+		if(other.getClass() != this.getClass()){
+			throw new RuntimeException("ScoreCalculator.merge() Error! Cannot merge " + other.getScoreSystemName() + " into " + getScoreSystemName());
+		}
+		
+		int numberOfOtherPlayers = Math.min(other.numGamesPlayed.length, other.playerIds.size());
+		for(int otherId=0; otherId<numberOfOtherPlayers; otherId++){
+			
+			int n2 = other.numGamesPlayed[otherId];
+			if(n2 == 0){
+				continue;
+			}
+			
+			int playerId = getOrCreateId(other.playerIds.getName(otherId));
+			int n1 = numGamesPlayed[playerId];
+			int n = n1 + n2;
+			
+			//Combine the means and the squared deviations (Chan et al.).
+			double delta = other.means[otherId] - means[playerId];
+			means[playerId] += delta * n2 / n;
+			squaredDeviations[playerId] += other.squaredDeviations[otherId] + delta * delta * ((double) n1 * n2 / n);
+			
+			totalScores[playerId] += other.totalScores[otherId];
+			minScores[playerId] = Math.min(minScores[playerId], other.minScores[otherId]);
+			maxScores[playerId] = Math.max(maxScores[playerId], other.maxScores[otherId]);
+			
+			samples[playerId] = mergeSamples(samples[playerId], n1, other.samples[otherId], n2);
+			numGamesPlayed[playerId] = n;
+		}
+	}
+	
+	/**
+	 * Returns a uniform sample of the scores of both samples, in which each one is represented by its number of scores.
+	 */
+	private double[] mergeSamples(double[] sample1, int n1, double[] sample2, int n2){
 		
-		//get the old value from the table
-		Integer numGamesPlayed = getNumberOfGamesPlayed(playerName);
+		int size1 = Math.min(n1, SAMPLE_SIZE);
+		int size2 = Math.min(n2, SAMPLE_SIZE);
 		
-		//increment the value.
-		numGamesPlayed++;
+		if(n1 + n2 <= SAMPLE_SIZE){
+			double[] merged = new double[n1 + n2];
+			if(size1 > 0){
+				System.arraycopy(sample1, 0, merged, 0, size1);
+			}
+			System.arraycopy(sample2, 0, merged, size1, size2);
+			return merged;
+		}
+		
+		double[] shuffled1 = shuffle(sample1, size1);
+		double[] shuffled2 = shuffle(sample2, size2);
+		
+		double[] merged = new double[SAMPLE_SIZE];
+		int next1 = 0;
+		int next2 = 0;
+		for(int i=0; i<SAMPLE_SIZE; i++){
+			boolean fromFirst = next2 == size2 || (next1 < size1 && sampleRandom.nextDouble() * (n1 + n2) < n1);
+			merged[i] = fromFirst ? shuffled1[next1++] : shuffled2[next2++];
+		}
+		return merged;
+	}
+	
+	private double[] shuffle(double[] sample, int size){
 		
-		//store the new value in the table.
-		names2numGamesPlayed.put(playerName, numGamesPlayed);
+		double[] shuffled = new double[size];
+		for(int i=0; i<size; i++){
+			int j = sampleRandom.nextInt(i + 1);
+			shuffled[i] = shuffled[j];
+			shuffled[j] = sample[i];
+		}
+		return shuffled;
 	}
 	
-	private void addScoreToTotal(String playerName, double score){
+	private void addScoreToTotal(int playerId, double score){
 		
-		//get the old value from the table
-		Double totalScore = getTotalScore(playerName);
+		totalScores[playerId] += score;
+		minScores[playerId] = Math.min(minScores[playerId], score);
+		maxScores[playerId] = Math.max(maxScores[playerId], score);
 		
-		//increment the value.
-		totalScore += score;
+		//numGamesPlayed already counts this game.
+		int n = numGamesPlayed[playerId];
+		double delta = score - means[playerId];
+		means[playerId] += delta / n;
+		squaredDeviations[playerId] += delta * (score - means[playerId]);
 		
-		//store the new value in the table.
-		names2totalScore.put(playerName, totalScore);
+		addToSample(playerId, n, score);
 	}
 	
+	/**
+	 * Keeps the given score, the n-th of the player, with probability SAMPLE_SIZE / n, so that the sample stays uniform.
+	 */
+	private void addToSample(int playerId, int n, double score){
+		
+		double[] sample = samples[playerId];
+		
+		if(n <= SAMPLE_SIZE){
+			if(sample == null || sample.length < n){
+				sample = Arrays.copyOf(sample == null ? new double[0] : sample, Math.min(SAMPLE_SIZE, Math.max(16, 2 * n)));
+				samples[playerId] = sample;
+			}
+			sample[n - 1] = score;
+			
+		}else{
+			int index = sampleRandom.nextInt(n);
+			if(index < SAMPLE_SIZE){
+				sample[index] = score;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of the given player, and makes the arrays large enough to hold its totals.
+	 */
+	private int getOrCreateId(String playerName){
+		
+		int playerId = playerIds.intern(playerName);
+		
+		if(playerId >= numGamesPlayed.length){
+			
+			//double the length, so that growing the arrays takes constant time on average.
+			int length = Math.max(playerId + 1, 2 * numGamesPlayed.length);
+			int oldLength = numGamesPlayed.length;
+			
+			numGamesPlayed = Arrays.copyOf(numGamesPlayed, length);
+			totalScores = Arrays.copyOf(totalScores, length);
+			means = Arrays.copyOf(means, length);
+			squaredDeviations = Arrays.copyOf(squaredDeviations, length);
+			minScores = Arrays.copyOf(minScores, length);
+			maxScores = Arrays.copyOf(maxScores, length);
+			samples = Arrays.copyOf(samples, length);
+			
+			Arrays.fill(minScores, oldLength, length, Double.POSITIVE_INFINITY);
+			Arrays.fill(maxScores, oldLength, length, Double.NEGATIVE_INFINITY);
+		}
+		
+		return playerId;
+	}
+	
+	/**
+	 * Returns the number of the given player, or -1 if this calculator has no results of it.
+	 */
+	private int getId(String playerName){
+		int playerId = playerIds.getId(playerName);
+		return playerId < numGamesPlayed.length ? playerId : -1;
+	}
 	
-
 	
 	public int getNumberOfGamesPlayed(String playerName){
 		
-		Integer numGamesPlayed = names2numGamesPlayed.get(playerName);
-
-		//if it wasn't in the table then set it to 0
-		if(numGamesPlayed == null){
+		int playerId = getId(playerName);
+		
+		//if it isn't known yet then it played 0 games.
+		if(playerId == -1){
 			return 0;
 		}
 		
-		return numGamesPlayed;
+		return numGamesPlayed[playerId];
 	}
 	
 	public double getTotalScore(String playerName){
 		
-		//get the old value from the table
-		Double totalScore = names2totalScore.get(playerName);
+		int playerId = getId(playerName);
 		
-		//if it wasn't in the table then return 0.0
-		if(totalScore == null){
-			totalScore = 0.0;
+		//if it isn't known yet then return 0.0
+		if(playerId == -1){
+			return 0.0;
 		}
 		
-		return totalScore;
+		return totalScores[playerId];
 	}
 	
 	public double getAverageScore(String playerName){
@@ -104,6 +270,122 @@ public abstract class ScoreCalculator {
 		
 	}
 	
+	/**
+	 * Returns the lowest score of the given player in a single game, or 0 if it has no scores.
+	 */
+	public double getMinScore(String playerName){
+		int playerId = getId(playerName);
+		return playerId == -1 || minScores[playerId] == Double.POSITIVE_INFINITY ? 0.0 : minScores[playerId];
+	}
+	
+	/**
+	 * Returns the highest score of the given player in a single game, or 0 if it has no scores.
+	 */
+	public double getMaxScore(String playerName){
+		int playerId = getId(playerName);
+		return playerId == -1 || maxScores[playerId] == Double.NEGATIVE_INFINITY ? 0.0 : maxScores[playerId];
+	}
+	
+	/**
+	 * Returns the variance of the scores of the given player over the games it played.
+	 */
+	public double getVariance(String playerName){
+		
+		int numGamesPlayed = getNumberOfGamesPlayed(playerName);
+		if(numGamesPlayed == 0){
+			return 0;
+		}
+		
+		return squaredDeviations[getId(playerName)] / numGamesPlayed;
+	}
+	
+	/**
+	 * Returns the standard error of the average score of the given player, or infinity if it played less than 2 games.
+	 */
+	public double getStandardError(String playerName){
+		
+		int numGamesPlayed = getNumberOfGamesPlayed(playerName);
+		if(numGamesPlayed < 2){
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		double sampleVariance = squaredDeviations[getId(playerName)] / (numGamesPlayed - 1);
+		return Math.sqrt(sampleVariance / numGamesPlayed);
+	}
+	
+	/**
+	 * Returns a bootstrap (percentile) confidence interval of the average score of the given player, computed from the
+	 * sample of its scores, as {lower bound, upper bound}. Returns {0, 0} if the player has no scores. If the player has
+	 * more scores than the sample holds, the interval is rescaled to all of them (see the static getConfidenceInterval()).
+	 * 
+	 * @param confidence e.g. 0.95 for a 95% interval.
+	 * @param numberOfResamples The number of times the sample is resampled, e.g. 1000.
+	 */
+	public double[] getConfidenceInterval(String playerName, double confidence, int numberOfResamples, Random random){
+		return getConfidenceInterval(getSample(playerName), getNumberOfGamesPlayed(playerName), getAverageScore(playerName), confidence, numberOfResamples, random);
+	}
+	
+	/**
+	 * Returns a copy of the sample of the scores of the given player (see SAMPLE_SIZE), or an empty array if it has no
+	 * scores. The copy can be bootstrapped without holding any lock while new scores are added to this calculator.
+	 */
+	public double[] getSample(String playerName){
+		
+		int playerId = getId(playerName);
+		if(playerId == -1 || numGamesPlayed[playerId] == 0 || samples[playerId] == null){
+			return new double[0];
+		}
+		
+		return Arrays.copyOf(samples[playerId], Math.min(numGamesPlayed[playerId], SAMPLE_SIZE));
+	}
+	
+	/**
+	 * Returns a bootstrap (percentile) confidence interval of the average of the given sample, as {lower bound, upper
+	 * bound}, or {0, 0} if the sample is empty.
+	 * 
+	 * If the sample was drawn from more scores, the interval of the sample is as wide as if only the scores of the
+	 * sample had been played. It is then centred on the average of all the scores and narrowed by
+	 * sqrt(sample size / number of scores), as the standard error of an average shrinks with the square root of the
+	 * number of scores.
+	 * 
+	 * @param numberOfScores The number of scores the sample was drawn from.
+	 * @param average The average of all those scores.
+	 */
+	public static double[] getConfidenceInterval(double[] sample, int numberOfScores, double average, double confidence, int numberOfResamples, Random random){
+		
+		int sampleSize = sample.length;
+		if(sampleSize == 0){
+			return new double[]{0, 0};
+		}
+		
+		double[] averages = new double[numberOfResamples];
+		for(int r=0; r<numberOfResamples; r++){
+			double total = 0;
+			for(int i=0; i<sampleSize; i++){
+				total += sample[random.nextInt(sampleSize)];
+			}
+			averages[r] = total / sampleSize;
+		}
+		Arrays.sort(averages);
+		
+		double tail = (1 - confidence) / 2;
+		int lower = (int) Math.floor(tail * (numberOfResamples - 1));
+		int upper = (int) Math.ceil((1 - tail) * (numberOfResamples - 1));
+		
+		if(numberOfScores <= sampleSize){
+			return new double[]{averages[lower], averages[upper]};
+		}
+		
+		double sampleAverage = 0;
+		for(double score : sample){
+			sampleAverage += score;
+		}
+		sampleAverage /= sampleSize;
+		
+		double scale = Math.sqrt((double) sampleSize / numberOfScores);
+		return new double[]{average + (averages[lower] - sampleAverage) * scale, average + (averages[upper] - sampleAverage) * scale};
+	}
+	
 	/**
 	 * Calculates the score of the given player for the given game.
 	 * @param newResult
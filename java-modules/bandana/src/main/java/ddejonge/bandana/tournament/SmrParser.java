@@ -0,0 +1,318 @@
+package ddejonge.bandana.tournament;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads the SMR message that ends a DAIDE game:
+ *
+ *   SMR ( SPR 1910 ) ( AUS ( 'Bot 0' ) ( '1.0' ) 2 ) ( ENG ( 'Bot 1' ) ( '1.0' ) 0 1905 ) ...
+ *
+ * i.e. the turn, followed by the power, the name, the version and the number of supply centers of every player, and
+ * the year of elimination of the players that have none. The structure is checked token by token, so a message that
+ * does not have this form gives a RuntimeException that says where it went wrong, instead of a wrong result.
+ *
+ * The message can be read from the tokens the Observer receives (see parse()), or from text, e.g. a log with one SMR
+ * message per line (see next()). Text is read in place: only the names and versions of the players become Strings.
+ */
+public class SmrParser {
+
+	/**The names of the powers of the standard map, so that reading a power from text creates no String.*/
+	static final String[] KNOWN_POWERS = {"AUS", "ENG", "FRA", "GER", "ITA", "RUS", "TUR"};
+
+	//The message that is being read: either tokens or text.
+	private String[] tokens;
+	private CharSequence text;
+
+	/**The index of the next token, or the position of the next character of the text.*/
+	private int cursor;
+
+	/**The end of the text.*/
+	private int end;
+
+	//The lines that are read by next().
+	private final BufferedReader reader;
+
+	//The fields of the message that was read last. The arrays grow with the number of players.
+	private String[] powers = new String[7];
+	private String[] names = new String[7];
+	private int[] numSCs = new int[7];
+	private int[] yearOfElimination = new int[7];
+	private int numberOfPlayers;
+
+
+	/**
+	 * Creates a parser that reads the SMR messages from the given lines (see next()).
+	 */
+	public SmrParser(Reader reader){
+		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+	}
+
+	private SmrParser(String[] tokens){
+		this.reader = null;
+		this.tokens = tokens;
+		this.end = tokens.length;
+	}
+
+	/**
+	 * Reads the first numberOfPlayers players of the given SMR message into the given arrays.
+	 */
+	static void parse(String[] smrMessage, int numberOfPlayers, String[] powers, String[] names, int[] numSCs, int[] yearOfElimination){
+
+		SmrParser parser = new SmrParser(smrMessage);
+		parser.powers = powers;
+		parser.names = names;
+		parser.numSCs = numSCs;
+		parser.yearOfElimination = yearOfElimination;
+
+		parser.readMessage(numberOfPlayers);
+	}
+
+	/**
+	 * Returns the result of the next line that holds an SMR message, or null if there is none. Anything in front of
+	 * "SMR" on the line (e.g. a time stamp) is skipped, as are the lines without "SMR".
+	 */
+	public GameResult next() throws IOException{
+
+		String line;
+		while((line = reader.readLine()) != null){
+
+			int start = line.indexOf("SMR");
+			if(start == -1){
+				continue;
+			}
+
+			this.text = line;
+			this.cursor = start;
+			this.end = line.length();
+
+			readMessage(-1);
+
+			return new GameResult(Arrays.copyOf(powers, numberOfPlayers), Arrays.copyOf(names, numberOfPlayers),
+					Arrays.copyOf(numSCs, numberOfPlayers), Arrays.copyOf(yearOfElimination, numberOfPlayers));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a message.
+	 *
+	 * @param expectedNumberOfPlayers The number of players to read, or -1 to read every player in the message.
+	 */
+	private void readMessage(int expectedNumberOfPlayers){
+
+		expect("SMR");
+
+		//the turn, e.g. ( SPR 1910 )
+		expect("(");
+		readWord();
+		readInt();
+		expect(")");
+
+		numberOfPlayers = 0;
+		while(numberOfPlayers != expectedNumberOfPlayers && hasMoreTokens()){
+
+			if(numberOfPlayers == powers.length){
+				int length = 2 * powers.length;
+				powers = Arrays.copyOf(powers, length);
+				names = Arrays.copyOf(names, length);
+				numSCs = Arrays.copyOf(numSCs, length);
+				yearOfElimination = Arrays.copyOf(yearOfElimination, length);
+			}
+
+			readPlayer(numberOfPlayers);
+			numberOfPlayers++;
+		}
+
+		if(expectedNumberOfPlayers != -1 && numberOfPlayers < expectedNumberOfPlayers){
+			throw error("the message has " + numberOfPlayers + " players, but " + expectedNumberOfPlayers + " were expected");
+		}
+		if(numberOfPlayers == 0){
+			throw error("the message has no players");
+		}
+	}
+
+	/**
+	 * Reads e.g. ( AUS ( 'Bot 0' ) ( '1.0' ) 0 1905 )
+	 */
+	private void readPlayer(int player){
+
+		expect("(");
+		powers[player] = readWord();
+
+		expect("(");
+		names[player] = readWord();
+		expect(")");
+
+		//the version is not used.
+		expect("(");
+		readWord();
+		expect(")");
+
+		numSCs[player] = readInt();
+		yearOfElimination[player] = numSCs[player] == 0 ? readInt() : 0;
+
+		expect(")");
+	}
+
+
+	//The tokens. In text, a token is a parenthesis, a quoted string (with its quotes) or a word without spaces.
+
+	private boolean hasMoreTokens(){
+		if(tokens != null){
+			return cursor < end;
+		}
+		skipSpaces();
+		return cursor < end;
+	}
+
+	private void skipSpaces(){
+		while(cursor < end && Character.isWhitespace(text.charAt(cursor))){
+			cursor++;
+		}
+	}
+
+	/**
+	 * Returns the length of the token at the cursor of the text.
+	 */
+	private int tokenLength(){
+
+		skipSpaces();
+		if(cursor == end){
+			throw error("the message ends too early");
+		}
+
+		char first = text.charAt(cursor);
+		if(first == '(' || first == ')'){
+			return 1;
+		}
+
+		int position = cursor + 1;
+		if(first == '\''){
+			while(position < end && text.charAt(position) != '\''){
+				position++;
+			}
+			if(position == end){
+				throw error("a quote is not closed");
+			}
+			return position + 1 - cursor;
+		}
+
+		while(position < end && ! Character.isWhitespace(text.charAt(position)) && text.charAt(position) != '(' && text.charAt(position) != ')'){
+			position++;
+		}
+		return position - cursor;
+	}
+
+	private void expect(String expected){
+
+		if(tokens != null){
+			if(cursor == end || ! tokens[cursor].equals(expected)){
+				throw error("expected " + expected);
+			}
+			cursor++;
+			return;
+		}
+
+		int length = tokenLength();
+		if(length != expected.length() || ! regionMatches(expected)){
+			throw error("expected " + expected);
+		}
+		cursor += length;
+	}
+
+	private boolean regionMatches(String string){
+		for(int i=0; i<string.length(); i++){
+			if(text.charAt(cursor + i) != string.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a token that is not a parenthesis.
+	 */
+	private String readWord(){
+
+		if(tokens != null){
+			if(cursor == end || tokens[cursor].equals("(") || tokens[cursor].equals(")")){
+				throw error("expected a word");
+			}
+			return tokens[cursor++];
+		}
+
+		int length = tokenLength();
+		char first = text.charAt(cursor);
+		if(first == '(' || first == ')'){
+			throw error("expected a word");
+		}
+
+		String word = null;
+		for(String power : KNOWN_POWERS){
+			if(length == power.length() && regionMatches(power)){
+				word = power;
+				break;
+			}
+		}
+		if(word == null){
+			word = text.subSequence(cursor, cursor + length).toString();
+		}
+
+		cursor += length;
+		return word;
+	}
+
+	private int readInt(){
+
+		if(tokens != null){
+			if(cursor == end){
+				throw error("expected a number");
+			}
+			String token = tokens[cursor];
+			int value = parseInt(token, 0, token.length());
+			cursor++;
+			return value;
+		}
+
+		int length = tokenLength();
+		int value = parseInt(text, cursor, cursor + length);
+		cursor += length;
+		return value;
+	}
+
+	/**
+	 * Parses the non-negative number between the given positions.
+	 */
+	private int parseInt(CharSequence characters, int start, int end){
+
+		if(start == end){
+			throw error("expected a number");
+		}
+
+		int value = 0;
+		for(int i = start; i < end; i++){
+			char c = characters.charAt(i);
+			if(c < '0' || c > '9' || value > (Integer.MAX_VALUE - 9) / 10){
+				throw error("expected a number");
+			}
+			value = 10 * value + (c - '0');
+		}
+		return value;
+	}
+
+	private RuntimeException error(String problem){
+
+		String where;
+		if(tokens != null){
+			where = "token " + cursor + " of " + Arrays.toString(tokens);
+		}else{
+			where = "character " + cursor + " of " + text;
+		}
+
+		return new RuntimeException("SmrParser.readMessage() Error! Invalid SMR message: " + problem + " at " + where);
+	}
+}
@@ -5,6 +5,8 @@ import ddejonge.negoServer.Utils;
 
 public class SoloVictoryCalculator extends ScoreCalculator{
 
+	private static final long serialVersionUID = 1L;
+
 	public SoloVictoryCalculator() {
 		super(true);
 	}
@@ -4,6 +4,8 @@ import ddejonge.negoServer.Utils;
 
 public class SupplyCenterCalculator extends ScoreCalculator{
 
+	private static final long serialVersionUID = 1L;
+
 	
 	public SupplyCenterCalculator() {
 		super(true);
@@ -0,0 +1,199 @@
+package ddejonge.bandana.tournament;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import ddejonge.bandana.tools.Logger;
+
+/**
+ * Keeps the state of a tournament in its log folder, so that it can be resumed after a crash.
+ *
+ * The folder holds:
+ * - tournament-spec.json: the spec of the tournament.
+ * - tournament.checkpoint: the seed of the spec and the TournamentResult, i.e. the score totals and the numbers of the
+ *   games that were played. It is small, and it is written again at most every CHECKPOINT_INTERVAL_MILLIS.
+ * - gameResults.archive: every GameResult (see GameResultArchive), so that they do not have to be kept in memory.
+ * - gameResults.bin: the outcome of every game, in a compact form for analysis (see GameResultLog).
+ *
+ * A resumed tournament plays the games that are not in the checkpoint, so the games that ended after the last
+ * checkpoint are played again. Their results are cut off from the archive and the result log. The archive and the
+ * result log are forced to the disk before every checkpoint, so a checkpoint never points past their end.
+ */
+public class TournamentCheckpoint {
+
+	public static final String SPEC_FILE_NAME = "tournament-spec.json";
+	public static final String CHECKPOINT_FILE_NAME = "tournament.checkpoint";
+	public static final String ARCHIVE_FILE_NAME = "gameResults.archive";
+
+	/**The shortest time between two checkpoints.*/
+	static final long CHECKPOINT_INTERVAL_MILLIS = 10000;
+
+	final TournamentSpec spec;
+	final String tournamentLogFolderPath;
+	final TournamentResult tournamentResult;
+
+	private final File checkpointFile;
+	final GameResultArchive archive;
+	private long lastCheckpointTime = 0;
+
+
+	private TournamentCheckpoint(TournamentSpec spec, String tournamentLogFolderPath, TournamentResult tournamentResult, long archiveLength, long resultLogLength) throws IOException{
+
+		this.spec = spec;
+		this.tournamentLogFolderPath = tournamentLogFolderPath;
+		this.tournamentResult = tournamentResult;
+		this.checkpointFile = new File(tournamentLogFolderPath, CHECKPOINT_FILE_NAME);
+
+		this.archive = new GameResultArchive(new File(tournamentLogFolderPath, ARCHIVE_FILE_NAME), archiveLength);
+		this.tournamentResult.setArchive(archive);
+		
+		this.tournamentResult.setResultLog(new GameResultLog(new File(tournamentLogFolderPath, GameResultLog.FILE_NAME), resultLogLength));
+		
+		//A resumed tournament records the game that was interrupted again, under the same game number.
+		if(spec.isRecordTrajectories()){
+			this.tournamentResult.setTrajectoryLog(new TrajectoryLog(new File(tournamentLogFolderPath, TrajectoryLog.FOLDER_NAME)));
+		}
+	}
+
+	/**
+	 * Starts a new tournament, in a new folder (named after the current date) in the log folder of the spec.
+	 */
+	public static TournamentCheckpoint create(TournamentSpec spec) throws IOException{
+
+		String tournamentLogFolderPath = spec.getLogFolder() + File.separator + Logger.getDateString();
+		new File(tournamentLogFolderPath).mkdirs();
+
+		Files.write(new File(tournamentLogFolderPath, SPEC_FILE_NAME).toPath(), spec.toJson().getBytes(StandardCharsets.UTF_8));
+
+		TournamentResult tournamentResult = new TournamentResult(spec.getNumberOfParticipants(), TournamentRunner.createScoreCalculators(spec.getMap()));
+		return new TournamentCheckpoint(spec, tournamentLogFolderPath, tournamentResult, 0, 0);
+	}
+
+	/**
+	 * Resumes the tournament that was played in the given folder.
+	 */
+	public static TournamentCheckpoint resume(String tournamentLogFolderPath) throws IOException{
+
+		TournamentSpec spec = TournamentSpec.load(new File(tournamentLogFolderPath, SPEC_FILE_NAME).getPath());
+
+		File checkpointFile = new File(tournamentLogFolderPath, CHECKPOINT_FILE_NAME);
+		if( ! checkpointFile.exists()){
+			System.out.println("TournamentCheckpoint.resume() No checkpoint found in " + tournamentLogFolderPath + ". Starting from the first game.");
+			TournamentResult tournamentResult = new TournamentResult(spec.getNumberOfParticipants(), TournamentRunner.createScoreCalculators(spec.getMap()));
+			return new TournamentCheckpoint(spec, tournamentLogFolderPath, tournamentResult, 0, 0);
+		}
+
+		Long seed;
+		TournamentResult tournamentResult;
+		ObjectInputStream input = new ObjectInputStream(new FileInputStream(checkpointFile));
+		try {
+			seed = (Long) input.readObject();
+			tournamentResult = (TournamentResult) input.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			input.close();
+		}
+
+		if(seed == null ? spec.getSeed() != null : ! seed.equals(spec.getSeed())){
+			throw new RuntimeException("TournamentCheckpoint.resume() Error! The seed of the checkpoint (" + seed + ") is not the seed of the spec (" + spec.getSeed() + ")");
+		}
+
+		System.out.println("TournamentCheckpoint.resume() Resuming " + tournamentLogFolderPath + ": " + tournamentResult.getNumberOfGames()
+				+ " of " + spec.getNumberOfGames() + " games were played.");
+
+		return new TournamentCheckpoint(spec, tournamentLogFolderPath, tournamentResult, tournamentResult.getArchiveLength(), tournamentResult.getResultLogLength());
+	}
+
+	/**
+	 * Returns true if the result of the given game is in the checkpoint, so the game does not have to be played again.
+	 */
+	public boolean isPlayed(int gameNumber){
+		return tournamentResult.isPlayed(gameNumber);
+	}
+
+	/**
+	 * Returns the number of games of the spec that are not in the checkpoint, i.e. that are still to be played.
+	 */
+	public int getNumberOfGamesToPlay(){
+		int numberOfGamesToPlay = 0;
+		for(int gameNumber = 1; gameNumber <= spec.getNumberOfGames(); gameNumber++){
+			if( ! isPlayed(gameNumber)){
+				numberOfGamesToPlay++;
+			}
+		}
+		return numberOfGamesToPlay;
+	}
+
+	/**
+	 * Is called after every game. Writes a checkpoint if the last one is older than CHECKPOINT_INTERVAL_MILLIS.
+	 */
+	public synchronized void gameFinished(){
+		if(System.currentTimeMillis() - lastCheckpointTime >= CHECKPOINT_INTERVAL_MILLIS){
+			write();
+		}
+	}
+
+	/**
+	 * Writes the checkpoint to a temporary file, which then replaces the previous checkpoint, so that a crash while
+	 * writing never leaves a broken checkpoint behind.
+	 */
+	public synchronized void write(){
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream output = new ObjectOutputStream(bytes);
+			output.writeObject(spec.getSeed());
+			//The observers add their results while holding the lock of the tournament result.
+			synchronized (tournamentResult) {
+				output.writeObject(tournamentResult);
+			}
+			output.close();
+			final byte[] state = bytes.toByteArray();
+
+			//The checkpoint holds the lengths of the archive and the result log, which a resumed tournament cuts them
+			//off at, so everything up to those lengths must be on the disk before the checkpoint is.
+			archive.sync();
+			GameResultLog resultLog = tournamentResult.getResultLog();
+			if(resultLog != null){
+				resultLog.sync();
+			}
+
+			AtomicFile.write(checkpointFile, new AtomicFile.Content() {
+				@Override
+				public void writeTo(OutputStream stream) throws IOException {
+					stream.write(state);
+				}
+			});
+			lastCheckpointTime = System.currentTimeMillis();
+
+		} catch (IOException e) {
+			System.out.println("TournamentCheckpoint.write() Could not write the checkpoint " + checkpointFile);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a last checkpoint and closes the archive, the result log and the summary writer.
+	 */
+	public synchronized void close(){
+		write();
+		closeFiles();
+	}
+
+	/**
+	 * Closes the archive, the result log and the summary writer without writing a last checkpoint, as happens when the
+	 * tournament is killed.
+	 */
+	synchronized void closeFiles(){
+		archive.close();
+		tournamentResult.close();
+	}
+}
@@ -0,0 +1,239 @@
+package ddejonge.bandana.tournament;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+/**
+ * Hands out the games of a tournament to TournamentWorkers, which may run on other machines, and collects their results.
+ *
+ * Every game slot of a worker has its own connection to the coordinator. Over a connection, the coordinator first sends
+ * the tournament spec (as JSON) and then a game number. The slot plays that game and sends back its GameResult (or
+ * null if the game did not end properly), after which the coordinator sends the next game number. A game number of 0
+ * means that no game is left. The games are kept in a CheckpointedGameQueue: if a connection is lost while its game is
+ * being played, or if its result does not arrive within the longest time a game may take, the game is given to the
+ * next slot that asks for one. A game without a result is played again as well.
+ *
+ * The results are kept in a TournamentCheckpoint, in the same folder and format as those of TournamentRunner. If the
+ * coordinator is restarted with --resume, only the games that are not in the checkpoint are handed out.
+ *
+ * The coordinator only reads the classes of its protocol from a connection (see TournamentObjectInputStream), but
+ * anyone who can connect can still ask for games and send made-up results. It therefore listens on the loopback
+ * interface, unless the address of another interface is given.
+ *
+ * Usage: TournamentCoordinator [tournament spec] [port] [bind address]
+ *        TournamentCoordinator --resume [tournament log folder] [port] [bind address]
+ */
+public class TournamentCoordinator {
+
+	public static final int DEFAULT_PORT = 16700;
+
+	/**The time a worker is given on top of the longest time a game may take before its game is handed out again.*/
+	static final long RESULT_MARGIN_MILLIS = 60000;
+
+	final TournamentSpec spec;
+	final TournamentCheckpoint checkpoint;
+	final CheckpointedGameQueue gameQueue;
+	final TournamentResult tournamentResult;
+
+	/**The time to wait for the result of a game, or 0 to wait for ever.*/
+	int resultTimeoutMillis;
+
+	private ServerSocket serverSocket;
+
+
+	public static void main(String[] args) throws Exception {
+
+		if(args.length < 1 || (args[0].equals("--resume") && args.length < 2)){
+			System.out.println("Usage: TournamentCoordinator [tournament spec] [port] [bind address]");
+			System.out.println("       TournamentCoordinator --resume [tournament log folder] [port] [bind address]");
+			return;
+		}
+
+		int firstArg = args[0].equals("--resume") ? 2 : 1;
+		TournamentCheckpoint checkpoint = firstArg == 2 ? TournamentCheckpoint.resume(args[1]) : TournamentCheckpoint.create(TournamentSpec.load(args[0]));
+		int port = args.length > firstArg ? Integer.parseInt(args[firstArg]) : DEFAULT_PORT;
+		InetAddress bindAddress = args.length > firstArg + 1 ? InetAddress.getByName(args[firstArg + 1]) : InetAddress.getLoopbackAddress();
+
+		TournamentCoordinator coordinator = new TournamentCoordinator(checkpoint);
+		TournamentResult tournamentResult = coordinator.run(bindAddress, port);
+
+		System.out.println(tournamentResult);
+		if(checkpoint.spec.getResultsFile() != null){
+			TournamentRunner.writeResults(tournamentResult, checkpoint.spec.getResultsFile());
+		}
+	}
+
+	/**
+	 * @param checkpoint The checkpoint the results of the games are written to. The games it holds already are not played again.
+	 */
+	public TournamentCoordinator(TournamentCheckpoint checkpoint){
+
+		this.spec = checkpoint.spec;
+		this.checkpoint = checkpoint;
+		this.gameQueue = TournamentExecutor.createGameQueue(checkpoint);
+		this.tournamentResult = checkpoint.tournamentResult;
+
+		long gameTimeoutMillis = TournamentRunner.getGameTimeoutMillis(spec.getFinalYear(), spec.getMoveTimeLimit(), spec.getRetreatTimeLimit(), spec.getBuildTimeLimit());
+		if(gameTimeoutMillis == TournamentRunner.NO_TIMEOUT){
+			this.resultTimeoutMillis = 0;
+		}else{
+			this.resultTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, gameTimeoutMillis + RESULT_MARGIN_MILLIS);
+		}
+	}
+
+	/**
+	 * Accepts workers on the given port of the loopback interface until all the games of the tournament were played.
+	 */
+	public TournamentResult run(int port) throws IOException{
+		return run(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Accepts workers on the given port of the given interface until all the games of the tournament were played.
+	 *
+	 * @return The results of all the games, including the ones restored from the checkpoint.
+	 */
+	public TournamentResult run(InetAddress bindAddress, int port) throws IOException{
+
+		long startTime = System.currentTimeMillis();
+
+		serverSocket = new ServerSocket(port, 50, bindAddress);
+		System.out.println("TournamentCoordinator.run() Waiting for workers on " + serverSocket.getLocalSocketAddress()
+				+ ". " + gameQueue.getNumberOfFinishedGames() + " of " + spec.getNumberOfGames() + " games were already played.");
+
+		Thread acceptThread = new Thread("TournamentCoordinator"){
+			@Override
+			public void run() {
+				acceptWorkers();
+			}
+		};
+		acceptThread.start();
+
+		try {
+			gameQueue.awaitFinished();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stop();
+		}
+
+		System.out.println("TOURNAMENT FINISHED");
+		System.out.println("Tournament took: " + (System.currentTimeMillis() - startTime) + " milliseconds.");
+
+		return tournamentResult;
+	}
+
+	void acceptWorkers(){
+
+		while( ! serverSocket.isClosed()){
+
+			try {
+				final Socket socket = serverSocket.accept();
+
+				//Once the tournament is over, every connection gets a 0 and is closed, but the coordinator does not wait for that.
+				Thread workerThread = new Thread("worker " + socket.getRemoteSocketAddress()){
+					@Override
+					public void run() {
+						serveWorker(socket);
+					}
+				};
+				workerThread.setDaemon(true);
+				workerThread.start();
+
+			} catch (SocketException e) {
+				//the server socket was closed.
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Sends games to one slot of a worker until no game is left or the connection is lost.
+	 */
+	void serveWorker(Socket socket){
+
+		int gameNumber = 0;
+
+		try {
+			ObjectOutputStream output = new ObjectOutputStream(socket.getOutputStream());
+			output.flush();
+			ObjectInputStream input = new TournamentObjectInputStream(socket.getInputStream());
+
+			//A worker that hangs must not keep its game for ever.
+			socket.setSoTimeout(resultTimeoutMillis);
+
+			output.writeObject(spec.toJson());
+
+			while(true){
+
+				gameNumber = gameQueue.nextGameNumber(0);
+				output.writeObject(gameNumber);
+				output.flush();
+
+				if(gameNumber == 0){
+					break;
+				}
+
+				GameResult gameResult = (GameResult) input.readObject();
+
+				System.out.println("TournamentCoordinator.serveWorker() Game " + gameNumber + " was played by " + socket.getRemoteSocketAddress()
+						+ (gameResult == null ? ", but did not end properly." : "."));
+
+				if(gameResult != null){
+					tournamentResult.addResult(gameNumber, gameResult);
+				}
+
+				//The connections are not numbered, so they are all passed as slot 0.
+				gameQueue.gameFinished(0, gameNumber, gameResult);
+				checkpoint.gameFinished();
+				gameNumber = 0;
+
+				if(spec.isSettled(tournamentResult)){
+					System.out.println("TournamentCoordinator.serveWorker() The ranking is settled after " + tournamentResult.getNumberOfGames() + " games. No more games are handed out.");
+					gameQueue.stop();
+				}
+			}
+
+		} catch (EOFException | SocketException e) {
+			System.out.println("TournamentCoordinator.serveWorker() Lost the connection with " + socket.getRemoteSocketAddress());
+		} catch (SocketTimeoutException e) {
+			System.out.println("TournamentCoordinator.serveWorker() " + socket.getRemoteSocketAddress() + " did not send the result of game " + gameNumber
+					+ " within " + resultTimeoutMillis + " ms. The connection is closed.");
+		} catch (IOException | ClassNotFoundException e) {
+			e.printStackTrace();
+		} finally {
+
+			if(gameNumber != 0){
+				System.out.println("TournamentCoordinator.serveWorker() Game " + gameNumber + " is put back in the queue.");
+				gameQueue.requeue(gameNumber);
+			}
+
+			try {
+				socket.close();
+			} catch (IOException e) {
+				//nothing to do.
+			}
+		}
+	}
+
+	public void stop(){
+
+		try {
+			if(serverSocket != null){
+				serverSocket.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		checkpoint.close();
+	}
+}
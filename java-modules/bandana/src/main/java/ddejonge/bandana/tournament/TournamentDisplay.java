@@ -0,0 +1,28 @@
+package ddejonge.bandana.tournament;
+
+import es.csic.iiia.fabregues.dip.board.Game;
+
+/**
+ * Shows the progress of the games of a TournamentObserver, e.g. in the DiplomacyMonitor window (see
+ * DiplomacyMonitorDisplay).
+ *
+ * The observer only knows this interface, so a headless tournament never loads the Swing (and AWT) classes of the
+ * DiplomacyMonitor.
+ */
+public interface TournamentDisplay {
+
+	void setStatus(String status);
+
+	void notifyNewGame();
+
+	/**
+	 * Shows the phase and the supply centers of the given game.
+	 */
+	void showGame(Game game, int gameNumber, int numGames, String status);
+
+	void setTournamentResult(TournamentResult tournamentResult);
+
+	void setAgentName(String powerName, String agentName);
+
+	void dispose();
+}
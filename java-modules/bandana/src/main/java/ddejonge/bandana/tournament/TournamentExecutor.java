@@ -0,0 +1,209 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ddejonge.bandana.tools.Logger;
+
+/**
+ * Plays the games of a tournament on several GameSlots at the same time.
+ *
+ * Each slot has its own Parlance server (with its own config folder) and TournamentObserver, and every game has its
+ * own negotiation session (see NegoServerRunner). A slot takes the next game of the tournament from the GameQueue as soon
+ * as its previous game is over. All the observers add their results to the same TournamentResult, so the results of the
+ * tournament are the same as if the games were played one at a time.
+ *
+ * By default all the games of the spec are played, unless the stop rule of the spec ends the tournament early. An executor created from a TournamentCheckpoint skips the games
+ * that were already played, and updates the checkpoint after every game. A TournamentWorker gives the executor a queue
+ * that gets its games from a TournamentCoordinator instead.
+ */
+public class TournamentExecutor {
+
+	/**The lowest ports of the servers. Every slot, and every negotiation session, gets the first free port from these on (see PortAllocator).*/
+	public static final int BASE_GAME_SERVER_PORT = ParlanceRunner.DEFAULT_PORT;
+	public static final int BASE_NEGO_SERVER_PORT = NegoServerRunner.DEFAULT_SERVER_PORT;
+
+	/**The settings of the tournament, which also give the agent and the command of every seat.*/
+	final TournamentSpec spec;
+
+	final int numberOfSlots;
+	final boolean negotiation;
+	final String map;
+	final int numberOfParticipants;
+	final int numberOfGames;
+
+	/**The number of games that are still to be played: those of the spec, minus those that are in the checkpoint.*/
+	final int numberOfGamesToPlay;
+	final int moveTimeLimit;
+	final int retreatTimeLimit;
+	final int buildTimeLimit;
+	final int finalYear;
+
+	final String tournamentLogFolderPath;
+	final ArrayList<ScoreCalculator> scoreCalculators;
+	final TournamentResult tournamentResult;
+
+	/**Hands out the games to the slots.*/
+	final GameQueue gameQueue;
+
+	/**The lowest port of the game servers of the slots.*/
+	final int firstGameServerPort;
+
+	/**Is told when a game is over. May be null.*/
+	final TournamentCheckpoint checkpoint;
+
+	private final List<GameSlot> slots = new ArrayList<GameSlot>();
+
+	/**Hosts a negotiation session for every game that is being played.*/
+	final NegoServerRunner negoServerRunner;
+	private ExecutorService executorService;
+
+
+	public TournamentExecutor(TournamentSpec spec, ArrayList<ScoreCalculator> scoreCalculators) throws IOException{
+		this(spec, scoreCalculators, new CheckpointedGameQueue(spec.getNumberOfGames()), BASE_GAME_SERVER_PORT, BASE_NEGO_SERVER_PORT);
+	}
+
+	/**
+	 * Plays the games of the given checkpoint that were not played yet, in the folder of the checkpoint.
+	 */
+	public TournamentExecutor(TournamentCheckpoint checkpoint) throws IOException{
+		this(checkpoint.spec, checkpoint.tournamentLogFolderPath, checkpoint.tournamentResult,
+				createGameQueue(checkpoint), BASE_GAME_SERVER_PORT, BASE_NEGO_SERVER_PORT, checkpoint);
+	}
+
+	/**
+	 * @param gameQueue Hands out the games to play.
+	 * @param firstGameServerPort The lowest port of the game servers. Executors that run on the same machine at the
+	 * same time should be given different ranges of ports, because the PortAllocator only knows the ports of its own JVM.
+	 * @param firstNegoServerPort The lowest port of the negotiation servers.
+	 */
+	public TournamentExecutor(TournamentSpec spec, ArrayList<ScoreCalculator> scoreCalculators, GameQueue gameQueue, int firstGameServerPort, int firstNegoServerPort){
+		this(spec, spec.getLogFolder() + File.separator + Logger.getDateString(), new TournamentResult(spec.getNumberOfParticipants(), scoreCalculators),
+				gameQueue, firstGameServerPort, firstNegoServerPort, null);
+	}
+
+	private TournamentExecutor(TournamentSpec spec, String tournamentLogFolderPath, TournamentResult tournamentResult, GameQueue gameQueue,
+			int firstGameServerPort, int firstNegoServerPort, TournamentCheckpoint checkpoint){
+
+		this.spec = spec;
+		this.checkpoint = checkpoint;
+		this.gameQueue = gameQueue;
+		this.firstGameServerPort = firstGameServerPort;
+		this.negoServerRunner = new NegoServerRunner(firstNegoServerPort);
+		this.numberOfSlots = spec.getSlots();
+		this.negotiation = spec.isNegotiation();
+		this.map = spec.getMap();
+		this.numberOfParticipants = spec.getNumberOfParticipants();
+		this.numberOfGames = spec.getNumberOfGames();
+		this.numberOfGamesToPlay = checkpoint != null ? checkpoint.getNumberOfGamesToPlay() : spec.getNumberOfGames();
+		this.moveTimeLimit = spec.getMoveTimeLimit();
+		this.retreatTimeLimit = spec.getRetreatTimeLimit();
+		this.buildTimeLimit = spec.getBuildTimeLimit();
+		this.finalYear = spec.getFinalYear();
+		this.tournamentResult = tournamentResult;
+		this.scoreCalculators = tournamentResult.scoreCalculators;
+
+		//Create a folder to store all the results of the tournament.
+		this.tournamentLogFolderPath = tournamentLogFolderPath;
+		new File(this.tournamentLogFolderPath).mkdirs();
+	}
+
+	/**
+	 * Creates a queue with the games of the given checkpoint that were not played yet.
+	 */
+	static CheckpointedGameQueue createGameQueue(TournamentCheckpoint checkpoint){
+
+		CheckpointedGameQueue gameQueue = new CheckpointedGameQueue(checkpoint.spec.getNumberOfGames());
+		for(int gameNumber = 1; gameNumber <= checkpoint.spec.getNumberOfGames(); gameNumber++){
+			if(checkpoint.isPlayed(gameNumber)){
+				gameQueue.skip(gameNumber);
+			}
+		}
+		return gameQueue;
+	}
+
+	/**
+	 * Is called by a slot when it has played a game.
+	 */
+	void gameFinished(int slotNumber, int gameNumber, GameResult gameResult){
+
+		gameQueue.gameFinished(slotNumber, gameNumber, gameResult);
+
+		if(checkpoint != null){
+			checkpoint.gameFinished();
+		}
+
+		//A worker's queue is stopped by its coordinator instead.
+		if(gameQueue instanceof CheckpointedGameQueue && spec.isSettled(tournamentResult)){
+			System.out.println("TournamentExecutor.gameFinished() The ranking is settled after " + tournamentResult.getNumberOfGames() + " games. No more games are started.");
+			((CheckpointedGameQueue) gameQueue).stop();
+		}
+	}
+
+	/**
+	 * Plays all the games of the tournament and returns when they are over.
+	 *
+	 * @return The results of all the games.
+	 * @throws IOException
+	 */
+	public TournamentResult run() throws IOException{
+
+		long startTime = System.currentTimeMillis();
+
+		try {
+
+			for(int i=0; i<numberOfSlots; i++){
+				GameSlot slot = new GameSlot(this, i, PortAllocator.allocate(firstGameServerPort));
+				slots.add(slot);
+				slot.start();
+			}
+
+			executorService = Executors.newFixedThreadPool(numberOfSlots);
+			for(GameSlot slot : slots){
+				executorService.submit(slot);
+			}
+
+			executorService.shutdown();
+			while( ! executorService.awaitTermination(1, TimeUnit.MINUTES)){
+				//keep waiting until every game was played.
+			}
+
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			stop();
+		}
+
+		System.out.println("TOURNAMENT FINISHED");
+		System.out.println("Tournament took: " + (System.currentTimeMillis() - startTime) + " milliseconds.");
+
+		return this.tournamentResult;
+	}
+
+	public synchronized void stop(){
+
+		if(executorService != null){
+			executorService.shutdownNow();
+		}
+
+		for(GameSlot slot : slots){
+			slot.stop();
+		}
+		slots.clear();
+
+		negoServerRunner.stopServer();
+
+		if(checkpoint != null){
+			checkpoint.close();
+		}
+	}
+
+	public TournamentResult getTournamentResult(){
+		return this.tournamentResult;
+	}
+}
@@ -0,0 +1,255 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts the games and phases of a headless tournament, and the supply centers and CCDs of each agent. It replaces the
+ * DiplomacyMonitor when the games are played without a window (see TournamentObserver).
+ *
+ * The metrics can be read over JMX (see TournamentMetricsMXBean), and are written to tournamentMetrics.log every
+ * DUMP_INTERVAL_MILLIS once start() was called. The observers of all the games of a tournament share the metrics of its
+ * TournamentResult.
+ */
+public class TournamentMetrics implements TournamentMetricsMXBean {
+
+	public static final String FILE_NAME = "tournamentMetrics.log";
+
+	/**The time between two dumps of the metrics.*/
+	static final long DUMP_INTERVAL_MILLIS = 10000;
+
+	private final long startTimeMillis;
+
+	private final AtomicLong phasesPlayed = new AtomicLong();
+	private int gamesPlayed = 0;
+
+	/**The number of games, the total number of supply centers and the number of CCDs of each agent.*/
+	private final HashMap<String, int[]> agentStatistics = new HashMap<String, int[]>();
+	private static final int GAMES = 0;
+	private static final int SUPPLY_CENTERS = 1;
+	private static final int CCDS = 2;
+
+	private ScheduledExecutorService dumpExecutor;
+	private File dumpFile;
+	private ObjectName objectName;
+
+
+	public TournamentMetrics(){
+		this(System.currentTimeMillis());
+	}
+
+	TournamentMetrics(long startTimeMillis){
+		this.startTimeMillis = startTimeMillis;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server and dumps them to the given file every dumpIntervalMillis.
+	 *
+	 * @param name Tells the metrics of this tournament apart from those of other tournaments in the same JVM.
+	 */
+	public synchronized void start(String name, File dumpFile, long dumpIntervalMillis){
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("ddejonge.bandana.tournament:type=TournamentMetrics,name=" + ObjectName.quote(name));
+			if(server.isRegistered(objectName)){
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException e) {
+			System.out.println("TournamentMetrics.start() Could not register the metrics with JMX.");
+			e.printStackTrace();
+		}
+
+		this.dumpFile = dumpFile;
+		this.dumpExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "TournamentMetrics");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.dumpExecutor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				dump();
+			}
+		}, dumpIntervalMillis, dumpIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Is called at the end of every phase of every game. Does not lock.
+	 */
+	public void phaseEnded(){
+		phasesPlayed.incrementAndGet();
+	}
+
+	/**
+	 * Is called when a game is over.
+	 *
+	 * @param ccdPowers The powers that did not submit their orders in time during the game.
+	 */
+	public synchronized void gameEnded(GameResult gameResult, List<String> ccdPowers){
+
+		gamesPlayed++;
+
+		for(String name : gameResult.getNames()){
+			int[] statistics = getAgentStatistics(name);
+			statistics[GAMES]++;
+			statistics[SUPPLY_CENTERS] += gameResult.getNumSupplyCenters(name);
+		}
+
+		for(String power : ccdPowers){
+			String name = gameResult.getPlayerNameByPower(power);
+			if(name != null){
+				getAgentStatistics(name)[CCDS]++;
+			}
+		}
+	}
+
+	private int[] getAgentStatistics(String name){
+		int[] statistics = agentStatistics.get(name);
+		if(statistics == null){
+			statistics = new int[3];
+			agentStatistics.put(name, statistics);
+		}
+		return statistics;
+	}
+
+	@Override
+	public synchronized int getGamesPlayed() {
+		return gamesPlayed;
+	}
+
+	@Override
+	public long getPhasesPlayed() {
+		return phasesPlayed.get();
+	}
+
+	@Override
+	public double getGamesPerHour() {
+		return getGamesPerHour(System.currentTimeMillis());
+	}
+
+	synchronized double getGamesPerHour(long currentTimeMillis){
+		return gamesPlayed * 3600000.0 / getElapsedMillis(currentTimeMillis);
+	}
+
+	@Override
+	public double getPhasesPerSecond() {
+		return getPhasesPerSecond(System.currentTimeMillis());
+	}
+
+	double getPhasesPerSecond(long currentTimeMillis){
+		return phasesPlayed.get() * 1000.0 / getElapsedMillis(currentTimeMillis);
+	}
+
+	private long getElapsedMillis(long currentTimeMillis){
+		return Math.max(1, currentTimeMillis - startTimeMillis);
+	}
+
+	@Override
+	public synchronized Map<String, Double> getAverageSupplyCenters() {
+		TreeMap<String, Double> averages = new TreeMap<String, Double>();
+		for(Map.Entry<String, int[]> entry : agentStatistics.entrySet()){
+			int[] statistics = entry.getValue();
+			averages.put(entry.getKey(), statistics[SUPPLY_CENTERS] / (double) statistics[GAMES]);
+		}
+		return averages;
+	}
+
+	@Override
+	public synchronized Map<String, Integer> getCCDCounts() {
+		TreeMap<String, Integer> ccdCounts = new TreeMap<String, Integer>();
+		for(Map.Entry<String, int[]> entry : agentStatistics.entrySet()){
+			ccdCounts.put(entry.getKey(), entry.getValue()[CCDS]);
+		}
+		return ccdCounts;
+	}
+
+	/**
+	 * Writes the metrics to the dump file, through a temporary file so that a reader never sees half of them (see AtomicFile).
+	 */
+	void dump(){
+
+		try {
+			AtomicFile.write(dumpFile, toString());
+		} catch (IOException e) {
+			System.out.println("TournamentMetrics.dump() Could not write the metrics " + dumpFile);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops the dumps, dumps the metrics one last time, and unregisters them from JMX.
+	 */
+	public void close(){
+
+		ScheduledExecutorService dumpExecutor;
+		ObjectName objectName;
+		synchronized (this) {
+			dumpExecutor = this.dumpExecutor;
+			objectName = this.objectName;
+			this.dumpExecutor = null;
+			this.objectName = null;
+		}
+
+		if(dumpExecutor != null){
+			dumpExecutor.shutdownNow();
+			try {
+				dumpExecutor.awaitTermination(DUMP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			dump();
+		}
+
+		if(objectName != null){
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public String toString(){
+
+		long currentTimeMillis = System.currentTimeMillis();
+
+		StringBuilder builder = new StringBuilder();
+		builder.append("Games played: ").append(getGamesPlayed()).append('\n');
+		builder.append("Games per hour: ").append(String.format("%.2f", getGamesPerHour(currentTimeMillis))).append('\n');
+		builder.append("Phases played: ").append(getPhasesPlayed()).append('\n');
+		builder.append("Phases per second: ").append(String.format("%.2f", getPhasesPerSecond(currentTimeMillis))).append('\n');
+		builder.append('\n');
+
+		Map<String, Double> averageSupplyCenters = getAverageSupplyCenters();
+		Map<String, Integer> ccdCounts = getCCDCounts();
+		builder.append("Agent\tAverage SCs\tCCDs\n");
+		for(String name : averageSupplyCenters.keySet()){
+			builder.append(name).append('\t').append(String.format("%.2f", averageSupplyCenters.get(name))).append('\t').append(ccdCounts.get(name)).append('\n');
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,27 @@
+package ddejonge.bandana.tournament;
+
+import java.util.Map;
+
+/**
+ * The attributes of the TournamentMetrics that can be read over JMX, e.g. with jconsole.
+ */
+public interface TournamentMetricsMXBean {
+
+	int getGamesPlayed();
+
+	long getPhasesPlayed();
+
+	double getGamesPerHour();
+
+	double getPhasesPerSecond();
+
+	/**
+	 * Returns the average number of supply centers each agent had at the end of its games.
+	 */
+	Map<String, Double> getAverageSupplyCenters();
+
+	/**
+	 * Returns the number of times each agent did not submit its orders in time.
+	 */
+	Map<String, Integer> getCCDCounts();
+}
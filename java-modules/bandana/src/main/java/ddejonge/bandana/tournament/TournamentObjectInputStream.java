@@ -0,0 +1,67 @@
+package ddejonge.bandana.tournament;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the objects sent between a TournamentCoordinator and its TournamentWorkers: the spec (as a JSON string), the
+ * game numbers and the GameResults. Any other class is refused before an object of it is created, so that whoever
+ * can reach the port of the coordinator cannot make it run the code of other serialisable classes on its classpath.
+ */
+class TournamentObjectInputStream extends ObjectInputStream {
+
+	/**The classes that may be read, apart from arrays of them and arrays of primitives.*/
+	static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(
+			String.class.getName(),
+			Integer.class.getName(),
+			Number.class.getName(),
+			Enum.class.getName(),
+			GameResult.class.getName(),
+			GameResult.PlayerResult.class.getName()));
+
+	TournamentObjectInputStream(InputStream input) throws IOException{
+		super(input);
+	}
+
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+
+		if( ! isAllowed(description.getName())){
+			throw new InvalidClassException(description.getName(), "is not sent between a coordinator and its workers");
+		}
+
+		return super.resolveClass(description);
+	}
+
+	@Override
+	protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+		throw new InvalidClassException("proxy", "is not sent between a coordinator and its workers");
+	}
+
+	/**
+	 * Returns true for the allowed classes, arrays of them and arrays of primitives, e.g. "[I" or "[Ljava.lang.String;".
+	 */
+	static boolean isAllowed(String className){
+
+		String elementClassName = className;
+		while(elementClassName.startsWith("[")){
+			elementClassName = elementClassName.substring(1);
+		}
+
+		if(elementClassName.length() == 1 && className.length() > 1){
+			return true; //an array of primitives.
+		}
+
+		if(elementClassName.startsWith("L") && elementClassName.endsWith(";") && className.startsWith("[")){
+			elementClassName = elementClassName.substring(1, elementClassName.length() - 1);
+		}
+
+		return ALLOWED_CLASSES.contains(elementClassName);
+	}
+}
@@ -4,11 +4,14 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import ddejonge.bandana.tools.DiplomacyMonitor;
-import ddejonge.bandana.tools.FileIO;
 import es.csic.iiia.fabregues.dip.Observer;
-import es.csic.iiia.fabregues.dip.board.Power;
 import es.csic.iiia.fabregues.dip.comm.CommException;
 import es.csic.iiia.fabregues.dip.comm.IComm;
 import es.csic.iiia.fabregues.dip.comm.daide.DaideComm;
@@ -22,6 +25,9 @@ public class TournamentObserver extends Observer implements Runnable{
 	public static final int GAME_ENDED_WITH_SOLO = 3;
 	public static final int GAME_ENDED_IN_DRAW = 4;
 	
+	/**The port of the game server, if none is given.*/
+	public static final int DEFAULT_GAME_SERVER_PORT = 16713;
+	
 	
 	IComm comm;
 	
@@ -31,16 +37,21 @@ public class TournamentObserver extends Observer implements Runnable{
 	/**Determines how to sort players.*/
 	ArrayList<ScoreCalculator> scoreCalculators = new ArrayList<ScoreCalculator>();
 	
-	/**The file that logs the outcome of each game.*/
-	File gameResultsFile; 
 	
-	/**The file that logs for each player a summary of its results of the entire tournament.*/
-	File tournamentResultsFile; 
+	/**
+	 * Displays the progress of the game, e.g. in the DiplomacyMonitor window. Is null if the observer is windowless.
+	 */
+	TournamentDisplay display;
+	
+	/**
+	 * Counts the games, phases and CCDs if the observer is windowless. Is shared with the other observers of the tournament.
+	 */
+	TournamentMetrics metrics;
 	
 	/**
-	 * The window that displays the progress of the game.
+	 * Records every phase of the games in the trajectory log of the tournament. Is null if the tournament has none.
 	 */
-	DiplomacyMonitor diplomacyMonitor;
+	TrajectoryRecorder trajectoryRecorder;
 	
 	
 	/**The number of games in this tournament.*/
@@ -53,9 +64,21 @@ public class TournamentObserver extends Observer implements Runnable{
 	/**Is set to true if the current game gets interrupted because one of the players did not send in his/her orders in time.*/
 	private boolean ccd;
 	
+	/**The powers that did not send in their orders in time during the current game.*/
+	private final List<String> ccdPowers = new CopyOnWriteArrayList<String>();
+	
+	/**Is completed with the result of the current game when it ends, or with null if the observer could not connect.*/
+	private volatile CompletableFuture<GameResult> gameCompletion = CompletableFuture.completedFuture(null);
+	
 	int gameStatus;
 	int gameNumber = 0;
 	
+	/**The number to give to the next game, or 0 to simply count the games played by this observer.*/
+	int nextGameNumber = 0;
+	
+	/**The port of the game server this observer connects to.*/
+	int gameServerPort = DEFAULT_GAME_SERVER_PORT;
+	
 	// JC: Added Windowless variable to be able to run in headless server
 	boolean windowless = false;
 
@@ -64,6 +87,24 @@ public class TournamentObserver extends Observer implements Runnable{
 	}
 
 	public TournamentObserver(String tournamentLogFolderPath, ArrayList<ScoreCalculator> scoreCalculators, int numGames, int numParticipants, boolean windowless) throws IOException {
+		this(tournamentLogFolderPath, scoreCalculators, new TournamentResult(numParticipants, scoreCalculators), numGames, numParticipants, DEFAULT_GAME_SERVER_PORT, windowless);
+	}
+	
+	/**
+	 * Creates an observer that adds the results of its games to the given TournamentResult.
+	 * Several observers, each connected to its own game server, can share the same TournamentResult and log files.
+	 * 
+	 * @param tournamentLogFolderPath The folder where the results are logged.
+	 * @param scoreCalculators Determines how to sort players.
+	 * @param tournamentResult The object that stores the results of the tournament.
+	 * @param numGames The number of games in the tournament.
+	 * @param numParticipants The number of participants in each game.
+	 * @param gameServerPort The port of the game server to observe.
+	 * @param windowless If true, no DiplomacyMonitor is displayed (and no AWT class is loaded). The progress of the
+	 *  tournament is then kept in TournamentMetrics instead.
+	 * @throws IOException
+	 */
+	public TournamentObserver(String tournamentLogFolderPath, ArrayList<ScoreCalculator> scoreCalculators, TournamentResult tournamentResult, int numGames, int numParticipants, int gameServerPort, boolean windowless) throws IOException {
 		super(tournamentLogFolderPath);
 		
 		if(numGames <=0){
@@ -77,23 +118,45 @@ public class TournamentObserver extends Observer implements Runnable{
 		this.scoreCalculators = new ArrayList<ScoreCalculator>(scoreCalculators);
 		
 		this.name = "TournamentObserver";
-		this.gameResultsFile = new File(tournamentLogFolderPath, "gameResults.log");
-		this.gameResultsFile.createNewFile();
-		
-		this.tournamentResultsFile = new File(tournamentLogFolderPath, "tournamentResults.log");
-		this.tournamentResultsFile.createNewFile();
-		
 		this.numGames = numGames;
 		this.numParticipants = numParticipants;
 		
-		this.tournamentResult = new TournamentResult(numParticipants, scoreCalculators);
+		this.tournamentResult = tournamentResult;
+		this.gameServerPort = gameServerPort;
+		
+		//The outcome of each game is logged in gameResults.bin (see GameResultLog), unless the TournamentCheckpoint already does so.
+		synchronized (tournamentResult) {
+			if(tournamentResult.getResultLog() == null){
+				tournamentResult.setResultLog(new GameResultLog(new File(tournamentLogFolderPath, GameResultLog.FILE_NAME)));
+			}
+			
+			//The summary of each player's results, in tournamentResults.log, is written in the background.
+			if(tournamentResult.getSummaryWriter() == null){
+				tournamentResult.setSummaryWriter(new TournamentSummaryWriter(new File(tournamentLogFolderPath, TournamentSummaryWriter.FILE_NAME), tournamentResult));
+			}
+		}
 
 		this.windowless = windowless;
 		if(!this.windowless) {
-			this.diplomacyMonitor = new DiplomacyMonitor("TournamentObserver", numParticipants, scoreCalculators);
+			this.display = new DiplomacyMonitorDisplay("TournamentObserver", numParticipants, scoreCalculators);
 		}
 		else {
-			this.diplomacyMonitor = null;
+			this.display = null;
+			
+			synchronized (tournamentResult) {
+				if(tournamentResult.getMetrics() == null){
+					TournamentMetrics metrics = new TournamentMetrics();
+					metrics.start(tournamentLogFolderPath, new File(tournamentLogFolderPath, TournamentMetrics.FILE_NAME), TournamentMetrics.DUMP_INTERVAL_MILLIS);
+					tournamentResult.setMetrics(metrics);
+				}
+				this.metrics = tournamentResult.getMetrics();
+			}
+		}
+		
+		//The recorder is fed by this observer, rather than connecting to the game server itself.
+		TrajectoryLog trajectoryLog = tournamentResult.getTrajectoryLog();
+		if(trajectoryLog != null){
+			this.trajectoryRecorder = new TrajectoryRecorder(tournamentLogFolderPath, trajectoryLog);
 		}
 	}
 	
@@ -106,13 +169,24 @@ public class TournamentObserver extends Observer implements Runnable{
 	
 	
 	public void connectToServer(){
+		connectToServer(null);
+	}
+	
+	/**
+	 * Connects to the game server through the given connection, e.g. a LocalComm of a LocalGameServer.
+	 * 
+	 * @param gameServerComm The connection to use, or null to connect to the DAIDE server on the gameServerPort.
+	 */
+	public void connectToServer(IComm gameServerComm){
 		
 		this.gameStatus = CONNECTED_WAITING_TO_START;
 		this.game = null;
 		this.ccd = false;
+		this.ccdPowers.clear();
+		this.gameCompletion = new CompletableFuture<GameResult>();
 
-		if(this.diplomacyMonitor != null) {
-			diplomacyMonitor.setStatus("making connection.");
+		if(this.display != null) {
+			display.setStatus("making connection.");
 		}
 
 		//Create the connection with the game server
@@ -123,21 +197,27 @@ public class TournamentObserver extends Observer implements Runnable{
 				comm.stop(); //close the previous connection, if any.
 			}
 			
-			dipServerIp = InetAddress.getByName("localhost");
-			comm = new DaideComm(dipServerIp, 16713, this.name);
+			if(gameServerComm == null){
+				dipServerIp = InetAddress.getByName("localhost");
+				gameServerComm = new DaideComm(dipServerIp, this.gameServerPort, this.name);
+			}
+			comm = gameServerComm;
 			this.start(comm);
 			
 			
 		} catch (Exception e) {
 			this.gameStatus = NO_GAME_ACTIVE;
-			if(this.diplomacyMonitor != null){
-				diplomacyMonitor.setStatus("connection failed " + e);
+			if(this.display != null){
+				display.setStatus("connection failed " + e);
 			}
 			e.printStackTrace();
+			
+			//Nobody should wait for a game that will never be observed.
+			this.gameCompletion.complete(null);
 		}	
 
-		if(this.diplomacyMonitor != null){
-			diplomacyMonitor.setStatus("waiting to start.");
+		if(this.display != null){
+			display.setStatus("waiting to start.");
 		}
 	}
 	
@@ -146,51 +226,65 @@ public class TournamentObserver extends Observer implements Runnable{
 	 */
 	void displayInfo(){
 
-		if(this.diplomacyMonitor == null) {
+		if(this.display == null) {
 			return;
 		}
 		
-		diplomacyMonitor.setCurrentGameNumber(gameNumber);
-		diplomacyMonitor.setNumGames(numGames);
-		diplomacyMonitor.setPhase(game.getPhase(), game.getYear());
-		
-		
-		for(Power power : game.getPowers()){
-			diplomacyMonitor.setNumSCs(power.getName(), power.getOwnedSCs().size());
-		}
-		
+		display.showGame(game, gameNumber, numGames, getStatusText());
+	}
+	
+	private String getStatusText(){
 		
 		if(this.gameStatus == GAME_ACTIVE){
-			diplomacyMonitor.setStatus("Game playing");
+			return "Game playing";
 		}else if(this.gameStatus == CONNECTED_WAITING_TO_START){
-			diplomacyMonitor.setStatus("connected, waiting to start game.");
+			return "connected, waiting to start game.";
 		}else if(this.gameStatus == GAME_ENDED_IN_DRAW){
-			diplomacyMonitor.setStatus("GAME ENDED IN A DRAW");
+			return "GAME ENDED IN A DRAW";
 		}else if(this.gameStatus == GAME_ENDED_WITH_SOLO){
-			diplomacyMonitor.setStatus(winner + " WINS!");
+			return winner + " WINS!";
 		}else if(this.gameStatus == NO_GAME_ACTIVE){
-			diplomacyMonitor.setStatus("no game active");
+			return "no game active";
 		}else{
-			diplomacyMonitor.setStatus("unknown game status: " + this.gameStatus);
+			return "unknown game status: " + this.gameStatus;
 		}
-		
-		diplomacyMonitor.update();
 	}
 	
 	
+	/**
+	 * Sets the number of the next game. Used when the games of a tournament are spread over several observers.
+	 */
+	public void setNextGameNumber(int nextGameNumber){
+		this.nextGameNumber = nextGameNumber;
+	}
+	
 	@Override
 	public void init() {
-		gameNumber++;
+		if(nextGameNumber > 0){
+			gameNumber = nextGameNumber;
+			nextGameNumber = 0;
+		}else{
+			gameNumber++;
+		}
 		this.gameStatus = GAME_ACTIVE;
 
-		if(this.diplomacyMonitor != null) {
-			diplomacyMonitor.notifyNewGame();
+		if(this.display != null) {
+			display.notifyNewGame();
+		}
+		
+		if(this.trajectoryRecorder != null){
+			trajectoryRecorder.setNextGameNumber(gameNumber);
+			trajectoryRecorder.init();
 		}
 	}
 	
 	
 	@Override
 	public void beforeNewPhase() throws CommException {
+		if(this.trajectoryRecorder != null){
+			trajectoryRecorder.setGame(game);
+			trajectoryRecorder.beforeNewPhase();
+		}
 		displayInfo();
 		
 	}
@@ -198,15 +292,19 @@ public class TournamentObserver extends Observer implements Runnable{
 	
 	@Override
 	public void afterOldPhase() {
+		if(this.metrics != null) {
+			metrics.phaseEnded();
+		}
 		displayInfo();		
 	}
 
 
 
 	@Override
-	public void receivedOrder(Order arg0) {
-		// TODO Auto-generated method stub
-		
+	public void receivedOrder(Order order) {
+		if(this.trajectoryRecorder != null){
+			trajectoryRecorder.receivedOrder(order);
+		}
 	}
 
 	@Override
@@ -229,6 +327,7 @@ public class TournamentObserver extends Observer implements Runnable{
 		
 		System.out.println("TournamentObserver.handleCCD() "  + powerName + " did not manage to submit its orders in time.");
 		ccd = true;
+		ccdPowers.add(powerName);
 	}
 	
 	@Override
@@ -236,8 +335,8 @@ public class TournamentObserver extends Observer implements Runnable{
 		this.comm.stop();
 		super.exit();
 
-		if(this.diplomacyMonitor != null) {
-			this.diplomacyMonitor.dispose();
+		if(this.display != null) {
+			this.display.dispose();
 		}
 	}
 	
@@ -251,22 +350,57 @@ public class TournamentObserver extends Observer implements Runnable{
 			this.gameStatus = GAME_ENDED_IN_DRAW;
 		}
 		
-		GameResult gameResult = new GameResult(message, this.numParticipants);
-		
-		this.tournamentResult.addResult(gameResult);
+		if(this.trajectoryRecorder != null){
+			trajectoryRecorder.gameEnded();
+		}
 		
-		FileIO.appendToFile(this.gameResultsFile, "game " + this.gameNumber + ": " + System.lineSeparator() + gameResult.toString());
+		GameResult gameResult = new GameResult(message, this.numParticipants);
 		
-		FileIO.overwriteFile(this.tournamentResultsFile, this.tournamentResult.toString());
+		//The tournament result and the log files may be shared with the observers of other games.
+		synchronized (this.tournamentResult) {
+			this.tournamentResult.addResult(this.gameNumber, gameResult);
+		}
+		this.tournamentResult.getSummaryWriter().gameFinished();
 
-		if(this.diplomacyMonitor != null){
-			diplomacyMonitor.setTournamentResult(this.tournamentResult);
+		if(this.metrics != null){
+			metrics.gameEnded(gameResult, this.ccdPowers);
+		}
+		if(this.display != null){
+			display.setTournamentResult(this.tournamentResult);
 		}
 
 		displayInfo();
 		
 		
 		super.handleSMR(message);
+		
+		this.gameCompletion.complete(gameResult);
+	}
+	
+	/**
+	 * Waits until the game the observer is connected to is over.
+	 * Replaces polling getGameStatus(): the waiting thread is woken up as soon as the SMR message is handled.
+	 * 
+	 * @param timeoutMillis The maximum time to wait, in milliseconds.
+	 * @return The result of the game, or null if it did not end in time or if the observer could not connect.
+	 * @throws InterruptedException
+	 */
+	public GameResult awaitGameEnd(long timeoutMillis) throws InterruptedException{
+		try {
+			return this.gameCompletion.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			return null;
+		} catch (TimeoutException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the powers that did not manage to submit their orders in time during the current game.
+	 */
+	public List<String> getCCDPowers(){
+		return new ArrayList<String>(this.ccdPowers);
 	}
 	
 	public int getGameStatus(){
@@ -274,8 +408,24 @@ public class TournamentObserver extends Observer implements Runnable{
 	}
 	
 	
+	/**
+	 * Returns the results of the last games, at most TournamentResult.MAX_GAME_RESULTS_IN_MEMORY of them.
+	 */
 	public ArrayList<GameResult> getGameResults(){
-		return new ArrayList<GameResult>(this.tournamentResult.gameResults);
+		synchronized (this.tournamentResult) {
+			return new ArrayList<GameResult>(this.tournamentResult.gameResults);
+		}
+	}
+	
+	public TournamentResult getTournamentResult(){
+		return this.tournamentResult;
+	}
+	
+	/**
+	 * Returns the recorder of the phases of the games, or null if the tournament does not record them.
+	 */
+	public TrajectoryRecorder getTrajectoryRecorder(){
+		return this.trajectoryRecorder;
 	}
 	
 	/**
@@ -287,8 +437,8 @@ public class TournamentObserver extends Observer implements Runnable{
 	}
 	
 	public void setAgentName(String powerName, String agentName){
-		if(this.diplomacyMonitor != null) {
-			this.diplomacyMonitor.setAgentName(powerName, agentName);
+		if(this.display != null) {
+			this.display.setAgentName(powerName, agentName);
 		}
 	}
 }
@@ -0,0 +1,393 @@
+package ddejonge.bandana.tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scores the games of a tournament that was played before with other score calculators, without playing them again.
+ *
+ * Usage: TournamentRescorer <results file> [score calculator class ...]
+ *
+ * The results file is one of the files in the log folder of a tournament: gameResults.archive (see GameResultArchive),
+ * gameResults.bin (see GameResultLog), or the gameResults.log of older versions. The calculators are given by their
+ * class names (e.g. ddejonge.bandana.tournament.PointsCalculator) and need a constructor without arguments; by default
+ * the calculators of the standard map are used.
+ *
+ * The results are read by one thread, but turned into GameResults and scored on all processors: every thread adds its
+ * games to its own TournamentResult, and these are merged at the end (see TournamentResult.merge()).
+ */
+public class TournamentRescorer {
+
+	/**
+	 * A game read from a results file, which is only turned into a GameResult by the thread that scores it.
+	 */
+	interface Record {
+		int getGameNumber();
+		/**Returns the result of the game, or null if it did not end properly.*/
+		GameResult getGameResult() throws IOException;
+	}
+
+	public static void main(String[] args) throws Exception{
+
+		if(args.length == 0){
+			System.out.println("Usage: TournamentRescorer <results file> [score calculator class ...]");
+			return;
+		}
+
+		List<String> calculatorClassNames = new ArrayList<String>();
+		for(int i=1; i<args.length; i++){
+			calculatorClassNames.add(args[i]);
+		}
+
+		long startTime = System.currentTimeMillis();
+		TournamentResult tournamentResult = rescore(new File(args[0]), createCalculatorFactory(calculatorClassNames));
+
+		System.out.println(tournamentResult.getSummary());
+		System.out.println("TournamentRescorer.main() Scored " + tournamentResult.getNumberOfGames() + " games in "
+				+ (System.currentTimeMillis() - startTime) + " milliseconds.");
+	}
+
+	/**
+	 * Returns a factory of new instances of the given score calculator classes, or of the calculators of the standard
+	 * map if none are given.
+	 */
+	static Supplier<ArrayList<ScoreCalculator>> createCalculatorFactory(final List<String> classNames) throws ClassNotFoundException{
+
+		if(classNames.isEmpty()){
+			return new Supplier<ArrayList<ScoreCalculator>>() {
+				@Override
+				public ArrayList<ScoreCalculator> get() {
+					return TournamentRunner.createScoreCalculators("standard");
+				}
+			};
+		}
+
+		final List<Class<? extends ScoreCalculator>> classes = new ArrayList<Class<? extends ScoreCalculator>>();
+		for(String className : classNames){
+			classes.add(Class.forName(className).asSubclass(ScoreCalculator.class));
+		}
+
+		return new Supplier<ArrayList<ScoreCalculator>>() {
+			@Override
+			public ArrayList<ScoreCalculator> get() {
+				ArrayList<ScoreCalculator> scoreCalculators = new ArrayList<ScoreCalculator>();
+				for(Class<? extends ScoreCalculator> calculatorClass : classes){
+					try {
+						scoreCalculators.add(calculatorClass.newInstance());
+					} catch (InstantiationException | IllegalAccessException e) {
+						throw new RuntimeException("TournamentRescorer.createCalculatorFactory() Error! Cannot create a " + calculatorClass.getName(), e);
+					}
+				}
+				return scoreCalculators;
+			}
+		};
+	}
+
+	/**
+	 * Scores all the games of the given results file with new calculators from the given factory.
+	 */
+	public static TournamentResult rescore(File resultsFile, final Supplier<ArrayList<ScoreCalculator>> calculatorFactory) throws IOException{
+
+		Iterator<Record> records = openRecords(resultsFile);
+
+		Stream<Record> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(records, Spliterator.NONNULL), true);
+
+		try {
+			return stream.collect(
+					new Supplier<TournamentResult>() {
+						@Override
+						public TournamentResult get() {
+							return new TournamentResult(0, calculatorFactory.get());
+						}
+					},
+					new BiConsumer<TournamentResult, Record>() {
+						@Override
+						public void accept(TournamentResult tournamentResult, Record record) {
+							try {
+								GameResult gameResult = record.getGameResult();
+								if(gameResult != null){
+									tournamentResult.addResult(record.getGameNumber(), gameResult);
+								}
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						}
+					},
+					new BiConsumer<TournamentResult, TournamentResult>() {
+						@Override
+						public void accept(TournamentResult tournamentResult, TournamentResult other) {
+							tournamentResult.merge(other);
+						}
+					});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the games of the given file, read one by one in the order in which they were written.
+	 */
+	static Iterator<Record> openRecords(File resultsFile) throws IOException{
+
+		String name = resultsFile.getName();
+
+		if(name.endsWith(".archive")){
+			return readArchive(resultsFile);
+		}
+		if(name.endsWith(".bin")){
+			return readResultLog(resultsFile);
+		}
+		if(name.endsWith(".log")){
+			return readTextLog(resultsFile);
+		}
+
+		throw new IOException("TournamentRescorer.openRecords() Error! Unknown kind of results file: " + resultsFile
+				+ ". Expected a .archive, .bin or .log file.");
+	}
+
+	/**
+	 * Reads a GameResultArchive. The GameResults are deserialised by the threads that score them.
+	 */
+	static Iterator<Record> readArchive(File archiveFile) throws IOException{
+
+		final GameResultArchive.Reader reader = new GameResultArchive.Reader(archiveFile);
+
+		return new RecordIterator<byte[]>(new Function<RecordIterator<byte[]>, Boolean>() {
+			@Override
+			public Boolean apply(RecordIterator<byte[]> iterator) {
+				try {
+					if( ! reader.next()){
+						reader.close();
+						return false;
+					}
+					iterator.setNext(reader.getGameNumber(), reader.getBytes());
+					return true;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}, new Function<byte[], GameResult>() {
+			@Override
+			public GameResult apply(byte[] bytes) {
+				try {
+					return bytes.length == 0 ? null : GameResultArchive.deserialize(bytes);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads a GameResultLog. Its records are copied into a GameResult for every game.
+	 */
+	static Iterator<Record> readResultLog(File logFile) throws IOException{
+
+		final GameResultLog.Reader reader = new GameResultLog.Reader(logFile);
+
+		return new RecordIterator<GameResult>(new Function<RecordIterator<GameResult>, Boolean>() {
+
+			int nextRecord = 0;
+
+			@Override
+			public Boolean apply(RecordIterator<GameResult> iterator) {
+
+				if(nextRecord == reader.getNumberOfRecords()){
+					return false;
+				}
+
+				int gameNumber = reader.getGameNumber(nextRecord);
+				int numberOfPlayers = reader.getNumberOfPlayersOfGame(nextRecord);
+
+				String[] powers = new String[numberOfPlayers];
+				String[] names = new String[numberOfPlayers];
+				int[] numSCs = new int[numberOfPlayers];
+				int[] yearOfElimination = new int[numberOfPlayers];
+				for(int i=0; i<numberOfPlayers; i++){
+					powers[i] = reader.getPower(nextRecord);
+					names[i] = reader.getPlayerName(reader.getPlayerId(nextRecord));
+					numSCs[i] = reader.getNumSupplyCenters(nextRecord);
+					yearOfElimination[i] = reader.getYearOfElimination(nextRecord);
+					nextRecord++;
+				}
+
+				iterator.setNext(gameNumber, new GameResult(powers, names, numSCs, yearOfElimination));
+				return true;
+			}
+		}, new Function<GameResult, GameResult>() {
+			@Override
+			public GameResult apply(GameResult gameResult) {
+				return gameResult;
+			}
+		});
+	}
+
+	/**
+	 * Reads a gameResults.log, in which every game is written as "game 1: " followed by a line per player, e.g.
+	 * "3. 'Bot 2' FRA 5". The last number is the year of elimination for the players that have no supply centers.
+	 * The lines of a game are parsed by the thread that scores it.
+	 */
+	static Iterator<Record> readTextLog(File logFile) throws IOException{
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8));
+
+		return new RecordIterator<List<String>>(new Function<RecordIterator<List<String>>, Boolean>() {
+
+			String line;
+
+			@Override
+			public Boolean apply(RecordIterator<List<String>> iterator) {
+				try {
+					if(line == null){
+						line = reader.readLine();
+					}
+					while(line != null && ! line.startsWith("game ")){
+						line = reader.readLine();
+					}
+					if(line == null){
+						reader.close();
+						return false;
+					}
+
+					int gameNumber = Integer.parseInt(line.substring("game ".length(), line.indexOf(':')).trim());
+
+					List<String> playerLines = new ArrayList<String>();
+					while((line = reader.readLine()) != null && ! line.startsWith("game ")){
+						if( ! line.trim().isEmpty()){
+							playerLines.add(line.trim());
+						}
+					}
+
+					iterator.setNext(gameNumber, playerLines);
+					return true;
+
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}, new Function<List<String>, GameResult>() {
+			@Override
+			public GameResult apply(List<String> playerLines) {
+				return parsePlayerLines(playerLines);
+			}
+		});
+	}
+
+	static GameResult parsePlayerLines(List<String> playerLines){
+
+		int numberOfPlayers = playerLines.size();
+		String[] powers = new String[numberOfPlayers];
+		String[] names = new String[numberOfPlayers];
+		int[] numSCs = new int[numberOfPlayers];
+		int[] yearOfElimination = new int[numberOfPlayers];
+
+		for(int i=0; i<numberOfPlayers; i++){
+
+			//e.g. "3. 'Bot 2' FRA 5": the name may contain spaces, so it is what is left between the rank and the power.
+			String playerLine = playerLines.get(i);
+			int nameStart = playerLine.indexOf(". ") + 2;
+			int valueStart = playerLine.lastIndexOf(' ') + 1;
+			int powerStart = playerLine.lastIndexOf(' ', valueStart - 2) + 1;
+			if(nameStart < 2 || powerStart <= nameStart){
+				throw new RuntimeException("TournamentRescorer.parsePlayerLines() Error! Invalid line: " + playerLine);
+			}
+
+			names[i] = playerLine.substring(nameStart, powerStart - 1);
+			powers[i] = playerLine.substring(powerStart, valueStart - 1);
+
+			//The supply centers are written for the survivors, the year of elimination for the others.
+			int value = Integer.parseInt(playerLine.substring(valueStart));
+			if(value > 1900){
+				numSCs[i] = 0;
+				yearOfElimination[i] = value;
+			}else{
+				numSCs[i] = value;
+				yearOfElimination[i] = 0;
+			}
+		}
+
+		return new GameResult(powers, names, numSCs, yearOfElimination);
+	}
+
+
+	/**
+	 * Turns the raw games read by a function into Records, which convert them into GameResults when asked.
+	 */
+	static class RecordIterator<T> implements Iterator<Record> {
+
+		private final Function<RecordIterator<T>, Boolean> readNext;
+		private final Function<T, GameResult> convert;
+
+		private boolean hasNext;
+		private boolean read = false;
+		private int nextGameNumber;
+		private T nextGame;
+
+		/**
+		 * @param readNext Reads the next game and passes it to setNext(), or returns false if there is none.
+		 * @param convert Turns a game into a GameResult.
+		 */
+		RecordIterator(Function<RecordIterator<T>, Boolean> readNext, Function<T, GameResult> convert){
+			this.readNext = readNext;
+			this.convert = convert;
+		}
+
+		void setNext(int gameNumber, T game){
+			this.nextGameNumber = gameNumber;
+			this.nextGame = game;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if( ! read){
+				hasNext = readNext.apply(this);
+				read = true;
+			}
+			return hasNext;
+		}
+
+		@Override
+		public Record next() {
+
+			if( ! hasNext()){
+				throw new NoSuchElementException();
+			}
+			read = false;
+
+			final int gameNumber = nextGameNumber;
+			final T game = nextGame;
+			return new Record() {
+
+				@Override
+				public int getGameNumber() {
+					return gameNumber;
+				}
+
+				@Override
+				public GameResult getGameResult() throws IOException {
+					try {
+						return convert.apply(game);
+					} catch (UncheckedIOException e) {
+						throw e.getCause();
+					}
+				}
+			};
+		}
+	}
+}
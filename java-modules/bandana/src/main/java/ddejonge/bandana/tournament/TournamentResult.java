@@ -1,91 +1,527 @@
 package ddejonge.bandana.tournament;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Locale;
+import java.util.Random;
 
 
-public class TournamentResult {
+/**
+ * The accumulated results of the games of a tournament.
+ *
+ * Only the last MAX_GAME_RESULTS_IN_MEMORY GameResults are kept, so that the memory use does not grow with the number
+ * of games. If an archive is set, every GameResult is appended to it as well, and if a result log is set, the outcome
+ * of every game is appended to that. The scores, the names and the numbers of
+ * the games that were added are serialisable, so the tournament can be resumed from them (see TournamentCheckpoint).
+ *
+ * Every player is given a number (see PlayerIds) that the score calculators share, and the players are kept sorted
+ * by their scores. A new result only updates the totals and the positions of the players of that game, so adding it
+ * takes the same time however many games were played before.
+ */
+public class TournamentResult implements Serializable {
 	
+	private static final long serialVersionUID = 1L;
 
-	public ArrayList<GameResult> gameResults = new ArrayList<GameResult>();
+	/**The number of GameResults kept in memory.*/
+	public static final int MAX_GAME_RESULTS_IN_MEMORY = 1000;
+	
+	/**The confidence of the intervals given by getSummary().*/
+	public static final double SUMMARY_CONFIDENCE = 0.95;
+	
+	/**The number of resamples of the bootstrap intervals given by getSummary().*/
+	public static final int SUMMARY_RESAMPLES = 1000;
+	
+	/**The seed of the bootstrap of getSummary(), so that the same results always give the same summary.*/
+	static final long SUMMARY_SEED = 1L;
+
+	/**The results of the last games, from the oldest to the newest.*/
+	public transient ArrayDeque<GameResult> gameResults = new ArrayDeque<GameResult>();
 	
 	ArrayList<ScoreCalculator> scoreCalculators = new ArrayList<ScoreCalculator>();
 	
-	ArrayList<String> names;
+	final PlayerIds playerIds = new PlayerIds();
 	
 	int[] numGamesPlayed;
+	
+	/**The numbers of the players, sorted from best to worst by the score calculators.*/
+	private final ArrayList<Integer> ranking = new ArrayList<Integer>();
+	
+	/**
+	 * For every two players, the number of games they played together, and how many of those games the first one
+	 * ended above the second one (a shared place counts as half a win).
+	 */
+	private int[][] pairwiseGames = new int[0][0];
+	private double[][] pairwiseWins = new double[0][0];
+
+	/**The numbers of the games whose results were added.*/
+	final BitSet playedGames = new BitSet();
 
+	/**The file all the GameResults are appended to. May be null.*/
+	private transient GameResultArchive archive;
+
+	/**The length of the archive after the result of the last game was appended to it.*/
+	private long archiveLength = 0;
+	
+	/**The binary log the outcome of every game is appended to. May be null.*/
+	private transient GameResultLog resultLog;
+	
+	/**The length of the result log after the last game was appended to it.*/
+	private long resultLogLength = 0;
+	
+	/**Writes the summary of this result to tournamentResults.log. May be null.*/
+	private transient TournamentSummaryWriter summaryWriter;
+	
+	/**Counts the games and phases of a headless tournament. May be null.*/
+	private transient TournamentMetrics metrics;
+	
+	/**Stores every phase of every game, to train agents on. May be null.*/
+	private transient TrajectoryLog trajectoryLog;
 
 	
 	public TournamentResult(int numParticipants, ArrayList<ScoreCalculator> scoreCalculators){
 		
-		names = new ArrayList<String>(numParticipants);
-		
 		numGamesPlayed = new int[numParticipants];
 		
 		this.scoreCalculators = scoreCalculators;
+		for(ScoreCalculator scoreCalculator : scoreCalculators){
+			scoreCalculator.setPlayerIds(playerIds);
+		}
+	}
+	
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException{
+		input.defaultReadObject();
+		this.gameResults = new ArrayDeque<GameResult>();
 	}
 	
+	/**
+	 * Sets the file the results of the games are appended to from now on.
+	 */
+	public synchronized void setArchive(GameResultArchive archive){
+		this.archive = archive;
+		this.archiveLength = archive.getLength();
+	}
+	
+	/**
+	 * Returns the length the archive had after the result of the last game was appended to it. If the tournament is
+	 * resumed from this result, the archive must be cut off at this length, because the games after it are played again.
+	 */
+	public synchronized long getArchiveLength(){
+		return archiveLength;
+	}
+	
+	/**
+	 * Sets the binary log the outcome of the games is appended to from now on (it replaces gameResults.log).
+	 */
+	public synchronized void setResultLog(GameResultLog resultLog){
+		this.resultLog = resultLog;
+		this.resultLogLength = resultLog.getLength();
+	}
+	
+	public synchronized GameResultLog getResultLog(){
+		return resultLog;
+	}
+	
+	/**
+	 * Sets the writer that is told about every new result, so that it can write the summary of the tournament again.
+	 */
+	public synchronized void setSummaryWriter(TournamentSummaryWriter summaryWriter){
+		this.summaryWriter = summaryWriter;
+	}
+	
+	public synchronized TournamentSummaryWriter getSummaryWriter(){
+		return summaryWriter;
+	}
+	
+	/**
+	 * Sets the metrics that replace the DiplomacyMonitor when the games are played without a window.
+	 */
+	public synchronized void setMetrics(TournamentMetrics metrics){
+		this.metrics = metrics;
+	}
+	
+	public synchronized TournamentMetrics getMetrics(){
+		return metrics;
+	}
+	
+	/**
+	 * Sets the log the observers record the phases of their games in (see TrajectoryRecorder).
+	 */
+	public synchronized void setTrajectoryLog(TrajectoryLog trajectoryLog){
+		this.trajectoryLog = trajectoryLog;
+	}
+	
+	public synchronized TrajectoryLog getTrajectoryLog(){
+		return trajectoryLog;
+	}
+	
+	/**
+	 * Closes the result log, the summary writer, the metrics and the trajectory log, after the summary has been written one last time.
+	 */
+	public void close(){
+		
+		GameResultLog resultLog;
+		TournamentSummaryWriter summaryWriter;
+		TournamentMetrics metrics;
+		TrajectoryLog trajectoryLog;
+		synchronized (this) {
+			resultLog = this.resultLog;
+			summaryWriter = this.summaryWriter;
+			metrics = this.metrics;
+			trajectoryLog = this.trajectoryLog;
+		}
+		
+		//The summary writer needs the lock of this object, so it must not be held while waiting for the writer.
+		if(summaryWriter != null){
+			summaryWriter.close();
+		}
+		if(resultLog != null){
+			resultLog.close();
+		}
+		if(metrics != null){
+			metrics.close();
+		}
+		if(trajectoryLog != null){
+			trajectoryLog.close();
+		}
+	}
+	
+	/**
+	 * Returns the length the result log had after the last game was appended to it. Like the archive, it must be cut
+	 * off at this length if the tournament is resumed from this result.
+	 */
+	public synchronized long getResultLogLength(){
+		return resultLogLength;
+	}
+	
+	/**
+	 * Adds the result of a game of which the number is not known.
+	 */
 	public void addResult(GameResult newResult){
+		addResult(0, newResult);
+	}
+	
+	/**
+	 * Adds the result of the given game.
+	 * 
+	 * @param gameNumber The number of the game, or 0 if it is not known.
+	 */
+	public synchronized void addResult(int gameNumber, GameResult newResult){
 		
 		this.gameResults.add(newResult);
+		if(this.gameResults.size() > MAX_GAME_RESULTS_IN_MEMORY){
+			this.gameResults.removeFirst();
+		}
+		
+		if(gameNumber > 0){
+			this.playedGames.set(gameNumber);
+		}
+		
+		//The archive is appended to without forcing it to the disk, which would keep the lock for every game. The
+		//checkpoint forces it to the disk before it records its length.
+		if(this.archive != null){
+			try {
+				this.archive.append(gameNumber, newResult);
+				this.archiveLength = this.archive.getLength();
+			} catch (IOException e) {
+				System.out.println("TournamentResult.addResult() Could not archive the result of game " + gameNumber);
+				e.printStackTrace();
+			}
+		}
+		
+		if(this.resultLog != null){
+			try {
+				this.resultLog.append(gameNumber, newResult);
+				this.resultLogLength = this.resultLog.getLength();
+			} catch (IOException e) {
+				System.out.println("TournamentResult.addResult() Could not log the result of game " + gameNumber);
+				e.printStackTrace();
+			}
+		}
+		
+		//Take the players of this game out of the ranking, because their scores change.
+		ArrayList<String> players = newResult.getNames();
+		int[] ids = new int[players.size()];
+		for(int i=0; i<players.size(); i++){
+			
+			ids[i] = this.playerIds.getId(players.get(i));
+			
+			if(ids[i] != -1){
+				this.ranking.remove(Integer.valueOf(ids[i]));
+			}
+		}
 		
 		for(ScoreCalculator scoreCalculator : scoreCalculators){
 			scoreCalculator.addResult(newResult);
 		}
 		
-		for(String name : newResult.getNames()){
-			if( ! names.contains(name)){
-				this.names.add(name);
+		for(int i=0; i<players.size(); i++){
+			
+			if(ids[i] == -1){
+				ids[i] = this.playerIds.intern(players.get(i));
 			}
 		}
 		
+		growArrays();
 		
-		for(String name : names){
+		for(int i=0; i<players.size(); i++){
+			numGamesPlayed[ids[i]]++;
+			insertIntoRanking(ids[i]);
+		}
+		
+		addPairwiseResults(newResult, players, ids);
+	}
+	
+	/**
+	 * Makes the arrays indexed by player id large enough for every player.
+	 */
+	private void growArrays(){
+		
+		int numberOfPlayers = this.playerIds.size();
+		
+		if(numberOfPlayers > numGamesPlayed.length){
+			numGamesPlayed = Arrays.copyOf(numGamesPlayed, Math.max(numberOfPlayers, 2 * numGamesPlayed.length));
+		}
+		
+		if(numberOfPlayers > pairwiseGames.length){
+			int length = Math.max(numberOfPlayers, 2 * pairwiseGames.length);
+			pairwiseGames = Arrays.copyOf(pairwiseGames, length);
+			pairwiseWins = Arrays.copyOf(pairwiseWins, length);
+			for(int i=0; i<length; i++){
+				pairwiseGames[i] = pairwiseGames[i] == null ? new int[length] : Arrays.copyOf(pairwiseGames[i], length);
+				pairwiseWins[i] = pairwiseWins[i] == null ? new double[length] : Arrays.copyOf(pairwiseWins[i], length);
+			}
+		}
+	}
+	
+	private void addPairwiseResults(GameResult newResult, ArrayList<String> players, int[] ids){
+		
+		for(int i=0; i<players.size(); i++){
 			
-			int index = getIndex(name);
+			double rank1 = newResult.getRank(players.get(i));
 			
-			if(newResult.containsName(name)){
-				numGamesPlayed[index]++;
+			for(int j=i+1; j<players.size(); j++){
+				
+				double rank2 = newResult.getRank(players.get(j));
+				double win = rank1 < rank2 ? 1.0 : rank1 > rank2 ? 0.0 : 0.5;
+				
+				pairwiseGames[ids[i]][ids[j]]++;
+				pairwiseGames[ids[j]][ids[i]]++;
+				pairwiseWins[ids[i]][ids[j]] += win;
+				pairwiseWins[ids[j]][ids[i]] += 1.0 - win;
 			}
-			
 		}
 	}
 	
-	int getIndex(String name){
+	/**
+	 * Returns the fraction of the games played by both players in which player1 ended above player2, counting a
+	 * shared place as half. Returns NaN if they never played together.
+	 */
+	public synchronized double getWinRate(String player1, String player2){
+		
+		int id1 = playerIds.getId(player1);
+		int id2 = playerIds.getId(player2);
+		if(id1 == -1 || id2 == -1 || id1 >= pairwiseGames.length || id2 >= pairwiseGames.length || pairwiseGames[id1][id2] == 0){
+			return Double.NaN;
+		}
+		
+		return pairwiseWins[id1][id2] / pairwiseGames[id1][id2];
+	}
+	
+	/**
+	 * Returns the win rates of every player against every other player (see getWinRate()), with the players in the
+	 * order of getNames().
+	 */
+	public synchronized double[][] getWinRateMatrix(){
+		
+		ArrayList<String> names = getNames();
+		double[][] winRates = new double[names.size()][names.size()];
 		for(int i=0; i<names.size(); i++){
-			if(names.get(i).equals(name)){
-				return i;
+			for(int j=0; j<names.size(); j++){
+				winRates[i][j] = getWinRate(names.get(i), names.get(j));
+			}
+		}
+		return winRates;
+	}
+	
+	/**
+	 * Returns true if every two neighbours in the ranking are told apart with significance: the first score
+	 * calculator on which their averages differ must show a difference of more than z standard errors.
+	 * 
+	 * The test is meant to be repeated after every game (sequential testing), which makes chance differences look
+	 * significant more often than a single test would, so z should be well above the usual 1.96, e.g. 3.
+	 */
+	public synchronized boolean isRankingSettled(double z){
+		
+		if(ranking.size() < 2){
+			return false;
+		}
+		
+		for(int i=0; i+1<ranking.size(); i++){
+			
+			String player1 = playerIds.getName(ranking.get(i));
+			String player2 = playerIds.getName(ranking.get(i + 1));
+			
+			boolean settled = false;
+			for(ScoreCalculator scoreCalculator : scoreCalculators){
+				
+				double difference = Math.abs(scoreCalculator.getTournamentScore(player1) - scoreCalculator.getTournamentScore(player2));
+				if(difference < 0.0001){
+					continue;
+				}
+				
+				double standardError1 = scoreCalculator.getStandardError(player1);
+				double standardError2 = scoreCalculator.getStandardError(player2);
+				settled = difference > z * Math.sqrt(standardError1 * standardError1 + standardError2 * standardError2);
+				break;
+			}
+			
+			if( ! settled){
+				return false;
 			}
 		}
 		
-		throw new RuntimeException("TournamentResult.getIndex() Player with name " + name + " is unknown.");
+		return true;
 	}
 	
+	/**
+	 * Adds the results of the given TournamentResult, which must have the same kinds of score calculators, to this one.
+	 * Only the last GameResults of both are kept, and not in the order in which they were played. The archive and the
+	 * result log of the other one are not used.
+	 */
+	public synchronized void merge(TournamentResult other){
+		
+		if(other.scoreCalculators.size() != this.scoreCalculators.size()){
+			throw new RuntimeException("TournamentResult.merge() Error! The results have different score calculators.");
+		}
+		
+		for(int i=0; i<scoreCalculators.size(); i++){
+			scoreCalculators.get(i).merge(other.scoreCalculators.get(i));
+		}
+		
+		this.playedGames.or(other.playedGames);
+		
+		for(GameResult gameResult : other.gameResults){
+			this.gameResults.add(gameResult);
+			if(this.gameResults.size() > MAX_GAME_RESULTS_IN_MEMORY){
+				this.gameResults.removeFirst();
+			}
+		}
+		
+		//Number the players of the other result like this one does.
+		int numberOfOtherPlayers = other.playerIds.size();
+		int[] ids = new int[numberOfOtherPlayers];
+		for(int otherId=0; otherId<numberOfOtherPlayers; otherId++){
+			ids[otherId] = this.playerIds.intern(other.playerIds.getName(otherId));
+		}
+		growArrays();
+		
+		for(int otherId=0; otherId<numberOfOtherPlayers; otherId++){
+			
+			numGamesPlayed[ids[otherId]] += other.numGamesPlayed[otherId];
+			
+			for(int otherId2=0; otherId2<numberOfOtherPlayers; otherId2++){
+				pairwiseGames[ids[otherId]][ids[otherId2]] += other.pairwiseGames[otherId][otherId2];
+				pairwiseWins[ids[otherId]][ids[otherId2]] += other.pairwiseWins[otherId][otherId2];
+			}
+		}
+		
+		//The scores of every player may have changed.
+		ranking.clear();
+		for(int playerId=0; playerId<this.playerIds.size(); playerId++){
+			insertIntoRanking(playerId);
+		}
+	}
 	
-	public ArrayList<String> getNames() {
-		return names;
+	/**
+	 * Puts the given player at its place in the ranking. Players with equal scores are ordered by their numbers, i.e.
+	 * by the order in which they were first seen.
+	 */
+	private void insertIntoRanking(int playerId){
+		
+		String name = this.playerIds.getName(playerId);
+		
+		int low = 0;
+		int high = ranking.size();
+		while(low < high){
+			
+			int middle = (low + high) >>> 1;
+			int other = ranking.get(middle);
+			
+			int comparison = compare(scoreCalculators, name, this.playerIds.getName(other));
+			if(comparison == 0){
+				comparison = playerId - other;
+			}
+			
+			if(comparison < 0){
+				high = middle;
+			}else{
+				low = middle + 1;
+			}
+		}
+		
+		ranking.add(low, playerId);
 	}
 	
-	public String toString(){
+	/**
+	 * Returns true if the result of the given game was added.
+	 */
+	public synchronized boolean isPlayed(int gameNumber){
+		return this.playedGames.get(gameNumber);
+	}
+	
+	/**
+	 * Returns the number of games whose result was added.
+	 */
+	public synchronized int getNumberOfGames(){
+		return this.playedGames.cardinality();
+	}
+	
+	int getIndex(String name){
 		
-		ArrayList<String> sortedNames = sortNames(this.scoreCalculators);
+		int index = playerIds.getId(name);
+		if(index == -1){
+			throw new RuntimeException("TournamentResult.getIndex() Player with name " + name + " is unknown.");
+		}
+		
+		return index;
+	}
+	
+	
+	/**
+	 * Returns the names of the players, in the order in which they were first seen.
+	 */
+	public synchronized ArrayList<String> getNames() {
+		
+		ArrayList<String> names = new ArrayList<String>(playerIds.size());
+		for(int i=0; i<playerIds.size(); i++){
+			names.add(playerIds.getName(i));
+		}
+		return names;
+	}
+	
+	public synchronized String toString(){
 		
-		String s = "";
-		for(String name : sortedNames){
+		StringBuilder s = new StringBuilder();
+		for(int index : ranking){
 			
-			int index = getIndex(name);
+			String name = playerIds.getName(index);
 			
 			int played = numGamesPlayed[index];
 			
-			s += name + ": " + System.lineSeparator();
-			s += "games played: " + played + System.lineSeparator();
+			s.append(name).append(": ").append(System.lineSeparator());
+			s.append("games played: ").append(played).append(System.lineSeparator());
 			
 			for(ScoreCalculator scoreCalculator : scoreCalculators){
 				
 				
-				s += scoreCalculator.getScoreSystemName() + ": " + scoreCalculator.getScoreString(name) + System.lineSeparator();
+				s.append(scoreCalculator.getScoreSystemName()).append(": ").append(scoreCalculator.getScoreString(name)).append(System.lineSeparator());
 				
 				
 				/*
@@ -104,51 +540,107 @@ public class TournamentResult {
 				s += scoreCalculator.getScoreSystemName() + ": " + totalScore + " (" + averageScore + ")" + System.lineSeparator();
 				*/
 			}
-			s += System.lineSeparator();
+			s.append(System.lineSeparator());
 		}
 		
 		
-		return s;
+		return s.toString();
 	}
 	
-	public ArrayList<String> sortNames(ArrayList<ScoreCalculator> scoreCalculators){
+	/**
+	 * Returns the scores of the players (see toString()), followed by the bootstrap confidence interval of the average
+	 * score of every player under every score calculator (see ScoreCalculator.getConfidenceInterval()) and by the
+	 * matrix of the pairwise win rates (see getWinRate()), with the players from best to worst.
+	 */
+	public String getSummary(){
 		
-		ArrayList<String> sortedNames = new ArrayList<String>(names);
+		//Bootstrapping takes long, so only copy the samples while holding the lock (which the observer needs to add
+		//the next result) and resample them afterwards.
+		String scores;
+		ArrayList<String> rankedNames;
+		ArrayList<String> scoreSystemNames = new ArrayList<String>();
+		double[][][] samples;
+		int[][] numbersOfScores;
+		double[][] averages;
+		double[][] winRates;
+		synchronized (this) {
+			
+			scores = toString();
+			rankedNames = sortNames(scoreCalculators);
+			for(ScoreCalculator scoreCalculator : scoreCalculators){
+				scoreSystemNames.add(scoreCalculator.getScoreSystemName());
+			}
+			
+			samples = new double[rankedNames.size()][scoreCalculators.size()][];
+			numbersOfScores = new int[rankedNames.size()][scoreCalculators.size()];
+			averages = new double[rankedNames.size()][scoreCalculators.size()];
+			winRates = new double[rankedNames.size()][rankedNames.size()];
+			for(int i=0; i<rankedNames.size(); i++){
+				for(int c=0; c<scoreCalculators.size(); c++){
+					samples[i][c] = scoreCalculators.get(c).getSample(rankedNames.get(i));
+					numbersOfScores[i][c] = scoreCalculators.get(c).getNumberOfGamesPlayed(rankedNames.get(i));
+					averages[i][c] = scoreCalculators.get(c).getAverageScore(rankedNames.get(i));
+				}
+				for(int j=0; j<rankedNames.size(); j++){
+					winRates[i][j] = getWinRate(rankedNames.get(i), rankedNames.get(j));
+				}
+			}
+		}
+		
+		StringBuilder s = new StringBuilder(scores);
+		Random random = new Random(SUMMARY_SEED);
+		
+		s.append("Confidence intervals of the average scores (").append(Math.round(SUMMARY_CONFIDENCE * 100)).append("%, bootstrap):").append(System.lineSeparator());
+		for(int i=0; i<rankedNames.size(); i++){
+			s.append(rankedNames.get(i)).append(":");
+			for(int c=0; c<scoreSystemNames.size(); c++){
+				double[] interval = ScoreCalculator.getConfidenceInterval(samples[i][c], numbersOfScores[i][c], averages[i][c], SUMMARY_CONFIDENCE, SUMMARY_RESAMPLES, random);
+				s.append(" ").append(scoreSystemNames.get(c))
+						.append(String.format(Locale.ROOT, " [%.3f, %.3f]", interval[0], interval[1]));
+			}
+			s.append(System.lineSeparator());
+		}
+		s.append(System.lineSeparator());
+		
+		s.append("Win rates (the row player against the column player, - if they never met):").append(System.lineSeparator());
+		for(String name : rankedNames){
+			s.append("\t").append(name);
+		}
+		s.append(System.lineSeparator());
+		for(int i=0; i<rankedNames.size(); i++){
+			s.append(rankedNames.get(i));
+			for(int j=0; j<rankedNames.size(); j++){
+				double winRate = winRates[i][j];
+				s.append("\t").append(Double.isNaN(winRate) ? "-" : String.format(Locale.ROOT, "%.3f", winRate));
+			}
+			s.append(System.lineSeparator());
+		}
+		
+		return s.toString();
+	}
+	
+	/**
+	 * Returns the names of the players, from best to worst according to the given score calculators. If these are the
+	 * calculators of this result, the ranking is already known and nothing has to be sorted.
+	 */
+	public synchronized ArrayList<String> sortNames(final ArrayList<ScoreCalculator> scoreCalculators){
+		
+		if(scoreCalculators == this.scoreCalculators){
+			
+			ArrayList<String> sortedNames = new ArrayList<String>(ranking.size());
+			for(int index : ranking){
+				sortedNames.add(playerIds.getName(index));
+			}
+			return sortedNames;
+		}
+		
+		ArrayList<String> sortedNames = getNames();
 		
 		Collections.sort(sortedNames, new Comparator<String>() {
 			
 			@Override
 			public int compare(String player1, String player2) {
-
-				for(ScoreCalculator scoreCalculator : scoreCalculators){
-					
-					double score1 = scoreCalculator.getTournamentScore(player1);
-					double score2 = scoreCalculator.getTournamentScore(player2);
-					
-					if(Math.abs(score1 - score2) < 0.0001){
-						continue;
-					}
-					
-					if(scoreCalculator.higherIsBetter){
-						
-						if(score1 < score2){
-							return 1;
-						}else{
-							return -1;
-						}
-						
-					}else{
-						
-						if(score1 > score2){
-							return 1;
-						}else{
-							return -1;
-						}
-					}
-					
-				}
-				
-				return 0;
+				return TournamentResult.compare(scoreCalculators, player1, player2);
 			}});
 		
 		
@@ -156,6 +648,43 @@ public class TournamentResult {
 		
 	}
 	
+	/**
+	 * Returns a negative number if player1 is ranked above player2 by the given score calculators, a positive number if
+	 * it is ranked below player2, and 0 if they are tied.
+	 */
+	static int compare(ArrayList<ScoreCalculator> scoreCalculators, String player1, String player2){
+		
+		for(ScoreCalculator scoreCalculator : scoreCalculators){
+			
+			double score1 = scoreCalculator.getTournamentScore(player1);
+			double score2 = scoreCalculator.getTournamentScore(player2);
+			
+			if(Math.abs(score1 - score2) < 0.0001){
+				continue;
+			}
+			
+			if(scoreCalculator.higherIsBetter){
+				
+				if(score1 < score2){
+					return 1;
+				}else{
+					return -1;
+				}
+				
+			}else{
+				
+				if(score1 > score2){
+					return 1;
+				}else{
+					return -1;
+				}
+			}
+			
+		}
+		
+		return 0;
+	}
+	
 	/*
 	public ArrayList<String> sortNames(ArrayList<ScoringSystem> scoringSystems){
 		
@@ -2,12 +2,13 @@ package ddejonge.bandana.tournament;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Time;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 import ddejonge.bandana.tools.ProcessRunner;
-import ddejonge.bandana.tools.Logger;
 
 
 public class TournamentRunner {
@@ -16,34 +17,30 @@ public class TournamentRunner {
 
     final static boolean MODE = true;  //Strategy/false vs Negotiation/true
 	final static int REMOTE_DEBUG = 0;	// JC: determine whether I want to remote debug the OpenAI jar or not
+	final static boolean WARM_AGENTS = false;	// Keep one JVM per seat alive between games instead of starting the agents every game (see AgentHost). Only for agents without static state.
     private final static String GAME_MAP = "standard"; // Game map can be 'standard' or 'small'
     private final static String FINAL_YEAR = "1920";
 
-    // JC: Using a custom map to define how many players are there on each custom map
-    private final static Map<String, Integer> mapToNumberOfPlayers  = new HashMap<String, Integer>() {{
-        put("standard", 7);
-        put("small", 2);
-    }};
-
 	// JC: CUSTOM SETTINGS END
 
 	//Command lines to start the various agents provided with the Bandana framework.
-	// Add your own line here to run your own bot.
-	final static String[] randomBotCommand = {"java", "-jar", "agents/RandomBot.jar", "-log", "log", "-name", "RandomBot", "-fy", FINAL_YEAR};
-	final static String[] randomNegotiatorCommand = {"java", "-jar", "artifacts/random-negotiator.jar", "-log", "log", "-name", "RandomNegotiator", "-fy", FINAL_YEAR};
-	final static String[] dumbBot_1_4_Command = {"java", "-jar", "agents/DumbBot-1.4.jar", "-log", "log", "-name", "DumbBot", "-fy", FINAL_YEAR};
-	final static String[] dbrane_1_1_Command = {"java", "-jar", "agents/D-Brane-1.1.jar", "-log", "log", "-name", "D-Brane", "-fy", FINAL_YEAR};
-	final static String[] dbraneExampleBotCommand = {"java", "-jar", "artifacts/dbrane-example-bot.jar", "-log", "log", "-name", "DBraneExampleBot", "-fy", FINAL_YEAR};
-	final static String[] openAIBotNegotiatorCommand = {"java", "-jar", "artifacts/open-ai-negotiator.jar", "-log", "log", "-name", "OpenAINegotiator", "-fy", FINAL_YEAR};
-	final static String[] deepDipCommand = {"java", "-jar", "artifacts/deep-dip.jar", "-log", "log", "-name", "DeepDip", "-fy", FINAL_YEAR};
-	final static String[] anacExampleBotCommand = {"java", "-jar", "artifacts/anac-example-negotiator.jar", "-log", "log", "-name", "AnacExampleNegotiator", "-fy", FINAL_YEAR};
+	// Add your own line here to run your own bot, or give its command in a tournament spec (see TournamentSpec).
+	// The -log, -name and -fy arguments are added for every game.
+	final static String[] randomBotCommand = {"java", "-jar", "agents/RandomBot.jar"};
+	final static String[] randomNegotiatorCommand = {"java", "-jar", "artifacts/random-negotiator.jar"};
+	final static String[] dumbBot_1_4_Command = {"java", "-jar", "agents/DumbBot-1.4.jar"};
+	final static String[] dbrane_1_1_Command = {"java", "-jar", "agents/D-Brane-1.1.jar"};
+	final static String[] dbraneExampleBotCommand = {"java", "-jar", "artifacts/dbrane-example-bot.jar"};
+	final static String[] openAIBotNegotiatorCommand = {"java", "-jar", "artifacts/open-ai-negotiator.jar"};
+	final static String[] deepDipCommand = {"java", "-jar", "artifacts/deep-dip.jar"};
+	final static String[] anacExampleBotCommand = {"java", "-jar", "artifacts/anac-example-negotiator.jar"};
 
-    final static String[] myDBraneBotCommand = {"java", "-jar", "agents/my-dbrane/my-dbrane.jar", "-log", "log", "-name", "MyDBrane", "-fy", FINAL_YEAR};
-    final static String[] dipBrainBotCommand = {"java", "-jar", "artifacts/dip-brain.jar", "-log", "log", "-name", "DipBrainANAC", "-fy", FINAL_YEAR};
+    final static String[] myDBraneBotCommand = {"java", "-jar", "agents/my-dbrane/my-dbrane.jar"};
+    final static String[] dipBrainBotCommand = {"java", "-jar", "artifacts/dip-brain.jar"};
 
 
     // JC: This command allows a remote debugger to connect to the .jar file JVM, allowing debugging in runtime
-    final static String[] openAIBotNegotiatorCommandDebug = {"java", "-agentlib:jdwp=transport=dt_socket,server=n,address=5005,suspend=y", "-jar", "target/open-ai-negotiator.jar", "-log", "log", "-name", "OpenAINegotiator", "-fy", FINAL_YEAR};
+    final static String[] openAIBotNegotiatorCommandDebug = {"java", "-agentlib:jdwp=transport=dt_socket,server=n,address=5005,suspend=y", "-jar", "target/open-ai-negotiator.jar"};
 
 
 
@@ -57,6 +54,42 @@ public class TournamentRunner {
 
     public static void main(String[] args) throws IOException {
 		
+		//The first argument is either a tournament spec (a JSON file, see TournamentSpec) or the number of games played at the same time.
+		// A tournament that was interrupted is resumed with --resume [its log folder] (see TournamentCheckpoint).
+		if (args.length > 1 && args[0].equals("--resume")) {
+			run(TournamentCheckpoint.resume(args[1]));
+			return;
+		}
+		
+		//A game of a tournament with a seed is played again, with the same seeds for its agents, with --rerun [its log folder] [game number].
+		// This does not reproduce the game: Parlance assigns the powers at random and the negotiations run on wall-clock time.
+		// Only LocalTournamentRunner --replay reproduces a game.
+		if (args.length > 2 && args[0].equals("--rerun")) {
+			System.out.println("TournamentRunner.main() The game is played again with the same seeds, but Parlance assigns the powers anew, so the game will not be the same.");
+			TournamentSpec spec = TournamentSpec.load(new File(args[1], TournamentCheckpoint.SPEC_FILE_NAME).getPath());
+			run(spec.withReplayOf(Integer.parseInt(args[2])));
+			return;
+		}
+		
+		TournamentSpec spec;
+		if (args.length > 0 && args[0].endsWith(".json")) {
+			spec = TournamentSpec.load(args[0]);
+		} else {
+			spec = createDefaultSpec();
+			if (args.length > 0) {
+				spec = spec.withSlots(Integer.parseInt(args[0]));
+			}
+		}
+
+		run(spec);
+	}
+	
+	/**
+	 * Returns the spec of the tournament set by the custom settings above.
+	 * The games are shown in the Diplomacy Monitor, unless the JVM is started with -Djava.awt.headless=true.
+	 */
+	static TournamentSpec createDefaultSpec(){
+		
 		int numberOfGames = 1000000;				//The number of games this tournament consists of.
 		
 		int deadlineForMovePhases = 6; 	    //60 seconds for each SPR and FAL phases
@@ -66,121 +99,255 @@ public class TournamentRunner {
 		int finalYear = Integer.parseInt(FINAL_YEAR); 	//The year after which the agents in each game are supposed to propose a draw to each other.
 		// (It depends on the implementation of the players whether this will indeed happen or not, so this may not always work.)
 
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-
-            //NOTE: unfortunately, Shutdownhooks don't work on windows if the program was started in eclipse and
-            // you stop it by clicking the red button (on MAC it seems to work fine).
-
-            @Override
-            public void run() {
-                if (MODE) {
-                    NegoServerRunner.stop();
-                }
-                ParlanceRunner.stop();
-            }
-        });
+		int numberOfSlots = 1;				//The number of games played at the same time.
 
-		run(numberOfGames, deadlineForMovePhases, deadlineForRetreatPhases, deadlineForBuildPhases, finalYear);
+		int numberOfParticipants = TournamentSpec.MAP_TO_NUMBER_OF_PLAYERS.get(GAME_MAP);
+		List<TournamentSpec.Seat> seats = new ArrayList<TournamentSpec.Seat>();
+		
+		// Bots for negotiation testing
+		if (MODE) {
+			seats.add(new TournamentSpec.Seat("ANACExample", anacExampleBotCommand, numberOfParticipants - 1));
+			// JC: If debug is on, start the OpenAINegotiator so that a remote debugger can connect to it
+			seats.add(new TournamentSpec.Seat("OpenAINegotiator", REMOTE_DEBUG != 0 ? openAIBotNegotiatorCommandDebug : openAIBotNegotiatorCommand, 1));
+		}
+		// Bots for tactics testing
+		else {
+			seats.add(new TournamentSpec.Seat("RandomBot", randomBotCommand, numberOfParticipants - 1));
+			seats.add(new TournamentSpec.Seat("DeepDip", deepDipCommand, 1));
+		}
+
+		return TournamentSpec.create(MODE, GAME_MAP, finalYear, numberOfGames, numberOfSlots, WARM_AGENTS,
+				deadlineForMovePhases, deadlineForRetreatPhases, deadlineForBuildPhases, LOG_FOLDER, ! Boolean.getBoolean("java.awt.headless"), seats);
+	}
+	
+	/**
+	 * Plays the tournament described by the given spec, on one or more game slots.
+	 */
+	public static TournamentResult run(TournamentSpec spec) throws IOException{
+		return run(TournamentCheckpoint.create(spec));
+	}
+	
+	/**
+	 * Plays the games of the given tournament that were not played yet.
+	 */
+	public static TournamentResult run(TournamentCheckpoint checkpoint) throws IOException{
+		
+		TournamentSpec spec = checkpoint.spec;
+		TournamentResult tournamentResult;
+		
+		//Without the monitor, nothing in this JVM should open a window (see TournamentMetrics).
+		if (! spec.isMonitor()) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		
+		if (spec.getSlots() > 1) {
+			tournamentResult = runConcurrently(checkpoint);
+		} else {
+			
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+
+				//NOTE: unfortunately, Shutdownhooks don't work on windows if the program was started in eclipse and
+				// you stop it by clicking the red button (on MAC it seems to work fine).
+
+				@Override
+				public void run() {
+					NegoServerRunner.stop();
+					ParlanceRunner.stop();
+				}
+			});
+			
+			tournamentResult = runOneAtATime(checkpoint);
+		}
+		
+		if (spec.getResultsFile() != null && tournamentResult != null) {
+			writeResults(tournamentResult, spec.getResultsFile());
+		}
+		
+		return tournamentResult;
+	}
+	
+	/**
+	 * Writes the final results of a tournament to the given file.
+	 */
+	static void writeResults(TournamentResult tournamentResult, String path){
+		
+		File resultsFile = new File(path);
+		if (resultsFile.getParentFile() != null) {
+			resultsFile.getParentFile().mkdirs();
+		}
+		
+		try {
+			Files.write(resultsFile.toPath(), tournamentResult.getSummary().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			System.out.println("TournamentRunner.writeResults() Could not write the results to " + path);
+			e.printStackTrace();
+		}
 	}
 	
 	
 	static List<Process> players = new ArrayList<Process>();
 	
-	public static void run(int numberOfGames, int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit, int finalYear) throws IOException{
+	static AgentHostPool agentHostPool = null;
+	
+	/**Returned by getGameTimeoutMillis() if a game may take any time.*/
+	public static final long NO_TIMEOUT = Long.MAX_VALUE;
+	
+	/**
+	 * Returns the longest time a game may take: every phase until the final year reaching its deadline, twice over.
+	 * Deadlines are in seconds. A deadline of 0 means that the phase has no deadline (as in Parlance), in which case
+	 * the game has no timeout either and NO_TIMEOUT is returned.
+	 */
+	public static long getGameTimeoutMillis(int finalYear, int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit){
+		
+		if(moveTimeLimit == 0 || retreatTimeLimit == 0 || buildTimeLimit == 0){
+			return NO_TIMEOUT;
+		}
+		
+		int numberOfYears = Math.max(1, finalYear - 1901 + 2);
+		long yearMillis = 1000L * (2 * moveTimeLimit + 2 * retreatTimeLimit + buildTimeLimit);
+		
+		return 2 * numberOfYears * yearMillis + 60000;
+	}
+	
+	/**
+	 * Waits until the observer sees the end of the game, and reports the games that did not end in time and the
+	 * players that did not submit their orders in time.
+	 * 
+	 * @return The result of the game, or null if it did not end in time.
+	 */
+	static GameResult awaitGame(TournamentObserver tournamentObserver, int gameNumber, long timeoutMillis){
+		
+		GameResult gameResult = null;
+		
+		try {
+			gameResult = tournamentObserver.awaitGameEnd(timeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		
+		if (gameResult == null) {
+			System.out.println("TournamentRunner.awaitGame() Game " + gameNumber + " did not end within " + timeoutMillis + " milliseconds.");
+		}
+		
+		if (tournamentObserver.playerFailed()) {
+			// One or more players did not send its orders in in time.
+			System.out.println("TournamentRunner.awaitGame() In game " + gameNumber + " these powers did not submit their orders in time: " + tournamentObserver.getCCDPowers());
+		}
+		
+		return gameResult;
+	}
+	
+	/**
+	 * Plays the tournament on several game slots at the same time. Each slot has its own game server, negotiation
+	 * server and observer (see TournamentExecutor).
+	 */
+	public static TournamentResult runConcurrently(TournamentSpec spec) throws IOException{
+		return runConcurrently(TournamentCheckpoint.create(spec));
+	}
+	
+	static TournamentResult runConcurrently(TournamentCheckpoint checkpoint) throws IOException{
+		
+		final TournamentExecutor tournamentExecutor = new TournamentExecutor(checkpoint);
+		
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				tournamentExecutor.stop();
+			}
+		});
+		
+		return tournamentExecutor.run();
+	}
+	
+	/**
+	 * Creates a list of ScoreCalculators to determine how the players should be ranked in the tournament.
+	 */
+	static ArrayList<ScoreCalculator> createScoreCalculators(String map){
+		
+		ArrayList<ScoreCalculator> scoreCalculators = new ArrayList<ScoreCalculator>();
+		
+		if(map.toLowerCase().equals("standard")) {
+			scoreCalculators.add(new SoloVictoryCalculator());
+			scoreCalculators.add(new SupplyCenterCalculator());
+			scoreCalculators.add(new PointsCalculator());
+			scoreCalculators.add(new RankCalculator());
+		}
+		else {
+			scoreCalculators.add(new RankCalculator());
+		}
+		
+		return scoreCalculators;
+	}
+	
+	/**
+	 * Plays the games of the tournament that were not played yet one after the other, on the default ports.
+	 */
+	static TournamentResult runOneAtATime(TournamentCheckpoint checkpoint) throws IOException{
 
+        TournamentSpec spec = checkpoint.spec;
         TournamentObserver tournamentObserver = null;
 
         long startTime = System.currentTimeMillis();
         long elapsedTime;
 
+        //The processes of a previous tournament have been destroyed already.
+        players.clear();
+
         try {
-            // JC: get number of participants from GAME_MAP
-            int numberOfParticipants = mapToNumberOfPlayers.get(GAME_MAP);
+            int numberOfParticipants = spec.getNumberOfParticipants();
+            int numberOfGames = spec.getNumberOfGames();
 
-            //Create a folder to store all the results of the tournament.
-            // This folder will be placed inside the LOG_FOLDER and will have the current date and time as its name.
-            // You can change this line if you prefer it differently.
-            String tournamentLogFolderPath = LOG_FOLDER + File.separator + Logger.getDateString();
-            File logFile = new File(tournamentLogFolderPath);
-            logFile.mkdirs();
+            //The folder that stores all the results of the tournament.
+            // It is placed inside the log folder of the spec and has the date and time the tournament started as its name (see TournamentCheckpoint).
+            String tournamentLogFolderPath = checkpoint.tournamentLogFolderPath;
 
 
-            //1. Run the Parlance game server.
-            ParlanceRunner.runParlanceServer(GAME_MAP, numberOfGames, moveTimeLimit, retreatTimeLimit, buildTimeLimit);
+            //1. Run the Parlance game server, for the games that are not in the checkpoint yet.
+            ParlanceRunner.runParlanceServer(spec.getMap(), checkpoint.getNumberOfGamesToPlay(), spec.getMoveTimeLimit(), spec.getRetreatTimeLimit(), spec.getBuildTimeLimit());
 
             //Create a list of ScoreCalculators to determine how the players should be ranked in the tournament.
-            ArrayList<ScoreCalculator> scoreCalculators = new ArrayList<ScoreCalculator>();
-
-            if(GAME_MAP.toLowerCase().equals("standard")) {
-                scoreCalculators.add(new SoloVictoryCalculator());
-                scoreCalculators.add(new SupplyCenterCalculator());
-                scoreCalculators.add(new PointsCalculator());
-                scoreCalculators.add(new RankCalculator());
-            }
-            else {
-                scoreCalculators.add(new RankCalculator());
-            }
+            // They are those of the checkpoint, which holds the scores of the games that were already played.
+            ArrayList<ScoreCalculator> scoreCalculators = checkpoint.tournamentResult.scoreCalculators;
 
             //2. Create a TournamentObserver to monitor the games and accumulate the results.
             // JC: Use "windowless = true" to run without any Diplomacy Monitor and, hence, being able to run on a server
-            tournamentObserver = new TournamentObserver(tournamentLogFolderPath, scoreCalculators, numberOfGames, numberOfParticipants, false);
+            tournamentObserver = new TournamentObserver(tournamentLogFolderPath, scoreCalculators, checkpoint.tournamentResult, numberOfGames, numberOfParticipants,
+                    TournamentObserver.DEFAULT_GAME_SERVER_PORT, ! spec.isMonitor());
 
             //3. Run the Negotiation Server.
-            if (MODE) {
+            if (spec.isNegotiation()) {
                 NegoServerRunner.run(tournamentObserver, tournamentLogFolderPath, numberOfGames);
             }
 
             for (int gameNumber = 1; gameNumber <= numberOfGames; gameNumber++) {
 
+                if (checkpoint.isPlayed(gameNumber)) {
+                    continue;
+                }
+
                 System.out.println();
                 System.out.println("GAME " + gameNumber);
 
-                if (MODE) {
+                if (spec.isNegotiation()) {
                     NegoServerRunner.notifyNewGame(gameNumber);
                 }
 
                 //4. Start the players:
                 for (int i = 0; i < numberOfParticipants; i++) {
 
-                    String name;
-                    String[] command;
-
-                    // Bots for negotiation testing
-                    if(MODE) {
-                        //make sure that each player has a different name.
-                        if (i < numberOfParticipants - 1) {
-                            name = "ANACExample " + i;
-                            command = anacExampleBotCommand;
-                        } else {
-                            name = "OpenAINegotiator " + i;
-                            command = openAIBotNegotiatorCommand;
-                        }
-                    }
-                    // Bots for tactics testing
-                    else {
-                        if (i < numberOfParticipants - 1) {
-                            name = "RandomBot " + i;
-                            command = randomBotCommand;
-                        } else {
-                            name = "DeepDip " + i;
-                            command = deepDipCommand;
-                        }
-                    }
+                    String name = spec.getPlayerName(i);
+                    String[] command = spec.createPlayerCommand(i, tournamentLogFolderPath, gameNumber);
 
+                    //Let a warm host of this seat join the game, if possible.
+                    if (spec.isWarmAgents() && AgentHostPool.canHost(command)) {
+                        if (agentHostPool == null) {
+                            agentHostPool = new AgentHostPool("tournament", numberOfParticipants);
+                        }
 
-                    //set the log folder for this agent to be a subfolder of the tournament log folder.
-                    command[4] = tournamentLogFolderPath + File.separator + name + File.separator + "Game " + gameNumber + File.separator;
-
-                    //set the name of the agent.
-                    command[6] = name;
-
-                    //set the year after which the agent will propose a draw to the other agents.
-                    command[8] = "" + finalYear;
-
-                    // JC: If debug is on and the current command is a OpenAINegotiator, then change the command to allow debug
-                    // This is here, because otherwise we would need to change how the cycle reads the arguments
-                    if (Arrays.equals(command, openAIBotNegotiatorCommand) && REMOTE_DEBUG != 0) {
-                        command = openAIBotNegotiatorCommandDebug;
+                        if (agentHostPool.join(i, name, command, gameNumber, ParlanceRunner.DEFAULT_PORT, NegoServerRunner.DEFAULT_SERVER_PORT)) {
+                            continue;
+                        }
                     }
 
                     //start the process
@@ -198,22 +365,17 @@ public class TournamentRunner {
                 }
 
                 //5. Let the tournament observer (re-)connect to the game server.
+                tournamentObserver.setNextGameNumber(gameNumber);
                 tournamentObserver.connectToServer();
 
 
                 //NOW WAIT TILL THE GAME IS FINISHED
-                while (tournamentObserver.getGameStatus() == TournamentObserver.GAME_ACTIVE || tournamentObserver.getGameStatus() == TournamentObserver.CONNECTED_WAITING_TO_START) {
-
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+                awaitGame(tournamentObserver, gameNumber, getGameTimeoutMillis(spec.getFinalYear(), spec.getMoveTimeLimit(), spec.getRetreatTimeLimit(), spec.getBuildTimeLimit()));
+                checkpoint.gameFinished();
 
-                    if (tournamentObserver.playerFailed()) {
-                        // One or more players did not send its orders in in time.
-                        //
-                    }
+                if (spec.isSettled(checkpoint.tournamentResult)) {
+                    System.out.println("TournamentRunner.runOneAtATime() The ranking is settled after " + checkpoint.tournamentResult.getNumberOfGames() + " games.");
+                    break;
                 }
             }
 
@@ -230,6 +392,7 @@ public class TournamentRunner {
             // you can use this list.
             ArrayList<GameResult> results = tournamentObserver.getGameResults();
 
+
             //Kill the player processes.
             // (if everything is implemented okay this isn't necessary because the players should kill themselves. But just to be sure..)
             for (Process playerProcess : players) {
@@ -239,24 +402,35 @@ public class TournamentRunner {
                     e.printStackTrace();
                 }
             }
+
+            return tournamentObserver.getTournamentResult();
         }
         catch (Exception e) {
             e.printStackTrace();
+            return null;
         }
 	    finally {
             // JC: Added in case exception are thrown during development
             for (Process playerProcess : players) {
                 playerProcess.destroy();
             }
+            players.clear();
+
+            if (agentHostPool != null) {
+                agentHostPool.stop();
+                agentHostPool = null;
+            }
 
             if(tournamentObserver != null){
                 tournamentObserver.exit();
             }
 
             ParlanceRunner.stop();
-            if (MODE) {
+            if (spec.isNegotiation()) {
                 NegoServerRunner.stop();
             }
+
+            checkpoint.close();
         }
 	}
 }
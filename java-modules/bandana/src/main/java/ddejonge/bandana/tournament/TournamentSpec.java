@@ -0,0 +1,428 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+/**
+ * The settings of a tournament: which agent plays on which seat, how many games are played at the same time, the
+ * deadlines, the map, the seed and where the results go. It is read from a JSON file, e.g.:
+ *
+ * <pre>
+ * {
+ *   "negotiation": true,
+ *   "map": "standard",
+ *   "finalYear": 1920,
+ *   "numberOfGames": 100,
+ *   "slots": 4,
+ *   "warmAgents": false,
+ *   "deadlines": {"move": 6, "retreat": 3, "build": 3},
+ *   "seed": 42,
+ *   "stopRule": {"minGames": 200, "z": 3.0},
+ *   "outputs": {"logFolder": "/tmp/dip-log/bandana/", "resultsFile": "results.txt", "monitor": false, "trajectories": false},
+ *   "seats": [
+ *     {"name": "ANACExample", "command": ["java", "-jar", "artifacts/anac-example-negotiator.jar"], "count": 6},
+ *     {"name": "OpenAINegotiator", "command": ["java", "-jar", "artifacts/open-ai-negotiator.jar", "-policy", "mlp"]}
+ *   ]
+ * }
+ * </pre>
+ *
+ * Every field is optional, except the seats. A seat entry with a count fills that many seats with the same agent.
+ * If a stop rule is given, the tournament ends before numberOfGames once at least minGames were played and the
+ * ranking is settled (see TournamentResult.isRankingSettled()).
+ *
+ * If a seed is given, every agent gets its own seed for every game (see getSeed()), so a game can be played again
+ * with the same seeds (see withReplayOf()). This does not make the game the same under Parlance, which assigns the
+ * powers at random and runs the negotiations on wall-clock time.
+ *
+ * A spec cannot be changed once it is read. The commands of the agents are built anew for every launch by
+ * createPlayerCommand(), so games played at the same time never share a command.
+ */
+public class TournamentSpec {
+
+	/**The number of players of each map.*/
+	static final Map<String, Integer> MAP_TO_NUMBER_OF_PLAYERS = new HashMap<String, Integer>();
+	static{
+		MAP_TO_NUMBER_OF_PLAYERS.put("standard", 7);
+		MAP_TO_NUMBER_OF_PLAYERS.put("small", 2);
+	}
+
+	private boolean negotiation = true;
+	private String map = "standard";
+	private int finalYear = 1920;
+	private int numberOfGames = 1;
+	private int slots = 1;
+	/**Warm hosts are opt-in: an agent that keeps state in static fields would carry it over from one game to the next.*/
+	private boolean warmAgents = false;
+	private Deadlines deadlines = new Deadlines();
+	/**If not null, every agent is given its own seed, derived from this one (see getSeed()).*/
+	private Long seed = null;
+	/**If not null, the tournament is the single game with this number of the tournament with the same seed, played again.*/
+	private Integer replayOf = null;
+	/**If not null, the tournament may end as soon as its ranking is settled.*/
+	private StopRule stopRule = null;
+	private Outputs outputs = new Outputs();
+	private List<Seat> seats = new ArrayList<Seat>();
+
+	/**The agent of every seat, in seat order. Is filled by validate().*/
+	private transient List<Seat> seatList;
+
+	/**
+	 * The deadlines of the phases, in seconds. A deadline of 0 means that the phase has no deadline, as in Parlance,
+	 * in which case the games have no timeout either (see TournamentRunner.getGameTimeoutMillis()).
+	 */
+	static class Deadlines{
+		private int move = 6;
+		private int retreat = 3;
+		private int build = 3;
+	}
+
+	/**
+	 * When to end a tournament before all its games are played.
+	 */
+	static class StopRule{
+		/**The number of games that are always played.*/
+		private int minGames = 100;
+		/**The number of standard errors two neighbours in the ranking must be apart.*/
+		private double z = 3.0;
+	}
+
+	/**
+	 * Where the results of the tournament go.
+	 */
+	static class Outputs{
+		/**Each tournament gets a folder with the current date in this folder, with the logs of the observer and of the agents.*/
+		private String logFolder = "/tmp/dip-log/bandana/";
+		/**If not null, the final results of the tournament are written to this file.*/
+		private String resultsFile = null;
+		/**If true, the Diplomacy Monitor window shows the games. Only used if the games are played one at a time.*/
+		private boolean monitor = false;
+		/**If true, every phase of every game is recorded in the trajectories folder of the tournament (see TrajectoryLog).*/
+		private boolean trajectories = false;
+	}
+
+	/**
+	 * An agent and the seats it plays on.
+	 */
+	static class Seat{
+		private String name;
+		/**The command that starts the agent, without the -log, -name and -fy arguments, which are added for every game.*/
+		private List<String> command;
+		private int count = 1;
+
+		Seat(){
+		}
+
+		Seat(String name, String[] command, int count){
+			this.name = name;
+			this.command = new ArrayList<String>();
+			Collections.addAll(this.command, command);
+			this.count = count;
+		}
+	}
+
+
+	private TournamentSpec(){
+	}
+
+	/**
+	 * Reads a spec from a JSON file.
+	 */
+	public static TournamentSpec load(String path) throws IOException{
+
+		Reader reader = new FileReader(path);
+		try {
+			return fromJson(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static TournamentSpec fromJson(Reader reader){
+
+		TournamentSpec spec;
+		try {
+			spec = new Gson().fromJson(reader, TournamentSpec.class);
+		} catch (JsonParseException e) {
+			throw new RuntimeException("TournamentSpec.fromJson() Error! The tournament spec is not valid JSON: " + e.getMessage(), e);
+		}
+
+		if(spec == null){
+			throw new RuntimeException("TournamentSpec.fromJson() Error! The tournament spec is empty");
+		}
+
+		spec.validate();
+		return spec;
+	}
+
+	public String toJson(){
+		return new GsonBuilder().setPrettyPrinting().create().toJson(this);
+	}
+
+	/**
+	 * Creates a spec from the given settings. The seats are given as a list of agent names, commands and counts.
+	 */
+	static TournamentSpec create(boolean negotiation, String map, int finalYear, int numberOfGames, int slots, boolean warmAgents,
+			int moveTimeLimit, int retreatTimeLimit, int buildTimeLimit, String logFolder, boolean monitor, List<Seat> seats){
+
+		TournamentSpec spec = new TournamentSpec();
+		spec.negotiation = negotiation;
+		spec.map = map;
+		spec.finalYear = finalYear;
+		spec.numberOfGames = numberOfGames;
+		spec.slots = slots;
+		spec.warmAgents = warmAgents;
+		spec.deadlines.move = moveTimeLimit;
+		spec.deadlines.retreat = retreatTimeLimit;
+		spec.deadlines.build = buildTimeLimit;
+		spec.outputs.logFolder = logFolder;
+		spec.outputs.monitor = monitor;
+		spec.seats = new ArrayList<Seat>(seats);
+
+		spec.validate();
+		return spec;
+	}
+
+	/**
+	 * Returns a copy of this spec in which the games are played on the given number of slots.
+	 */
+	public TournamentSpec withSlots(int slots){
+
+		TournamentSpec copy = fromJson(new StringReader(toJson()));
+		copy.slots = slots;
+		copy.validate();
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of this spec that plays the given game of this tournament again: a tournament of one game, in
+	 * which every agent gets the seed it had in the given game. The spec must have a seed. Only the seeds are the same:
+	 * the powers and the timing of the negotiations are not.
+	 */
+	public TournamentSpec withReplayOf(int gameNumber){
+
+		if(seed == null){
+			throw new RuntimeException("TournamentSpec.withReplayOf() Error! Only the games of a tournament with a seed can be played again");
+		}
+		if(gameNumber <= 0 || gameNumber > numberOfGames){
+			throw new RuntimeException("TournamentSpec.withReplayOf() Error! The tournament has no game " + gameNumber);
+		}
+
+		TournamentSpec copy = fromJson(new StringReader(toJson()));
+		//the game of a replay is its only game, which is the game it replays.
+		copy.replayOf = replayOf != null ? replayOf : gameNumber;
+		copy.numberOfGames = 1;
+		copy.slots = 1;
+		copy.stopRule = null;
+		copy.validate();
+		return copy;
+	}
+
+	private void validate(){
+
+		if( ! MAP_TO_NUMBER_OF_PLAYERS.containsKey(map)){
+			throw new RuntimeException("TournamentSpec.validate() Error! Unknown map: " + map + ". Known maps: " + MAP_TO_NUMBER_OF_PLAYERS.keySet());
+		}
+		if(numberOfGames <= 0){
+			throw new RuntimeException("TournamentSpec.validate() Error! The number of games must be greater than 0");
+		}
+		if(slots <= 0){
+			throw new RuntimeException("TournamentSpec.validate() Error! The number of slots must be greater than 0");
+		}
+		if(deadlines == null || deadlines.move < 0 || deadlines.retreat < 0 || deadlines.build < 0){
+			throw new RuntimeException("TournamentSpec.validate() Error! The deadlines cannot be negative");
+		}
+		if(stopRule != null && (stopRule.minGames < 0 || stopRule.z <= 0)){
+			throw new RuntimeException("TournamentSpec.validate() Error! The stop rule needs a minimum number of games of at least 0 and a z greater than 0");
+		}
+		if(replayOf != null && (seed == null || replayOf <= 0)){
+			throw new RuntimeException("TournamentSpec.validate() Error! A replay needs a seed and a game number greater than 0");
+		}
+		if(outputs == null || outputs.logFolder == null){
+			throw new RuntimeException("TournamentSpec.validate() Error! No log folder given");
+		}
+
+		if(seats == null){
+			throw new RuntimeException("TournamentSpec.validate() Error! No seats given");
+		}
+
+		List<Seat> seatList = new ArrayList<Seat>();
+		for(Seat seat : seats){
+			if(seat.name == null || seat.command == null || seat.command.isEmpty()){
+				throw new RuntimeException("TournamentSpec.validate() Error! Every seat needs a name and a command");
+			}
+			if(seat.count <= 0){
+				throw new RuntimeException("TournamentSpec.validate() Error! The count of the seat " + seat.name + " must be greater than 0, but it is " + seat.count);
+			}
+			for(int i=0; i<seat.count; i++){
+				seatList.add(seat);
+			}
+		}
+
+		if(seatList.size() != getNumberOfParticipants()){
+			throw new RuntimeException("TournamentSpec.validate() Error! The map " + map + " has " + getNumberOfParticipants() + " seats, but " + seatList.size() + " are given");
+		}
+
+		this.seatList = Collections.unmodifiableList(seatList);
+	}
+
+	/**
+	 * Returns the name of the agent playing on the given seat. Each player has a different name.
+	 */
+	public String getPlayerName(int seat){
+		return seatList.get(seat).name + " " + seat;
+	}
+
+	/**
+	 * Returns a new command that starts the agent of the given seat for the given game.
+	 *
+	 * @param seat The seat of the agent.
+	 * @param tournamentLogFolderPath The folder of the tournament. The agent logs to a subfolder of it.
+	 * @param gameNumber The number of the game.
+	 */
+	public String[] createPlayerCommand(int seat, String tournamentLogFolderPath, int gameNumber){
+
+		String name = getPlayerName(seat);
+
+		List<String> command = new ArrayList<String>(seatList.get(seat).command);
+
+		//set the log folder for this agent to be a subfolder of the tournament log folder.
+		command.add("-log");
+		command.add(tournamentLogFolderPath + File.separator + name + File.separator + "Game " + gameNumber + File.separator);
+
+		//set the name of the agent.
+		command.add("-name");
+		command.add(name);
+
+		//set the year after which the agent will propose a draw to the other agents.
+		command.add("-fy");
+		command.add("" + finalYear);
+
+		if(seed != null){
+			command.add("-seed");
+			command.add("" + getSeed(gameNumber, seat));
+		}
+
+		return command.toArray(new String[command.size()]);
+	}
+
+	/**
+	 * Returns the seed of the agent on the given seat in the given game, or 0 if the spec has no seed.
+	 * The seeds of different games and seats are different, but always the same for the same tournament seed.
+	 * In a replay, the seeds are those of the game that is played again.
+	 */
+	public long getSeed(int gameNumber, int seat){
+
+		if(seed == null){
+			return 0;
+		}
+
+		return deriveSeed(seed, replayOf != null ? replayOf : gameNumber, seat);
+	}
+
+	/**
+	 * Returns the seed of the given seat in the given game of a tournament with the given seed.
+	 *
+	 * Each number is mixed in with the finalizer of SplitMix64, so that neighbouring games and seats (and neighbouring
+	 * tournament seeds) get seeds that have no bits in common, and hence java.util.Random sequences that look unrelated.
+	 * A seat of -1 may be used for the game server.
+	 */
+	public static long deriveSeed(long tournamentSeed, int gameNumber, int seat){
+		long hash = mix(tournamentSeed);
+		hash = mix(hash + gameNumber);
+		hash = mix(hash + seat);
+		return hash;
+	}
+
+	private static long mix(long value){
+		value += 0x9E3779B97F4A7C15L;
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * Returns true if the spec has a stop rule and the given result satisfies it, so no more games have to be played.
+	 */
+	public boolean isSettled(TournamentResult tournamentResult){
+		return stopRule != null && tournamentResult.getNumberOfGames() >= stopRule.minGames && tournamentResult.isRankingSettled(stopRule.z);
+	}
+
+	public boolean isNegotiation(){
+		return negotiation;
+	}
+
+	public String getMap(){
+		return map;
+	}
+
+	public int getNumberOfParticipants(){
+		return MAP_TO_NUMBER_OF_PLAYERS.get(map);
+	}
+
+	public int getFinalYear(){
+		return finalYear;
+	}
+
+	public int getNumberOfGames(){
+		return numberOfGames;
+	}
+
+	public int getSlots(){
+		return slots;
+	}
+
+	public boolean isWarmAgents(){
+		return warmAgents;
+	}
+
+	public int getMoveTimeLimit(){
+		return deadlines.move;
+	}
+
+	public int getRetreatTimeLimit(){
+		return deadlines.retreat;
+	}
+
+	public int getBuildTimeLimit(){
+		return deadlines.build;
+	}
+
+	public Long getSeed(){
+		return seed;
+	}
+
+	/**
+	 * Returns the number of the game this tournament plays again, or null if it is not a replay.
+	 */
+	public Integer getReplayOf(){
+		return replayOf;
+	}
+
+	public String getLogFolder(){
+		return outputs.logFolder;
+	}
+
+	public String getResultsFile(){
+		return outputs.resultsFile;
+	}
+
+	public boolean isMonitor(){
+		return outputs.monitor;
+	}
+
+	public boolean isRecordTrajectories(){
+		return outputs.trajectories;
+	}
+}
@@ -0,0 +1,137 @@
+package ddejonge.bandana.tournament;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the summary of a TournamentResult (its getSummary()) to tournamentResults.log on a thread of its own, so that
+ * the observers never wait for the file.
+ *
+ * gameFinished() only counts the games. The summary is written again once MIN_INTERVAL_MILLIS have passed since it was
+ * last written, or sooner if MAX_PENDING_GAMES games have finished since then. It is written to a temporary file that
+ * then replaces the summary, so a reader never sees half a summary.
+ */
+public class TournamentSummaryWriter implements Runnable {
+
+	public static final String FILE_NAME = "tournamentResults.log";
+
+	/**The shortest time between two rewrites of the summary.*/
+	static final long MIN_INTERVAL_MILLIS = 5000;
+
+	/**The number of finished games after which the summary is written, even if MIN_INTERVAL_MILLIS have not passed.*/
+	static final int MAX_PENDING_GAMES = 20;
+
+	private final File file;
+	private final TournamentResult tournamentResult;
+	private final long minIntervalMillis;
+	private final int maxPendingGames;
+
+	/**The number of games that finished since the summary was last written.*/
+	private int pendingGames = 0;
+	private long lastWriteTime = System.currentTimeMillis();
+	private boolean closed = false;
+
+	private final Thread thread;
+
+
+	public TournamentSummaryWriter(File file, TournamentResult tournamentResult){
+		this(file, tournamentResult, MIN_INTERVAL_MILLIS, MAX_PENDING_GAMES);
+	}
+
+	public TournamentSummaryWriter(File file, TournamentResult tournamentResult, long minIntervalMillis, int maxPendingGames){
+
+		this.file = file;
+		this.tournamentResult = tournamentResult;
+		this.minIntervalMillis = minIntervalMillis;
+		this.maxPendingGames = maxPendingGames;
+
+		this.thread = new Thread(this, "TournamentSummaryWriter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Is called after the result of a game was added to the TournamentResult. Returns immediately.
+	 */
+	public synchronized void gameFinished(){
+		pendingGames++;
+		notifyAll();
+	}
+
+	@Override
+	public void run() {
+
+		try {
+			while(awaitNextWrite()){
+				write();
+			}
+		} catch (InterruptedException e) {
+			//the summary is written one last time by close().
+		}
+	}
+
+	/**
+	 * Waits until the summary must be written again. Returns false if the writer was closed.
+	 */
+	private synchronized boolean awaitNextWrite() throws InterruptedException{
+
+		while( ! closed){
+
+			long millisToWait = lastWriteTime + minIntervalMillis - System.currentTimeMillis();
+
+			if(pendingGames >= maxPendingGames || (pendingGames > 0 && millisToWait <= 0)){
+				pendingGames = 0;
+				lastWriteTime = System.currentTimeMillis();
+				return true;
+			}
+
+			if(pendingGames > 0){
+				wait(millisToWait);
+			}else{
+				wait();
+			}
+		}
+
+		return false;
+	}
+
+	private void write(){
+
+		//getSummary() only holds the lock of the result while it copies the scores, so the observers can add results
+		//while the summary is bootstrapped.
+		String summary = tournamentResult.getSummary();
+
+		try {
+			AtomicFile.write(file, summary);
+		} catch (IOException e) {
+			System.out.println("TournamentSummaryWriter.write() Could not write the summary " + file);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops the writer, and writes the summary one last time if games finished since it was last written.
+	 */
+	public void close(){
+
+		boolean pending;
+		synchronized (this) {
+			if(closed){
+				return;
+			}
+			closed = true;
+			pending = pendingGames > 0;
+			notifyAll();
+		}
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if(pending){
+			write();
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package ddejonge.bandana.tournament;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.net.Socket;
+
+/**
+ * Plays games of a tournament for a TournamentCoordinator, on a TournamentExecutor with its own game slots.
+ *
+ * The worker gets the tournament spec from the coordinator, so it only needs to know where the coordinator is and how
+ * many games it plays at the same time. The agents of the spec must be available on the machine of the worker, at the
+ * same paths. Workers that run on the same machine must be given different first ports, because the PortAllocator of
+ * one worker does not know the ports of the others. The negotiation servers get the ports from the first port + 1 on.
+ *
+ * Usage: TournamentWorker [coordinator host] [coordinator port] [number of slots] [first port]
+ */
+public class TournamentWorker {
+
+	public static void main(String[] args) throws Exception {
+
+		if(args.length < 1){
+			System.out.println("Usage: TournamentWorker [coordinator host] [coordinator port] [number of slots] [first port]");
+			return;
+		}
+
+		String host = args[0];
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : TournamentCoordinator.DEFAULT_PORT;
+		int numberOfSlots = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		int firstPort = args.length > 3 ? Integer.parseInt(args[3]) : TournamentExecutor.BASE_GAME_SERVER_PORT;
+
+		run(host, port, numberOfSlots, firstPort);
+	}
+
+	/**
+	 * Plays games for the coordinator at the given address until it has no game left.
+	 *
+	 * @return The results of the games played by this worker.
+	 */
+	public static TournamentResult run(String host, int port, int numberOfSlots, int firstPort) throws IOException{
+
+		RemoteGameQueue gameQueue = new RemoteGameQueue(host, port, numberOfSlots);
+		TournamentSpec spec = gameQueue.getSpec().withSlots(numberOfSlots);
+
+		final TournamentExecutor tournamentExecutor = new TournamentExecutor(spec, TournamentRunner.createScoreCalculators(spec.getMap()),
+				gameQueue, firstPort, firstPort + 1);
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				tournamentExecutor.stop();
+			}
+		});
+
+		try {
+			return tournamentExecutor.run();
+		} finally {
+			gameQueue.close();
+		}
+	}
+
+	/**
+	 * Gets the games of the slots of a worker from a TournamentCoordinator, with one connection per slot.
+	 * See TournamentCoordinator for the protocol.
+	 */
+	static class RemoteGameQueue implements GameQueue{
+
+		final String host;
+		final int port;
+
+		final Socket[] sockets;
+		final ObjectOutputStream[] outputs;
+		final ObjectInputStream[] inputs;
+
+		/**True for the slots that got their last game, or lost their connection. They do not connect again.*/
+		final boolean[] closed;
+
+		/**The spec sent by the coordinator over the first connection.*/
+		private TournamentSpec spec;
+
+		RemoteGameQueue(String host, int port, int numberOfSlots) throws IOException{
+
+			this.host = host;
+			this.port = port;
+			this.sockets = new Socket[numberOfSlots];
+			this.outputs = new ObjectOutputStream[numberOfSlots];
+			this.inputs = new ObjectInputStream[numberOfSlots];
+			this.closed = new boolean[numberOfSlots];
+
+			//Connect the first slot now, to get the spec.
+			connect(0);
+		}
+
+		/**
+		 * Opens the connection of the given slot and reads the spec the coordinator sends first.
+		 */
+		private void connect(int slotNumber) throws IOException{
+
+			sockets[slotNumber] = new Socket(host, port);
+			outputs[slotNumber] = new ObjectOutputStream(sockets[slotNumber].getOutputStream());
+			outputs[slotNumber].flush();
+			inputs[slotNumber] = new TournamentObjectInputStream(sockets[slotNumber].getInputStream());
+
+			String specJson = (String) readObject(slotNumber);
+			if(spec == null){
+				spec = TournamentSpec.fromJson(new StringReader(specJson));
+			}
+		}
+
+		private Object readObject(int slotNumber) throws IOException{
+			try {
+				return inputs[slotNumber].readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+		}
+
+		TournamentSpec getSpec(){
+			return spec;
+		}
+
+		/**
+		 * Returns the game the coordinator sends to the given slot. If the coordinator cannot be reached, the slot
+		 * gets no more games.
+		 */
+		@Override
+		public int nextGameNumber(int slotNumber){
+
+			if(closed[slotNumber]){
+				return 0;
+			}
+
+			try {
+
+				if(sockets[slotNumber] == null){
+					connect(slotNumber);
+				}
+
+				int gameNumber = (Integer) readObject(slotNumber);
+
+				if(gameNumber == 0){
+					close(slotNumber);
+				}
+
+				return gameNumber;
+
+			} catch (IOException e) {
+				System.out.println("TournamentWorker.RemoteGameQueue.nextGameNumber() Slot " + slotNumber + " lost the connection with the coordinator at " + host + ":" + port);
+				e.printStackTrace();
+				close(slotNumber);
+				return 0;
+			}
+		}
+
+		/**
+		 * Sends the result of the game to the coordinator.
+		 */
+		@Override
+		public void gameFinished(int slotNumber, int gameNumber, GameResult gameResult){
+
+			if(closed[slotNumber]){
+				return;
+			}
+
+			try {
+				outputs[slotNumber].writeObject(gameResult);
+				outputs[slotNumber].flush();
+				outputs[slotNumber].reset();
+			} catch (IOException e) {
+				System.out.println("TournamentWorker.RemoteGameQueue.gameFinished() Could not send the result of game " + gameNumber + " to the coordinator.");
+				e.printStackTrace();
+				close(slotNumber);
+			}
+		}
+
+		private void close(int slotNumber){
+
+			closed[slotNumber] = true;
+
+			if(sockets[slotNumber] != null){
+				try {
+					sockets[slotNumber].close();
+				} catch (IOException e) {
+					//nothing to do.
+				}
+			}
+		}
+
+		void close(){
+			for(int i=0; i<sockets.length; i++){
+				close(i);
+			}
+		}
+	}
+}
@@ -0,0 +1,496 @@
+package ddejonge.bandana.tournament;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores what happened in every phase of every game of a tournament, so that agents can be trained from the games
+ * offline (see TrajectoryRecorder). The records are collected in chunks of about CHUNK_SIZE bytes, and every chunk is
+ * compressed on its own and appended to trajectories.dat. The index, trajectories.idx, has an entry of
+ * INDEX_ENTRY_SIZE bytes for every record, so that any record can be read without reading the ones before it:
+ *
+ *   long  position of the chunk in trajectories.dat
+ *   int   compressed length of the chunk
+ *   int   position of the record in the uncompressed chunk
+ *   int   length of the record
+ *   int   game number
+ *   short year
+ *   short phase (the ordinal of es.csic.iiia.fabregues.dip.board.Phase)
+ *
+ * A record (see Phase) holds the board at the start of the phase in the layout of the observations of the
+ * negotiation environment (see OpenAIAdapter.generateObservationData()), the orders given in the phase, the deals
+ * confirmed during the phase and the change of the number of supply centers of every power.
+ *
+ * The index entries of a chunk are written after the chunk itself, so after a crash both files are cut off at the end
+ * of the last complete chunk when the log is opened again. The records that were not written to a chunk yet are lost.
+ */
+public class TrajectoryLog {
+
+	public static final String FOLDER_NAME = "trajectories";
+	public static final String DATA_FILE_NAME = "trajectories.dat";
+	public static final String INDEX_FILE_NAME = "trajectories.idx";
+
+	static final int INDEX_ENTRY_SIZE = 28;
+
+	/**The size of the uncompressed chunks. A chunk is written once its records exceed it.*/
+	static final int CHUNK_SIZE = 1 << 20;
+
+	private final File folder;
+	private final int chunkSize;
+
+	private FileChannel dataChannel;
+	private FileChannel indexChannel;
+
+	/**The records of the chunk that is being filled, and their index entries (without the position and length of the chunk).*/
+	private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+	private final DataOutputStream chunkOutput = new DataOutputStream(chunk);
+	private final ByteBuffer pendingEntries = ByteBuffer.allocate(1 << 16);
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressed = new byte[CHUNK_SIZE];
+
+	private int numberOfRecords;
+
+
+	/**
+	 * Opens the log in the given folder, or creates it. New records are appended to it.
+	 */
+	public TrajectoryLog(File folder) throws IOException{
+		this(folder, CHUNK_SIZE);
+	}
+
+	TrajectoryLog(File folder, int chunkSize) throws IOException{
+
+		this.folder = folder;
+		this.chunkSize = chunkSize;
+
+		folder.mkdirs();
+		this.dataChannel = FileChannel.open(new File(folder, DATA_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.indexChannel = FileChannel.open(new File(folder, INDEX_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		//Only the complete chunks of which every index entry was written are kept.
+		long indexLength = indexChannel.size() - indexChannel.size() % INDEX_ENTRY_SIZE;
+		long dataLength = 0;
+		ByteBuffer entry = ByteBuffer.allocate(12);
+		while(indexLength > 0){
+
+			entry.clear();
+			indexChannel.read(entry, indexLength - INDEX_ENTRY_SIZE);
+			long chunkEnd = entry.getLong(0) + entry.getInt(8);
+
+			if(chunkEnd <= dataChannel.size()){
+				dataLength = chunkEnd;
+				break;
+			}
+			indexLength -= INDEX_ENTRY_SIZE;
+		}
+
+		if(indexLength < indexChannel.size() || dataLength < dataChannel.size()){
+			System.out.println("TrajectoryLog() Cutting off " + folder + " at " + (indexLength / INDEX_ENTRY_SIZE) + " records.");
+			indexChannel.truncate(indexLength);
+			dataChannel.truncate(dataLength);
+		}
+
+		this.numberOfRecords = (int) (indexLength / INDEX_ENTRY_SIZE);
+		this.indexChannel.position(indexLength);
+		this.dataChannel.position(dataLength);
+	}
+
+	/**
+	 * Appends the record of a phase. It is written to the disk with the chunk it belongs to.
+	 */
+	public synchronized void append(Phase phase) throws IOException{
+
+		if(dataChannel == null){
+			throw new IOException("TrajectoryLog.append() Error! " + folder + " is closed.");
+		}
+
+		int offset = chunk.size();
+		phase.write(chunkOutput);
+		chunkOutput.flush();
+
+		pendingEntries.putInt(offset);
+		pendingEntries.putInt(chunk.size() - offset);
+		pendingEntries.putInt(phase.getGameNumber());
+		pendingEntries.putShort((short) phase.getYear());
+		pendingEntries.putShort((short) phase.getPhase());
+
+		if(chunk.size() >= chunkSize || pendingEntries.remaining() < INDEX_ENTRY_SIZE){
+			writeChunk();
+		}
+	}
+
+	/**
+	 * Compresses the records that were appended since the last chunk, and writes them and their index entries.
+	 */
+	private void writeChunk() throws IOException{
+
+		if(chunk.size() == 0){
+			return;
+		}
+
+		byte[] records = chunk.toByteArray();
+		deflater.reset();
+		deflater.setInput(records);
+		deflater.finish();
+		int compressedLength = 0;
+		while( ! deflater.finished()){
+			if(compressedLength == compressed.length){
+				compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+			}
+			compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+		}
+
+		long chunkPosition = dataChannel.position();
+		ByteBuffer data = ByteBuffer.wrap(compressed, 0, compressedLength);
+		while(data.hasRemaining()){
+			dataChannel.write(data);
+		}
+
+		pendingEntries.flip();
+		ByteBuffer entries = ByteBuffer.allocate(pendingEntries.remaining() / (INDEX_ENTRY_SIZE - 12) * INDEX_ENTRY_SIZE);
+		while(pendingEntries.hasRemaining()){
+			entries.putLong(chunkPosition);
+			entries.putInt(compressedLength);
+			entries.putInt(pendingEntries.getInt());
+			entries.putInt(pendingEntries.getInt());
+			entries.putInt(pendingEntries.getInt());
+			entries.putShort(pendingEntries.getShort());
+			entries.putShort(pendingEntries.getShort());
+			numberOfRecords++;
+		}
+		entries.flip();
+		while(entries.hasRemaining()){
+			indexChannel.write(entries);
+		}
+
+		pendingEntries.clear();
+		chunk.reset();
+	}
+
+	/**
+	 * Returns the number of records in the files, not counting those of the chunk that is being filled.
+	 */
+	public synchronized int getNumberOfRecords(){
+		return numberOfRecords;
+	}
+
+	public File getFolder(){
+		return folder;
+	}
+
+	/**
+	 * Writes the last chunk and closes the files.
+	 */
+	public synchronized void close(){
+
+		if(dataChannel != null){
+			try {
+				writeChunk();
+				dataChannel.force(false);
+				indexChannel.force(false);
+				dataChannel.close();
+				indexChannel.close();
+			} catch (IOException e) {
+				System.out.println("TrajectoryLog.close() Could not write the last chunk of " + folder);
+				e.printStackTrace();
+			}
+			dataChannel = null;
+			indexChannel = null;
+			deflater.end();
+		}
+	}
+
+
+	/**
+	 * The record of one phase of a game.
+	 *
+	 * The powers are numbered from 1 in the alphabetical order of their names (1 is AUS on the standard map) and 0
+	 * means none, as in the negotiation environment (see OpenAIAdapterNegotiation.generatePowerNameToIntMap()).
+	 * Province i of the observation is the province with ID i + 1, i.e. the provinces are in the order of the map.
+	 */
+	public static class Phase {
+
+		private final int gameNumber;
+		private final int year;
+		private final int phase;
+
+		private final byte[] owners;
+		private final byte[] supplyCenters;
+		private final byte[] units;
+
+		private final byte[] numberOfSupplyCenters;
+		private final byte[] supplyCenterDeltas;
+
+		private final List<String> orders;
+		private final List<String> orderResults;
+		private final List<String> deals;
+
+
+		/**
+		 * @param owners The owner of every province (see generateObservationData()).
+		 * @param supplyCenters 1 for the provinces that are supply centers, 0 for the others.
+		 * @param units The power with a unit in every province.
+		 * @param numberOfSupplyCenters The number of supply centers of every power at the start of the phase.
+		 * @param supplyCenterDeltas The number of supply centers every power gained (or lost) by the end of the phase.
+		 * @param orders The orders given in the phase, in DAIDE syntax.
+		 * @param orderResults The result of every order, e.g. SUC or BNC, or an empty string if it has none.
+		 * @param deals The deals confirmed during the phase.
+		 */
+		public Phase(int gameNumber, int year, int phase, byte[] owners, byte[] supplyCenters, byte[] units,
+				byte[] numberOfSupplyCenters, byte[] supplyCenterDeltas, List<String> orders, List<String> orderResults, List<String> deals){
+
+			this.gameNumber = gameNumber;
+			this.year = year;
+			this.phase = phase;
+			this.owners = owners;
+			this.supplyCenters = supplyCenters;
+			this.units = units;
+			this.numberOfSupplyCenters = numberOfSupplyCenters;
+			this.supplyCenterDeltas = supplyCenterDeltas;
+			this.orders = orders;
+			this.orderResults = orderResults;
+			this.deals = deals;
+		}
+
+		void write(DataOutputStream output) throws IOException{
+
+			output.writeInt(gameNumber);
+			output.writeShort(year);
+			output.writeByte(phase);
+
+			output.writeShort(owners.length);
+			output.write(owners);
+			output.write(supplyCenters);
+			output.write(units);
+
+			output.writeByte(numberOfSupplyCenters.length);
+			output.write(numberOfSupplyCenters);
+			output.write(supplyCenterDeltas);
+
+			output.writeShort(orders.size());
+			for(int i = 0; i < orders.size(); i++){
+				output.writeUTF(orders.get(i));
+				output.writeUTF(orderResults.get(i));
+			}
+
+			output.writeShort(deals.size());
+			for(String deal : deals){
+				output.writeUTF(deal);
+			}
+		}
+
+		static Phase read(DataInputStream input) throws IOException{
+
+			int gameNumber = input.readInt();
+			int year = input.readShort();
+			int phase = input.readByte();
+
+			int numberOfProvinces = input.readShort();
+			byte[] owners = new byte[numberOfProvinces];
+			byte[] supplyCenters = new byte[numberOfProvinces];
+			byte[] units = new byte[numberOfProvinces];
+			input.readFully(owners);
+			input.readFully(supplyCenters);
+			input.readFully(units);
+
+			int numberOfPowers = input.readByte();
+			byte[] numberOfSupplyCenters = new byte[numberOfPowers];
+			byte[] supplyCenterDeltas = new byte[numberOfPowers];
+			input.readFully(numberOfSupplyCenters);
+			input.readFully(supplyCenterDeltas);
+
+			int numberOfOrders = input.readShort();
+			List<String> orders = new ArrayList<String>(numberOfOrders);
+			List<String> orderResults = new ArrayList<String>(numberOfOrders);
+			for(int i = 0; i < numberOfOrders; i++){
+				orders.add(input.readUTF());
+				orderResults.add(input.readUTF());
+			}
+
+			int numberOfDeals = input.readShort();
+			List<String> deals = new ArrayList<String>(numberOfDeals);
+			for(int i = 0; i < numberOfDeals; i++){
+				deals.add(input.readUTF());
+			}
+
+			return new Phase(gameNumber, year, phase, owners, supplyCenters, units, numberOfSupplyCenters, supplyCenterDeltas, orders, orderResults, deals);
+		}
+
+		public int getGameNumber(){
+			return gameNumber;
+		}
+
+		public int getYear(){
+			return year;
+		}
+
+		/**
+		 * Returns the ordinal of the es.csic.iiia.fabregues.dip.board.Phase of the record.
+		 */
+		public int getPhase(){
+			return phase;
+		}
+
+		public int getNumberOfProvinces(){
+			return owners.length;
+		}
+
+		public int getOwner(int province){
+			return owners[province];
+		}
+
+		public int getSupplyCenter(int province){
+			return supplyCenters[province];
+		}
+
+		public int getUnit(int province){
+			return units[province];
+		}
+
+		/**
+		 * Returns the number of supply centers of the given power (numbered from 1) at the start of the phase.
+		 */
+		public int getNumberOfSupplyCenters(int power){
+			return numberOfSupplyCenters[power - 1];
+		}
+
+		/**
+		 * Returns the number of supply centers the given power (numbered from 1) gained during the phase.
+		 */
+		public int getSupplyCenterDelta(int power){
+			return supplyCenterDeltas[power - 1];
+		}
+
+		public List<String> getOrders(){
+			return Collections.unmodifiableList(orders);
+		}
+
+		public List<String> getOrderResults(){
+			return Collections.unmodifiableList(orderResults);
+		}
+
+		public List<String> getDeals(){
+			return Collections.unmodifiableList(deals);
+		}
+	}
+
+
+	/**
+	 * Reads the records of a log in any order. The index is read at once; a chunk is only decompressed when one of its
+	 * records is read, and the last chunk is kept, so records that are read in order are decompressed once.
+	 * Only the records written when the reader is created are visible.
+	 */
+	public static class Reader {
+
+		private final ByteBuffer index;
+		private final int numberOfRecords;
+		private final FileChannel dataChannel;
+
+		private final Inflater inflater = new Inflater();
+		private long chunkPosition = -1;
+		private byte[] chunk = new byte[0];
+		private int chunkLength;
+
+
+		public Reader(File folder) throws IOException{
+
+			FileChannel indexChannel = FileChannel.open(new File(folder, INDEX_FILE_NAME).toPath(), StandardOpenOption.READ);
+			try {
+				this.numberOfRecords = (int) (indexChannel.size() / INDEX_ENTRY_SIZE);
+				this.index = ByteBuffer.allocate(numberOfRecords * INDEX_ENTRY_SIZE);
+				while(index.hasRemaining() && indexChannel.read(index) != -1){
+				}
+			} finally {
+				indexChannel.close();
+			}
+
+			this.dataChannel = FileChannel.open(new File(folder, DATA_FILE_NAME).toPath(), StandardOpenOption.READ);
+		}
+
+		public int getNumberOfRecords(){
+			return numberOfRecords;
+		}
+
+		public int getGameNumber(int record){
+			return index.getInt(record * INDEX_ENTRY_SIZE + 20);
+		}
+
+		public int getYear(int record){
+			return index.getShort(record * INDEX_ENTRY_SIZE + 24);
+		}
+
+		public int getPhase(int record){
+			return index.getShort(record * INDEX_ENTRY_SIZE + 26);
+		}
+
+		/**
+		 * Returns the given record.
+		 */
+		public synchronized Phase read(int record) throws IOException{
+
+			if(record < 0 || record >= numberOfRecords){
+				throw new IndexOutOfBoundsException("TrajectoryLog.Reader.read() Error! The log has no record " + record);
+			}
+
+			int entry = record * INDEX_ENTRY_SIZE;
+			long position = index.getLong(entry);
+			if(position != chunkPosition){
+				readChunk(position, index.getInt(entry + 8));
+			}
+
+			int offset = index.getInt(entry + 12);
+			int length = index.getInt(entry + 16);
+			return Phase.read(new DataInputStream(new ByteArrayInputStream(chunk, offset, length)));
+		}
+
+		private void readChunk(long position, int compressedLength) throws IOException{
+
+			ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+			while(compressed.hasRemaining()){
+				if(dataChannel.read(compressed, position + compressed.position()) == -1){
+					throw new IOException("TrajectoryLog.Reader.readChunk() Error! The chunk at " + position + " is cut off.");
+				}
+			}
+
+			inflater.reset();
+			inflater.setInput(compressed.array());
+			chunkLength = 0;
+			try {
+				while( ! inflater.finished()){
+					if(chunkLength == chunk.length){
+						chunk = Arrays.copyOf(chunk, Math.max(CHUNK_SIZE, 2 * chunk.length));
+					}
+					int inflated = inflater.inflate(chunk, chunkLength, chunk.length - chunkLength);
+					if(inflated == 0 && inflater.needsInput()){
+						throw new IOException("TrajectoryLog.Reader.readChunk() Error! The chunk at " + position + " is corrupt.");
+					}
+					chunkLength += inflated;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("TrajectoryLog.Reader.readChunk() Error! The chunk at " + position + " is corrupt.", e);
+			}
+
+			chunkPosition = position;
+		}
+
+		public void close() throws IOException{
+			inflater.end();
+			dataChannel.close();
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package ddejonge.bandana.tournament;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ddejonge.bandana.negoProtocol.BasicDeal;
+import es.csic.iiia.fabregues.dip.Observer;
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.board.Power;
+import es.csic.iiia.fabregues.dip.board.Province;
+import es.csic.iiia.fabregues.dip.board.Region;
+import es.csic.iiia.fabregues.dip.comm.CommException;
+import es.csic.iiia.fabregues.dip.comm.IComm;
+import es.csic.iiia.fabregues.dip.comm.daide.DaideComm;
+import es.csic.iiia.fabregues.dip.orders.Order;
+
+/**
+ * Writes a record of every phase of the games it observes to a TrajectoryLog: the board at the start of the phase,
+ * the orders given in it, the deals confirmed during it and the supply centers every power gained or lost.
+ * This gives the data to train agents on without running the gym.
+ *
+ * The recorder can connect to a game server as an observer of its own, or be fed by another observer that passes on
+ * its game and its callbacks (as the TournamentObserver does, so that a tournament does not need another connection).
+ * The deals are not sent by the game server: they are passed on by the DiplomacyProtocolManager (see dealConfirmed()).
+ */
+public class TrajectoryRecorder extends Observer {
+
+	private final TrajectoryLog trajectoryLog;
+
+	IComm comm;
+
+	int gameNumber = 0;
+
+	/**The number to give to the next game, or 0 to simply count the games played by this recorder.*/
+	int nextGameNumber = 0;
+
+	//The numbers of the powers and of the provinces of the current game.
+	private Game indexedGame;
+	private List<Power> powers;
+	private Map<String, Integer> powerNameToInt;
+	private Map<String, Integer> provinceIndices;
+
+	//The phase that is being played. Is not started yet if the board is null.
+	private int year;
+	private int phase;
+	private byte[] owners;
+	private byte[] supplyCenters;
+	private byte[] units;
+	private byte[] supplyCentersAtStart;
+	private List<String> orders = new ArrayList<String>();
+	private List<String> orderResults = new ArrayList<String>();
+	private List<String> deals = new ArrayList<String>();
+
+
+	public TrajectoryRecorder(String logPath, TrajectoryLog trajectoryLog){
+		super(logPath);
+		this.name = "TrajectoryRecorder";
+		this.trajectoryLog = trajectoryLog;
+	}
+
+	/**
+	 * Connects to the DAIDE server on the given port.
+	 */
+	public void connectToServer(int gameServerPort) throws IOException, CommException{
+		connectToServer(new DaideComm(InetAddress.getByName("localhost"), gameServerPort, this.name));
+	}
+
+	/**
+	 * Connects to the game server through the given connection, e.g. a LocalComm of a LocalGameServer.
+	 */
+	public void connectToServer(IComm gameServerComm) throws CommException{
+
+		if(comm != null){
+			comm.stop(); //close the previous connection, if any.
+		}
+
+		comm = gameServerComm;
+		this.start(comm);
+	}
+
+	/**
+	 * Sets the number of the next game. Used when the games of a tournament are spread over several observers.
+	 */
+	public void setNextGameNumber(int nextGameNumber){
+		this.nextGameNumber = nextGameNumber;
+	}
+
+	@Override
+	public synchronized void init() {
+		if(nextGameNumber > 0){
+			gameNumber = nextGameNumber;
+			nextGameNumber = 0;
+		}else{
+			gameNumber++;
+		}
+
+		owners = null;
+		clearPhase();
+	}
+
+	/**
+	 * The SCO and NOW messages of the new phase have been received, so the previous phase is complete.
+	 */
+	@Override
+	public synchronized void beforeNewPhase() throws CommException {
+
+		finishPhase();
+
+		indexGame();
+		int numberOfProvinces = provinceIndices.size();
+		owners = new byte[numberOfProvinces];
+		supplyCenters = new byte[numberOfProvinces];
+		units = new byte[numberOfProvinces];
+
+		//The same layout as OpenAIAdapter.generateObservationData(): a province is owned by the power with a unit in it.
+		for(Province province : game.getProvinces()){
+			supplyCenters[provinceIndices.get(province.getName())] = (byte) (province.isSC() ? 1 : 0);
+		}
+		for(Power power : powers){
+			byte powerId = (byte) (int) powerNameToInt.get(power.getName());
+			for(Province province : power.getOwnedSCs()){
+				owners[provinceIndices.get(province.getName())] = powerId;
+			}
+			for(Region region : power.getControlledRegions()){
+				int province = provinceIndices.get(region.getProvince().getName());
+				owners[province] = powerId;
+				units[province] = powerId;
+			}
+		}
+
+		supplyCentersAtStart = countSupplyCenters();
+		year = game.getYear();
+		phase = game.getPhase().ordinal();
+	}
+
+	@Override
+	public void afterOldPhase() {
+	}
+
+	@Override
+	public synchronized void receivedOrder(Order order) {
+		orders.add(order.toString());
+		orderResults.add(order.getResult() == null ? "" : order.getResult());
+	}
+
+	/**
+	 * Is called when the notary confirms a deal. The deal is recorded in the phase that is being played.
+	 */
+	public synchronized void dealConfirmed(BasicDeal deal){
+		deals.add(deal.toString());
+	}
+
+	@Override
+	public void handleSMR(String[] message) {
+		gameEnded();
+		super.handleSMR(message);
+	}
+
+	/**
+	 * Writes the last phase of the game to the log.
+	 */
+	public synchronized void gameEnded(){
+		finishPhase();
+	}
+
+	@Override
+	public void exit(){
+		if(comm != null){
+			comm.stop();
+		}
+		super.exit();
+	}
+
+	/**
+	 * Writes the phase that is being played to the log, with the supply centers gained since it started.
+	 */
+	private void finishPhase(){
+
+		if(owners == null){
+			return;
+		}
+
+		indexGame();
+		byte[] supplyCentersAtEnd = countSupplyCenters();
+		byte[] supplyCenterDeltas = new byte[supplyCentersAtEnd.length];
+		for(int i = 0; i < supplyCentersAtEnd.length; i++){
+			supplyCenterDeltas[i] = (byte) (supplyCentersAtEnd[i] - supplyCentersAtStart[i]);
+		}
+
+		try {
+			trajectoryLog.append(new TrajectoryLog.Phase(gameNumber, year, phase, owners, supplyCenters, units,
+					supplyCentersAtStart, supplyCenterDeltas, orders, orderResults, deals));
+		} catch (IOException e) {
+			System.out.println("TrajectoryRecorder.finishPhase() Could not record game " + gameNumber + " " + year);
+			e.printStackTrace();
+		}
+
+		owners = null;
+		clearPhase();
+	}
+
+	private void clearPhase(){
+		orders = new ArrayList<String>();
+		orderResults = new ArrayList<String>();
+		deals = new ArrayList<String>();
+	}
+
+	/**
+	 * Returns the number of supply centers of every power, in the order of their numbers.
+	 */
+	private byte[] countSupplyCenters(){
+		byte[] supplyCenters = new byte[powers.size()];
+		for(Power power : powers){
+			supplyCenters[powerNameToInt.get(power.getName()) - 1] = (byte) power.getOwnedSCs().size();
+		}
+		return supplyCenters;
+	}
+
+	/**
+	 * Numbers the powers from 1 in alphabetical order, as OpenAIAdapterNegotiation.generatePowerNameToIntMap() does,
+	 * and the provinces from 0 in the order of the map.
+	 */
+	private void indexGame(){
+
+		if(indexedGame == game){
+			return;
+		}
+
+		List<String> powerNames = new ArrayList<String>();
+		for(Power power : game.getPowers()){
+			powerNames.add(power.getName());
+		}
+		Collections.sort(powerNames);
+
+		powers = new ArrayList<Power>(game.getPowers());
+		powerNameToInt = new HashMap<String, Integer>();
+		for(int i = 0; i < powerNames.size(); i++){
+			powerNameToInt.put(powerNames.get(i), i + 1);
+		}
+
+		provinceIndices = new HashMap<String, Integer>();
+		for(Province province : game.getProvinces()){
+			provinceIndices.put(province.getName(), provinceIndices.size());
+		}
+
+		indexedGame = game;
+	}
+}
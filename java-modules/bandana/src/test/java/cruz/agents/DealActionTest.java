@@ -0,0 +1,43 @@
+package cruz.agents;
+
+import cruz.anacUtils.MyNeuralNetwork;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DealActionTest {
+
+    @Test
+    public void packsEveryField(){
+        int[] fields = {1, 17, 0, 5, 1, 3, 1, 12, 19};
+        long action = DealAction.fromArray(fields);
+
+        for (int field = 0; field < DealAction.NUMBER_OF_FIELDS; field++) {
+            assertEquals(fields[field], DealAction.getField(action, field));
+        }
+
+        assertEquals(action, DealAction.fromDealData(DealAction.toDealData(action)));
+        assertNotEquals(DealAction.NONE, action);
+    }
+
+    @Test
+    public void fusedArgmaxMatchesSegmentArgmax(){
+        Random random = new Random(7);
+        double[] output = new double[88];
+
+        for (int i = 0; i < output.length; i++) {
+            output[i] = Math.tanh(random.nextGaussian());
+        }
+
+        long action = MyNeuralNetwork.outputToDealAction(output);
+
+        int segmentStart = 0;
+        for (int field = 0; field < DealAction.NUMBER_OF_FIELDS; field++) {
+            int expected = MyNeuralNetwork.getRelativeIndexOfHigherValueBetweenBounds(output, segmentStart, MyNeuralNetwork.OUTPUT_SEGMENTS[field]);
+            assertEquals(expected, DealAction.getField(action, field));
+            segmentStart += MyNeuralNetwork.OUTPUT_SEGMENTS[field];
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package cruz.agents;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FailoverPolicyBackendTest {
+
+    private static final ProtoMessage.ObservationData OBSERVATION = ProtoMessage.ObservationData.newBuilder().setPlayer(3).build();
+
+    /**
+     * A backend that answers with its own deal, after a delay, unless it is told to fail.
+     */
+    static class FakeBackend implements PolicyBackend {
+
+        final String name;
+        final boolean deterministic;
+        final ProtoMessage.DealData dealData;
+
+        volatile boolean failing = false;
+        volatile long delayMillis = 0;
+        int requests = 0;
+
+        FakeBackend(String name, boolean deterministic, int phasesFromNow) {
+            this.name = name;
+            this.deterministic = deterministic;
+            this.dealData = ProtoMessage.DealData.newBuilder().setPhasesFromNow(phasesFromNow).build();
+        }
+
+        @Override
+        public ProtoMessage.DealData getDealData(ProtoMessage.ObservationData observationData) {
+            this.requests++;
+
+            if (this.delayMillis > 0) {
+                try {
+                    Thread.sleep(this.delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (this.failing) {
+                throw new RuntimeException("FakeBackend.getDealData() Error! " + this.name + " is failing.");
+            }
+
+            return this.dealData;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public boolean isDeterministic() {
+            return this.deterministic;
+        }
+    }
+
+    @Test
+    public void failsOverToTheNextBackendWhenTheBackendInUseDoesNotAnswer() {
+        FakeBackend primary = new FakeBackend("primary", true, 1);
+        FakeBackend fallback = new FakeBackend("fallback", false, 2);
+        FailoverPolicyBackend failover = new FailoverPolicyBackend(Arrays.asList(primary, fallback), 1000);
+
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+        assertEquals("primary", failover.getCurrentBackendName());
+
+        // The request that fails is answered by the fallback at once.
+        primary.failing = true;
+        assertEquals(fallback.dealData, failover.getDealData(OBSERVATION));
+        assertEquals("fallback", failover.getCurrentBackendName());
+        assertFalse(failover.isLastDealDeterministic());
+    }
+
+    @Test
+    public void ranksTheBackendsBeforeTheFirstRequest() {
+        FakeBackend slow = new FakeBackend("slow", true, 1);
+        slow.delayMillis = 2;
+        FakeBackend fast = new FakeBackend("fast", true, 2);
+        FailoverPolicyBackend failover = new FailoverPolicyBackend(Arrays.asList(slow, fast), 1000);
+
+        failover.rankBackends(FailoverPolicyBackend.PROBE_OBSERVATION);
+        assertEquals("fast", failover.getCurrentBackendName());
+        assertEquals(FailoverPolicyBackend.PROBE_CALLS, fast.requests);
+
+        // The first request is not probed again.
+        assertEquals(fast.dealData, failover.getDealData(OBSERVATION));
+        assertEquals(FailoverPolicyBackend.PROBE_CALLS + 1, fast.requests);
+        assertEquals(FailoverPolicyBackend.PROBE_CALLS, slow.requests);
+    }
+
+    @Test
+    public void failsOverAfterMissingTheSlaTooOften() {
+        FakeBackend primary = new FakeBackend("primary", true, 1);
+        FakeBackend fallback = new FakeBackend("fallback", false, 2);
+        FailoverPolicyBackend failover = new FailoverPolicyBackend(Arrays.asList(primary, fallback), 5, 2);
+
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+
+        primary.delayMillis = 20;
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+        assertEquals("primary", failover.getCurrentBackendName());
+
+        // The slow answers are still used, but the next request goes to the fallback.
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+        assertEquals("fallback", failover.getCurrentBackendName());
+        assertEquals(fallback.dealData, failover.getDealData(OBSERVATION));
+    }
+
+    @Test
+    public void recoversTheFirstBackendWhenTheFallbackFails() {
+        FakeBackend primary = new FakeBackend("primary", true, 1);
+        FakeBackend fallback = new FakeBackend("fallback", true, 2);
+        fallback.delayMillis = 2;
+        FailoverPolicyBackend failover = new FailoverPolicyBackend(Arrays.asList(fallback, primary), 1000);
+
+        // The faster backend is ranked first, whatever the order it was given in.
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+        assertEquals("primary", failover.getCurrentBackendName());
+
+        primary.failing = true;
+        assertEquals(fallback.dealData, failover.getDealData(OBSERVATION));
+
+        primary.failing = false;
+        fallback.failing = true;
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+        assertEquals("primary", failover.getCurrentBackendName());
+    }
+
+    @Test
+    public void answersNothingWhenEveryBackendFails() {
+        FakeBackend primary = new FakeBackend("primary", true, 1);
+        FakeBackend fallback = new FakeBackend("fallback", false, 2);
+        FailoverPolicyBackend failover = new FailoverPolicyBackend(Arrays.asList(primary, fallback), 1000);
+
+        assertEquals(primary.dealData, failover.getDealData(OBSERVATION));
+
+        primary.failing = true;
+        fallback.failing = true;
+        assertNull(failover.getDealData(OBSERVATION));
+    }
+
+    @Test
+    public void cachesTheDealsOfTheDeterministicBackendOnly() {
+        FakeBackend local = new FakeBackend("local", true, 1);
+        FakeBackend remote = new FakeBackend("remote", false, 2);
+        CachedPolicyBackend cached = new CachedPolicyBackend(new FailoverPolicyBackend(Arrays.asList(local, remote), 1000));
+
+        assertEquals(local.dealData, cached.getDealData(OBSERVATION));
+        int localRequests = local.requests;
+        assertEquals(local.dealData, cached.getDealData(OBSERVATION));
+        assertEquals(localRequests, local.requests);
+        assertEquals(1, cached.getCache().getHits());
+
+        // Once the remote backend is used, every observation is sent to it, and its deals are not cached.
+        local.failing = true;
+        ProtoMessage.ObservationData otherObservation = ProtoMessage.ObservationData.newBuilder().setPlayer(4).build();
+        assertEquals(remote.dealData, cached.getDealData(otherObservation));
+        assertEquals(remote.dealData, cached.getDealData(otherObservation));
+        assertEquals(remote.dealData, cached.getDealData(OBSERVATION));
+        assertEquals(3, remote.requests);
+        assertEquals(1, cached.getCache().getHits());
+    }
+}
@@ -0,0 +1,37 @@
+package cruz.agents;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ObservationActionCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsed(){
+        ObservationActionCache cache = new ObservationActionCache(2);
+        ProtoMessage.DealData dealData = ProtoMessage.DealData.newBuilder().setPhasesFromNow(1).build();
+
+        cache.put(1L, dealData);
+        cache.put(2L, dealData);
+        cache.get(1L);
+        cache.put(3L, dealData);
+
+        assertEquals(dealData, cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals(dealData, cache.get(3L));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void countsHitsAndMisses(){
+        ObservationActionCache cache = new ObservationActionCache();
+
+        cache.get(1L);
+        cache.put(1L, ProtoMessage.DealData.getDefaultInstance());
+        cache.get(1L);
+        cache.get(1L);
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+}
@@ -0,0 +1,62 @@
+package cruz.agents;
+
+import ddejonge.bandana.gameServer.LocalGameServer;
+import ddejonge.bandana.tournament.TrajectoryLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.*;
+
+public class SelfPlayRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsEveryPhaseOfTheGamesPlayedAtTheSameTime() throws Exception {
+        File logFolder = folder.newFolder();
+
+        assertEquals(6, SelfPlayRunner.run(logFolder, 6, 1902, 42L, 2));
+
+        TrajectoryLog.Reader reader = new TrajectoryLog.Reader(logFolder);
+        boolean[] recorded = new boolean[7];
+        for (int record = 0; record < reader.getNumberOfRecords(); record++) {
+            recorded[reader.getGameNumber(record)] = true;
+
+            TrajectoryLog.Phase phase = reader.read(record);
+            assertTrue(phase.getYear() >= 1901 && phase.getYear() <= 1902);
+            if (phase.getYear() == 1901 && phase.getPhase() == 0) {
+                assertEquals(22, phase.getOrders().size());
+            }
+        }
+        reader.close();
+
+        for (int game = 1; game <= 6; game++) {
+            assertTrue("game " + game, recorded[game]);
+        }
+    }
+
+    @Test
+    public void abandonsTheGamesThatTakeTooLong() throws Exception {
+        Map<Integer, SelfPlayRunner.GameInProgress> games = new ConcurrentHashMap<>();
+        SelfPlayRunner.GameInProgress stuckGame = new SelfPlayRunner.GameInProgress(new LocalGameServer(5, 5, 5));
+        games.put(1, stuckGame);
+        Thread.sleep(20);
+        games.put(2, new SelfPlayRunner.GameInProgress(new LocalGameServer(5, 5, 5)));
+        Semaphore gamesInProgress = new Semaphore(0);
+
+        assertEquals(1, SelfPlayRunner.abandonStuckGames(games, 10, gamesInProgress));
+        assertEquals(1, gamesInProgress.availablePermits());
+        assertFalse(games.containsKey(1));
+        assertTrue(games.containsKey(2));
+
+        // A game that ends after it was abandoned does not release its permit again.
+        assertFalse(games.remove(1, stuckGame));
+    }
+}
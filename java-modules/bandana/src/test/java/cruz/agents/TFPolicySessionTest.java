@@ -0,0 +1,140 @@
+package cruz.agents;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Tensor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TFPolicySessionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Exports a model whose action is the first ACTION_SIZE values of the observation, as a SavedModel without
+     * variables. The Java API of TensorFlow cannot save models, so the SavedModel protobuf is written by hand.
+     */
+    static File exportModel(File modelDir, DataType inputType, DataType outputType, String inputOperation) throws IOException {
+        byte[] graphDef;
+
+        try (Graph graph = new Graph()) {
+            Output<?> input = graph.opBuilder("Placeholder", inputOperation).setAttr("dtype", inputType).build().output(0);
+
+            try (Tensor<Integer> begin = Tensor.create(new int[]{0, 0}, Integer.class);
+                 Tensor<Integer> size = Tensor.create(new int[]{1, TFPolicySession.ACTION_SIZE}, Integer.class)) {
+                Output<?> beginConstant = graph.opBuilder("Const", "begin").setAttr("dtype", DataType.INT32).setAttr("value", begin).build().output(0);
+                Output<?> sizeConstant = graph.opBuilder("Const", "size").setAttr("dtype", DataType.INT32).setAttr("value", size).build().output(0);
+                Output<?> slice = graph.opBuilder("Slice", "slice").addInput(input).addInput(beginConstant).addInput(sizeConstant).build().output(0);
+                graph.opBuilder("Cast", "output/Cast_1").addInput(slice).setAttr("DstT", outputType).build();
+            }
+
+            graphDef = graph.toGraphDef();
+        }
+
+        // MetaGraphDef { meta_info_def = 1 { tags = 4 }, graph_def = 2 }
+        byte[] metaInfoDef = message(CodedOutputStream.computeStringSize(4, TFPolicySession.SERVE_TAG), out -> out.writeString(4, TFPolicySession.SERVE_TAG));
+        byte[] metaGraphDef = message(CodedOutputStream.computeBytesSize(1, ByteString.copyFrom(metaInfoDef))
+                        + CodedOutputStream.computeBytesSize(2, ByteString.copyFrom(graphDef)),
+                out -> {
+                    out.writeBytes(1, ByteString.copyFrom(metaInfoDef));
+                    out.writeBytes(2, ByteString.copyFrom(graphDef));
+                });
+        // SavedModel { saved_model_schema_version = 1, meta_graphs = 2 }
+        byte[] savedModel = message(CodedOutputStream.computeInt64Size(1, 1) + CodedOutputStream.computeBytesSize(2, ByteString.copyFrom(metaGraphDef)),
+                out -> {
+                    out.writeInt64(1, 1);
+                    out.writeBytes(2, ByteString.copyFrom(metaGraphDef));
+                });
+
+        try (FileOutputStream stream = new FileOutputStream(new File(modelDir, "saved_model.pb"))) {
+            stream.write(savedModel);
+        }
+
+        return modelDir;
+    }
+
+    interface MessageWriter {
+        void writeTo(CodedOutputStream out) throws IOException;
+    }
+
+    private static byte[] message(int size, MessageWriter writer) throws IOException {
+        byte[] bytes = new byte[size];
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        writer.writeTo(out);
+        out.checkNoSpaceLeft();
+        return bytes;
+    }
+
+    static ProtoMessage.ObservationData observation(int player) {
+        ProtoMessage.ObservationData.Builder observationDataBuilder = ProtoMessage.ObservationData.newBuilder();
+        for (int id = 1; id <= TFAdapterNegotiation.NUMBER_OF_PROVINCES; id++) {
+            observationDataBuilder.addProvinces(ProtoMessage.ProvinceData.newBuilder().setId(id).setOwner(id % 8).setSc(id % 2));
+        }
+        return observationDataBuilder.setPlayer(player).build();
+    }
+
+    @Test
+    public void predictsWithAnIntegerInputAndReusesTheSession() throws IOException {
+        File modelDir = exportModel(folder.newFolder(), DataType.INT32, DataType.INT64, TFPolicySession.INPUT_OPERATION);
+
+        try (TFPolicySession policySession = new TFPolicySession(modelDir.getPath())) {
+            // Province 1 is owned by power 1 and is a SC, province 2 by power 2 and is not, and so on.
+            assertArrayEquals(new int[]{1, 1, 2, 0, 3, 1, 4, 0, 5}, policySession.predict(observation(3)));
+
+            ProtoMessage.DealData dealData = policySession.predictDealData(observation(3));
+            assertTrue(dealData.getDefendUnit().getExecute());
+            assertEquals(1, dealData.getAttackRegion().getRegion());
+            assertEquals(5, dealData.getPhasesFromNow());
+        }
+    }
+
+    @Test
+    public void predictsWithAFloatInput() throws IOException {
+        File modelDir = exportModel(folder.newFolder(), DataType.FLOAT, DataType.INT32, TFPolicySession.INPUT_OPERATION);
+
+        try (TFPolicySession policySession = new TFPolicySession(modelDir.getPath())) {
+            assertArrayEquals(new int[]{1, 1, 2, 0, 3, 1, 4, 0, 5}, policySession.predict(observation(3)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesAModelWithoutTheObservationPlaceholder() throws IOException {
+        File modelDir = exportModel(folder.newFolder(), DataType.INT32, DataType.INT64, "input/Other");
+        new TFPolicySession(modelDir.getPath());
+    }
+
+    @Test
+    public void encodesTheObservationsAndTheActionsLikeThePythonEnv() {
+        int[] encoded = new int[TFAdapterNegotiation.OBSERVATION_SIZE];
+        TFAdapterNegotiation.encodeObservation(observation(6), encoded);
+
+        assertEquals(1, encoded[0]);
+        assertEquals(1, encoded[1]);
+        assertEquals(75 % 8, encoded[148]);
+        assertEquals(1, encoded[149]);
+        assertEquals(6, encoded[TFAdapterNegotiation.OBSERVATION_SIZE - 1]);
+        assertEquals(6.0f, TFAdapterNegotiation.generateInputData(observation(6))[0][TFAdapterNegotiation.OBSERVATION_SIZE - 1], 0.0f);
+
+        ProtoMessage.DealData dealData = TFAdapterNegotiation.actionToDealData(new int[]{0, 10, 1, 4, 1, 20, 0, 30, 2});
+        assertFalse(dealData.getDefendUnit().getExecute());
+        assertEquals(10, dealData.getDefendUnit().getRegion());
+        assertTrue(dealData.getDefendSC().getExecute());
+        assertEquals(4, dealData.getDefendSC().getAllyPower());
+        assertTrue(dealData.getAttackRegion().getExecute());
+        assertEquals(20, dealData.getAttackRegion().getRegion());
+        assertFalse(dealData.getSupportAttackRegion().getExecute());
+        assertEquals(30, dealData.getSupportAttackRegion().getRegion());
+        assertEquals(2, dealData.getPhasesFromNow());
+    }
+}
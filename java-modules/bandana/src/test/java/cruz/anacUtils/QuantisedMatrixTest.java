@@ -0,0 +1,51 @@
+package cruz.anacUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantisedMatrixTest {
+
+    private static double[][] randomMatrix(int rows, int columns, Random random) {
+        double[][] matrix = new double[rows][columns];
+        for (double[] row : matrix) {
+            for (int j = 0; j < columns; j++) {
+                row[j] = random.nextGaussian() * 0.1;
+            }
+        }
+        return matrix;
+    }
+
+    @Test
+    public void multiplyIsCloseToFloatPath(){
+        Random random = new Random(42);
+        double[][] matrix = randomMatrix(50, 20, random);
+        double[][] input = randomMatrix(1, 50, random);
+
+        double[][] expected = MyNeuralNetwork.tanh(MyNeuralNetwork.multiply(input, matrix));
+        double[][] actual = QuantisedNeuralNetwork.predict(input, Collections.singletonList(QuantisedMatrix.quantise(matrix)));
+
+        for (int j = 0; j < 20; j++) {
+            assertEquals(expected[0][j], actual[0][j], 0.01);
+        }
+    }
+
+    @Test
+    public void base64RoundTrip(){
+        QuantisedMatrix matrix = QuantisedMatrix.quantise(randomMatrix(30, 7, new Random(1)));
+        QuantisedMatrix decoded = QuantisedMatrix.fromBase64Chunks(30, 7, matrix.getScales(), matrix.toBase64Chunks(8));
+
+        byte[] input = new byte[30];
+        Arrays.fill(input, (byte) 3);
+        double[] expected = new double[7];
+        double[] actual = new double[7];
+        matrix.multiply(input, 1, expected);
+        decoded.multiply(input, 1, actual);
+
+        assertArrayEquals(expected, actual, 0);
+    }
+}
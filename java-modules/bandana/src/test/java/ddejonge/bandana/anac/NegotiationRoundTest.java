@@ -0,0 +1,59 @@
+package ddejonge.bandana.anac;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NegotiationRoundTest {
+
+    @Test
+    public void negotiationIsOverOnceEveryPowerIsDoneInThisPhase() {
+
+        NegotiationRound round = new NegotiationRound();
+        List<String> powers = Arrays.asList("AUS", "ENG", "FRA");
+        round.startPhase("SPR 1901");
+
+        assertTrue(round.setDone("AUS", "SPR 1901"));
+        assertFalse(round.setDone("AUS", "SPR 1901"));
+        assertTrue(round.receive("ENG", NegotiationRound.createDoneMessage("SPR 1901")));
+        assertFalse(round.isEveryoneDone(powers, "SPR 1901"));
+
+        //A late message of the previous phase does not count.
+        assertTrue(round.receive("FRA", NegotiationRound.createDoneMessage("WIN 1900")));
+        assertFalse(round.isEveryoneDone(powers, "SPR 1901"));
+
+        assertTrue(round.receive("FRA", NegotiationRound.createDoneMessage("SPR 1901")));
+        assertTrue(round.isEveryoneDone(powers, "SPR 1901"));
+
+        round.startPhase("FAL 1901");
+        assertFalse(round.isEveryoneDone(powers, "FAL 1901"));
+    }
+
+    @Test
+    public void negotiationIsNotOverWhileAProposalWaitsForItsConfirmation() {
+
+        NegotiationRound round = new NegotiationRound();
+        List<String> powers = Arrays.asList("AUS", "ENG");
+        round.setDone("AUS", "SPR 1901");
+        round.setDone("ENG", "SPR 1901");
+
+        assertTrue(round.isOver(powers, "SPR 1901", false, Collections.emptyList()));
+        assertFalse(round.isOver(powers, "SPR 1901", true, Collections.emptyList()));
+        assertFalse(round.isOver(powers, "SPR 1901", false, Collections.singletonList("accepted by all, not yet confirmed")));
+        assertFalse(round.isOver(powers, "FAL 1901", false, Collections.emptyList()));
+    }
+
+    @Test
+    public void otherMessagesAreNotHandled() {
+
+        NegotiationRound round = new NegotiationRound();
+
+        assertFalse(round.receive("ENG", "Hello"));
+        assertFalse(round.receive("ENG", NegotiationRound.DONE));
+        assertFalse(round.receive("ENG", null));
+    }
+}
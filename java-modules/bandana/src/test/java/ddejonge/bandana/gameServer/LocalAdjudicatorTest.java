@@ -0,0 +1,295 @@
+package ddejonge.bandana.gameServer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import es.csic.iiia.fabregues.dip.board.Dislodgement;
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.board.Phase;
+import es.csic.iiia.fabregues.dip.board.Power;
+import es.csic.iiia.fabregues.dip.board.Province;
+import es.csic.iiia.fabregues.dip.board.Region;
+import es.csic.iiia.fabregues.dip.comm.GameBuilder;
+import es.csic.iiia.fabregues.dip.orders.BLDOrder;
+import es.csic.iiia.fabregues.dip.orders.HLDOrder;
+import es.csic.iiia.fabregues.dip.orders.MTOOrder;
+import es.csic.iiia.fabregues.dip.orders.Order;
+import es.csic.iiia.fabregues.dip.orders.REMOrder;
+import es.csic.iiia.fabregues.dip.orders.SUPMTOOrder;
+import es.csic.iiia.fabregues.dip.orders.SUPOrder;
+import es.csic.iiia.fabregues.dip.orders.WVEOrder;
+
+public class LocalAdjudicatorTest {
+
+	@Test
+	public void supportedMoveDislodgesAndBlocksRetreatToAttackerOrigin(){
+
+		Game game = GameBuilder.createGame();
+		Power aus = game.getPower("AUS");
+		Power rus = game.getPower("RUS");
+		rus.addControlledRegion(game.getRegion("GALAMY"));
+
+		Map<Region, Order> orders = new HashMap<Region, Order>();
+		MTOOrder attack = new MTOOrder(aus, game.getRegion("BUDAMY"), game.getRegion("GALAMY"));
+		//The support is parsed from its own message, so it refers to a copy of the supported order.
+		Order support = new SUPMTOOrder(aus, game.getRegion("VIEAMY"), new MTOOrder(aus, game.getRegion("BUDAMY"), game.getRegion("GALAMY")));
+		orders.put(attack.getLocation(), attack);
+		orders.put(support.getLocation(), support);
+
+		LocalAdjudicator adjudicator = new LocalAdjudicator(game);
+		List<Order> results = adjudicator.resolveMovement(orders);
+
+		assertEquals(23, results.size());
+		assertEquals("SUC", attack.getResult());
+		assertEquals("SUC", support.getResult());
+		assertTrue(aus.getControlledRegions().contains(game.getRegion("GALAMY")));
+		assertFalse(aus.getControlledRegions().contains(game.getRegion("BUDAMY")));
+
+		Dislodgement dislodgement = game.getDislodgedRegions().get(game.getRegion("GALAMY"));
+		assertNotNull(dislodgement);
+		assertFalse(rus.getControlledRegions().contains(game.getRegion("GALAMY")));
+		assertFalse(dislodgement.getRetreateTo().contains(game.getRegion("BUDAMY")));
+		assertFalse(dislodgement.getRetreateTo().contains(game.getRegion("WARAMY")));
+		assertTrue(dislodgement.getRetreateTo().contains(game.getRegion("UKRAMY")));
+	}
+
+	@Test
+	public void equalMovesBounceAndVoidSupportsHold(){
+
+		Game game = GameBuilder.createGame();
+		Power eng = game.getPower("ENG");
+		Power fra = game.getPower("FRA");
+
+		Map<Region, Order> orders = new HashMap<Region, Order>();
+		Order edinburgh = new MTOOrder(eng, game.getRegion("EDIFLT"), game.getRegion("NTHFLT"));
+		Order london = new MTOOrder(eng, game.getRegion("LONFLT"), game.getRegion("NTHFLT"));
+		Order voidSupport = new SUPOrder(fra, game.getRegion("PARAMY"), new HLDOrder(fra, game.getRegion("PICAMY")));
+		orders.put(edinburgh.getLocation(), edinburgh);
+		orders.put(london.getLocation(), london);
+		orders.put(voidSupport.getLocation(), voidSupport);
+
+		new LocalAdjudicator(game).resolveMovement(orders);
+
+		assertEquals("BNC", edinburgh.getResult());
+		assertEquals("BNC", london.getResult());
+		assertEquals("NSO", voidSupport.getResult());
+		assertTrue(eng.getControlledRegions().contains(game.getRegion("EDIFLT")));
+		assertTrue(game.getDislodgedRegions().isEmpty());
+	}
+
+	@Test
+	public void missingBuildsAreWaived(){
+
+		Game game = GameBuilder.createGame();
+		Power eng = game.getPower("ENG");
+		eng.addOwn(game.getProvince("NWY"));
+		eng.addOwn(game.getProvince("BEL"));
+		game.setPhase(Phase.WIN);
+		eng.getControlledRegions().remove(game.getRegion("EDIFLT"));
+
+		LocalAdjudicator adjudicator = new LocalAdjudicator(game);
+		Order build = new BLDOrder(eng, game.getRegion("EDIFLT"));
+		assertEquals(LocalAdjudicator.ORDER_OK, adjudicator.check(build));
+		assertEquals("HSC", adjudicator.check(new BLDOrder(eng, game.getRegion("LONFLT"))));
+
+		Map<Power, List<Order>> orders = new HashMap<Power, List<Order>>();
+		List<Order> engOrders = new ArrayList<Order>();
+		engOrders.add(build);
+		orders.put(eng, engOrders);
+
+		List<Order> results = adjudicator.resolveAdjustments(orders);
+
+		assertEquals(3, results.size());
+		assertTrue(results.get(1) instanceof WVEOrder);
+		assertEquals(3, eng.getControlledRegions().size());
+		assertTrue(eng.getControlledRegions().contains(game.getRegion("EDIFLT")));
+	}
+
+	/**
+	 * Gives the power the given units and supply centers, and starts the build phase.
+	 */
+	private static void setUp(Game game, Power power, String[] units, String[] supplyCenters){
+		game.setPhase(Phase.WIN);
+		power.resetControl();
+		for(String unit : units){
+			power.addControlledRegion(game.getRegion(unit));
+		}
+		power.resetOwn();
+		for(String supplyCenter : supplyCenters){
+			power.addOwn(game.getProvince(supplyCenter));
+		}
+	}
+
+	private static List<Region> resolveRemovals(Game game, Power power, Order... givenOrders){
+
+		Map<Power, List<Order>> orders = new HashMap<Power, List<Order>>();
+		List<Order> powerOrders = new ArrayList<Order>();
+		for(Order order : givenOrders){
+			powerOrders.add(order);
+		}
+		orders.put(power, powerOrders);
+
+		List<Region> removed = new ArrayList<Region>();
+		for(Order order : new LocalAdjudicator(game).resolveAdjustments(orders)){
+			if(order instanceof REMOrder && order.getPower().equals(power)){
+				assertEquals("SUC", order.getResult());
+				removed.add(order.getLocation());
+			}
+		}
+		return removed;
+	}
+
+	//DATC 6.J.1: a power in civil disorder loses the unit farthest from its home supply centers.
+	@Test
+	public void civilDisorderRemovesTheUnitFarthestFromHome(){
+
+		Game game = GameBuilder.createGame();
+		Power eng = game.getPower("ENG");
+		setUp(game, eng, new String[]{"MOSAMY", "LONFLT", "NTHFLT"}, new String[]{"LON", "EDI"});
+
+		assertEquals(1, resolveRemovals(game, eng).size());
+		assertFalse(eng.getControlledRegions().contains(game.getRegion("MOSAMY")));
+		assertEquals(2, eng.getControlledRegions().size());
+	}
+
+	//DATC 6.J.4: at the same distance, fleets are removed before armies.
+	@Test
+	public void civilDisorderRemovesFleetsBeforeArmies(){
+
+		Game game = GameBuilder.createGame();
+		Power eng = game.getPower("ENG");
+		setUp(game, eng, new String[]{"LONFLT", "NAOFLT", "WALAMY"}, new String[]{"LON", "LVP"});
+
+		assertEquals(Collections.singletonList(game.getRegion("NAOFLT")), resolveRemovals(game, eng));
+		assertTrue(eng.getControlledRegions().contains(game.getRegion("WALAMY")));
+	}
+
+	//DATC 6.J.5: units of the same kind at the same distance are removed in the alphabetical order of their provinces.
+	@Test
+	public void civilDisorderRemovesInAlphabeticalOrderAtTheSameDistance(){
+
+		Game game = GameBuilder.createGame();
+		Power eng = game.getPower("ENG");
+		setUp(game, eng, new String[]{"LONFLT", "ECHFLT", "NTHFLT"}, new String[]{"LON", "EDI"});
+
+		assertEquals(Collections.singletonList(game.getRegion("ECHFLT")), resolveRemovals(game, eng));
+	}
+
+	//DATC 6.J.2: the removals that were ordered are done first, and only the missing ones are chosen by distance.
+	@Test
+	public void civilDisorderOnlyChoosesTheRemovalsThatWereNotOrdered(){
+
+		Game game = GameBuilder.createGame();
+		Power eng = game.getPower("ENG");
+		setUp(game, eng, new String[]{"LONFLT", "EDIFLT", "MOSAMY", "NTHFLT"}, new String[]{"LON", "EDI"});
+
+		List<Region> removed = resolveRemovals(game, eng, new REMOrder(eng, game.getRegion("LONFLT")));
+
+		assertEquals(2, removed.size());
+		assertEquals(game.getRegion("LONFLT"), removed.get(0));
+		assertEquals(game.getRegion("MOSAMY"), removed.get(1));
+		assertEquals(2, eng.getControlledRegions().size());
+	}
+
+	@Test
+	public void distancesAreCountedOverLandAndSea(){
+
+		Game game = GameBuilder.createGame();
+		List<Province> homes = game.getPower("ENG").getHomes();
+
+		Map<Province, Integer> distances = LocalAdjudicator.getDistancesFrom(homes);
+
+		assertEquals(0, (int) distances.get(game.getProvince("LVP")));
+		assertEquals(1, (int) distances.get(game.getProvince("NTH")));
+		assertEquals(2, (int) distances.get(game.getProvince("NWY")));
+	}
+
+	//DATC 6.A.1: a unit can not move to a province that is not adjacent.
+	@Test
+	public void movesToProvincesThatAreNotAdjacentAreRefused(){
+
+		Game game = GameBuilder.createGame();
+		game.setPhase(Phase.SPR);
+		Power eng = game.getPower("ENG");
+		Power ger = game.getPower("GER");
+
+		LocalAdjudicator adjudicator = new LocalAdjudicator(game);
+		assertEquals("FAR", adjudicator.check(new MTOOrder(eng, game.getRegion("LONFLT"), game.getRegion("NWGFLT"))));
+		assertEquals("NYU", adjudicator.check(new MTOOrder(eng, game.getRegion("KIEFLT"), game.getRegion("HOLFLT"))));
+		assertEquals("MBV", adjudicator.check(new MTOOrder(ger, game.getRegion("KIEFLT"), game.getRegion("HOLFLT"))));
+	}
+
+	//DATC 6.C.1: three units can move in a circle.
+	@Test
+	public void unitsCanMoveInACircle(){
+
+		Game game = GameBuilder.createGame();
+		Power tur = game.getPower("TUR");
+		tur.resetControl();
+		tur.addControlledRegion(game.getRegion("ANKFLT"));
+		tur.addControlledRegion(game.getRegion("CONAMY"));
+		tur.addControlledRegion(game.getRegion("SMYAMY"));
+
+		Map<Region, Order> orders = new HashMap<Region, Order>();
+		Order ankara = new MTOOrder(tur, game.getRegion("ANKFLT"), game.getRegion("CONFLT"));
+		Order constantinople = new MTOOrder(tur, game.getRegion("CONAMY"), game.getRegion("SMYAMY"));
+		Order smyrna = new MTOOrder(tur, game.getRegion("SMYAMY"), game.getRegion("ANKAMY"));
+		orders.put(ankara.getLocation(), ankara);
+		orders.put(constantinople.getLocation(), constantinople);
+		orders.put(smyrna.getLocation(), smyrna);
+
+		new LocalAdjudicator(game).resolveMovement(orders);
+
+		assertEquals("SUC", ankara.getResult());
+		assertEquals("SUC", constantinople.getResult());
+		assertEquals("SUC", smyrna.getResult());
+		assertTrue(tur.getControlledRegions().contains(game.getRegion("CONFLT")));
+		assertTrue(tur.getControlledRegions().contains(game.getRegion("SMYAMY")));
+		assertTrue(tur.getControlledRegions().contains(game.getRegion("ANKAMY")));
+	}
+
+	//DATC 6.D.1: a supported hold prevents the dislodgement.
+	@Test
+	public void supportedHoldPreventsDislodgement(){
+
+		Game game = GameBuilder.createGame();
+		Power aus = game.getPower("AUS");
+		Power ita = game.getPower("ITA");
+		aus.resetControl();
+		aus.addControlledRegion(game.getRegion("ADRFLT"));
+		aus.addControlledRegion(game.getRegion("TRIAMY"));
+		ita.resetControl();
+		ita.addControlledRegion(game.getRegion("VENAMY"));
+		ita.addControlledRegion(game.getRegion("TYRAMY"));
+
+		Map<Region, Order> orders = new HashMap<Region, Order>();
+		Order attack = new SUPMTOOrder(aus, game.getRegion("ADRFLT"), new MTOOrder(aus, game.getRegion("TRIAMY"), game.getRegion("VENAMY")));
+		Order move = new MTOOrder(aus, game.getRegion("TRIAMY"), game.getRegion("VENAMY"));
+		Order hold = new HLDOrder(ita, game.getRegion("VENAMY"));
+		Order support = new SUPOrder(ita, game.getRegion("TYRAMY"), new HLDOrder(ita, game.getRegion("VENAMY")));
+		orders.put(attack.getLocation(), attack);
+		orders.put(move.getLocation(), move);
+		orders.put(hold.getLocation(), hold);
+		orders.put(support.getLocation(), support);
+
+		new LocalAdjudicator(game).resolveMovement(orders);
+
+		assertEquals("BNC", move.getResult());
+		assertTrue(ita.getControlledRegions().contains(game.getRegion("VENAMY")));
+		assertTrue(game.getDislodgedRegions().isEmpty());
+	}
+
+	@Test
+	public void convoysAreRecognised(){
+		assertTrue(LocalAdjudicator.containsConvoy("SUB ( ( ENG AMY LVP ) CTO NWY VIA ( NTH ) )".split(" ")));
+		assertTrue(LocalAdjudicator.containsConvoy("SUB ( ( ENG FLT NTH ) CVY ( ENG AMY LVP ) CTO NWY )".split(" ")));
+		assertFalse(LocalAdjudicator.containsConvoy("SUB ( ( ENG AMY LVP ) MTO YOR )".split(" ")));
+	}
+}
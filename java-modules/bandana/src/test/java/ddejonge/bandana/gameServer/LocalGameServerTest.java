@@ -0,0 +1,43 @@
+package ddejonge.bandana.gameServer;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import es.csic.iiia.fabregues.dip.comm.StringA2Order;
+import es.csic.iiia.fabregues.dip.orders.Order;
+import es.csic.iiia.fabregues.dip.orders.RTOOrder;
+
+public class LocalGameServerTest {
+
+	private static List<Order> parse(LocalGameServer server, String message){
+		String[] tokens = message.split(" ");
+		return server.fixRetreatsFromCoasts(StringA2Order.processOrders(tokens, server.game), tokens);
+	}
+
+	@Test
+	public void retreatsFromCoastsGetTheirDestination(){
+
+		LocalGameServer server = new LocalGameServer(5, 5, 5);
+
+		List<Order> orders = parse(server, "SUB ( ( AUS FLT ( SPA NCS ) ) RTO POR ) ( ( RUS FLT ( BUL ECS ) ) RTO BLA )");
+
+		assertEquals(2, orders.size());
+		assertEquals(server.game.getRegion("SPANCS"), orders.get(0).getLocation());
+		assertEquals(server.game.getRegion("PORFLT"), ((RTOOrder)orders.get(0)).getDestination());
+		assertEquals(server.game.getRegion("BLAFLT"), ((RTOOrder)orders.get(1)).getDestination());
+	}
+
+	@Test
+	public void otherRetreatsAreLeftAsTheyAre(){
+
+		LocalGameServer server = new LocalGameServer(5, 5, 5);
+
+		List<Order> orders = parse(server, "SUB ( ( ENG FLT NTH ) RTO NWG ) ( ( FRA AMY PAR ) RTO GAS )");
+
+		assertEquals(server.game.getRegion("NWGFLT"), ((RTOOrder)orders.get(0)).getDestination());
+		assertEquals(server.game.getRegion("GASAMY"), ((RTOOrder)orders.get(1)).getDestination());
+	}
+}
@@ -0,0 +1,88 @@
+package ddejonge.bandana.negoProtocol;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.board.Phase;
+import es.csic.iiia.fabregues.dip.board.Power;
+import es.csic.iiia.fabregues.dip.comm.GameBuilder;
+import es.csic.iiia.fabregues.dip.orders.HLDOrder;
+
+public class DiplomacyProtocolManagerTest {
+
+	/**
+	 * A manager that observes the given game instead of connecting to a game server.
+	 */
+	private static DiplomacyProtocolManager createManager(final Game game){
+		return new DiplomacyProtocolManager(null, "", 0){
+			@Override
+			Game getGame(){
+				return game;
+			}
+		};
+	}
+
+	/**
+	 * A proposal as the Negotiation Server receives it: only the string of its deal was sent, so it still has to be parsed.
+	 */
+	private static DiplomacyProposal receivedProposal(Game game, int number){
+		HLDOrder hold = new HLDOrder(game.getPower("AUS"), game.getRegion("VIEAMY"));
+		BasicDeal deal = new BasicDeal(Collections.singletonList(new OrderCommitment(1901, Phase.SPR, hold)), new ArrayList<DMZ>());
+		DiplomacyProposal proposal = new DiplomacyProposal("proposal " + number, deal);
+		proposal.deal = null;
+		return proposal;
+	}
+
+	private static Callable<Boolean> verifyProposals(final DiplomacyProtocolManager manager, final Game game){
+		return new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				for(int i = 0; i < 200; i++){
+					DiplomacyProposal proposal = receivedProposal(game, i);
+					if( ! manager.verifyValidity(proposal)){
+						return false;
+					}
+
+					//The deal must refer to the powers of the game of this manager, not to those of the other game.
+					Power power = ((BasicDeal) proposal.getProposedDeal()).getOrderCommitments().get(0).getOrder().getPower();
+					if(power != game.getPower("AUS")){
+						return false;
+					}
+				}
+				return true;
+			}
+		};
+	}
+
+	@Test
+	public void managersOfTwoGamesParseTheDealsAgainstTheirOwnGame() throws Exception{
+
+		Game firstGame = GameBuilder.createGame();
+		Game secondGame = GameBuilder.createGame();
+		DiplomacyProtocolManager firstManager = createManager(firstGame);
+		DiplomacyProtocolManager secondManager = createManager(secondGame);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try{
+			Future<Boolean> first = executor.submit(verifyProposals(firstManager, firstGame));
+			Future<Boolean> second = executor.submit(verifyProposals(secondManager, secondGame));
+
+			assertTrue(first.get());
+			assertTrue(second.get());
+		}finally{
+			executor.shutdownNow();
+		}
+
+		assertNull(Stringifier.game);
+	}
+}
@@ -0,0 +1,92 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import es.csic.iiia.fabregues.dip.Player;
+import es.csic.iiia.fabregues.dip.board.Game;
+import es.csic.iiia.fabregues.dip.comm.GameBuilder;
+import es.csic.iiia.fabregues.dip.orders.Order;
+
+public class AgentHostTest {
+
+	/**
+	 * An agent that leaves the game it played in the static fields of the negotiation library, as every negotiator does.
+	 */
+	public static class NegotiatingAgent {
+
+		/**For every game, the game number and whether the agent found the static fields of the library empty.*/
+		static final List<String> joinedGames = new CopyOnWriteArrayList<String>();
+
+		public static void main(String[] args) throws Exception {
+
+			boolean clean = getStatic(AgentHost.GAME_STATICS[0]) == null && getStatic(AgentHost.GAME_STATICS[1]) == null;
+			joinedGames.add(args[0] + (clean ? " clean" : " stale"));
+
+			setStatic(AgentHost.GAME_STATICS[0], GameBuilder.createGame());
+			setStatic(AgentHost.GAME_STATICS[1], new Player(){
+				@Override
+				public List<Order> play() {
+					return null;
+				}
+				@Override
+				public void start() {
+				}
+				@Override
+				public void init() {
+				}
+				@Override
+				public void receivedOrder(Order order) {
+				}
+			});
+		}
+	}
+
+	private static Field getField(String[] gameStatic) throws ReflectiveOperationException{
+		Field field = Class.forName(gameStatic[0]).getDeclaredField(gameStatic[1]);
+		field.setAccessible(true);
+		return field;
+	}
+
+	static Object getStatic(String[] gameStatic) throws ReflectiveOperationException{
+		return getField(gameStatic).get(null);
+	}
+
+	static void setStatic(String[] gameStatic, Object value) throws ReflectiveOperationException{
+		getField(gameStatic).set(null, value);
+	}
+
+	@Test
+	public void aWarmHostClearsTheGameOfThePreviousAgent() throws Exception{
+
+		Method agentMain = NegotiatingAgent.class.getMethod("main", String[].class);
+		NegotiatingAgent.joinedGames.clear();
+
+		try{
+			//Two games, one after the other, in the same host.
+			for(int gameNumber = 1; gameNumber <= 2; gameNumber++){
+				String[] fields = AgentHost.createJoinCommand(gameNumber, 40713, 40714, new String[]{"game" + gameNumber}).split(AgentHost.SEPARATOR);
+				AgentHost.join(agentMain, fields).join(10000);
+			}
+
+			assertEquals(2, NegotiatingAgent.joinedGames.size());
+			assertEquals("game1 clean", NegotiatingAgent.joinedGames.get(0));
+			assertEquals("game2 clean", NegotiatingAgent.joinedGames.get(1));
+
+			//The second agent did leave its game behind, but it is cleared before the next one.
+			assertNotNull(getStatic(AgentHost.GAME_STATICS[0]));
+			AgentHost.resetGameStatics(AgentHostTest.class.getClassLoader());
+			assertNull(getStatic(AgentHost.GAME_STATICS[0]));
+			assertNull(getStatic(AgentHost.GAME_STATICS[1]));
+
+		}finally{
+			AgentHost.resetGameStatics(AgentHostTest.class.getClassLoader());
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AtomicFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void replacesTheFileAndLeavesNoTemporaryFile() throws IOException{
+
+		File file = new File(folder.getRoot(), "summary.log");
+		AtomicFile.write(file, "first");
+		AtomicFile.write(file, "second");
+
+		assertEquals("second", TournamentSummaryWriterTest.read(file));
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void keepsThePreviousFileWhenWritingFails() throws IOException{
+
+		File file = new File(folder.getRoot(), "tournament.checkpoint");
+		AtomicFile.write(file, "previous");
+
+		try {
+			AtomicFile.write(file, new AtomicFile.Content() {
+				@Override
+				public void writeTo(OutputStream stream) throws IOException {
+					stream.write(new byte[]{1, 2, 3});
+					throw new IOException("the disk is full");
+				}
+			});
+			fail();
+		} catch (IOException e) {
+			assertEquals("the disk is full", e.getMessage());
+		}
+
+		assertEquals("previous", TournamentSummaryWriterTest.read(file));
+	}
+}
@@ -0,0 +1,208 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckpointedGameQueueTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates a tournament of the given number of games in a new folder.
+	 */
+	TournamentCheckpoint createCheckpoint(int numberOfGames) throws IOException{
+		String json = TournamentSpecTest.SPEC.replace("\"numberOfGames\": 20", "\"numberOfGames\": " + numberOfGames)
+				.replace("\"seed\": 7,", "\"seed\": 7, \"outputs\": {\"logFolder\": \"" + folder.newFolder().getPath() + "\"},");
+		return TournamentCheckpoint.create(TournamentSpec.fromJson(new StringReader(json)));
+	}
+
+	@Test
+	public void requeuedGamesAreHandedOutAgain(){
+
+		CheckpointedGameQueue queue = new CheckpointedGameQueue(2);
+		assertEquals(1, queue.nextGameNumber(0));
+		assertEquals(2, queue.nextGameNumber(1));
+
+		queue.requeue(1);
+		assertFalse(queue.isFinished());
+		assertEquals(1, queue.nextGameNumber(0));
+
+		queue.gameFinished(0, 1, GameResults.withWinner(1));
+		queue.gameFinished(1, 2, GameResults.withWinner(2));
+		assertTrue(queue.isFinished());
+		assertEquals(0, queue.nextGameNumber(0));
+	}
+
+	@Test
+	public void gamesWithoutAResultArePlayedAgain(){
+
+		CheckpointedGameQueue queue = new CheckpointedGameQueue(2);
+		assertEquals(1, queue.nextGameNumber(0));
+		queue.gameFinished(0, 1, null);
+		assertEquals(0, queue.getNumberOfFinishedGames());
+
+		//The game that failed is handed out again before the next one.
+		for(int attempt = 2; attempt <= CheckpointedGameQueue.MAX_ATTEMPTS; attempt++){
+			assertEquals(1, queue.nextGameNumber(0));
+			queue.gameFinished(0, 1, null);
+		}
+
+		//It is given up after MAX_ATTEMPTS.
+		assertEquals(1, queue.getNumberOfFinishedGames());
+		assertEquals(2, queue.nextGameNumber(0));
+		queue.gameFinished(0, 2, GameResults.withWinner(2));
+		assertTrue(queue.isFinished());
+	}
+
+	@Test
+	public void playedGamesAreNotHandedOutAfterResuming() throws IOException{
+
+		TournamentCheckpoint checkpoint = createCheckpoint(3);
+		checkpoint.tournamentResult.addResult(2, GameResults.withWinner(2));
+		checkpoint.close();
+
+		TournamentCheckpoint resumedCheckpoint = TournamentCheckpoint.resume(checkpoint.tournamentLogFolderPath);
+		TournamentCoordinator coordinator = new TournamentCoordinator(resumedCheckpoint);
+		try{
+			assertEquals(1, coordinator.gameQueue.getNumberOfFinishedGames());
+			assertEquals(1, coordinator.gameQueue.nextGameNumber(0));
+			assertEquals(3, coordinator.gameQueue.nextGameNumber(0));
+		}finally{
+			coordinator.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void coordinatorRequeuesTheGamesOfLostWorkers() throws Exception{
+
+		final TournamentCoordinator coordinator = new TournamentCoordinator(createCheckpoint(3));
+		final int port = startCoordinator(coordinator);
+
+		TournamentWorker.RemoteGameQueue worker = connect(port, 2);
+		assertEquals(3, worker.getSpec().getNumberOfGames());
+
+		assertEquals(1, worker.nextGameNumber(0));
+		assertEquals(2, worker.nextGameNumber(1));
+		worker.gameFinished(0, 1, GameResults.withWinner(0));
+		assertEquals(3, worker.nextGameNumber(0));
+
+		//This worker crashes while playing games 2 and 3. Another one takes over.
+		worker.close();
+
+		List<Integer> gameNumbers = playAllGames(port);
+
+		assertEquals(2, gameNumbers.size());
+		assertTrue(gameNumbers.contains(2) && gameNumbers.contains(3));
+		assertEquals(3, coordinator.tournamentResult.getNumberOfGames());
+	}
+
+	@Test(timeout = 10000)
+	public void coordinatorRequeuesTheGameOfAWorkerThatHangs() throws Exception{
+
+		final TournamentCoordinator coordinator = new TournamentCoordinator(createCheckpoint(2));
+		coordinator.resultTimeoutMillis = 500;
+		final int port = startCoordinator(coordinator);
+
+		//This worker takes game 1, but never sends its result.
+		TournamentWorker.RemoteGameQueue worker = connect(port, 1);
+		assertEquals(1, worker.nextGameNumber(0));
+
+		List<Integer> gameNumbers = playAllGames(port);
+		worker.close();
+
+		assertEquals(2, gameNumbers.size());
+		assertTrue(gameNumbers.contains(1) && gameNumbers.contains(2));
+		assertEquals(2, coordinator.tournamentResult.getNumberOfGames());
+	}
+
+	@Test
+	public void onlyTheClassesOfTheProtocolAreRead() throws Exception{
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(GameResults.withWinner(1));
+		output.writeObject(new ArrayList<String>());
+		output.close();
+
+		ObjectInputStream input = new TournamentObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals("Bot 1", ((GameResult) input.readObject()).getSoloWinner().replace("'", ""));
+		try{
+			input.readObject();
+			fail("An ArrayList is not part of the protocol.");
+		}catch(InvalidClassException e){
+			//expected.
+		}
+		input.close();
+	}
+
+	/**
+	 * Runs the coordinator in a thread of its own, and returns its port.
+	 */
+	static int startCoordinator(final TournamentCoordinator coordinator){
+
+		final int port = PortAllocator.allocate(17700);
+		PortAllocator.release(port);
+
+		Thread coordinatorThread = new Thread(){
+			@Override
+			public void run() {
+				try {
+					coordinator.run(port);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		coordinatorThread.setDaemon(true);
+		coordinatorThread.start();
+
+		return port;
+	}
+
+	/**
+	 * Connects a worker that plays games until the coordinator has none left, and returns the numbers of those games.
+	 */
+	static List<Integer> playAllGames(int port) throws Exception{
+
+		TournamentWorker.RemoteGameQueue worker = connect(port, 1);
+		int gameNumber;
+		List<Integer> gameNumbers = new ArrayList<Integer>();
+		while((gameNumber = worker.nextGameNumber(0)) > 0){
+			gameNumbers.add(gameNumber);
+			worker.gameFinished(0, gameNumber, GameResults.withWinner(gameNumber));
+		}
+		worker.close();
+
+		return gameNumbers;
+	}
+
+	/**
+	 * Connects a worker to the coordinator, which may not have opened its port yet.
+	 */
+	static TournamentWorker.RemoteGameQueue connect(int port, int numberOfSlots) throws Exception{
+		for(int attempt = 0; ; attempt++){
+			try {
+				return new TournamentWorker.RemoteGameQueue("localhost", port, numberOfSlots);
+			} catch (IOException e) {
+				if(attempt == 50){
+					throw e;
+				}
+				Thread.sleep(100);
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import ddejonge.bandana.tournament.GameResult.PlayerResult;
+
+public class GameResultLogTest {
+
+	@Test
+	public void writesTheOldTextFormatOnDemand() throws IOException{
+
+		File file = new File(Files.createTempDirectory("tournament").toFile(), GameResultLog.FILE_NAME);
+
+		GameResult game1 = GameResults.withWinner(3);
+		GameResult game2 = GameResults.withWinner(0);
+
+		GameResultLog log = new GameResultLog(file);
+		log.append(1, game1);
+		log.append(2, game2);
+		log.close();
+
+		StringBuilder text = new StringBuilder();
+		new GameResultLog.Reader(file).writeText(text);
+		assertEquals("game 1: " + System.lineSeparator() + game1.toString() + "game 2: " + System.lineSeparator() + game2.toString(), text.toString());
+	}
+
+	@Test
+	public void aggregatesAndCutsOffPartlyWrittenGames() throws IOException{
+
+		File file = new File(Files.createTempDirectory("tournament").toFile(), GameResultLog.FILE_NAME);
+
+		GameResultLog log = new GameResultLog(file);
+		log.append(1, GameResults.withWinner(3));
+		log.append(2, GameResults.withWinner(3));
+		log.append(3, GameResults.withWinner(6));
+		log.close();
+
+		//The program was killed while writing the third game.
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		long lengthAfterTwoGames = GameResultLog.HEADER_SIZE + 14 * GameResultLog.RECORD_SIZE;
+		randomAccessFile.setLength(lengthAfterTwoGames + 3 * GameResultLog.RECORD_SIZE + 5);
+		randomAccessFile.close();
+
+		GameResultLog.Reader reader = new GameResultLog.Reader(file);
+		assertEquals(14, reader.getNumberOfRecords());
+		assertEquals(7, reader.getNumberOfPlayers());
+		assertEquals(2, reader.getGameNumber(13));
+
+		int bot3 = reader.getPlayerId(0);
+		assertEquals("'Bot 3'", reader.getPlayerName(bot3));
+		assertEquals("GER", reader.getPower(0));
+		assertEquals(PlayerResult.SOLO, reader.getPlayerResult(0));
+		assertEquals(2, reader.countResults(PlayerResult.SOLO)[bot3]);
+		assertEquals(18.0, reader.getAverageSupplyCenters()[bot3], 0.0);
+		assertEquals(1.0, reader.getAverageRanks()[bot3], 0.0);
+		//The six other players share the places 2 to 7.
+		assertEquals(4.5, reader.getRank(1), 0.0);
+
+		log = new GameResultLog(file);
+		assertEquals(lengthAfterTwoGames, log.getLength());
+		log.append(3, GameResults.withWinner(6));
+		log.close();
+		assertEquals(21, new GameResultLog.Reader(file).getNumberOfRecords());
+	}
+}
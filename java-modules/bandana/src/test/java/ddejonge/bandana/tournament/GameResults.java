@@ -0,0 +1,48 @@
+package ddejonge.bandana.tournament;
+
+import java.util.ArrayList;
+
+/**
+ * Creates the GameResults used by the tests, from the SMR message that Parlance sends at the end of a game.
+ */
+class GameResults {
+
+	static final String[] POWERS = {"AUS", "ENG", "FRA", "GER", "ITA", "RUS", "TUR"};
+
+	private GameResults(){
+	}
+
+	/**
+	 * Creates the result of a game in which the given power has 18 supply centers and the others have 2 each.
+	 */
+	static GameResult withWinner(int winner){
+
+		int[] supplyCenters = new int[POWERS.length];
+		for(int pow = 0; pow < POWERS.length; pow++){
+			supplyCenters[pow] = pow == winner ? 18 : 2;
+		}
+		return withSupplyCenters(supplyCenters);
+	}
+
+	/**
+	 * Creates the result of a game in which no power is eliminated and power i ends with the i-th number of supply centers.
+	 * Power i is played by 'Bot i'.
+	 */
+	static GameResult withSupplyCenters(int... supplyCenters){
+
+		ArrayList<String> smr = new ArrayList<String>();
+		String[] header = {"SMR", "(", "SPR", "1910", ")"};
+		for(String token : header){
+			smr.add(token);
+		}
+
+		for(int pow = 0; pow < supplyCenters.length; pow++){
+			String[] power = {"(", POWERS[pow], "(", "'Bot " + pow + "'", ")", "(", "'1.0'", ")", "" + supplyCenters[pow], ")"};
+			for(String token : power){
+				smr.add(token);
+			}
+		}
+
+		return new GameResult(smr.toArray(new String[smr.size()]), supplyCenters.length);
+	}
+}
@@ -0,0 +1,20 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class LocalTournamentRunnerTest {
+
+	@Test
+	public void playsASeededGameAgainTheSameWay() throws IOException{
+
+		TournamentResult first = LocalTournamentRunner.run(2, 2, 1906, 42L);
+		TournamentResult second = LocalTournamentRunner.run(2, 2, 1906, 42L);
+
+		assertEquals(1, first.gameResults.size());
+		assertEquals(first.gameResults.getFirst().toString(), second.gameResults.getFirst().toString());
+	}
+}
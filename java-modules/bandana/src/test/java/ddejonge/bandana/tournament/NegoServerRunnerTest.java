@@ -0,0 +1,48 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NegoServerRunnerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test(timeout = 60000)
+	public void everyGameGetsASessionOnItsOwnPort() throws IOException{
+
+		//A port that accepts the connections of the protocol managers, but that never answers them.
+		ServerSocket gameServer = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		int gameServerPort = gameServer.getLocalPort();
+
+		NegoServerRunner runner = new NegoServerRunner(40913);
+		try{
+			int firstPort = runner.startGame(1, gameServerPort, null, folder.getRoot().getPath() + File.separator + "Game 1" + File.separator);
+			int secondPort = runner.startGame(2, gameServerPort, null, folder.getRoot().getPath() + File.separator + "Game 2" + File.separator);
+
+			assertTrue(firstPort >= 40913);
+			assertTrue(secondPort >= 40913);
+			assertNotEquals(firstPort, secondPort);
+			assertEquals(firstPort, runner.getPort(1));
+			assertEquals(secondPort, runner.getPort(2));
+
+			runner.endGame(1);
+			assertEquals(-1, runner.getPort(1));
+			assertEquals(secondPort, runner.getPort(2));
+
+		}finally{
+			runner.stopServer();
+			gameServer.close();
+		}
+
+		assertEquals(-1, runner.getPort(2));
+	}
+}
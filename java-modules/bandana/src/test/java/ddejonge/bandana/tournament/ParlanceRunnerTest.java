@@ -0,0 +1,55 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ParlanceRunnerTest {
+
+	@Test
+	public void everyServerHasAConfigFolderWithItsOwnDeadlines() throws IOException{
+
+		ParlanceRunner first = new ParlanceRunner(40613);
+		ParlanceRunner second = new ParlanceRunner(40614);
+
+		File firstFolder = first.createConfigFolder(5, 3, 2);
+		File secondFolder = second.createConfigFolder(60, 30, 30);
+
+		try{
+			assertNotEquals(firstFolder, secondFolder);
+
+			List<String> firstConfig = Files.readAllLines(new File(firstFolder, "parlance.cfg").toPath(), StandardCharsets.UTF_8);
+			List<String> secondConfig = Files.readAllLines(new File(secondFolder, "parlance.cfg").toPath(), StandardCharsets.UTF_8);
+			assertTrue(firstConfig.contains("MTL = 5"));
+			assertTrue(firstConfig.contains("BTL = 2"));
+			assertTrue(secondConfig.contains("MTL = 60"));
+			assertTrue(secondConfig.contains("RTL = 30"));
+
+		}finally{
+			ParlanceRunner.deleteFolder(firstFolder);
+			ParlanceRunner.deleteFolder(secondFolder);
+		}
+
+		assertFalse(firstFolder.exists());
+		assertFalse(secondFolder.exists());
+	}
+
+	@Test
+	public void deletesTheConfigFolderWithEverythingInIt() throws IOException{
+
+		File folder = new ParlanceRunner(40615).createConfigFolder(5, 5, 5);
+		File subFolder = new File(folder, "logs");
+		subFolder.mkdir();
+		Files.write(new File(subFolder, "parlance.log").toPath(), "output".getBytes(StandardCharsets.UTF_8));
+
+		ParlanceRunner.deleteFolder(folder);
+
+		assertFalse(folder.exists());
+	}
+}
@@ -0,0 +1,24 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PortAllocatorTest {
+
+	@Test
+	public void reservedPortsAreNotGivenOutTwice(){
+
+		int first = PortAllocator.allocate(40713);
+		int second = PortAllocator.allocate(40713);
+
+		assertTrue(first >= 40713);
+		assertTrue(second > first);
+
+		PortAllocator.release(first);
+		assertEquals(first, PortAllocator.allocate(first));
+
+		PortAllocator.release(first);
+		PortAllocator.release(second);
+	}
+}
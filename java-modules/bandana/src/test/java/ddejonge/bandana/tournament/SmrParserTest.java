@@ -0,0 +1,73 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class SmrParserTest {
+
+	static final String SMR = "SMR ( FAL 1912 ) ( AUS ( 'Bot 0' ) ( '1.0' ) 0 1905 ) ( ENG ( 'Bot 1' ) ( '1.0' ) 9 )"
+			+ " ( FRA ( 'Bot 2' ) ( '1.0' ) 9 ) ( GER ( 'Bot 3' ) ( '1.0' ) 0 1907 ) ( ITA ( 'Bot 4' ) ( '1.0' ) 4 )"
+			+ " ( RUS ( 'Bot 5' ) ( '1.0' ) 12 ) ( TUR ( 'Bot 6' ) ( '1.0' ) 0 1903 )";
+
+	@Test
+	public void readsTokensAndTextAlike() throws IOException{
+
+		GameResult fromTokens = new GameResult(tokenize(SMR), 7);
+
+		//Text may have other spacing and something in front of the message.
+		String line = "12:00:01 received: " + SMR.replace("( ", "(").replace(" )", ")");
+		SmrParser parser = new SmrParser(new StringReader("no result here" + System.lineSeparator() + line + System.lineSeparator() + SMR));
+		GameResult fromText = parser.next();
+
+		assertEquals(fromTokens.toString(), fromText.toString());
+		assertEquals(1905, fromText.getYearOfElimination("'Bot 0'"));
+		assertEquals(4, fromText.getNumSurvivors());
+
+		//Bot 1 and Bot 2 share the second place, and keep the order of the message.
+		assertEquals(2.5, fromText.getRank("'Bot 1'"), 0.0);
+		assertEquals(2.5, fromText.getRank("'Bot 2'"), 0.0);
+		assertTrue(fromText.toString().startsWith("1. 'Bot 5' RUS 12\n2. 'Bot 1' ENG 9\n3. 'Bot 2' FRA 9\n4. 'Bot 4' ITA 4\n5. 'Bot 3' GER 1907\n"));
+
+		assertNotNull(parser.next());
+		assertNull(parser.next());
+	}
+
+	@Test
+	public void rejectsMalformedMessages(){
+
+		try {
+			new GameResult(tokenize(SMR.replace("( '1.0' ) 9 )", "9 )")), 7);
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("expected ("));
+		}
+
+		try {
+			new SmrParser(new StringReader(SMR.replace(") 12 )", ") twelve )"))).next();
+			fail();
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains("expected a number"));
+		}
+	}
+
+	/**
+	 * Splits a message into tokens like the Observer receives them: a quoted string is a single token.
+	 */
+	static String[] tokenize(String message){
+
+		List<String> tokens = new ArrayList<String>();
+		Matcher matcher = Pattern.compile("\\(|\\)|'[^']*'|[^\\s()]+").matcher(message);
+		while(matcher.find()){
+			tokens.add(matcher.group());
+		}
+		return tokens.toArray(new String[tokens.size()]);
+	}
+}
@@ -0,0 +1,98 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TournamentCheckpointTest {
+
+	@Test
+	public void resumesFromTheLastCheckpoint() throws IOException{
+
+		File logFolder = Files.createTempDirectory("tournament").toFile();
+		TournamentSpec spec = TournamentSpec.fromJson(new StringReader(TournamentSpecTest.SPEC.replace("\"seats\"",
+				"\"outputs\": {\"logFolder\": \"" + logFolder.getPath() + "\"}, \"seats\"")));
+
+		TournamentCheckpoint checkpoint = TournamentCheckpoint.create(spec);
+		checkpoint.tournamentResult.addResult(1, GameResults.withWinner(2));
+		checkpoint.tournamentResult.addResult(3, GameResults.withWinner(2));
+		checkpoint.write();
+
+		//This game ends after the last checkpoint, so it is played again when the tournament is resumed.
+		checkpoint.tournamentResult.addResult(2, GameResults.withWinner(5));
+
+		File archiveFile = new File(checkpoint.tournamentLogFolderPath, TournamentCheckpoint.ARCHIVE_FILE_NAME);
+		long archiveLength = archiveFile.length();
+
+		//The tournament is killed before its next checkpoint.
+		checkpoint.closeFiles();
+
+		TournamentCheckpoint resumed = TournamentCheckpoint.resume(checkpoint.tournamentLogFolderPath);
+
+		assertEquals(7, resumed.spec.getSeed().longValue());
+		assertTrue(resumed.isPlayed(1));
+		assertFalse(resumed.isPlayed(2));
+		assertTrue(resumed.isPlayed(3));
+		assertEquals(18, resumed.getNumberOfGamesToPlay());
+		assertTrue(archiveFile.length() < archiveLength);
+
+		SoloVictoryCalculator soloVictories = (SoloVictoryCalculator) resumed.tournamentResult.scoreCalculators.get(0);
+		assertEquals(2.0, soloVictories.getTotalScore("'Bot 2'"), 0.0);
+		assertEquals(0.0, soloVictories.getTotalScore("'Bot 5'"), 0.0);
+
+		resumed.tournamentResult.addResult(2, GameResults.withWinner(5));
+		resumed.close();
+
+		int numberOfRecords = 0;
+		GameResultArchive.Reader reader = new GameResultArchive.Reader(archiveFile);
+		while(reader.next()){
+			numberOfRecords++;
+		}
+		reader.close();
+		assertEquals(3, numberOfRecords);
+	}
+
+	@Test
+	public void neverRecordsMoreBytesThanWereSynced() throws Exception{
+
+		File logFolder = Files.createTempDirectory("tournament").toFile();
+		TournamentSpec spec = TournamentSpec.fromJson(new StringReader(TournamentSpecTest.SPEC.replace("\"seats\"",
+				"\"outputs\": {\"logFolder\": \"" + logFolder.getPath() + "\"}, \"seats\"")));
+
+		TournamentCheckpoint checkpoint = TournamentCheckpoint.create(spec);
+		GameResultArchive archive = checkpoint.archive;
+		GameResultLog resultLog = checkpoint.tournamentResult.getResultLog();
+
+		for(int gameNumber = 1; gameNumber <= 3; gameNumber++){
+			checkpoint.tournamentResult.addResult(gameNumber, GameResults.withWinner(gameNumber));
+			checkpoint.write();
+
+			TournamentResult saved = readCheckpoint(checkpoint);
+			assertEquals(gameNumber, saved.getNumberOfGames());
+			assertTrue(saved.getArchiveLength() > 0);
+			assertTrue(saved.getArchiveLength() <= archive.getSyncedLength());
+			assertTrue(saved.getResultLogLength() > 0);
+			assertTrue(saved.getResultLogLength() <= resultLog.getSyncedLength());
+		}
+
+		checkpoint.close();
+	}
+
+	private static TournamentResult readCheckpoint(TournamentCheckpoint checkpoint) throws Exception{
+
+		ObjectInputStream input = new ObjectInputStream(new FileInputStream(new File(checkpoint.tournamentLogFolderPath, TournamentCheckpoint.CHECKPOINT_FILE_NAME)));
+		try {
+			input.readObject();
+			return (TournamentResult) input.readObject();
+		} finally {
+			input.close();
+		}
+	}
+}
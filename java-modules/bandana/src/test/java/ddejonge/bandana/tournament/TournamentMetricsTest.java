@@ -0,0 +1,54 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TournamentMetricsTest {
+
+	@Test
+	public void countsGamesPhasesAndCCDs(){
+
+		TournamentMetrics metrics = new TournamentMetrics(0);
+
+		for(int phase = 0; phase < 30; phase++){
+			metrics.phaseEnded();
+		}
+		metrics.gameEnded(GameResults.withSupplyCenters(18, 10, 6), Arrays.asList("ENG", "ENG"));
+		metrics.gameEnded(GameResults.withSupplyCenters(2, 10, 22), Collections.<String>emptyList());
+
+		assertEquals(2, metrics.getGamesPlayed());
+		assertEquals(30, metrics.getPhasesPlayed());
+
+		//two games and 30 phases in one minute.
+		assertEquals(120.0, metrics.getGamesPerHour(60000), 1e-9);
+		assertEquals(0.5, metrics.getPhasesPerSecond(60000), 1e-9);
+
+		assertEquals(10.0, metrics.getAverageSupplyCenters().get("'Bot 0'"), 0.0);
+		assertEquals(14.0, metrics.getAverageSupplyCenters().get("'Bot 2'"), 0.0);
+		assertEquals(0, metrics.getCCDCounts().get("'Bot 0'").intValue());
+		assertEquals(2, metrics.getCCDCounts().get("'Bot 1'").intValue());
+	}
+
+	@Test
+	public void isDumpedWhenClosed() throws IOException{
+
+		File dumpFile = File.createTempFile("tournament", ".metrics");
+
+		TournamentMetrics metrics = new TournamentMetrics();
+		metrics.start("TournamentMetricsTest", dumpFile, TournamentMetrics.DUMP_INTERVAL_MILLIS);
+		metrics.gameEnded(GameResults.withSupplyCenters(18, 10, 6), Collections.<String>emptyList());
+		metrics.close();
+
+		String dump = new String(Files.readAllBytes(dumpFile.toPath()), StandardCharsets.UTF_8);
+		assertTrue(dump.contains("Games played: 1"));
+		assertTrue(dump.contains("'Bot 1'"));
+	}
+}
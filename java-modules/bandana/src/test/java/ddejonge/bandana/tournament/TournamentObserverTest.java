@@ -0,0 +1,150 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ddejonge.bandana.exampleAgents.RandomBot;
+import ddejonge.bandana.gameServer.LocalGameServer;
+import es.csic.iiia.fabregues.dip.comm.Comm;
+import es.csic.iiia.fabregues.dip.comm.CommException;
+import es.csic.iiia.fabregues.dip.comm.IComm;
+import es.csic.iiia.fabregues.dip.comm.StartingCommException;
+import es.csic.iiia.fabregues.utilities.Interface;
+
+public class TournamentObserverTest {
+
+	static final int NUMBER_OF_PLAYERS = 7;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A connection that never sends the orders of its player, so that its power goes into civil disorder.
+	 */
+	static class SilentPlayerComm implements IComm {
+
+		final IComm comm;
+
+		SilentPlayerComm(IComm comm){
+			this.comm = comm;
+		}
+
+		@Override
+		public String getName() {
+			return comm.getName();
+		}
+
+		@Override
+		public void init(Comm comm, Interface log) throws StartingCommException {
+			this.comm.init(comm, log);
+		}
+
+		@Override
+		public void sendMessage(String[] message) throws CommException {
+			if( ! message[0].equals("SUB")){
+				comm.sendMessage(message);
+			}
+		}
+
+		@Override
+		public void receivingMessage(String[] message) {
+			comm.receivingMessage(message);
+		}
+
+		@Override
+		public void stop() {
+			comm.stop();
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void wakesUpWhenTheGameEndsAndReportsThePowersInCivilDisorder() throws Exception{
+
+		String logFolderPath = folder.newFolder().getPath();
+		TournamentResult tournamentResult = new TournamentResult(NUMBER_OF_PLAYERS, TournamentRunner.createScoreCalculators("standard"));
+		TournamentObserver observer = new TournamentObserver(logFolderPath, TournamentRunner.createScoreCalculators("standard"),
+				tournamentResult, 1, NUMBER_OF_PLAYERS, TournamentObserver.DEFAULT_GAME_SERVER_PORT, true);
+
+		//The deadlines are only reached by the silent player.
+		LocalGameServer gameServer = new LocalGameServer(1, 1, 1);
+		gameServer.setFinalYear(1901);
+		gameServer.setNumberOfObservers(1);
+
+		List<RandomBot> players = new ArrayList<RandomBot>();
+		for(int seat = 0; seat < NUMBER_OF_PLAYERS; seat++){
+			String name = "RandomBot " + seat;
+			IComm comm = gameServer.createComm(name);
+			if(seat == 0){
+				comm = new SilentPlayerComm(comm);
+			}
+			players.add(new RandomBot(1901, logFolderPath + File.separator + name + File.separator, comm));
+		}
+		for(RandomBot player : players){
+			player.start(player.getComm());
+		}
+
+		observer.setNextGameNumber(1);
+		observer.connectToServer(gameServer.createComm("TournamentObserver"));
+
+		GameResult gameResult = observer.awaitGameEnd(60000);
+		gameServer.stop();
+		tournamentResult.close();
+
+		assertNotNull(gameResult);
+		//Nobody is eliminated in the first year.
+		assertEquals(NUMBER_OF_PLAYERS, gameResult.getNumSurvivors());
+		assertTrue(observer.playerFailed());
+		assertFalse(observer.getCCDPowers().isEmpty());
+		assertEquals(1, tournamentResult.getNumberOfGames());
+	}
+
+	@Test(timeout = 10000)
+	public void givesUpWaitingForAGameThatDoesNotEnd() throws IOException, InterruptedException{
+
+		String logFolderPath = folder.newFolder().getPath();
+		TournamentResult tournamentResult = new TournamentResult(NUMBER_OF_PLAYERS, TournamentRunner.createScoreCalculators("standard"));
+		TournamentObserver observer = new TournamentObserver(logFolderPath, TournamentRunner.createScoreCalculators("standard"),
+				tournamentResult, 1, NUMBER_OF_PLAYERS, TournamentObserver.DEFAULT_GAME_SERVER_PORT, true);
+
+		//No player ever joins, so the game never starts.
+		LocalGameServer gameServer = new LocalGameServer(1, 1, 1);
+		gameServer.setNumberOfObservers(1);
+		observer.connectToServer(gameServer.createComm("TournamentObserver"));
+
+		long start = System.currentTimeMillis();
+		assertNull(observer.awaitGameEnd(200));
+		assertTrue(System.currentTimeMillis() - start >= 200);
+
+		gameServer.stop();
+		tournamentResult.close();
+	}
+
+	@Test(timeout = 10000)
+	public void doesNotWaitWhenItCannotConnect() throws IOException, InterruptedException{
+
+		String logFolderPath = folder.newFolder().getPath();
+		TournamentResult tournamentResult = new TournamentResult(NUMBER_OF_PLAYERS, TournamentRunner.createScoreCalculators("standard"));
+		TournamentObserver observer = new TournamentObserver(logFolderPath, TournamentRunner.createScoreCalculators("standard"),
+				tournamentResult, 1, NUMBER_OF_PLAYERS, TournamentObserver.DEFAULT_GAME_SERVER_PORT, true);
+
+		LocalGameServer gameServer = new LocalGameServer(1, 1, 1);
+		observer.connectToServer(new SilentPlayerComm(gameServer.createComm("TournamentObserver")) {
+			@Override
+			public void init(Comm comm, Interface log) throws StartingCommException {
+				throw new StartingCommException("The game server is gone.");
+			}
+		});
+		assertNull(observer.awaitGameEnd(60000));
+
+		gameServer.stop();
+		tournamentResult.close();
+	}
+}
@@ -0,0 +1,75 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TournamentRescorerTest {
+
+	@Test
+	public void rescoresEveryKindOfResultsFile() throws Exception{
+
+		File folder = Files.createTempDirectory("tournament").toFile();
+		GameResultArchive archive = new GameResultArchive(new File(folder, TournamentCheckpoint.ARCHIVE_FILE_NAME));
+		GameResultLog resultLog = new GameResultLog(new File(folder, GameResultLog.FILE_NAME));
+		StringBuilder textLog = new StringBuilder();
+
+		TournamentResult expected = new TournamentResult(7, TournamentRunner.createScoreCalculators("standard"));
+
+		for(int gameNumber = 1; gameNumber <= 5000; gameNumber++){
+
+			//Every 7th game has eliminated players and shared places.
+			GameResult gameResult = gameNumber % 7 == 0
+					? new GameResult(SmrParserTest.tokenize(SmrParserTest.SMR), 7)
+					: GameResults.withWinner(gameNumber % 5);
+
+			expected.addResult(gameNumber, gameResult);
+			archive.append(gameNumber, gameResult);
+			resultLog.append(gameNumber, gameResult);
+			textLog.append("game " + gameNumber + ": " + System.lineSeparator() + gameResult.toString());
+		}
+		archive.close();
+		resultLog.close();
+
+		File textLogFile = new File(folder, "gameResults.log");
+		Files.write(textLogFile.toPath(), textLog.toString().getBytes(StandardCharsets.UTF_8));
+
+		for(String fileName : new String[]{TournamentCheckpoint.ARCHIVE_FILE_NAME, GameResultLog.FILE_NAME, "gameResults.log"}){
+
+			TournamentResult rescored = TournamentRescorer.rescore(new File(folder, fileName),
+					TournamentRescorer.createCalculatorFactory(new ArrayList<String>()));
+
+			assertEquals(fileName, 5000, rescored.getNumberOfGames());
+			assertEquals(fileName, expected.toString(), rescored.toString());
+			assertEquals(fileName, expected.getWinRate("'Bot 1'", "'Bot 5'"), rescored.getWinRate("'Bot 1'", "'Bot 5'"), 0.0001);
+
+			ScoreCalculator expectedPoints = expected.scoreCalculators.get(2);
+			ScoreCalculator rescoredPoints = rescored.scoreCalculators.get(2);
+			assertEquals(fileName, expectedPoints.getVariance("'Bot 2'"), rescoredPoints.getVariance("'Bot 2'"), 0.0001);
+			assertEquals(fileName, expectedPoints.getMaxScore("'Bot 2'"), rescoredPoints.getMaxScore("'Bot 2'"), 0.0);
+		}
+	}
+
+	@Test
+	public void appliesTheGivenCalculators() throws Exception{
+
+		File folder = Files.createTempDirectory("tournament").toFile();
+		GameResultArchive archive = new GameResultArchive(new File(folder, TournamentCheckpoint.ARCHIVE_FILE_NAME));
+		archive.append(1, GameResults.withWinner(2));
+		archive.append(2, null);
+		archive.close();
+
+		TournamentResult rescored = TournamentRescorer.rescore(new File(folder, TournamentCheckpoint.ARCHIVE_FILE_NAME),
+				TournamentRescorer.createCalculatorFactory(Arrays.asList(RankCalculator.class.getName())));
+
+		assertEquals(1, rescored.scoreCalculators.size());
+		assertEquals(1, rescored.getNumberOfGames());
+		assertEquals("'Bot 2'", rescored.sortNames(rescored.scoreCalculators).get(0));
+	}
+}
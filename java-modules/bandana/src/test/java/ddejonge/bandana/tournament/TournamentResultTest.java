@@ -0,0 +1,165 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TournamentResultTest {
+
+	@Test
+	public void rankingIsKeptSortedAfterEveryGame(){
+
+		ArrayList<ScoreCalculator> scoreCalculators = TournamentRunner.createScoreCalculators("standard");
+		TournamentResult tournamentResult = new TournamentResult(7, scoreCalculators);
+
+		int[] winners = {3, 3, 5, 0, 5, 5, 1};
+		for(int winner : winners){
+			tournamentResult.addResult(GameResults.withWinner(winner));
+
+			//A copy of the calculators makes sortNames() sort all the players again.
+			ArrayList<String> sortedNames = tournamentResult.sortNames(new ArrayList<ScoreCalculator>(scoreCalculators));
+			assertEquals(sortedNames, tournamentResult.sortNames(scoreCalculators));
+		}
+
+		ArrayList<String> ranking = tournamentResult.sortNames(scoreCalculators);
+		assertEquals("'Bot 5'", ranking.get(0));
+		assertEquals("'Bot 3'", ranking.get(1));
+		assertEquals(7, ranking.size());
+		assertTrue(tournamentResult.toString().startsWith("'Bot 5': "));
+	}
+
+	@Test
+	public void keepsOnlyTheLastGameResultsInMemory(){
+
+		TournamentResult tournamentResult = new TournamentResult(7, TournamentRunner.createScoreCalculators("standard"));
+		for(int game = 0; game < TournamentResult.MAX_GAME_RESULTS_IN_MEMORY + 5; game++){
+			tournamentResult.addResult(game + 1, GameResults.withWinner(game % 7));
+		}
+
+		assertEquals(TournamentResult.MAX_GAME_RESULTS_IN_MEMORY, tournamentResult.gameResults.size());
+		//The oldest games were dropped: the first one kept is game 6, won by 'Bot 5'.
+		assertEquals(GameResults.withWinner(5).toString(), tournamentResult.gameResults.getFirst().toString());
+		assertEquals(TournamentResult.MAX_GAME_RESULTS_IN_MEMORY + 5, tournamentResult.getNumberOfGames());
+	}
+
+	@Test
+	public void keepsTheSpreadOfTheScores(){
+
+		ArrayList<ScoreCalculator> scoreCalculators = TournamentRunner.createScoreCalculators("standard");
+		TournamentResult tournamentResult = new TournamentResult(7, scoreCalculators);
+		tournamentResult.addResult(GameResults.withWinner(2));
+		tournamentResult.addResult(GameResults.withWinner(4));
+
+		ScoreCalculator supplyCenters = null;
+		for(ScoreCalculator scoreCalculator : scoreCalculators){
+			if(scoreCalculator instanceof SupplyCenterCalculator){
+				supplyCenters = scoreCalculator;
+			}
+		}
+
+		assertEquals(2, supplyCenters.getNumberOfGamesPlayed("'Bot 2'"));
+		assertEquals(20.0, supplyCenters.getTotalScore("'Bot 2'"), 0.0);
+		assertEquals(2.0, supplyCenters.getMinScore("'Bot 2'"), 0.0);
+		assertEquals(18.0, supplyCenters.getMaxScore("'Bot 2'"), 0.0);
+		assertEquals(64.0, supplyCenters.getVariance("'Bot 2'"), 0.0001);
+		assertEquals(0.0, supplyCenters.getVariance("'Bot 0'"), 0.0001);
+		assertEquals(0, supplyCenters.getNumberOfGamesPlayed("'Bot 9'"));
+	}
+
+	@Test
+	public void comparesThePlayers(){
+
+		ArrayList<ScoreCalculator> scoreCalculators = TournamentRunner.createScoreCalculators("standard");
+		TournamentResult tournamentResult = new TournamentResult(7, scoreCalculators);
+
+		//Bot 0 wins two games in three, Bot 1 wins the others.
+		for(int game = 0; game < 30; game++){
+			tournamentResult.addResult(GameResults.withWinner(game % 3 == 0 ? 1 : 0));
+		}
+
+		assertEquals(2.0 / 3.0, tournamentResult.getWinRate("'Bot 0'", "'Bot 1'"), 0.0001);
+		assertEquals(1.0 / 3.0, tournamentResult.getWinRate("'Bot 1'", "'Bot 0'"), 0.0001);
+		assertEquals(0.5, tournamentResult.getWinRate("'Bot 2'", "'Bot 3'"), 0.0001);
+		assertTrue(Double.isNaN(tournamentResult.getWinRate("'Bot 0'", "'Bot 9'")));
+		//When Bot 1 wins, Bot 0 shares its place with Bot 2.
+		assertEquals(25.0 / 30.0, tournamentResult.getWinRateMatrix()[0][2], 0.0001);
+
+		ScoreCalculator supplyCenters = scoreCalculators.get(1);
+		double average = supplyCenters.getAverageScore("'Bot 0'");
+		double[] interval = supplyCenters.getConfidenceInterval("'Bot 0'", 0.95, 1000, new Random(1));
+		assertTrue(interval[0] < average && average < interval[1]);
+		assertTrue(supplyCenters.getStandardError("'Bot 0'") > 0);
+
+		//Bots 2 to 6 always share the same place, so the ranking can never be settled.
+		assertFalse(tournamentResult.isRankingSettled(3.0));
+	}
+
+	@Test
+	public void summaryReportsTheConfidenceIntervalsAndTheWinRates(){
+
+		TournamentResult tournamentResult = new TournamentResult(7, TournamentRunner.createScoreCalculators("standard"));
+		for(int game = 0; game < 5; game++){
+			tournamentResult.addResult(GameResults.withSupplyCenters(15, 13, 11, 9, 7, 5, 3));
+			tournamentResult.addResult(GameResults.withSupplyCenters(13, 11, 9, 7, 5, 3, 1));
+		}
+
+		String summary = tournamentResult.getSummary();
+		assertTrue(summary.startsWith(tournamentResult.toString()));
+		assertTrue(summary.contains("Confidence intervals of the average scores (95%, bootstrap):"));
+		//Bot 0 always ends with 13 or 15 supply centers, 14 on average, and is always first.
+		assertTrue(summary.contains("'Bot 0': Solo Victories [0.000, 0.000] Supply Centers [13.400, 14.600] Points [1.000, 1.000] Average Rank [1.000, 1.000]"));
+
+		String[] lines = summary.split(System.lineSeparator());
+		String header = lines[lines.length - 8];
+		assertEquals("\t'Bot 0'\t'Bot 1'\t'Bot 2'\t'Bot 3'\t'Bot 4'\t'Bot 5'\t'Bot 6'", header);
+		//Bot 0 always beats Bot 1, and is never compared with itself.
+		assertTrue(lines[lines.length - 7].startsWith("'Bot 0'\t-\t1.000\t"));
+		assertTrue(lines[lines.length - 6].startsWith("'Bot 1'\t0.000\t-\t"));
+
+		//The same results always give the same summary.
+		assertEquals(summary, tournamentResult.getSummary());
+	}
+
+	@Test
+	public void confidenceIntervalsNarrowBeyondTheSampleSize(){
+
+		ArrayList<ScoreCalculator> scoreCalculators = TournamentRunner.createScoreCalculators("standard");
+		TournamentResult tournamentResult = new TournamentResult(7, scoreCalculators);
+		ScoreCalculator supplyCenters = scoreCalculators.get(1);
+
+		double[] widths = new double[2];
+		for(int game = 0; game < 4 * ScoreCalculator.SAMPLE_SIZE; game++){
+			tournamentResult.addResult(GameResults.withWinner(game % 2));
+
+			if(game + 1 == ScoreCalculator.SAMPLE_SIZE || game + 1 == 4 * ScoreCalculator.SAMPLE_SIZE){
+				double average = supplyCenters.getAverageScore("'Bot 0'");
+				double[] interval = supplyCenters.getConfidenceInterval("'Bot 0'", 0.95, 1000, new Random(1));
+				assertTrue(interval[0] < average && average < interval[1]);
+				widths[game + 1 == ScoreCalculator.SAMPLE_SIZE ? 0 : 1] = interval[1] - interval[0];
+			}
+		}
+
+		//Four times as many games halve the interval, although the sample is as large as before.
+		assertEquals(0.5, widths[1] / widths[0], 0.1);
+	}
+
+	@Test
+	public void rankingIsSettledOnceThePlayersAreToldApart(){
+
+		TournamentResult tournamentResult = new TournamentResult(7, TournamentRunner.createScoreCalculators("standard"));
+
+		//Every bot ends with one supply center more or less than its average of 14 - 2 * its number.
+		tournamentResult.addResult(GameResults.withSupplyCenters(15, 13, 11, 9, 7, 5, 3));
+		tournamentResult.addResult(GameResults.withSupplyCenters(13, 11, 9, 7, 5, 3, 1));
+		assertFalse(tournamentResult.isRankingSettled(3.0));
+
+		for(int game = 0; game < 10; game++){
+			tournamentResult.addResult(GameResults.withSupplyCenters(15, 13, 11, 9, 7, 5, 3));
+			tournamentResult.addResult(GameResults.withSupplyCenters(13, 11, 9, 7, 5, 3, 1));
+		}
+		assertTrue(tournamentResult.isRankingSettled(3.0));
+	}
+}
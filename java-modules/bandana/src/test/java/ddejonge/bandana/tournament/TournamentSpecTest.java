@@ -0,0 +1,102 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class TournamentSpecTest {
+
+	static final String SPEC = "{"
+			+ "\"map\": \"standard\", \"finalYear\": 1910, \"numberOfGames\": 20, \"slots\": 4, \"seed\": 7,"
+			+ "\"deadlines\": {\"move\": 2},"
+			+ "\"seats\": ["
+			+ "  {\"name\": \"RandomBot\", \"command\": [\"java\", \"-jar\", \"agents/RandomBot.jar\"], \"count\": 6},"
+			+ "  {\"name\": \"DumbBot\", \"command\": [\"java\", \"-jar\", \"agents/DumbBot-1.4.jar\"]}"
+			+ "]}";
+
+	@Test
+	public void readsSettingsAndKeepsDefaults(){
+
+		TournamentSpec spec = TournamentSpec.fromJson(new StringReader(SPEC));
+
+		assertEquals(7, spec.getNumberOfParticipants());
+		assertEquals(20, spec.getNumberOfGames());
+		assertEquals(4, spec.getSlots());
+		assertEquals(2, spec.getMoveTimeLimit());
+		assertEquals(3, spec.getRetreatTimeLimit());
+		assertTrue(spec.isNegotiation());
+		assertFalse(spec.isWarmAgents());
+		assertEquals("RandomBot 5", spec.getPlayerName(5));
+		assertEquals("DumbBot 6", spec.getPlayerName(6));
+	}
+
+	@Test
+	public void buildsANewCommandForEveryLaunch(){
+
+		TournamentSpec spec = TournamentSpec.fromJson(new StringReader(SPEC));
+
+		String[] first = spec.createPlayerCommand(0, "log", 1);
+		String[] second = spec.createPlayerCommand(0, "log", 2);
+
+		assertNotSame(first, second);
+		assertEquals("java", first[0]);
+		assertEquals("agents/RandomBot.jar", first[2]);
+		assertEquals("-log", first[3]);
+		assertTrue(first[4].contains("Game 1"));
+		assertTrue(second[4].contains("Game 2"));
+		assertEquals("RandomBot 0", first[6]);
+		assertEquals("1910", first[8]);
+		assertEquals("-seed", first[9]);
+		assertFalse(first[10].equals(second[10]));
+		assertEquals(spec.getSeed(1, 0), Long.parseLong(first[10]));
+
+		first[2] = "changed";
+		assertEquals("agents/RandomBot.jar", spec.createPlayerCommand(0, "log", 1)[2]);
+	}
+
+	@Test
+	public void replaysAGameWithItsSeeds(){
+
+		TournamentSpec spec = TournamentSpec.fromJson(new StringReader(SPEC));
+		TournamentSpec replay = spec.withReplayOf(5);
+
+		assertEquals(1, replay.getNumberOfGames());
+		assertEquals(1, replay.getSlots());
+		assertEquals(5, replay.getReplayOf().intValue());
+		for(int seat = 0; seat < 7; seat++){
+			assertEquals(spec.getSeed(5, seat), replay.getSeed(1, seat));
+			assertFalse(spec.getSeed(5, seat) == spec.getSeed(6, seat));
+		}
+		assertFalse(spec.getSeed(5, 0) == spec.getSeed(5, 1));
+
+		//A replay of a replay plays the same game.
+		assertEquals(spec.getSeed(5, 3), replay.withReplayOf(1).getSeed(1, 3));
+	}
+
+	@Test
+	public void rejectsSeatsWithoutAPositiveCount(){
+		try{
+			TournamentSpec.fromJson(new StringReader(SPEC.replace("\"count\": 6", "\"count\": 0")));
+			fail("A seat with a count of 0 was accepted.");
+		}catch(RuntimeException e){
+			assertTrue(e.getMessage().contains("RandomBot"));
+		}
+	}
+
+	@Test
+	public void deadlinesOfZeroMeanThatGamesHaveNoTimeout(){
+
+		TournamentSpec spec = TournamentSpec.fromJson(new StringReader(SPEC.replace("\"move\": 2", "\"move\": 0")));
+
+		assertEquals(0, spec.getMoveTimeLimit());
+		assertEquals(TournamentRunner.NO_TIMEOUT, TournamentRunner.getGameTimeoutMillis(spec.getFinalYear(), spec.getMoveTimeLimit(), spec.getRetreatTimeLimit(), spec.getBuildTimeLimit()));
+		assertEquals(2 * 11 * 13000 + 60000, TournamentRunner.getGameTimeoutMillis(1910, 2, 3, 3));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void rejectsWrongNumberOfSeats(){
+		TournamentSpec.fromJson(new StringReader("{\"seats\": [{\"name\": \"RandomBot\", \"command\": [\"java\"], \"count\": 3}]}"));
+	}
+}
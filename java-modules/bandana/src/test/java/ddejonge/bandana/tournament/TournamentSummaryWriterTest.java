@@ -0,0 +1,88 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TournamentSummaryWriterTest {
+
+	@Test(timeout = 10000)
+	public void coalescesGamesAndWritesTheLastSummaryOnClose() throws Exception{
+
+		File file = new File(Files.createTempDirectory("tournament").toFile(), TournamentSummaryWriter.FILE_NAME);
+		TournamentResult tournamentResult = new TournamentResult(7, TournamentRunner.createScoreCalculators("standard"));
+		TournamentSummaryWriter writer = new TournamentSummaryWriter(file, tournamentResult, 60000, 2);
+
+		tournamentResult.addResult(GameResults.withWinner(1));
+		writer.gameFinished();
+		Thread.sleep(200);
+		assertFalse(file.exists());
+
+		//The second game reaches the maximum number of pending games.
+		tournamentResult.addResult(GameResults.withWinner(4));
+		writer.gameFinished();
+		while( ! file.exists()){
+			Thread.sleep(10);
+		}
+		assertEquals(tournamentResult.getSummary(), read(file));
+
+		tournamentResult.addResult(GameResults.withWinner(4));
+		writer.gameFinished();
+		writer.close();
+		assertEquals(tournamentResult.getSummary(), read(file));
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+	@Test(timeout = 60000)
+	public void addsResultsWhileTheSummaryIsBootstrapped() throws Exception{
+
+		File file = new File(Files.createTempDirectory("tournament").toFile(), TournamentSummaryWriter.FILE_NAME);
+		TournamentResult tournamentResult = new TournamentResult(7, TournamentRunner.createScoreCalculators("standard"));
+
+		//Full samples make the bootstrap of every summary take a while.
+		for(int game = 0; game < ScoreCalculator.SAMPLE_SIZE; game++){
+			tournamentResult.addResult(game + 1, GameResults.withWinner(game % 7));
+		}
+
+		TournamentSummaryWriter writer = new TournamentSummaryWriter(file, tournamentResult, 60000, 1);
+		writer.gameFinished();
+		Thread writerThread = null;
+		while(writerThread == null){
+			writerThread = findBootstrappingThread();
+		}
+
+		tournamentResult.addResult(GameResults.withWinner(2));
+		assertTrue("addResult() waited for the summary to be bootstrapped.", isBootstrapping(writerThread));
+		writer.close();
+	}
+
+	/**
+	 * Returns the summary writer thread that is bootstrapping a summary, or null if there is none.
+	 */
+	private static Thread findBootstrappingThread(){
+		for(Thread thread : Thread.getAllStackTraces().keySet()){
+			if(thread.getName().equals("TournamentSummaryWriter") && isBootstrapping(thread)){
+				return thread;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isBootstrapping(Thread thread){
+		for(StackTraceElement element : thread.getStackTrace()){
+			if(element.getMethodName().equals("getConfidenceInterval")){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static String read(File file) throws IOException{
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,91 @@
+package ddejonge.bandana.tournament;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrajectoryLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static TrajectoryLog.Phase phase(int gameNumber, int year){
+		byte[] board = new byte[75];
+		board[year % 75] = 3;
+		return new TrajectoryLog.Phase(gameNumber, year, 2, board, board, board, new byte[]{3, 3, 3, 3, 3, 4, 3}, new byte[]{0, 1, -1, 0, 0, 0, 0},
+				Arrays.asList("( AUS AMY VIE ) MTO TRI"), Arrays.asList("SUC"), Collections.singletonList("deal " + year));
+	}
+
+	@Test
+	public void readsTheRecordsInAnyOrderAfterReopening() throws IOException{
+
+		File logFolder = folder.newFolder();
+
+		//A small chunk size, so that the records are spread over several chunks.
+		TrajectoryLog log = new TrajectoryLog(logFolder, 1000);
+		for(int year = 1901; year < 1931; year++){
+			log.append(phase(1, year));
+		}
+		log.close();
+
+		log = new TrajectoryLog(logFolder, 1000);
+		assertEquals(30, log.getNumberOfRecords());
+		log.append(phase(2, 1901));
+		log.close();
+
+		TrajectoryLog.Reader reader = new TrajectoryLog.Reader(logFolder);
+		assertEquals(31, reader.getNumberOfRecords());
+		assertEquals(2, reader.getGameNumber(30));
+		assertEquals(1920, reader.getYear(19));
+
+		for(int record : new int[]{30, 5, 19, 0, 29}){
+			TrajectoryLog.Phase phase = reader.read(record);
+			int year = record == 30 ? 1901 : 1901 + record;
+			assertEquals(year, phase.getYear());
+			assertEquals(2, phase.getPhase());
+			assertEquals(3, phase.getUnit(year % 75));
+			assertEquals(-1, phase.getSupplyCenterDelta(3));
+			assertEquals(4, phase.getNumberOfSupplyCenters(6));
+			assertEquals("( AUS AMY VIE ) MTO TRI", phase.getOrders().get(0));
+			assertEquals("SUC", phase.getOrderResults().get(0));
+			assertEquals(Collections.singletonList("deal " + year), phase.getDeals());
+		}
+		reader.close();
+	}
+
+	@Test
+	public void dropsTheChunkThatWasNotWrittenCompletely() throws IOException{
+
+		File logFolder = folder.newFolder();
+
+		TrajectoryLog log = new TrajectoryLog(logFolder, 1000);
+		for(int year = 1901; year < 1931; year++){
+			log.append(phase(1, year));
+		}
+		log.close();
+
+		//The last chunk lost its end, as if the tournament had been killed while writing it.
+		File dataFile = new File(logFolder, TrajectoryLog.DATA_FILE_NAME);
+		RandomAccessFile data = new RandomAccessFile(dataFile, "rw");
+		data.setLength(data.length() - 1);
+		data.close();
+
+		log = new TrajectoryLog(logFolder, 1000);
+		int numberOfRecords = log.getNumberOfRecords();
+		log.close();
+		assertTrue(numberOfRecords > 0 && numberOfRecords < 30);
+
+		TrajectoryLog.Reader reader = new TrajectoryLog.Reader(logFolder);
+		assertEquals(numberOfRecords, reader.getNumberOfRecords());
+		assertEquals(1901 + numberOfRecords - 1, reader.read(numberOfRecords - 1).getYear());
+		reader.close();
+	}
+}
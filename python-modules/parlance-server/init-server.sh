@@ -7,4 +7,11 @@ else
 fi
 
 cd "$(dirname "$0")"
-pipenv run parlance-server $@
\ No newline at end of file
+
+# Parlance reads parlance.cfg from its working directory, so every server can get its own config folder.
+if [ -n "$PARLANCE_CONFIG_DIR" ]; then
+	export PIPENV_PIPFILE="$(pwd)/Pipfile"
+	cd "$PARLANCE_CONFIG_DIR"
+fi
+
+pipenv run parlance-server $@